@@ -135,6 +135,8 @@ import com.axelor.apps.account.service.debtrecovery.DebtRecoveryHistoryService;
 import com.axelor.apps.account.service.debtrecovery.DebtRecoveryHistoryServiceImpl;
 import com.axelor.apps.account.service.extract.ExtractContextMoveService;
 import com.axelor.apps.account.service.extract.ExtractContextMoveServiceImpl;
+import com.axelor.apps.account.service.fecimport.FECImportMoveCheckService;
+import com.axelor.apps.account.service.fecimport.FECImportMoveCheckServiceImpl;
 import com.axelor.apps.account.service.fecimport.FECImportService;
 import com.axelor.apps.account.service.fecimport.FECImportServiceImpl;
 import com.axelor.apps.account.service.fecimport.ImportFECTypeService;
@@ -648,6 +650,7 @@ public class AccountModule extends AxelorModule {
     bind(PaymentSessionRepository.class).to(PaymentSessionAccountRepository.class);
 
     bind(FECImportService.class).to(FECImportServiceImpl.class);
+    bind(FECImportMoveCheckService.class).to(FECImportMoveCheckServiceImpl.class);
 
     bind(AccountingSituationInitService.class).to(AccountingSituationInitServiceImpl.class);
 
@@ -23,7 +23,6 @@ import com.axelor.apps.account.db.AccountingReportType;
 import com.axelor.apps.account.db.Journal;
 import com.axelor.apps.account.db.Move;
 import com.axelor.apps.account.db.MoveLine;
-import com.axelor.apps.account.db.ReconcileGroup;
 import com.axelor.apps.account.db.repo.AccountRepository;
 import com.axelor.apps.account.db.repo.AccountingReportRepository;
 import com.axelor.apps.account.db.repo.JournalRepository;
@@ -53,6 +52,7 @@ import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
+import com.opencsv.CSVWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -62,13 +62,20 @@ import java.math.BigDecimal;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import javax.persistence.Query;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.jpa.QueryHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -93,6 +100,34 @@ public class MoveLineExportServiceImpl implements MoveLineExportService {
   protected static final String DATE_FORMAT_YYYYMMDD = "yyyyMMdd";
   protected static final String DATE_FORMAT_YYYYMMDDHHMMSS = "yyyyMMddHHmmss";
 
+  protected static final char CSV_SEPARATOR = '|';
+  protected static final Pattern CSV_FORBIDDEN_CHARACTERS =
+      Pattern.compile("(\r\n|\n\r|\r|\n|\\|)");
+
+  /** Number of rows fetched at once from the database cursor while exporting. */
+  protected static final int EXPORT_FETCH_SIZE = 1000;
+
+  /** Number of moves marked as exported at once. */
+  protected static final int MOVE_UPDATE_BATCH_SIZE = 1000;
+
+  protected static final String MOVE_LINE_EXPORT_QUERY =
+      "SELECT move.id, journal.code, journal.name, move.reference, self.date, account.code,"
+          + " account.name, partner.id, partner.partnerSeq, partner.name,"
+          + " accountType.isManageSubsidiaryAccount, self.origin, self.originDate,"
+          + " self.description, self.debit, self.credit, reconcileGroup.statusSelect,"
+          + " reconcileGroup.code, reconcileGroup.letteringDateTime, move.accountingDate,"
+          + " self.currencyAmount, currency.codeISO"
+          + " FROM MoveLine self"
+          + " JOIN self.move move"
+          + " JOIN move.journal journal"
+          + " JOIN self.account account"
+          + " LEFT JOIN account.accountType accountType"
+          + " LEFT JOIN self.partner partner"
+          + " LEFT JOIN self.reconcileGroup reconcileGroup"
+          + " LEFT JOIN move.currency currency"
+          + " WHERE %s"
+          + " ORDER BY move.accountingDate, self.date, self.name";
+
   @Inject
   public MoveLineExportServiceImpl(
       AppAccountService appAccountService,
@@ -121,44 +156,27 @@ public class MoveLineExportServiceImpl implements MoveLineExportService {
     this.companyRepository = companyRepository;
   }
 
-  public void updateMoveList(
-      List<Move> moveList,
+  /**
+   * Marks the given moves as exported, with a single update query which does not load them.
+   *
+   * @param moveIdSet the ids of the moves
+   */
+  protected void updateMoves(
+      Collection<Long> moveIdSet,
       AccountingReport accountingReport,
       LocalDate localDate,
       String exportNumber) {
-
-    int i = 0;
-
-    int moveListSize = moveList.size();
-
-    for (Move move : moveList) {
-
-      this.updateMove(
-          moveRepo.find(move.getId()),
-          accountingReportRepo.find(accountingReport.getId()),
-          localDate,
-          exportNumber);
-
-      if (i % 10 == 0) {
-        JPA.clear();
-      }
-      if (i++ % 100 == 0) {
-        log.debug("Process : {} / {}", i, moveListSize);
-      }
-    }
-  }
-
-  @Transactional
-  public Move updateMove(
-      Move move, AccountingReport accountingReport, LocalDate localDate, String exportNumber) {
-
-    move.setExportNumber(exportNumber);
-    move.setExportDate(localDate);
-    move.setAccountingOk(true);
-    move.setAccountingReport(accountingReport);
-    moveRepo.save(move);
-
-    return move;
+    JPA.em()
+        .createQuery(
+            "UPDATE Move self SET self.exportNumber = :exportNumber,"
+                + " self.exportDate = :exportDate, self.accountingOk = TRUE,"
+                + " self.accountingReport = :accountingReport, self.version = self.version + 1"
+                + " WHERE self.id IN (:moveIds)")
+        .setParameter("exportNumber", exportNumber)
+        .setParameter("exportDate", localDate)
+        .setParameter("accountingReport", accountingReport)
+        .setParameter("moveIds", moveIdSet)
+        .executeUpdate();
   }
 
   public BigDecimal getSumDebit(String queryFilter, List<? extends Move> moveList) {
@@ -294,7 +312,6 @@ public class MoveLineExportServiceImpl implements MoveLineExportService {
   public void exportMoveLineTypeSelect1010(AccountingReport accountingReport)
       throws AxelorException, IOException {
     log.info("In Export type 1010 service:");
-    List<String[]> allMoveLineData = new ArrayList<>();
     String filterStr = accountingReportService.getMoveLineList(accountingReport);
     String queryStr =
         String.format(
@@ -302,18 +319,6 @@ public class MoveLineExportServiceImpl implements MoveLineExportService {
                 + "FROM MoveLine self WHERE %s "
                 + "GROUP BY self.accountCode, self.accountName ORDER BY self.accountCode",
             filterStr);
-    Query query = JPA.em().createQuery(queryStr);
-
-    @SuppressWarnings("unchecked")
-    List<Object[]> resultList = query.getResultList();
-
-    for (Object[] result : resultList) {
-      String[] items = new String[result.length];
-      for (int i = 0; i < result.length; ++i) {
-        items[i] = String.valueOf(result[i]);
-      }
-      allMoveLineData.add(items);
-    }
 
     LocalDate date;
 
@@ -330,8 +335,21 @@ public class MoveLineExportServiceImpl implements MoveLineExportService {
     String fileName =
         String.format(
             "%s %s%s.csv", I18n.get("General balance"), accountingReport.getRef(), dateStr);
-    writeMoveLineToCsvFile(
-        accountingReport.getCompany(), fileName, null, allMoveLineData, accountingReport);
+    String filePath = getExportFilePath(accountingReport.getCompany());
+
+    try (CSVWriter writer = CsvHelper.setCsvFile(filePath, fileName, CSV_SEPARATOR);
+        Stream<Object[]> resultStream = streamRows(queryStr)) {
+      resultStream.forEach(
+          result -> {
+            String[] items = new String[result.length];
+            for (int i = 0; i < result.length; ++i) {
+              items[i] = String.valueOf(result[i]);
+            }
+            writeRow(writer, items);
+          });
+    }
+
+    attachExportFile(filePath, fileName, accountingReport);
   }
 
   /**
@@ -346,7 +364,6 @@ public class MoveLineExportServiceImpl implements MoveLineExportService {
       throws AxelorException, IOException {
 
     log.info("In Export type 1000 service : ");
-    List<String[]> allMoveLineData = new ArrayList<>();
     Company company = accountingReport.getCompany();
 
     LocalDate interfaceDate = accountingReport.getDate();
@@ -355,19 +372,19 @@ public class MoveLineExportServiceImpl implements MoveLineExportService {
 
     moveLineQueryList.add(
         String.format(
-            "self.move.statusSelect IN (%d, %d)",
+            "move.statusSelect IN (%d, %d)",
             MoveRepository.STATUS_ACCOUNTED,
             administration ? MoveRepository.STATUS_ACCOUNTED : MoveRepository.STATUS_DAYBOOK));
 
-    moveLineQueryList.add(String.format("self.move.company = %s", company.getId()));
+    moveLineQueryList.add(String.format("move.company = %s", company.getId()));
     if (accountingReport.getYear() != null) {
       moveLineQueryList.add(
-          String.format("self.move.period.year = %s", accountingReport.getYear().getId()));
+          String.format("move.period.year = %s", accountingReport.getYear().getId()));
     }
 
     if (accountingReport.getPeriod() != null) {
       moveLineQueryList.add(
-          String.format("self.move.period = %s", accountingReport.getPeriod().getId()));
+          String.format("move.period = %s", accountingReport.getPeriod().getId()));
     } else {
       if (accountingReport.getDateFrom() != null) {
         moveLineQueryList.add(
@@ -384,151 +401,151 @@ public class MoveLineExportServiceImpl implements MoveLineExportService {
           String.format("self.date <= '%s'", accountingReport.getDate().toString()));
     }
 
-    moveLineQueryList.add("self.move.ignoreInAccountingOk = false");
+    moveLineQueryList.add("move.ignoreInAccountingOk = false");
 
     if (!administration) {
-      moveLineQueryList.add("self.move.journal.notExportOk = false");
+      moveLineQueryList.add("move.journal.notExportOk = false");
 
       if (accountingReport.getJournal() != null) {
         moveLineQueryList.add(
-            String.format("self.move.journal.id = %s", accountingReport.getJournal().getId()));
+            String.format("move.journal.id = %s", accountingReport.getJournal().getId()));
       }
 
       if (replay) {
         moveLineQueryList.add(
             String.format(
-                "self.move.accountingOk = true AND self.move.accountingReport.id = %s",
+                "move.accountingOk = true AND move.accountingReport.id = %s",
                 accountingReport.getId()));
       } else {
-        moveLineQueryList.add("self.move.accountingOk = false");
+        moveLineQueryList.add("move.accountingOk = false");
       }
     }
 
     String moveLineQueryStr = StringUtils.join(moveLineQueryList, " AND ");
 
-    com.axelor.db.Query<MoveLine> moveLineQuery =
-        moveLineRepo
-            .all()
-            .filter(moveLineQueryStr)
-            .order("move.accountingDate")
-            .order("date")
-            .order("name");
-
-    int offset = 0;
-    List<Long> moveLineIdList;
-    List<Move> moveList = new ArrayList<>();
+    String fileName = this.setFileName(accountingReport);
+    String filePath = getExportFilePath(company);
+    Set<Long> moveIdSet = new LinkedHashSet<>();
     String exportNumber = null;
+    long lineCount = 0;
+
+    // rows are written as they are read, and moves are marked as exported by batches, so that
+    // the memory used does not depend on the size of the export
+    try (CSVWriter writer = CsvHelper.setCsvFile(filePath, fileName, CSV_SEPARATOR);
+        Stream<Object[]> rowStream =
+            streamRows(String.format(MOVE_LINE_EXPORT_QUERY, moveLineQueryStr))) {
+      writer.writeNext(this.createHeaderForJournalEntry());
+
+      for (Iterator<Object[]> iterator = rowStream.iterator(); iterator.hasNext(); ) {
+        Object[] row = iterator.next();
+        writeRow(writer, createItemForExportMoveLine(row));
+
+        if (!administration) {
+          moveIdSet.add((Long) row[0]);
+          if (moveIdSet.size() >= MOVE_UPDATE_BATCH_SIZE) {
+            exportNumber = exportNumber != null ? exportNumber : this.getSaleExportNumber(company);
+            this.updateMoves(moveIdSet, accountingReport, interfaceDate, exportNumber);
+            moveIdSet.clear();
+          }
+        }
 
-    while (!(moveLineIdList =
-            moveLineQuery
-                .fetchStream(10000, offset)
-                .map(MoveLine::getId)
-                .collect(Collectors.toList()))
-        .isEmpty()) {
-
-      for (Long id : moveLineIdList) {
-        MoveLine moveLine = moveLineRepo.find(id);
-        offset++;
-        allMoveLineData.add(createItemForExportMoveLine(moveLine, moveList));
-      }
-
-      JPA.clear();
-      company = companyRepository.find(company.getId());
-      if (!administration) {
-        exportNumber = exportNumber != null ? exportNumber : this.getSaleExportNumber(company);
-        this.updateMoveList(moveList, accountingReport, interfaceDate, exportNumber);
+        if (++lineCount % 10000 == 0) {
+          log.debug("Exported move lines : {}", lineCount);
+        }
       }
-
-      moveList.clear();
     }
 
-    accountingReport = accountingReportRepo.find(accountingReport.getId());
+    if (!moveIdSet.isEmpty()) {
+      exportNumber = exportNumber != null ? exportNumber : this.getSaleExportNumber(company);
+      this.updateMoves(moveIdSet, accountingReport, interfaceDate, exportNumber);
+    }
 
-    String fileName = this.setFileName(accountingReport);
     accountingReportRepo.save(accountingReport);
-    return writeMoveLineToCsvFile(
-        company, fileName, this.createHeaderForJournalEntry(), allMoveLineData, accountingReport);
+    return attachExportFile(filePath, fileName, accountingReport);
   }
 
-  protected String[] createItemForExportMoveLine(MoveLine moveLine, List<Move> moveList) {
+  /**
+   * Creates the items of an exported move line from a row of {@link #MOVE_LINE_EXPORT_QUERY}.
+   *
+   * @param row the row, the first column being the id of the move
+   * @return the items to write
+   */
+  protected String[] createItemForExportMoveLine(Object[] row) {
     String[] items = new String[18];
-    Move move = moveLine.getMove();
-    if (!moveList.contains(move)) {
-      moveList.add(move);
-    }
-    Journal journal = move.getJournal();
-    items[0] = journal.getCode();
-    items[1] = journal.getName();
-    items[2] = moveLine.getMove().getReference();
-    items[3] = moveLine.getDate().format(DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD));
-    items[4] = moveLine.getAccount().getCode();
-    items[5] = moveLine.getAccount().getName();
+    items[0] = (String) row[1];
+    items[1] = (String) row[2];
+    items[2] = (String) row[3];
+    items[3] = formatDate((LocalDate) row[4]);
+    items[4] = (String) row[5];
+    items[5] = (String) row[6];
     items[6] = "";
     items[7] = "";
-    Partner partner = moveLine.getPartner();
-    if (partner != null && moveLine.getAccount().getAccountType().getIsManageSubsidiaryAccount()) {
-      items[6] = partner.getPartnerSeq();
-      items[7] = partner.getName();
+    if (row[7] != null && Boolean.TRUE.equals(row[10])) {
+      items[6] = (String) row[8];
+      items[7] = (String) row[9];
     }
-    String origin = moveLine.getOrigin();
+    String origin = (String) row[11];
     items[8] = Strings.isNullOrEmpty(origin) ? "NA" : origin;
-    if (moveLine.getOriginDate() != null) {
-      items[9] = moveLine.getOriginDate().format(DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD));
-    }
-    items[10] = moveLine.getDescription();
-    items[11] = moveLine.getDebit().toString().replace('.', ',');
-    items[12] = moveLine.getCredit().toString().replace('.', ',');
-
-    ReconcileGroup reconcileGroup = moveLine.getReconcileGroup();
-    if (reconcileGroup != null
-        && reconcileGroup.getStatusSelect() == ReconcileGroupRepository.STATUS_BALANCED) {
-      items[13] = reconcileGroup.getCode();
+    items[9] = formatDate((LocalDate) row[12]);
+    items[10] = (String) row[13];
+    items[11] = formatAmount((BigDecimal) row[14]);
+    items[12] = formatAmount((BigDecimal) row[15]);
+
+    if (row[16] != null && (Integer) row[16] == ReconcileGroupRepository.STATUS_BALANCED) {
+      items[13] = (String) row[17];
       items[14] =
-          reconcileGroup
-              .getLetteringDateTime()
-              .format(DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD));
+          row[18] != null
+              ? ((LocalDateTime) row[18]).format(DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD))
+              : "";
     } else {
       items[13] = "";
       items[14] = "";
     }
 
-    if (move.getAccountingDate() != null) {
-      items[15] =
-          move.getAccountingDate().format(DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD));
-    }
-
-    items[16] = moveLine.getCurrencyAmount().toString().replace('.', ',');
-
-    if (move.getCurrency() != null) {
-      items[17] = move.getCurrency().getCodeISO();
-    }
+    items[15] = formatDate((LocalDate) row[19]);
+    items[16] = formatAmount((BigDecimal) row[20]);
+    items[17] = (String) row[21];
     return items;
   }
 
-  protected MetaFile writeMoveLineToCsvFile(
-      Company company,
-      String fileName,
-      String[] columnHeader,
-      List<String[]> allMoveData,
-      AccountingReport accountingReport)
-      throws AxelorException, IOException {
+  protected String formatDate(LocalDate date) {
+    return date != null ? date.format(DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD)) : null;
+  }
 
-    String filePath = accountConfigService.getAccountConfig(company).getExportPath();
-    String dataExportDir = appAccountService.getDataExportDir();
+  protected String formatAmount(BigDecimal amount) {
+    return amount.toString().replace('.', ',');
+  }
 
-    for (String[] items : allMoveData) {
-      for (int i = 0; i < items.length; i++) {
-        if (items[i] != null) {
-          items[i] = items[i].replaceAll("(\r\n|\n\r|\r|\n|\\|)", " ");
-        }
+  /** Streams the rows of the given query, fetched by blocks from a database cursor. */
+  protected Stream<Object[]> streamRows(String queryStr) {
+    return JPA.em()
+        .createQuery(queryStr, Object[].class)
+        .setHint(QueryHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+        .setHint(QueryHints.HINT_READONLY, true)
+        .getResultStream();
+  }
+
+  protected void writeRow(CSVWriter writer, String[] items) {
+    for (int i = 0; i < items.length; i++) {
+      if (items[i] != null) {
+        items[i] = CSV_FORBIDDEN_CHARACTERS.matcher(items[i]).replaceAll(" ");
       }
     }
+    writer.writeNext(items);
+  }
+
+  protected String getExportFilePath(Company company) throws AxelorException {
+    String filePath = accountConfigService.getAccountConfig(company).getExportPath();
+    String dataExportDir = appAccountService.getDataExportDir();
 
     filePath = filePath == null ? dataExportDir : dataExportDir + filePath;
     new File(filePath).mkdirs();
+    return filePath;
+  }
 
+  protected MetaFile attachExportFile(
+      String filePath, String fileName, AccountingReport accountingReport) throws IOException {
     log.debug("Full path to export : {}{}", filePath, fileName);
-    CsvHelper.csvWriter(filePath, fileName, '|', columnHeader, allMoveData);
     Path path = Paths.get(filePath, fileName);
     try (InputStream is = new FileInputStream(path.toFile())) {
       return Beans.get(MetaFiles.class).attach(is, fileName, accountingReport).getMetaFile();
@@ -0,0 +1,395 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.batch;
+
+import com.axelor.apps.account.db.MoveLine;
+import com.axelor.apps.account.db.repo.AccountingBatchRepository;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Finds the debit and credit move lines of a company/account/partner group to letter together,
+ * using hashed and sorted lookups instead of comparing every debit line with every credit line.
+ *
+ * <p>Each match is a pair of debit and credit line lists, in the order they must be reconciled.
+ * The matcher only reads the amounts and identifiers of the lines, which can be detached, and
+ * keeps no state between calls: a single instance can be shared by the batch workers.
+ */
+public class AutoMoveLetteringMatcher {
+
+  protected final Comparator<MoveLine> moveLineComparator;
+  protected final boolean isPartialReconcile;
+  protected final int subsetMaxSize;
+  protected final int subsetMaxCandidates;
+
+  /**
+   * @param moveLineComparator the order in which the lines are lettered
+   * @param isPartialReconcile whether lines with the same origin or external identifier are
+   *     lettered even if their amounts differ
+   * @param subsetMaxSize the maximum number of lines of one side whose remaining amounts can sum up
+   *     to the remaining amount of a single line of the other side, below 2 no subset is searched
+   * @param subsetMaxCandidates the maximum number of unmatched lines of one side considered by the
+   *     subset search, which bounds its cost on large groups
+   */
+  public AutoMoveLetteringMatcher(
+      Comparator<MoveLine> moveLineComparator,
+      boolean isPartialReconcile,
+      int subsetMaxSize,
+      int subsetMaxCandidates) {
+    this.moveLineComparator = moveLineComparator;
+    this.isPartialReconcile = isPartialReconcile;
+    this.subsetMaxSize = subsetMaxSize;
+    this.subsetMaxCandidates = subsetMaxCandidates;
+  }
+
+  /**
+   * Returns the lines to letter together.
+   *
+   * @param reconcileMethodSelect the reconcile method of the accounting batch
+   * @param debitMoveLineList the debit lines with a remaining amount
+   * @param creditMoveLineList the credit lines with a remaining amount
+   * @return the debit and credit lines of each match, sorted in the lettering order
+   */
+  public List<Pair<List<MoveLine>, List<MoveLine>>> match(
+      int reconcileMethodSelect,
+      List<MoveLine> debitMoveLineList,
+      List<MoveLine> creditMoveLineList) {
+    debitMoveLineList = sort(debitMoveLineList);
+    creditMoveLineList = sort(creditMoveLineList);
+
+    List<Pair<List<MoveLine>, List<MoveLine>>> matchList = new ArrayList<>();
+    Set<Long> matchedIdSet = new HashSet<>();
+
+    switch (reconcileMethodSelect) {
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_MOVE:
+        matchBalancedSequences(debitMoveLineList, creditMoveLineList, matchedIdSet, matchList);
+        matchSubsets(debitMoveLineList, creditMoveLineList, matchedIdSet, matchList);
+        break;
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_AMOUNT:
+        matchByKey(
+            debitMoveLineList,
+            creditMoveLineList,
+            debitMoveLine -> getAmountKey(debitMoveLine.getDebit()),
+            creditMoveLine -> getAmountKey(creditMoveLine.getCredit()),
+            false,
+            matchedIdSet,
+            matchList);
+        matchSubsets(debitMoveLineList, creditMoveLineList, matchedIdSet, matchList);
+        break;
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_ACCOUNT:
+        matchByKey(
+            debitMoveLineList,
+            creditMoveLineList,
+            debitMoveLine -> getAmountKey(debitMoveLine.getDebit()),
+            creditMoveLine -> getAmountKey(creditMoveLine.getCredit()),
+            false,
+            matchedIdSet,
+            matchList);
+        break;
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_ORIGIN:
+        matchByKey(
+            debitMoveLineList,
+            creditMoveLineList,
+            MoveLine::getOrigin,
+            MoveLine::getOrigin,
+            isPartialReconcile,
+            matchedIdSet,
+            matchList);
+        break;
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_EXTERNAL_IDENTIFIER:
+        matchByKey(
+            debitMoveLineList,
+            creditMoveLineList,
+            MoveLine::getExternalOrigin,
+            MoveLine::getExternalOrigin,
+            isPartialReconcile,
+            matchedIdSet,
+            matchList);
+        break;
+      default:
+        break;
+    }
+
+    return matchList;
+  }
+
+  /**
+   * Matches each credit line with the debit lines sharing the same key and, unless partial
+   * lettering is allowed, the same amount, in order as long as their remaining amounts are not
+   * lettered. With partial lettering, a credit line is matched with every debit line of its key,
+   * which are lettered in order as long as amounts remain.
+   */
+  protected void matchByKey(
+      List<MoveLine> debitMoveLineList,
+      List<MoveLine> creditMoveLineList,
+      Function<MoveLine, Object> debitKeyGetter,
+      Function<MoveLine, Object> creditKeyGetter,
+      boolean isPartial,
+      Set<Long> matchedIdSet,
+      List<Pair<List<MoveLine>, List<MoveLine>>> matchList) {
+    Map<Object, List<MoveLine>> debitMoveLineMap = new LinkedHashMap<>();
+    Map<Long, BigDecimal> amountRemainingMap = new HashMap<>();
+    for (MoveLine debitMoveLine : debitMoveLineList) {
+      Object key = debitKeyGetter.apply(debitMoveLine);
+      if (key != null) {
+        debitMoveLineMap.computeIfAbsent(key, k -> new LinkedList<>()).add(debitMoveLine);
+      }
+    }
+
+    for (MoveLine creditMoveLine : creditMoveLineList) {
+      Object key = creditKeyGetter.apply(creditMoveLine);
+      List<MoveLine> keyDebitMoveLineList = key != null ? debitMoveLineMap.get(key) : null;
+      if (keyDebitMoveLineList == null || keyDebitMoveLineList.isEmpty()) {
+        continue;
+      }
+
+      if (isPartial) {
+        matchList.add(Pair.of(new ArrayList<>(keyDebitMoveLineList), List.of(creditMoveLine)));
+        continue;
+      }
+
+      // Partially lettered lines can be lettered with several lines of the same amount
+      BigDecimal creditRemaining = getAmountRemaining(creditMoveLine);
+      Iterator<MoveLine> iterator = keyDebitMoveLineList.iterator();
+      while (creditRemaining.signum() > 0 && iterator.hasNext()) {
+        MoveLine debitMoveLine = iterator.next();
+        if (debitMoveLine.getDebit().compareTo(creditMoveLine.getCredit()) != 0) {
+          continue;
+        }
+
+        BigDecimal debitRemaining =
+            amountRemainingMap.getOrDefault(
+                debitMoveLine.getId(), getAmountRemaining(debitMoveLine));
+        BigDecimal amount = debitRemaining.min(creditRemaining);
+        creditRemaining = creditRemaining.subtract(amount);
+        amountRemainingMap.put(debitMoveLine.getId(), debitRemaining.subtract(amount));
+        if (debitRemaining.compareTo(amount) == 0) {
+          iterator.remove();
+        }
+
+        matchedIdSet.add(debitMoveLine.getId());
+        matchedIdSet.add(creditMoveLine.getId());
+        matchList.add(Pair.of(List.of(debitMoveLine), List.of(creditMoveLine)));
+      }
+    }
+  }
+
+  /**
+   * Matches the shortest sequences of consecutive lines, in the lettering order, whose remaining
+   * amounts are balanced. A sequence from line {@code i} to line {@code j} is balanced when the
+   * running balances before {@code i} and after {@code j} are equal, so the end of the shortest
+   * sequence starting at each line is found by indexing the positions of each running balance.
+   */
+  protected void matchBalancedSequences(
+      List<MoveLine> debitMoveLineList,
+      List<MoveLine> creditMoveLineList,
+      Set<Long> matchedIdSet,
+      List<Pair<List<MoveLine>, List<MoveLine>>> matchList) {
+    List<MoveLine> moveLineList =
+        Stream.of(debitMoveLineList, creditMoveLineList)
+            .flatMap(Collection::stream)
+            .sorted(moveLineComparator)
+            .collect(Collectors.toList());
+    int size = moveLineList.size();
+
+    BigDecimal[] balances = new BigDecimal[size + 1];
+    balances[0] = BigDecimal.ZERO;
+    Map<BigDecimal, Deque<Integer>> balancePositionMap = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      MoveLine moveLine = moveLineList.get(i);
+      BigDecimal amountRemaining = getAmountRemaining(moveLine);
+      balances[i + 1] =
+          isDebit(moveLine)
+              ? balances[i].subtract(amountRemaining)
+              : balances[i].add(amountRemaining);
+      balancePositionMap
+          .computeIfAbsent(getAmountKey(balances[i + 1]), k -> new ArrayDeque<>())
+          .add(i + 1);
+    }
+
+    int start = 0;
+    while (start < size) {
+      Deque<Integer> positions = balancePositionMap.get(getAmountKey(balances[start]));
+      while (positions != null && !positions.isEmpty() && positions.peekFirst() <= start) {
+        positions.pollFirst();
+      }
+      if (positions == null || positions.isEmpty()) {
+        start++;
+        continue;
+      }
+
+      int end = positions.pollFirst();
+      List<MoveLine> sequence = moveLineList.subList(start, end);
+      sequence.forEach(moveLine -> matchedIdSet.add(moveLine.getId()));
+      Map<Boolean, List<MoveLine>> sequenceMap =
+          sequence.stream().collect(Collectors.partitioningBy(this::isDebit));
+      matchList.add(Pair.of(sequenceMap.get(true), sequenceMap.get(false)));
+      start = end;
+    }
+  }
+
+  /**
+   * Matches the unmatched lines of each side with the smallest set of unmatched lines of the other
+   * side whose remaining amounts sum up to theirs, up to {@link #subsetMaxSize} lines.
+   */
+  protected void matchSubsets(
+      List<MoveLine> debitMoveLineList,
+      List<MoveLine> creditMoveLineList,
+      Set<Long> matchedIdSet,
+      List<Pair<List<MoveLine>, List<MoveLine>>> matchList) {
+    if (subsetMaxSize < 2) {
+      return;
+    }
+
+    matchSubsets(debitMoveLineList, creditMoveLineList, true, matchedIdSet, matchList);
+    matchSubsets(creditMoveLineList, debitMoveLineList, false, matchedIdSet, matchList);
+  }
+
+  protected void matchSubsets(
+      List<MoveLine> targetMoveLineList,
+      List<MoveLine> candidateMoveLineList,
+      boolean isTargetDebit,
+      Set<Long> matchedIdSet,
+      List<Pair<List<MoveLine>, List<MoveLine>>> matchList) {
+    List<MoveLine> candidateList =
+        candidateMoveLineList.stream()
+            .filter(moveLine -> !matchedIdSet.contains(moveLine.getId()))
+            .limit(subsetMaxCandidates)
+            .collect(Collectors.toList());
+    if (candidateList.isEmpty()) {
+      return;
+    }
+
+    BigDecimal[] amounts = new BigDecimal[candidateList.size()];
+    Map<BigDecimal, List<Integer>> amountPositionMap = new HashMap<>();
+    for (int i = 0; i < amounts.length; i++) {
+      amounts[i] = getAmountRemaining(candidateList.get(i));
+      amountPositionMap.computeIfAbsent(getAmountKey(amounts[i]), k -> new ArrayList<>()).add(i);
+    }
+    boolean[] used = new boolean[amounts.length];
+
+    for (MoveLine targetMoveLine : targetMoveLineList) {
+      if (matchedIdSet.contains(targetMoveLine.getId())) {
+        continue;
+      }
+
+      List<Integer> subset = new ArrayList<>();
+      BigDecimal targetAmount = getAmountRemaining(targetMoveLine);
+      for (int size = 1; size <= subsetMaxSize; size++) {
+        if (findSubset(targetAmount, 0, size, amounts, amountPositionMap, used, subset)) {
+          break;
+        }
+      }
+      if (subset.isEmpty()) {
+        continue;
+      }
+
+      subset.sort(Comparator.naturalOrder());
+      List<MoveLine> subsetMoveLineList = new ArrayList<>();
+      for (int position : subset) {
+        used[position] = true;
+        subsetMoveLineList.add(candidateList.get(position));
+        matchedIdSet.add(candidateList.get(position).getId());
+      }
+      matchedIdSet.add(targetMoveLine.getId());
+
+      matchList.add(
+          isTargetDebit
+              ? Pair.of(List.of(targetMoveLine), subsetMoveLineList)
+              : Pair.of(subsetMoveLineList, List.of(targetMoveLine)));
+    }
+  }
+
+  /**
+   * Searches {@code size} unused candidates from position {@code start} summing up to the given
+   * amount. The last candidate is looked up by amount, so the search costs at most {@code
+   * candidates^(size - 1)} steps.
+   */
+  protected boolean findSubset(
+      BigDecimal amount,
+      int start,
+      int size,
+      BigDecimal[] amounts,
+      Map<BigDecimal, List<Integer>> amountPositionMap,
+      boolean[] used,
+      List<Integer> subset) {
+    if (size == 1) {
+      List<Integer> positions = amountPositionMap.get(getAmountKey(amount));
+      if (positions == null) {
+        return false;
+      }
+      for (int position : positions) {
+        if (position >= start && !used[position]) {
+          subset.add(position);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    for (int position = start; position < amounts.length; position++) {
+      BigDecimal nextAmount = amount.subtract(amounts[position]);
+      if (used[position] || nextAmount.signum() <= 0) {
+        continue;
+      }
+      subset.add(position);
+      if (findSubset(
+          nextAmount, position + 1, size - 1, amounts, amountPositionMap, used, subset)) {
+        return true;
+      }
+      subset.remove(subset.size() - 1);
+    }
+    return false;
+  }
+
+  protected List<MoveLine> sort(List<MoveLine> moveLineList) {
+    List<MoveLine> sortedMoveLineList = new ArrayList<>(moveLineList);
+    sortedMoveLineList.sort(moveLineComparator);
+    return sortedMoveLineList;
+  }
+
+  protected boolean isDebit(MoveLine moveLine) {
+    return moveLine.getDebit().signum() > 0;
+  }
+
+  protected BigDecimal getAmountRemaining(MoveLine moveLine) {
+    return moveLine.getAmountRemaining().abs();
+  }
+
+  /** Amounts are compared with {@code compareTo}, so they are indexed regardless of their scale. */
+  protected BigDecimal getAmountKey(BigDecimal amount) {
+    return amount.stripTrailingZeros();
+  }
+}
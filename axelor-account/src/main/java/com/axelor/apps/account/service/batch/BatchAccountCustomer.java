@@ -26,6 +26,7 @@ import com.axelor.apps.account.service.AccountCustomerService;
 import com.axelor.apps.base.db.Company;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.db.JPA;
 import com.axelor.i18n.I18n;
@@ -68,48 +69,63 @@ public class BatchAccountCustomer extends BatchStrategy {
     boolean updateDueDebtRecoveryCustAccountOk =
         accountingBatch.getUpdateDueDebtRecoveryCustAccountOk();
 
-    List<AccountingSituation> accountingSituationList =
-        accountingSituationRepo.all().filter("self.company = ?1", company).fetch();
-    int i = 0;
+    ChunkedQuery<AccountingSituation> query =
+        chunkedQuery(AccountingSituation.class)
+            .filter("self.company.id = :companyId")
+            .bind("companyId", company.getId());
     JPA.clear();
-    for (AccountingSituation accountingSituation : accountingSituationList) {
-      try {
 
-        accountingSituation =
-            accountCustomerService.updateAccountingSituationCustomerAccount(
-                accountingSituationRepo.find(accountingSituation.getId()),
-                updateCustAccountOk,
-                updateDueCustAccountOk,
-                updateDueDebtRecoveryCustAccountOk);
+    processPartitioned(
+        query,
+        null,
+        partition ->
+            partition.forEach(
+                accountingSituation ->
+                    updateAccountingSituation(
+                        accountingSituation,
+                        updateCustAccountOk,
+                        updateDueCustAccountOk,
+                        updateDueDebtRecoveryCustAccountOk)));
+  }
 
-        if (accountingSituation != null) {
-          this.updateAccountingSituation(accountingSituation);
-          i++;
-        }
+  protected void updateAccountingSituation(
+      AccountingSituation accountingSituation,
+      boolean updateCustAccountOk,
+      boolean updateDueCustAccountOk,
+      boolean updateDueDebtRecoveryCustAccountOk) {
+    try {
+
+      accountingSituation =
+          accountCustomerService.updateAccountingSituationCustomerAccount(
+              accountingSituationRepo.find(accountingSituation.getId()),
+              updateCustAccountOk,
+              updateDueCustAccountOk,
+              updateDueDebtRecoveryCustAccountOk);
+
+      if (accountingSituation != null) {
+        this.updateAccountingSituation(accountingSituation);
+      }
 
-      } catch (Exception e) {
+    } catch (Exception e) {
 
-        TraceBackService.trace(
-            new Exception(
-                String.format(
-                    I18n.get(AccountExceptionMessage.BATCH_ACCOUNT_1),
-                    accountingSituationRepo.find(accountingSituation.getId()).getName()),
-                e),
-            ExceptionOriginRepository.CUSTOMER_ACCOUNT,
-            batch.getId());
+      TraceBackService.trace(
+          new Exception(
+              String.format(
+                  I18n.get(AccountExceptionMessage.BATCH_ACCOUNT_1),
+                  accountingSituationRepo.find(accountingSituation.getId()).getName()),
+              e),
+          ExceptionOriginRepository.CUSTOMER_ACCOUNT,
+          batch.getId());
 
-        incrementAnomaly();
+      incrementAnomaly();
 
-        log.error(
-            "Bug(Anomalie) généré(e) pour la situation compable {}",
-            accountingSituationRepo.find(accountingSituation.getId()).getName());
+      log.error(
+          "Bug(Anomalie) généré(e) pour la situation compable {}",
+          accountingSituationRepo.find(accountingSituation.getId()).getName());
 
-      } finally {
+    } finally {
 
-        if (i % 1 == 0) {
-          JPA.clear();
-        }
-      }
+      JPA.clear();
     }
   }
 
@@ -18,6 +18,7 @@
  */
 package com.axelor.apps.account.service.batch;
 
+import com.axelor.app.AppSettings;
 import com.axelor.apps.account.db.AccountingBatch;
 import com.axelor.apps.account.db.MoveLine;
 import com.axelor.apps.account.db.Reconcile;
@@ -30,6 +31,7 @@ import com.axelor.apps.account.service.payment.PaymentService;
 import com.axelor.apps.account.service.reconcile.ReconcileService;
 import com.axelor.apps.account.service.reconcilegroup.ReconcileGroupProposalService;
 import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Batch;
 import com.axelor.apps.base.db.Partner;
 import com.axelor.apps.base.db.repo.CompanyRepository;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
@@ -41,16 +43,20 @@ import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import java.lang.invoke.MethodHandles;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.persistence.TypedQuery;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
@@ -60,6 +66,36 @@ public class BatchAutoMoveLettering extends BatchStrategy {
 
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  /**
+   * Application setting enabling the lettering of the move lines one company/account/partner group
+   * at a time, with indexed amount matching. Groups of different partners are lettered in parallel
+   * when several workers are configured for this batch. When disabled, every move line is loaded
+   * at once and matched pair by pair.
+   */
+  public static final String GROUP_LETTERING_SETTING = "account.auto-move-lettering.by-group";
+
+  /**
+   * Application setting enabling the incremental mode of the lettering by group: only the groups
+   * having lines created or changed since the start of the last run without anomaly of the same
+   * accounting batch are lettered. The other groups had no match left at that time. Lines excluded
+   * from the previous runs by the accounting batch filters are only considered once changed.
+   */
+  public static final String INCREMENTAL_SETTING = "account.auto-move-lettering.incremental";
+
+  /**
+   * Application setting giving, for the lettering by amount or by balanced move, the maximum
+   * number of lines whose remaining amounts can be lettered against a single line of the other
+   * side once the exact matches are done. Values below 2, the default, disable this search.
+   */
+  public static final String SUBSET_MAX_SIZE_SETTING =
+      "account.auto-move-lettering.subset-max-size";
+
+  /** Application setting giving the maximum number of lines per side searched for subsets. */
+  public static final String SUBSET_MAX_CANDIDATES_SETTING =
+      "account.auto-move-lettering.subset-max-candidates";
+
+  protected static final int DEFAULT_SUBSET_MAX_CANDIDATES = 100;
+
   protected AccountingBatchRepository accountingBatchRepository;
   protected MoveLineRepository moveLineRepository;
   protected CompanyRepository companyRepository;
@@ -96,6 +132,11 @@ public class BatchAutoMoveLettering extends BatchStrategy {
     accountingBatch = batch.getAccountingBatch();
     moveLineReconciledSet = new HashSet<>();
 
+    if (AppSettings.get().getBoolean(GROUP_LETTERING_SETTING, true)) {
+      processByGroup();
+      return;
+    }
+
     Map<List<Object>, Pair<List<MoveLine>, List<MoveLine>>> moveLineMap = getMoveLinesMap();
 
     int reconcileMethodSelect = accountingBatch.getReconcileMethodSelect();
@@ -137,17 +178,260 @@ public class BatchAutoMoveLettering extends BatchStrategy {
     }
   }
 
+  protected void processByGroup() {
+    String filter = getMoveLinesToReconcileFilter(accountingBatch);
+    Map<String, Object> params = getMoveLinesToReconcileParams(accountingBatch);
+    int reconcileMethodSelect = accountingBatch.getReconcileMethodSelect();
+
+    AppSettings appSettings = AppSettings.get();
+    AutoMoveLetteringMatcher matcher =
+        new AutoMoveLetteringMatcher(
+            Comparator.nullsLast(getMoveLineComparator()),
+            accountingBatch.getIsPartialReconcile(),
+            appSettings.getInt(SUBSET_MAX_SIZE_SETTING, 1),
+            Math.max(
+                1,
+                appSettings.getInt(SUBSET_MAX_CANDIDATES_SETTING, DEFAULT_SUBSET_MAX_CANDIDATES)));
+
+    List<Pair<Long, Long>> groupKeyList =
+        getMoveLineGroupKeys(filter, params, getIncrementalStartDate());
+    LOG.debug("Move line groups to letter : {}", groupKeyList.size());
+
+    processPartitions(
+        partitionByPartner(groupKeyList),
+        partition -> {
+          for (Pair<Long, Long> groupKey : partition) {
+            letterGroup(groupKey, filter, params, reconcileMethodSelect, matcher);
+          }
+        });
+  }
+
+  /**
+   * Returns the date from which changed lines are lettered in incremental mode, or {@code null}
+   * to letter every group.
+   */
+  protected LocalDateTime getIncrementalStartDate() {
+    if (!AppSettings.get().getBoolean(INCREMENTAL_SETTING, false)) {
+      return null;
+    }
+
+    Batch lastBatch =
+        batchRepo
+            .all()
+            .filter(
+                "self.accountingBatch.id = :accountingBatchId AND self.id != :batchId"
+                    + " AND self.endDate IS NOT NULL AND self.anomaly = 0")
+            .bind("accountingBatchId", accountingBatch.getId())
+            .bind("batchId", batch.getId())
+            .order("-startDate")
+            .fetchOne();
+
+    return lastBatch != null
+        ? lastBatch.getStartDate().withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime()
+        : null;
+  }
+
+  /**
+   * Returns the groups of lines to letter, identified by their account and, for accounts used for
+   * partner balance, their partner, as in {@code
+   * MoveLineService.getPopulatedReconcilableMoveLineMap}.
+   *
+   * @param since if not null, only the groups having lines created or changed since this date
+   */
+  protected List<Pair<Long, Long>> getMoveLineGroupKeys(
+      String filter, Map<String, Object> params, LocalDateTime since) {
+    StringBuilder queryStr =
+        new StringBuilder(
+                "SELECT DISTINCT self.account.id, self.account.useForPartnerBalance, partner.id"
+                    + " FROM MoveLine self LEFT JOIN self.partner partner WHERE ")
+            .append(filter)
+            .append(" AND self.account.reconcileOk = TRUE");
+    if (since != null) {
+      queryStr.append(" AND (self.createdOn >= :since OR self.updatedOn >= :since)");
+    }
+    queryStr.append(" ORDER BY self.account.id, partner.id");
+
+    TypedQuery<Object[]> query = JPA.em().createQuery(queryStr.toString(), Object[].class);
+    params.forEach(query::setParameter);
+    if (since != null) {
+      query.setParameter("since", since);
+    }
+
+    Set<Pair<Long, Long>> groupKeySet = new LinkedHashSet<>();
+    for (Object[] row : query.getResultList()) {
+      groupKeySet.add(Pair.of((Long) row[0], Boolean.TRUE.equals(row[1]) ? (Long) row[2] : null));
+    }
+    return new ArrayList<>(groupKeySet);
+  }
+
+  /**
+   * Splits the groups into partitions, the groups of a same partner being in the same partition so
+   * that its balance is never updated by two workers at once.
+   */
+  protected List<List<Pair<Long, Long>>> partitionByPartner(List<Pair<Long, Long>> groupKeyList) {
+    int workerCount = getWorkerCount();
+    if (workerCount <= 1) {
+      return List.of(groupKeyList);
+    }
+
+    int partitionCount = workerCount * PARTITIONS_PER_WORKER;
+    List<List<Pair<Long, Long>>> partitionList = new ArrayList<>();
+    for (int i = 0; i < partitionCount; i++) {
+      partitionList.add(new ArrayList<>());
+    }
+    for (Pair<Long, Long> groupKey : groupKeyList) {
+      Long partnerId = groupKey.getRight();
+      int index = partnerId == null ? 0 : (int) Math.floorMod(partnerId, (long) partitionCount);
+      partitionList.get(index).add(groupKey);
+    }
+    partitionList.removeIf(List::isEmpty);
+    return partitionList;
+  }
+
+  protected void letterGroup(
+      Pair<Long, Long> groupKey,
+      String filter,
+      Map<String, Object> params,
+      int reconcileMethodSelect,
+      AutoMoveLetteringMatcher matcher) {
+    try {
+      Map<List<Object>, Pair<List<MoveLine>, List<MoveLine>>> moveLineMap =
+          moveLineService.getPopulatedReconcilableMoveLineMap(
+              getGroupMoveLines(groupKey, filter, params));
+
+      Map<Long, BigDecimal> amountRemainingMap = new HashMap<>();
+      Set<Long> reconciledIdSet = new HashSet<>();
+
+      for (Pair<List<MoveLine>, List<MoveLine>> moveLineLists : moveLineMap.values()) {
+        List<MoveLine> creditMoveLineList =
+            moveLineLists.getLeft().stream()
+                .filter(moveLine -> moveLine.getAmountRemaining().signum() != 0)
+                .collect(Collectors.toList());
+        List<MoveLine> debitMoveLineList =
+            moveLineLists.getRight().stream()
+                .filter(moveLine -> moveLine.getAmountRemaining().signum() > 0)
+                .collect(Collectors.toList());
+
+        if (creditMoveLineList.isEmpty() || debitMoveLineList.isEmpty()) {
+          continue;
+        }
+
+        for (Pair<List<MoveLine>, List<MoveLine>> match :
+            matcher.match(reconcileMethodSelect, debitMoveLineList, creditMoveLineList)) {
+          reconcileMatch(match.getLeft(), match.getRight(), amountRemainingMap, reconciledIdSet);
+        }
+      }
+
+      addDone(reconciledIdSet.size());
+    } catch (Exception e) {
+      TraceBackService.trace(e, ExceptionOriginRepository.MOVE_LINE_RECONCILE, batch.getId());
+      incrementAnomaly();
+    } finally {
+      JPA.clear();
+    }
+  }
+
+  protected List<MoveLine> getGroupMoveLines(
+      Pair<Long, Long> groupKey, String filter, Map<String, Object> params) {
+    Long partnerId = groupKey.getRight();
+    String groupFilter =
+        filter
+            + " AND self.account.id = :accountId AND (self.account.useForPartnerBalance = FALSE OR "
+            + (partnerId != null ? "self.partner.id = :partnerId)" : "self.partner IS NULL)");
+
+    Query<MoveLine> query =
+        moveLineRepository
+            .all()
+            .filter(groupFilter)
+            .bind(params)
+            .bind("accountId", groupKey.getLeft());
+    if (partnerId != null) {
+      query.bind("partnerId", partnerId);
+    }
+
+    return query.order("id").fetch().stream()
+        .filter(moveLine -> moveLineControlService.canReconcile(moveLine))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Reconciles the debit and credit lines of a match in order, each line being reconciled with
+   * the following lines of the other side until its remaining amount is lettered. The remaining
+   * amounts are tracked in the given map, as lines lettered partially can belong to several
+   * matches. The match is abandoned at its first anomaly.
+   */
+  protected void reconcileMatch(
+      List<MoveLine> debitMoveLineList,
+      List<MoveLine> creditMoveLineList,
+      Map<Long, BigDecimal> amountRemainingMap,
+      Set<Long> reconciledIdSet) {
+    BigDecimal debitTotalRemaining = getTotalRemaining(debitMoveLineList, amountRemainingMap);
+    BigDecimal creditTotalRemaining = getTotalRemaining(creditMoveLineList, amountRemainingMap);
+
+    int debitIndex = 0;
+    int creditIndex = 0;
+    while (debitIndex < debitMoveLineList.size() && creditIndex < creditMoveLineList.size()) {
+      MoveLine debitMoveLine = debitMoveLineList.get(debitIndex);
+      MoveLine creditMoveLine = creditMoveLineList.get(creditIndex);
+      BigDecimal debitRemaining = getAmountRemaining(debitMoveLine, amountRemainingMap);
+      BigDecimal creditRemaining = getAmountRemaining(creditMoveLine, amountRemainingMap);
+
+      if (debitRemaining.signum() <= 0) {
+        debitIndex++;
+        continue;
+      }
+      if (creditRemaining.signum() <= 0) {
+        creditIndex++;
+        continue;
+      }
+
+      try {
+        reconcile(
+            moveLineRepository.find(debitMoveLine.getId()),
+            moveLineRepository.find(creditMoveLine.getId()),
+            debitTotalRemaining,
+            creditTotalRemaining);
+      } catch (Exception e) {
+        traceReconcileAnomaly(debitMoveLine, creditMoveLine, e);
+        return;
+      } finally {
+        JPA.clear();
+      }
+
+      BigDecimal amount = debitRemaining.min(creditRemaining);
+      amountRemainingMap.put(debitMoveLine.getId(), debitRemaining.subtract(amount));
+      amountRemainingMap.put(creditMoveLine.getId(), creditRemaining.subtract(amount));
+      debitTotalRemaining = debitTotalRemaining.subtract(amount);
+      creditTotalRemaining = creditTotalRemaining.subtract(amount);
+      reconciledIdSet.add(debitMoveLine.getId());
+      reconciledIdSet.add(creditMoveLine.getId());
+    }
+  }
+
+  protected BigDecimal getAmountRemaining(
+      MoveLine moveLine, Map<Long, BigDecimal> amountRemainingMap) {
+    return amountRemainingMap.computeIfAbsent(
+        moveLine.getId(), id -> moveLine.getAmountRemaining().abs());
+  }
+
+  protected BigDecimal getTotalRemaining(
+      List<MoveLine> moveLineList, Map<Long, BigDecimal> amountRemainingMap) {
+    return moveLineList.stream()
+        .map(moveLine -> getAmountRemaining(moveLine, amountRemainingMap))
+        .reduce(BigDecimal.ZERO, BigDecimal::add);
+  }
+
   protected void reconcileWithBalancedMove(List<MoveLine> moveLines) {
 
     List<MoveLine> debitMoveLines;
     List<MoveLine> creditMoveLines;
-    List<MoveLine> moveLinesReconciled = new ArrayList<>();
+    Set<Long> moveLinesReconciled = new HashSet<>();
     BigDecimal progressiveAmount;
     for (int i = 0; i < moveLines.size(); i++) {
       List<MoveLine> moveLinesToProcess = new ArrayList<>();
       progressiveAmount = BigDecimal.ZERO;
       for (MoveLine moveLine : moveLines.subList(i, moveLines.size())) {
-        if (moveLinesReconciled.contains(moveLine)) {
+        if (moveLinesReconciled.contains(moveLine.getId())) {
           break;
         }
         moveLinesToProcess.add(moveLine);
@@ -171,7 +455,7 @@ public class BatchAutoMoveLettering extends BatchStrategy {
               creditMoveLines,
               AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_MOVE);
 
-          moveLinesReconciled.addAll(moveLinesToProcess);
+          moveLinesToProcess.forEach(ml -> moveLinesReconciled.add(ml.getId()));
         }
       }
     }
@@ -224,20 +508,7 @@ public class BatchAutoMoveLettering extends BatchStrategy {
             moveLineReconciledSet.add(debitMoveLine);
             moveLineReconciledSet.add(creditMoveLine);
           } catch (Exception e) {
-            TraceBackService.trace(
-                new Exception(
-                    String.format(
-                        I18n.get("Debit move line %s and Credit move line %s"),
-                        debitMoveLine.getName(),
-                        creditMoveLine.getName()),
-                    e),
-                ExceptionOriginRepository.MOVE_LINE_RECONCILE,
-                batch.getId());
-            incrementAnomaly();
-            LOG.error(
-                "Anomaly generated while lettering debit move line {} and credit move line {}",
-                debitMoveLine.getName(),
-                creditMoveLine.getName());
+            traceReconcileAnomaly(debitMoveLine, creditMoveLine, e);
           } finally {
             JPA.clear();
           }
@@ -246,6 +517,24 @@ public class BatchAutoMoveLettering extends BatchStrategy {
     }
   }
 
+  protected void traceReconcileAnomaly(
+      MoveLine debitMoveLine, MoveLine creditMoveLine, Exception e) {
+    TraceBackService.trace(
+        new Exception(
+            String.format(
+                I18n.get("Debit move line %s and Credit move line %s"),
+                debitMoveLine.getName(),
+                creditMoveLine.getName()),
+            e),
+        ExceptionOriginRepository.MOVE_LINE_RECONCILE,
+        batch.getId());
+    incrementAnomaly();
+    LOG.error(
+        "Anomaly generated while lettering debit move line {} and credit move line {}",
+        debitMoveLine.getName(),
+        creditMoveLine.getName());
+  }
+
   private boolean canBeReconciled(
       int reconcileMethodSelect, MoveLine debitMoveLine, MoveLine creditMoveLine) {
     if (reconcileMethodSelect
@@ -292,14 +581,14 @@ public class BatchAutoMoveLettering extends BatchStrategy {
       BigDecimal creditTotalRemaining)
       throws AxelorException {
 
-    findBatch();
+    Batch currentBatch = findBatch();
 
     if (accountingBatch.getIsProposal()) {
       List<MoveLine> moveLineListToLetter = new ArrayList<>();
       moveLineListToLetter.add(debitMoveLine);
       moveLineListToLetter.add(creditMoveLine);
-      debitMoveLine.addBatchSetItem(batch);
-      creditMoveLine.addBatchSetItem(batch);
+      debitMoveLine.addBatchSetItem(currentBatch);
+      creditMoveLine.addBatchSetItem(currentBatch);
       reconcileGroupProposalService.createProposal(moveLineListToLetter);
       return;
     }
@@ -319,8 +608,10 @@ public class BatchAutoMoveLettering extends BatchStrategy {
     LOG.debug("creditTotalRemaining : {}", creditTotalRemaining);
     BigDecimal nextDebitTotalRemaining = debitTotalRemaining.subtract(amount);
     BigDecimal nextCreditTotalRemaining = creditTotalRemaining.subtract(amount);
-    accountingBatch = batch.getAccountingBatch();
-    accountingBatch.setCompany(companyRepository.find(accountingBatch.getCompany().getId()));
+    if (!isPartitionWorker()) {
+      accountingBatch = batch.getAccountingBatch();
+      accountingBatch.setCompany(companyRepository.find(accountingBatch.getCompany().getId()));
+    }
     // Gestion du passage en 580
     if (nextDebitTotalRemaining.compareTo(BigDecimal.ZERO) <= 0
         || nextCreditTotalRemaining.compareTo(BigDecimal.ZERO) <= 0) {
@@ -332,8 +623,8 @@ public class BatchAutoMoveLettering extends BatchStrategy {
     // End gestion du passage en 580
 
     reconcileService.confirmReconcile(reconcile, true, true);
-    debitMoveLine.addBatchSetItem(batch);
-    creditMoveLine.addBatchSetItem(batch);
+    debitMoveLine.addBatchSetItem(currentBatch);
+    creditMoveLine.addBatchSetItem(currentBatch);
     moveLineRepository.save(debitMoveLine);
     moveLineRepository.save(creditMoveLine);
 
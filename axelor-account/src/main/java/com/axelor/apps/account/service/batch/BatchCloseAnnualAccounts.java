@@ -42,7 +42,6 @@ import com.axelor.apps.base.db.repo.PartnerRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.db.repo.YearRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
-import com.axelor.apps.base.service.administration.AbstractBatch;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.db.JPA;
 import com.axelor.i18n.I18n;
@@ -417,24 +416,14 @@ public class BatchCloseAnnualAccounts extends BatchStrategy {
             || !accountingBatch.getIsDeleteSimulatedMove())) {
       return;
     }
-    com.axelor.db.Query<Move> moveQuery =
-        moveRepo
-            .all()
-            .filter(
-                "self.company = :company AND self.statusSelect = :statusSelect AND self.period.year = :year")
-            .bind("company", accountingBatch.getCompany())
-            .bind("statusSelect", MoveRepository.STATUS_SIMULATED)
-            .bind("year", accountingBatch.getYear())
-            .order("id");
-    JPA.runInTransaction(
-        () -> {
-          List<Move> moveList;
-          while (!(moveList = moveQuery.fetch(AbstractBatch.FETCH_LIMIT)).isEmpty()) {
-            for (Move move : moveList) {
-              moveRepo.remove(move);
-            }
-          }
-        });
+    chunkedQuery(Move.class)
+        .filter(
+            "self.company = :company AND self.statusSelect = :statusSelect AND self.period.year = :year")
+        .bind("company", accountingBatch.getCompany())
+        .bind("statusSelect", MoveRepository.STATUS_SIMULATED)
+        .bind("year", accountingBatch.getYear())
+        .transactional(true)
+        .forEach(moveRepo::remove);
   }
 
   @Override
@@ -30,12 +30,11 @@ import com.axelor.apps.base.db.BankDetails;
 import com.axelor.apps.base.db.repo.BankDetailsRepository;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import java.util.ArrayList;
@@ -71,7 +70,6 @@ public abstract class BatchCreditTransferInvoice extends BatchStrategy {
    */
   protected List<InvoicePayment> processInvoices(int operationTypeSelect) {
     List<InvoicePayment> doneList = new ArrayList<>();
-    List<Long> anomalyList = Lists.newArrayList(0L); // Can't pass an empty collection to the query
     AccountingBatch accountingBatch = batch.getAccountingBatch();
     boolean manageMultiBanks = appAccountService.getAppBase().getManageMultiBanks();
     StringBuilder filter = new StringBuilder();
@@ -83,7 +81,6 @@ public abstract class BatchCreditTransferInvoice extends BatchStrategy {
             + "AND self.company = :company "
             + "AND self.dueDate <= :dueDate "
             + "AND self.paymentMode = :paymentMode "
-            + "AND self.id NOT IN (:anomalyList)"
             + "AND self.pfpValidateStatusSelect != :pfpValidateStatusSelect");
 
     if (manageMultiBanks) {
@@ -94,16 +91,14 @@ public abstract class BatchCreditTransferInvoice extends BatchStrategy {
       filter.append(" AND self.currency = :currency");
     }
 
-    Query<Invoice> query =
-        invoiceRepo
-            .all()
+    ChunkedQuery<Invoice> query =
+        chunkedQuery(Invoice.class)
             .filter(filter.toString())
             .bind("operationTypeSelect", operationTypeSelect)
             .bind("statusSelect", InvoiceRepository.STATUS_VENTILATED)
             .bind("company", accountingBatch.getCompany())
             .bind("dueDate", accountingBatch.getDueDate())
             .bind("paymentMode", accountingBatch.getPaymentMode())
-            .bind("anomalyList", anomalyList)
             .bind("pfpValidateStatusSelect", InvoiceRepository.PFP_STATUS_LITIGATION);
 
     if (manageMultiBanks) {
@@ -123,9 +118,7 @@ public abstract class BatchCreditTransferInvoice extends BatchStrategy {
     BankDetailsRepository bankDetailsRepo = Beans.get(BankDetailsRepository.class);
     BankDetails companyBankDetails = accountingBatch.getBankDetails();
 
-    for (List<Invoice> invoiceList;
-        !(invoiceList = query.fetch(FETCH_LIMIT)).isEmpty();
-        JPA.clear()) {
+    for (List<Invoice> invoiceList; !(invoiceList = query.fetchNext()).isEmpty(); JPA.clear()) {
       if (!JPA.em().contains(companyBankDetails)) {
         companyBankDetails = bankDetailsRepo.find(companyBankDetails.getId());
       }
@@ -137,8 +130,8 @@ public abstract class BatchCreditTransferInvoice extends BatchStrategy {
           incrementDone();
         } catch (Exception ex) {
           incrementAnomaly();
-          anomalyList.add(invoice.getId());
-          query.bind("anomalyList", anomalyList);
+          // the rest of the chunk is fetched again once the session is cleared
+          query.startAfter(invoice.getId());
           TraceBackService.trace(ex, ExceptionOriginRepository.CREDIT_TRANSFER, batch.getId());
           ex.printStackTrace();
           log.error(
@@ -32,11 +32,11 @@ import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
 import com.axelor.apps.base.db.repo.PartnerRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.BlockingService;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.db.EntityHelper;
 import com.axelor.db.JPA;
 import com.axelor.db.Model;
-import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.axelor.message.db.repo.MessageRepository;
@@ -112,9 +112,8 @@ public class BatchDebtRecovery extends BatchStrategy {
       }
     }
 
-    Query<Partner> query =
-        partnerRepository
-            .all()
+    ChunkedQuery<Partner> query =
+        chunkedQuery(Partner.class)
             .filter(
                 "self.isContact = false "
                     + "AND :_company MEMBER OF self.companySet "
@@ -124,18 +123,14 @@ public class BatchDebtRecovery extends BatchStrategy {
                     + Beans.get(BlockingService.class)
                         .listOfBlockedPartner(company, BlockingRepository.REMINDER_BLOCKING)
                     + ")")
-            .bind("_company", company)
-            .order("id");
+            .bind("_company", company);
 
-    int offset = 0;
     List<Partner> partnerList;
 
-    while (!(partnerList = query.fetch(FETCH_LIMIT, offset)).isEmpty()) {
+    while (!(partnerList = query.fetchNext()).isEmpty()) {
       findBatch();
 
       for (Partner partner : partnerList) {
-        ++offset;
-
         boolean remindedOk;
         // if recovery handled by trading name
         if (tradingNameSet != null && !tradingNameSet.isEmpty()) {
@@ -196,6 +191,8 @@ public class BatchDebtRecovery extends BatchStrategy {
                 ExceptionOriginRepository.DEBT_RECOVERY,
                 batch.getId());
             incrementAnomaly(partner);
+            // the rest of the chunk is fetched again once the session is cleared
+            query.startAfter(partner.getId());
             break;
           } catch (Exception e) {
             TraceBackService.trace(
@@ -203,6 +200,8 @@ public class BatchDebtRecovery extends BatchStrategy {
                 ExceptionOriginRepository.DEBT_RECOVERY,
                 batch.getId());
             incrementAnomaly(partner);
+            // the rest of the chunk is fetched again once the session is cleared
+            query.startAfter(partner.getId());
             break;
           }
           // \Catching exceptions
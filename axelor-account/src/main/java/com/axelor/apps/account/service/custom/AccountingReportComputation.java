@@ -0,0 +1,122 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.custom;
+
+import com.axelor.apps.account.db.AccountingReportValue;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * State of the computation of a custom accounting report, for a given company set, analytic
+ * account and period.
+ *
+ * <p>The group numbers are shared by every period of the same report, while the line offset, the
+ * computed values and the anomalies belong to the period. The computation of the current thread is
+ * available through {@link #current()}, so that several reports, or several periods of the same
+ * report, can be computed concurrently.
+ */
+public class AccountingReportComputation implements AutoCloseable {
+
+  private static final ThreadLocal<AccountingReportComputation> CURRENT = new ThreadLocal<>();
+
+  protected final Map<String, Integer> groupNumberMap;
+  protected final AtomicInteger nextGroupNumber;
+  protected final int periodNumber;
+  protected int lineOffset;
+  protected boolean anomaly;
+
+  protected final Map<String, Map<String, AccountingReportValue>> valuesMapByColumn =
+      new HashMap<>();
+  protected final Map<String, Map<String, AccountingReportValue>> valuesMapByLine =
+      new HashMap<>();
+
+  public AccountingReportComputation() {
+    this(new ConcurrentHashMap<>(), new AtomicInteger(), 0);
+  }
+
+  protected AccountingReportComputation(
+      Map<String, Integer> groupNumberMap, AtomicInteger nextGroupNumber, int periodNumber) {
+    this.groupNumberMap = groupNumberMap;
+    this.nextGroupNumber = nextGroupNumber;
+    this.periodNumber = periodNumber;
+  }
+
+  /**
+   * Returns the computation of the given period of the same report, sharing its group numbers.
+   *
+   * @param periodNumber the number of the period, 0 being the period of the report
+   */
+  public AccountingReportComputation forPeriod(int periodNumber) {
+    return new AccountingReportComputation(groupNumberMap, nextGroupNumber, periodNumber);
+  }
+
+  public static AccountingReportComputation current() {
+    AccountingReportComputation computation = CURRENT.get();
+    if (computation == null) {
+      throw new IllegalStateException("No accounting report is being computed in this thread");
+    }
+    return computation;
+  }
+
+  /** Binds this computation to the current thread until {@link #close()} is called. */
+  public AccountingReportComputation open() {
+    CURRENT.set(this);
+    return this;
+  }
+
+  @Override
+  public void close() {
+    CURRENT.remove();
+  }
+
+  public int getGroupNumber(String parentTitle) {
+    return groupNumberMap.computeIfAbsent(parentTitle, k -> nextGroupNumber.getAndIncrement());
+  }
+
+  public int getPeriodNumber() {
+    return periodNumber;
+  }
+
+  public int getLineOffset() {
+    return lineOffset;
+  }
+
+  public void incrementLineOffset() {
+    lineOffset++;
+  }
+
+  /** Whether the computation of a value failed, its anomaly being traced. */
+  public boolean hasAnomaly() {
+    return anomaly;
+  }
+
+  public void setAnomaly(boolean anomaly) {
+    this.anomaly = anomaly;
+  }
+
+  public Map<String, Map<String, AccountingReportValue>> getValuesMapByColumn() {
+    return valuesMapByColumn;
+  }
+
+  public Map<String, Map<String, AccountingReportValue>> getValuesMapByLine() {
+    return valuesMapByLine;
+  }
+}
@@ -44,7 +44,6 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -57,7 +56,6 @@ public abstract class AccountingReportValueAbstractService {
   protected AccountingReportValueRepository accountingReportValueRepo;
   protected AnalyticAccountRepository analyticAccountRepo;
   protected DateService dateService;
-  protected Map<String, Integer> groupAccountMap;
 
   @Inject
   public AccountingReportValueAbstractService(
@@ -69,8 +67,6 @@ public abstract class AccountingReportValueAbstractService {
     this.accountingReportValueRepo = accountingReportValueRepo;
     this.analyticAccountRepo = analyticAccountRepo;
     this.dateService = dateService;
-
-    this.groupAccountMap = new HashMap<>(Map.of("nextValue", 0));
   }
 
   protected void addNullValue(
@@ -111,6 +107,7 @@ public abstract class AccountingReportValueAbstractService {
     String columnCode =
         this.getColumnCode(column.getCode(), parentTitle, groupColumn, configAnalyticAccount);
 
+    AccountingReportComputation computation = AccountingReportComputation.current();
     int columnNumber = column.getSequence();
     int lineNumber = line.getSequence();
     int groupNumber = 0;
@@ -120,13 +117,7 @@ public abstract class AccountingReportValueAbstractService {
         groupNumber = groupColumn.getSequence();
       }
     } else if (StringUtils.notEmpty(parentTitle)) {
-      if (!this.groupAccountMap.containsKey(parentTitle)) {
-        int nextValue = groupAccountMap.get("nextValue");
-        groupAccountMap.put(parentTitle, nextValue++);
-        groupAccountMap.replace("nextValue", nextValue);
-      }
-
-      groupNumber = groupAccountMap.get(parentTitle);
+      groupNumber = computation.getGroupNumber(parentTitle);
     }
 
     int companyNumber =
@@ -138,8 +129,8 @@ public abstract class AccountingReportValueAbstractService {
         new AccountingReportValue(
             groupNumber,
             columnNumber,
-            lineNumber + AccountingReportValueServiceImpl.getLineOffset(),
-            AccountingReportValueServiceImpl.getPeriodNumber(),
+            lineNumber + computation.getLineOffset(),
+            computation.getPeriodNumber(),
             companyNumber,
             analyticCounter,
             this.getStyleSelect(groupColumn, column, line),
@@ -68,9 +68,6 @@ public class AccountingReportValueMoveLineServiceImpl extends AccountingReportVa
     implements AccountingReportValueMoveLineService {
   protected MoveLineRepository moveLineRepo;
   protected MoveToolService moveToolService;
-  protected Set<AnalyticAccount> groupColumnAnalyticAccountSet;
-  protected Set<AnalyticAccount> columnAnalyticAccountSet;
-  protected Set<AnalyticAccount> lineAnalyticAccountSet;
 
   @Inject
   public AccountingReportValueMoveLineServiceImpl(
@@ -155,7 +152,7 @@ public class AccountingReportValueMoveLineServiceImpl extends AccountingReportVa
             analyticCounter);
 
         JPA.clear();
-        AccountingReportValueServiceImpl.incrementLineOffset();
+        AccountingReportComputation.current().incrementLineOffset();
       }
     } else {
       Set<Long> accountIdSet = this.getAccountIdSet(line);
@@ -205,7 +202,7 @@ public class AccountingReportValueMoveLineServiceImpl extends AccountingReportVa
               analyticCounter);
 
           JPA.clear();
-          AccountingReportValueServiceImpl.incrementLineOffset();
+          AccountingReportComputation.current().incrementLineOffset();
         }
       } else if (accountingReport.getDisplayDetails()
           && line.getDetailBySelect()
@@ -256,7 +253,7 @@ public class AccountingReportValueMoveLineServiceImpl extends AccountingReportVa
               analyticCounter);
 
           JPA.clear();
-          AccountingReportValueServiceImpl.incrementLineOffset();
+          AccountingReportComputation.current().incrementLineOffset();
         }
       } else {
         this.mergeSetsAndCreateValueFromMoveLines(
@@ -754,18 +751,22 @@ public class AccountingReportValueMoveLineServiceImpl extends AccountingReportVa
         groupColumn != null ? groupColumn.getAnalyticAccountCode() : null;
     String columnAnalyticAccountCode = column.getAnalyticAccountCode();
     String lineAnalyticAccountCode = line.getAnalyticAccountCode();
-    groupColumnAnalyticAccountSet =
-        groupColumn != null && StringUtils.notEmpty(groupColumnAnalyticAccountCode)
-            ? this.fetchAnalyticAccountsFromCode(groupColumnAnalyticAccountCode)
-            : new HashSet<>();
-    columnAnalyticAccountSet =
-        StringUtils.notEmpty(columnAnalyticAccountCode)
-            ? this.fetchAnalyticAccountsFromCode(columnAnalyticAccountCode)
-            : new HashSet<>();
-    lineAnalyticAccountSet =
-        StringUtils.notEmpty(lineAnalyticAccountCode)
-            ? this.fetchAnalyticAccountsFromCode(lineAnalyticAccountCode)
-            : new HashSet<>();
+
+    // local to the computation so that the service can compute several reports concurrently
+    Set<AnalyticAccount> filterAnalyticAccountSet =
+        analyticAccountSet != null ? new HashSet<>(analyticAccountSet) : new HashSet<>();
+    if (groupColumn != null && StringUtils.notEmpty(groupColumnAnalyticAccountCode)) {
+      filterAnalyticAccountSet.addAll(
+          this.fetchAnalyticAccountsFromCode(groupColumnAnalyticAccountCode));
+    }
+    if (StringUtils.notEmpty(columnAnalyticAccountCode)) {
+      filterAnalyticAccountSet.addAll(
+          this.fetchAnalyticAccountsFromCode(columnAnalyticAccountCode));
+    }
+    if (StringUtils.notEmpty(lineAnalyticAccountCode)) {
+      filterAnalyticAccountSet.addAll(this.fetchAnalyticAccountsFromCode(lineAnalyticAccountCode));
+    }
+
     return moveLineList.stream()
         .map(
             it ->
@@ -775,7 +776,7 @@ public class AccountingReportValueMoveLineServiceImpl extends AccountingReportVa
                     groupColumn,
                     column,
                     line,
-                    analyticAccountSet,
+                    filterAnalyticAccountSet,
                     startDate,
                     endDate,
                     resultSelect))
@@ -858,10 +859,7 @@ public class AccountingReportValueMoveLineServiceImpl extends AccountingReportVa
 
   protected boolean containsAnalyticAccount(
       AnalyticAccount analyticAccount, Set<AnalyticAccount> analyticAccountSet) {
-    return (CollectionUtils.isNotEmpty(analyticAccountSet)
-            && analyticAccountSet.contains(analyticAccount))
-        || groupColumnAnalyticAccountSet.contains(analyticAccount)
-        || columnAnalyticAccountSet.contains(analyticAccount)
-        || lineAnalyticAccountSet.contains(analyticAccount);
+    return CollectionUtils.isNotEmpty(analyticAccountSet)
+        && analyticAccountSet.contains(analyticAccount);
   }
 }
@@ -18,6 +18,7 @@
  */
 package com.axelor.apps.account.service.custom;
 
+import com.axelor.app.AppSettings;
 import com.axelor.apps.account.db.Account;
 import com.axelor.apps.account.db.AccountingReport;
 import com.axelor.apps.account.db.AccountingReportAnalyticConfigLine;
@@ -43,23 +44,35 @@ import com.axelor.common.StringUtils;
 import com.axelor.db.JPA;
 import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
+import com.axelor.inject.Beans;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
+import com.google.inject.persist.UnitOfWork;
+import com.google.inject.servlet.RequestScoper;
+import com.google.inject.servlet.ServletScopes;
 import java.lang.invoke.MethodHandles;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.apache.commons.collections.CollectionUtils;
@@ -74,8 +87,16 @@ public class AccountingReportValueServiceImpl extends AccountingReportValueAbstr
   protected AppBaseService appBaseService;
   protected TraceBackRepository traceBackRepository;
 
-  protected static int lineOffset = 0;
-  protected static int periodNumber = 0;
+  /**
+   * Application setting giving the number of threads computing the companies, analytic accounts
+   * and periods of a custom report concurrently. The parts are computed one after the other by
+   * default.
+   */
+  public static final String WORKER_COUNT_SETTING = "accounting-report.workers";
+
+  protected static final Pattern RULE_IDENTIFIER_PATTERN =
+      Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
   private final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   @Inject
@@ -97,22 +118,6 @@ public class AccountingReportValueServiceImpl extends AccountingReportValueAbstr
     this.traceBackRepository = traceBackRepository;
   }
 
-  public static synchronized void incrementLineOffset() {
-    lineOffset++;
-  }
-
-  public static synchronized int getLineOffset() {
-    return lineOffset;
-  }
-
-  public static synchronized void incrementPeriodNumber() {
-    periodNumber++;
-  }
-
-  public static synchronized int getPeriodNumber() {
-    return periodNumber;
-  }
-
   @Override
   @Transactional
   public void clearReportValues(AccountingReport accountingReport) {
@@ -121,29 +126,68 @@ public class AccountingReportValueServiceImpl extends AccountingReportValueAbstr
 
   @Override
   public void computeReportValues(AccountingReport accountingReport) throws AxelorException {
+    this.checkAccountingReportType(accountingReport.getReportType());
+
+    this.clearTracebacks(accountingReport);
+    accountingReport.setTraceAnomalies(false);
+
+    AccountingReportComputation reportComputation = new AccountingReportComputation();
+    List<ReportPart> partList = new ArrayList<>();
+
     for (Company company : accountingReport.getCompanySet()) {
-      this.computeReportValues(accountingReport, Sets.newHashSet(company));
+      this.addReportParts(partList, reportComputation, accountingReport, Sets.newHashSet(company));
     }
 
     if (accountingReport.getCompanySet().size() > 1) {
-      this.computeReportValues(accountingReport, accountingReport.getCompanySet());
+      this.addReportParts(
+          partList, reportComputation, accountingReport, accountingReport.getCompanySet());
     }
+
+    this.computeReportParts(accountingReport.getId(), partList);
+
+    List<ReportPart> anomalyPartList =
+        partList.stream().filter(this::hasAnomaly).collect(Collectors.toList());
+
+    if (anomalyPartList.isEmpty() && !this.isThereTraceback(accountingReport)) {
+      return;
+    }
+
+    // values which could not be computed are computed again to trace their anomalies
+    this.clearTracebacks(accountingReport);
+
+    for (ReportPart part : anomalyPartList) {
+      this.computeReportPart(accountingReport.getId(), true, part);
+    }
+
+    throw new AxelorException(
+        accountingReport,
+        TraceBackRepository.CATEGORY_INCONSISTENCY,
+        I18n.get(AccountExceptionMessage.CUSTOM_REPORT_TIMEOUT),
+        accountingReport.getRef());
   }
 
-  protected void computeReportValues(AccountingReport accountingReport, Set<Company> companySet)
-      throws AxelorException {
+  protected void addReportParts(
+      List<ReportPart> partList,
+      AccountingReportComputation reportComputation,
+      AccountingReport accountingReport,
+      Set<Company> companySet) {
     Set<AnalyticAccount> configAnalyticAccountSet =
         this.getConfigAnalyticAccountSet(accountingReport);
 
     if (CollectionUtils.isEmpty(configAnalyticAccountSet)) {
-      this.computeReportValues(accountingReport, companySet, null, 0);
+      this.addReportParts(partList, reportComputation, accountingReport, companySet, null, 0);
     } else {
       int analyticCounter = 0;
 
       for (AnalyticAccount configAnalyticAccount :
           this.getSortedAnalyticAccountSet(configAnalyticAccountSet)) {
-        this.computeReportValues(
-            accountingReport, companySet, configAnalyticAccount, analyticCounter++);
+        this.addReportParts(
+            partList,
+            reportComputation,
+            accountingReport,
+            companySet,
+            configAnalyticAccount,
+            analyticCounter++);
       }
     }
   }
@@ -210,117 +254,157 @@ public class AccountingReportValueServiceImpl extends AccountingReportValueAbstr
     }
   }
 
-  protected void computeReportValues(
+  /**
+   * Adds the parts of the report computed for the given companies and analytic account: the period
+   * of the report and its comparison periods.
+   */
+  protected void addReportParts(
+      List<ReportPart> partList,
+      AccountingReportComputation reportComputation,
       AccountingReport accountingReport,
       Set<Company> companySet,
       AnalyticAccount configAnalyticAccount,
-      int analyticCounter)
-      throws AxelorException {
+      int analyticCounter) {
     LocalDate startDate = accountingReport.getDateFrom();
     LocalDate endDate = accountingReport.getDateTo();
-
-    this.computeReportValues(
-        accountingReport, companySet, configAnalyticAccount, startDate, endDate, analyticCounter);
-
     AccountingReportType reportType = accountingReport.getReportType();
+    int periodNumber = 0;
+
+    partList.add(
+        new ReportPart(
+            reportComputation.forPeriod(periodNumber++),
+            companySet,
+            configAnalyticAccount,
+            analyticCounter,
+            startDate,
+            endDate));
 
     switch (reportType.getComparison()) {
       case AccountingReportTypeRepository.COMPARISON_PREVIOUS_YEAR:
-        for (int i = 1; i < accountingReport.getReportType().getNoOfPeriods() + 1; i++) {
-          AccountingReportValueServiceImpl.incrementPeriodNumber();
-
-          this.computeReportValues(
-              accountingReport,
-              companySet,
-              configAnalyticAccount,
-              startDate.minusYears(i).with(TemporalAdjusters.firstDayOfYear()),
-              endDate.minusYears(i).with(TemporalAdjusters.lastDayOfYear()),
-              analyticCounter);
+        for (int i = 1; i < reportType.getNoOfPeriods() + 1; i++) {
+          partList.add(
+              new ReportPart(
+                  reportComputation.forPeriod(periodNumber++),
+                  companySet,
+                  configAnalyticAccount,
+                  analyticCounter,
+                  startDate.minusYears(i).with(TemporalAdjusters.firstDayOfYear()),
+                  endDate.minusYears(i).with(TemporalAdjusters.lastDayOfYear())));
         }
         break;
       case AccountingReportTypeRepository.COMPARISON_SAME_PERIOD_ON_PREVIOUS_YEAR:
-        for (int i = 1; i < accountingReport.getReportType().getNoOfPeriods() + 1; i++) {
-          AccountingReportValueServiceImpl.incrementPeriodNumber();
-
-          this.computeReportValues(
-              accountingReport,
-              companySet,
-              configAnalyticAccount,
-              startDate.minusYears(i),
-              endDate.minusYears(i),
-              analyticCounter);
+        for (int i = 1; i < reportType.getNoOfPeriods() + 1; i++) {
+          partList.add(
+              new ReportPart(
+                  reportComputation.forPeriod(periodNumber++),
+                  companySet,
+                  configAnalyticAccount,
+                  analyticCounter,
+                  startDate.minusYears(i),
+                  endDate.minusYears(i)));
         }
         break;
       case AccountingReportTypeRepository.COMPARISON_OTHER_PERIOD:
-        AccountingReportValueServiceImpl.incrementPeriodNumber();
-
-        this.computeReportValues(
-            accountingReport,
-            companySet,
-            configAnalyticAccount,
-            accountingReport.getOtherDateFrom(),
-            accountingReport.getOtherDateTo(),
-            analyticCounter);
+        partList.add(
+            new ReportPart(
+                reportComputation.forPeriod(periodNumber),
+                companySet,
+                configAnalyticAccount,
+                analyticCounter,
+                accountingReport.getOtherDateFrom(),
+                accountingReport.getOtherDateTo()));
     }
   }
 
-  protected void computeReportValues(
-      AccountingReport accountingReport,
-      Set<Company> companySet,
-      AnalyticAccount configAnalyticAccount,
-      LocalDate startDate,
-      LocalDate endDate,
-      int analyticCounter)
+  /**
+   * Computes the given parts, which do not depend on each other, using the number of threads given
+   * by {@link #WORKER_COUNT_SETTING}. Each thread has its own session and transactions.
+   */
+  protected void computeReportParts(Long accountingReportId, List<ReportPart> partList)
       throws AxelorException {
-    Map<String, Map<String, AccountingReportValue>> valuesMapByColumn = new HashMap<>();
-    Map<String, Map<String, AccountingReportValue>> valuesMapByLine = new HashMap<>();
+    int workerCount = Math.min(this.getWorkerCount(), partList.size());
 
-    AccountingReportType accountingReportType = accountingReport.getReportType();
-    this.checkAccountingReportType(accountingReportType);
+    if (workerCount <= 1) {
+      for (ReportPart part : partList) {
+        this.computeReportPart(accountingReportId, false, part);
+      }
+      return;
+    }
 
-    this.clearTracebacks(accountingReport);
-    accountingReport.setTraceAnomalies(false);
+    ExecutorService executor = Executors.newFixedThreadPool(workerCount);
 
-    int nullCount = -1;
-    int previousNullCount;
+    try {
+      List<Future<Void>> futureList = new ArrayList<>();
+      for (ReportPart part : partList) {
+        futureList.add(
+            executor.submit(() -> this.computeReportPartInWorker(accountingReportId, part)));
+      }
+      for (Future<Void> future : futureList) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), AxelorException.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 
-    while (nullCount != 0) {
-      previousNullCount = nullCount;
+  protected int getWorkerCount() {
+    return Math.max(1, AppSettings.get().getInt(WORKER_COUNT_SETTING, 1));
+  }
 
-      nullCount =
-          this.createReportValues(
-              accountingReport,
-              valuesMapByColumn,
-              valuesMapByLine,
-              companySet,
-              configAnalyticAccount,
-              startDate,
-              endDate,
-              analyticCounter);
+  protected Void computeReportPartInWorker(Long accountingReportId, ReportPart part)
+      throws AxelorException {
+    RequestScoper scope = ServletScopes.scopeRequest(Collections.emptyMap());
+    try (RequestScoper.CloseableScope ignored = scope.open()) {
+      this.computeReportPart(accountingReportId, false, part);
+      return null;
+    } finally {
+      Beans.get(UnitOfWork.class).end();
+    }
+  }
 
-      if (nullCount == previousNullCount || this.isThereTraceback(accountingReport)) {
-        this.clearTracebacks(accountingReport);
-        accountingReport.setTraceAnomalies(true);
+  /**
+   * Computes the values of a part of the report in a single pass, the columns and lines being
+   * sorted so that every value is computed after the values its rule depends on.
+   */
+  protected void computeReportPart(Long accountingReportId, boolean traceAnomalies, ReportPart part)
+      throws AxelorException {
+    AccountingReport accountingReport = JPA.find(AccountingReport.class, accountingReportId);
+    accountingReport.setTraceAnomalies(traceAnomalies);
 
-        this.createReportValues(
-            accountingReport,
-            valuesMapByColumn,
-            valuesMapByLine,
-            companySet,
-            configAnalyticAccount,
-            startDate,
-            endDate,
-            analyticCounter);
+    Set<Company> companySet =
+        part.companyIdSet.stream()
+            .map(id -> JPA.find(Company.class, id))
+            .collect(Collectors.toSet());
+    AnalyticAccount configAnalyticAccount =
+        part.configAnalyticAccountId != null
+            ? JPA.find(AnalyticAccount.class, part.configAnalyticAccountId)
+            : null;
 
-        throw new AxelorException(
-            accountingReport,
-            TraceBackRepository.CATEGORY_INCONSISTENCY,
-            I18n.get(AccountExceptionMessage.CUSTOM_REPORT_TIMEOUT),
-            accountingReport.getRef());
-      }
+    try (AccountingReportComputation computation = part.computation.open()) {
+      this.createReportValues(
+          accountingReport,
+          computation.getValuesMapByColumn(),
+          computation.getValuesMapByLine(),
+          companySet,
+          configAnalyticAccount,
+          part.startDate,
+          part.endDate,
+          part.analyticCounter);
     }
   }
 
+  protected boolean hasAnomaly(ReportPart part) {
+    return part.computation.hasAnomaly()
+        || this.getNullCount(part.computation.getValuesMapByColumn()) > 0;
+  }
+
   protected boolean isThereTraceback(AccountingReport accountingReport) {
     return this.getTracebackQuery(accountingReport).count() > 0;
   }
@@ -385,14 +469,17 @@ public class AccountingReportValueServiceImpl extends AccountingReportValueAbstr
             .sorted(Comparator.comparing(AccountingReportConfigLine::getSequence))
             .collect(Collectors.toList());
     List<AccountingReportConfigLine> lineList =
-        accountingReport.getReportType().getAccountingReportConfigLineList().stream()
-            .sorted(Comparator.comparing(AccountingReportConfigLine::getSequence))
-            .collect(Collectors.toList());
+        this.sortByDependencies(
+            accountingReport.getReportType().getAccountingReportConfigLineList().stream()
+                .sorted(Comparator.comparing(AccountingReportConfigLine::getSequence))
+                .collect(Collectors.toList()));
 
     List<AccountingReportConfigLine> groupColumnList =
-        columnList.stream()
-            .filter(it -> it.getTypeSelect() == AccountingReportConfigLineRepository.TYPE_GROUP)
-            .collect(Collectors.toList());
+        this.sortByDependencies(
+            columnList.stream()
+                .filter(
+                    it -> it.getTypeSelect() == AccountingReportConfigLineRepository.TYPE_GROUP)
+                .collect(Collectors.toList()));
     AccountingReportConfigLine groupByAccountColumn =
         columnList.stream()
             .filter(
@@ -468,6 +555,77 @@ public class AccountingReportValueServiceImpl extends AccountingReportValueAbstr
     return this.getNullCount(valuesMapByColumn);
   }
 
+  /**
+   * Sorts the given config lines so that each of them comes after the ones its rule or percentage
+   * base column refers to, keeping the order of the given list otherwise. Config lines depending
+   * on each other are put at the end: their values can not be computed and are traced as
+   * anomalies.
+   *
+   * @param configLineList the config lines, sorted by sequence
+   * @return the sorted config lines
+   */
+  protected List<AccountingReportConfigLine> sortByDependencies(
+      List<AccountingReportConfigLine> configLineList) {
+    Map<String, AccountingReportConfigLine> configLineMap = new HashMap<>();
+    for (AccountingReportConfigLine configLine : configLineList) {
+      configLineMap.putIfAbsent(configLine.getCode(), configLine);
+    }
+
+    Map<AccountingReportConfigLine, Set<AccountingReportConfigLine>> dependencyMap =
+        new HashMap<>();
+    for (AccountingReportConfigLine configLine : configLineList) {
+      dependencyMap.put(configLine, this.getDependencies(configLine, configLineMap));
+    }
+
+    List<AccountingReportConfigLine> sortedList = new ArrayList<>();
+    Set<AccountingReportConfigLine> sortedSet = new HashSet<>();
+    Set<AccountingReportConfigLine> remainingSet = new LinkedHashSet<>(configLineList);
+
+    while (!remainingSet.isEmpty()) {
+      AccountingReportConfigLine next =
+          remainingSet.stream()
+              .filter(it -> sortedSet.containsAll(dependencyMap.get(it)))
+              .findFirst()
+              .orElse(null);
+
+      if (next == null) {
+        sortedList.addAll(remainingSet);
+        break;
+      }
+
+      sortedList.add(next);
+      sortedSet.add(next);
+      remainingSet.remove(next);
+    }
+
+    return sortedList;
+  }
+
+  protected Set<AccountingReportConfigLine> getDependencies(
+      AccountingReportConfigLine configLine,
+      Map<String, AccountingReportConfigLine> configLineMap) {
+    Set<String> codeSet = new HashSet<>();
+
+    if (configLine.getRuleTypeSelect() == AccountingReportConfigLineRepository.RULE_TYPE_CUSTOM_RULE
+        && StringUtils.notEmpty(configLine.getRule())) {
+      Matcher matcher = RULE_IDENTIFIER_PATTERN.matcher(configLine.getRule());
+      while (matcher.find()) {
+        codeSet.add(matcher.group());
+      }
+    } else if (configLine.getRuleTypeSelect()
+            == AccountingReportConfigLineRepository.RULE_TYPE_PERCENTAGE
+        && StringUtils.notEmpty(configLine.getPercentageBaseColumn())) {
+      codeSet.add(configLine.getPercentageBaseColumn());
+    }
+
+    codeSet.remove(configLine.getCode());
+
+    return codeSet.stream()
+        .map(configLineMap::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+  }
+
   protected Set<Account> getColumnGroupAccounts(AccountingReportConfigLine groupColumn) {
     Query<Account> accountQuery =
         accountRepo
@@ -495,6 +653,8 @@ public class AccountingReportValueServiceImpl extends AccountingReportValueAbstr
       LocalDate startDate,
       LocalDate endDate,
       int analyticCounter) {
+    columnList = this.sortByDependencies(columnList);
+
     for (AccountingReportConfigLine column : columnList) {
       if (StringUtils.notEmpty(column.getGroupsWithoutColumn()) && groupColumn != null) {
         List<String> groupsWithoutColumnCodeList =
@@ -673,6 +833,7 @@ public class AccountingReportValueServiceImpl extends AccountingReportValueAbstr
             analyticCounter);
       }
     } catch (Exception e) {
+      AccountingReportComputation.current().setAnomaly(true);
       this.traceException(e, accountingReport, groupColumn, column, line);
     }
   }
@@ -715,4 +876,30 @@ public class AccountingReportValueServiceImpl extends AccountingReportValueAbstr
             configLine.getAccountCode(),
             CollectionUtils.isEmpty(configLine.getAccountSet())));
   }
+
+  /** Values of a report for a company set, an analytic account and a period. */
+  protected static class ReportPart {
+    protected final AccountingReportComputation computation;
+    protected final Set<Long> companyIdSet;
+    protected final Long configAnalyticAccountId;
+    protected final int analyticCounter;
+    protected final LocalDate startDate;
+    protected final LocalDate endDate;
+
+    protected ReportPart(
+        AccountingReportComputation computation,
+        Set<Company> companySet,
+        AnalyticAccount configAnalyticAccount,
+        int analyticCounter,
+        LocalDate startDate,
+        LocalDate endDate) {
+      this.computation = computation;
+      this.companyIdSet = companySet.stream().map(Company::getId).collect(Collectors.toSet());
+      this.configAnalyticAccountId =
+          configAnalyticAccount != null ? configAnalyticAccount.getId() : null;
+      this.analyticCounter = analyticCounter;
+      this.startDate = startDate;
+      this.endDate = endDate;
+    }
+  }
 }
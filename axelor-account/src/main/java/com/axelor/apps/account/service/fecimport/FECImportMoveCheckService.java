@@ -0,0 +1,35 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.fecimport;
+
+import java.util.List;
+import java.util.Map;
+
+public interface FECImportMoveCheckService {
+
+  /**
+   * Runs the checks of the move validation that can be done with a few queries for a whole chunk of
+   * imported moves: empty moves, unbalanced moves and moves using inactive accounts. The moves
+   * failing them can be reported without running their accounting.
+   *
+   * @param moveIdList the ids of the imported moves
+   * @return the error message of each invalid move, by move id
+   */
+  Map<Long, String> getMoveAnomalyMap(List<Long> moveIdList);
+}
@@ -0,0 +1,114 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.fecimport;
+
+import com.axelor.apps.account.db.repo.AccountRepository;
+import com.axelor.apps.account.exception.AccountExceptionMessage;
+import com.axelor.db.JPA;
+import com.axelor.i18n.I18n;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FECImportMoveCheckServiceImpl implements FECImportMoveCheckService {
+
+  @Override
+  public Map<Long, String> getMoveAnomalyMap(List<Long> moveIdList) {
+    Map<Long, String> moveAnomalyMap = new HashMap<>();
+    if (moveIdList == null || moveIdList.isEmpty()) {
+      return moveAnomalyMap;
+    }
+
+    checkBalance(moveIdList, moveAnomalyMap);
+    checkInactiveAccounts(moveIdList, moveAnomalyMap);
+    return moveAnomalyMap;
+  }
+
+  protected void checkBalance(List<Long> moveIdList, Map<Long, String> moveAnomalyMap) {
+    for (Object[] result : getMoveTotalList(moveIdList)) {
+      Long moveId = (Long) result[0];
+      String reference = (String) result[1];
+      BigDecimal totalDebit = (BigDecimal) result[3];
+      BigDecimal totalCredit = (BigDecimal) result[4];
+
+      if ((Long) result[2] == 0) {
+        moveAnomalyMap.put(
+            moveId, String.format(I18n.get(AccountExceptionMessage.MOVE_8), reference));
+      } else if (totalDebit.compareTo(totalCredit) != 0) {
+        moveAnomalyMap.put(
+            moveId,
+            String.format(
+                I18n.get(AccountExceptionMessage.MOVE_7), reference, totalDebit, totalCredit));
+      }
+    }
+  }
+
+  /**
+   * Returns the id, the reference, the number of lines, the total debit and the total credit of
+   * each of the given moves.
+   */
+  protected List<Object[]> getMoveTotalList(List<Long> moveIdList) {
+    return JPA.em()
+        .createQuery(
+            "SELECT self.id, self.reference, COUNT(moveLine.id), "
+                + "COALESCE(SUM(moveLine.debit), 0), COALESCE(SUM(moveLine.credit), 0) "
+                + "FROM Move self LEFT JOIN self.moveLineList moveLine "
+                + "WHERE self.id IN :moveIdList "
+                + "GROUP BY self.id, self.reference",
+            Object[].class)
+        .setParameter("moveIdList", moveIdList)
+        .getResultList();
+  }
+
+  protected void checkInactiveAccounts(List<Long> moveIdList, Map<Long, String> moveAnomalyMap) {
+    Map<Long, List<String>> inactiveAccountCodeMap = new LinkedHashMap<>();
+    for (Object[] result : getInactiveAccountList(moveIdList)) {
+      inactiveAccountCodeMap
+          .computeIfAbsent((Long) result[0], moveId -> new ArrayList<>())
+          .add((String) result[1]);
+    }
+
+    inactiveAccountCodeMap.forEach(
+        (moveId, accountCodeList) ->
+            moveAnomalyMap.putIfAbsent(
+                moveId,
+                String.format(
+                    I18n.get(
+                        accountCodeList.size() == 1
+                            ? AccountExceptionMessage.INACTIVE_ACCOUNT_FOUND
+                            : AccountExceptionMessage.INACTIVE_ACCOUNTS_FOUND),
+                    String.join(", ", accountCodeList))));
+  }
+
+  /** Returns the move id and the account code of the lines of the moves using inactive accounts. */
+  protected List<Object[]> getInactiveAccountList(List<Long> moveIdList) {
+    return JPA.em()
+        .createQuery(
+            "SELECT DISTINCT self.move.id, self.account.code FROM MoveLine self "
+                + "WHERE self.move.id IN :moveIdList "
+                + "AND self.account.statusSelect != :activeStatus",
+            Object[].class)
+        .setParameter("moveIdList", moveIdList)
+        .setParameter("activeStatus", AccountRepository.STATUS_ACTIVE)
+        .getResultList();
+  }
+}
@@ -18,6 +18,7 @@
  */
 package com.axelor.apps.account.service.fecimport;
 
+import com.axelor.app.AppSettings;
 import com.axelor.apps.account.db.FECImport;
 import com.axelor.apps.account.db.Move;
 import com.axelor.apps.account.db.MoveLine;
@@ -33,26 +34,68 @@ import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.base.service.imports.importer.Importer;
 import com.axelor.apps.base.service.imports.listener.ImporterListener;
+import com.axelor.auth.AuthUtils;
 import com.axelor.data.csv.CSVImporter;
 import com.axelor.db.JPA;
 import com.axelor.db.Model;
+import com.axelor.inject.Beans;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
+import com.google.inject.persist.UnitOfWork;
+import com.google.inject.servlet.RequestScoper;
+import com.google.inject.servlet.ServletScopes;
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.shiro.subject.Subject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class FECImporter extends Importer {
 
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * Application setting enabling the bulk validation of the imported moves, which completes them
+   * with one query per chunk, reports the unbalanced ones without running their accounting and
+   * validates each chunk in a single transaction.
+   */
+  public static final String BULK_VALIDATION_SETTING = "account.fec-import.bulk-validation";
+
+  /** Application setting giving the number of moves completed and validated per transaction. */
+  public static final String CHUNK_SIZE_SETTING = "account.fec-import.chunk-size";
+
+  /**
+   * Application setting giving the number of workers validating the moves, each of them handling
+   * the moves of different journals so that they do not compete for the same move sequences.
+   */
+  public static final String WORKER_COUNT_SETTING = "account.fec-import.workers";
+
+  protected static final int DEFAULT_CHUNK_SIZE = 100;
+  protected static final int DEFAULT_WORKER_COUNT = 1;
+
   protected MoveValidateService moveValidateService;
   protected AppAccountService appAccountService;
   protected MoveRepository moveRepository;
   protected FECImportRepository fecImportRepository;
   protected CompanyRepository companyRepository;
-  private final List<Move> moveList = new ArrayList<>();
+  protected FECImportMoveCheckService fecImportMoveCheckService;
+  private final Set<Long> moveIdSet = new LinkedHashSet<>();
   private FECImport fecImport;
   private Company company;
 
@@ -62,12 +105,14 @@ public class FECImporter extends Importer {
       AppAccountService appAccountService,
       MoveRepository moveRepository,
       FECImportRepository fecImportRepository,
-      CompanyRepository companyRepository) {
+      CompanyRepository companyRepository,
+      FECImportMoveCheckService fecImportMoveCheckService) {
     this.moveValidateService = moveValidateService;
     this.appAccountService = appAccountService;
     this.moveRepository = moveRepository;
     this.fecImportRepository = fecImportRepository;
     this.companyRepository = companyRepository;
+    this.fecImportMoveCheckService = fecImportMoveCheckService;
   }
 
   @Override
@@ -95,7 +140,12 @@ public class FECImporter extends Importer {
           @Override
           public void imported(Integer total, Integer success) {
             try {
-              completeAndvalidateMoves(fecImport, moveList, this);
+              List<Long> moveIdList = new ArrayList<>(moveIdSet);
+              if (AppSettings.get().getBoolean(BULK_VALIDATION_SETTING, true)) {
+                completeAndValidateMovesInBulk(fecImport, moveIdList, this);
+              } else {
+                completeAndvalidateMoves(fecImport, moveIdList, this);
+              }
             } catch (Exception e) {
               this.handle(null, e);
             }
@@ -132,11 +182,8 @@ public class FECImporter extends Importer {
   protected void addMoveFromMoveLine(Model bean) {
     if (bean.getClass().equals(MoveLine.class)) {
       MoveLine moveLine = (MoveLine) bean;
-      if (moveLine.getMove() != null) {
-        Move move = moveLine.getMove();
-        if (!moveList.contains(move)) {
-          moveList.add(move);
-        }
+      if (moveLine.getMove() != null && moveLine.getMove().getId() != null) {
+        moveIdSet.add(moveLine.getMove().getId());
       }
     }
   }
@@ -152,16 +199,20 @@ public class FECImporter extends Importer {
   }
 
   public List<Move> getMoves() {
-    return this.moveList;
+    List<Move> moveList = new ArrayList<>();
+    for (Long moveId : moveIdSet) {
+      moveList.add(moveRepository.find(moveId));
+    }
+    return moveList;
   }
 
   protected void completeAndvalidateMoves(
-      FECImport fecImport, List<Move> moveList, ImporterListener listener) {
+      FECImport fecImport, List<Long> moveIdList, ImporterListener listener) {
     if (fecImport != null) {
       int i = 0;
       Long companyId = null;
-      for (Move move : moveList) {
-        move = moveRepository.find(move.getId());
+      for (Long moveId : moveIdList) {
+        Move move = moveRepository.find(moveId);
         if (companyId == null && move != null) {
           companyId = move.getCompany().getId();
         }
@@ -188,13 +239,7 @@ public class FECImporter extends Importer {
     try {
 
       if (move != null) {
-        String csvReference = extractCSVMoveReference(move.getReference());
-
-        if (move.getAccountingDate() != null) {
-          move.setReference(String.format("%s", csvReference));
-        } else {
-          move.setReference(String.format("#%s", move.getId().toString()));
-        }
+        setReference(move);
 
         if (fecImport.getValidGeneratedMove()) {
           moveValidateService.accounting(move);
@@ -206,11 +251,21 @@ public class FECImporter extends Importer {
 
     } catch (Exception e) {
       move.setStatusSelect(MoveRepository.STATUS_NEW);
-      listener.handle(move, e);
+      handle(listener, move, e);
     }
     return null;
   }
 
+  protected void setReference(Move move) {
+    String csvReference = extractCSVMoveReference(move.getReference());
+
+    if (move.getAccountingDate() != null) {
+      move.setReference(String.format("%s", csvReference));
+    } else {
+      move.setReference(String.format("#%s", move.getId().toString()));
+    }
+  }
+
   @Transactional
   protected Move setDescriptionAndFecImport(
       FECImport fecImport, ImporterListener listener, Move move) {
@@ -224,11 +279,243 @@ public class FECImporter extends Importer {
 
     } catch (Exception e) {
       move.setStatusSelect(MoveRepository.STATUS_NEW);
-      listener.handle(move, e);
+      handle(listener, move, e);
     }
     return null;
   }
 
+  /**
+   * Completes and validates the imported moves by chunks, see {@link #BULK_VALIDATION_SETTING}.
+   * The moves are partitioned by journal and the partitions are validated by the configured number
+   * of workers.
+   */
+  protected void completeAndValidateMovesInBulk(
+      FECImport fecImport, List<Long> moveIdList, ImporterListener listener) {
+    if (fecImport == null || moveIdList.isEmpty()) {
+      return;
+    }
+
+    int chunkSize = Math.max(1, AppSettings.get().getInt(CHUNK_SIZE_SETTING, DEFAULT_CHUNK_SIZE));
+    Long fecImportId = fecImport.getId();
+
+    // As in completeAndvalidateMoves, the description is set in its own transaction so that it is
+    // kept when the validation fails.
+    for (List<Long> chunk : Lists.partition(moveIdList, chunkSize)) {
+      try {
+        JPA.runInTransaction(() -> updateDescriptionAndFecImport(fecImportId, chunk));
+      } catch (Exception e) {
+        handle(listener, null, e);
+      }
+    }
+    // The bulk updates bypass the session, whose moves would be stale
+    JPA.clear();
+
+    Collection<List<Long>> partitionList = getMoveIdListByJournal(moveIdList, chunkSize).values();
+    int workerCount =
+        Math.min(
+            partitionList.size(),
+            AppSettings.get().getInt(WORKER_COUNT_SETTING, DEFAULT_WORKER_COUNT));
+
+    if (workerCount <= 1) {
+      for (List<Long> partition : partitionList) {
+        validateMoves(fecImportId, partition, chunkSize, listener);
+      }
+    } else {
+      validateMovesConcurrently(fecImportId, partitionList, chunkSize, workerCount, listener);
+    }
+
+    Move move = moveRepository.find(moveIdList.get(0));
+    if (move != null && move.getCompany() != null) {
+      this.company = companyRepository.find(move.getCompany().getId());
+    }
+  }
+
+  protected void updateDescriptionAndFecImport(Long fecImportId, List<Long> moveIdList) {
+    FECImport fecImport = fecImportRepository.find(fecImportId);
+    JPA.em()
+        .createQuery(
+            "UPDATE Move self SET self.description = :description, self.fecImport = :fecImport, "
+                + "self.version = self.version + 1 WHERE self.id IN :moveIdList")
+        .setParameter("description", fecImport.getMoveDescription())
+        .setParameter("fecImport", fecImport)
+        .setParameter("moveIdList", moveIdList)
+        .executeUpdate();
+  }
+
+  /**
+   * Groups the moves by journal, keeping the import order within each journal. The moves which
+   * could not be imported are left out.
+   */
+  protected Map<Long, List<Long>> getMoveIdListByJournal(List<Long> moveIdList, int chunkSize) {
+    Map<Long, List<Long>> moveIdListByJournal = new LinkedHashMap<>();
+
+    for (List<Long> chunk : Lists.partition(moveIdList, chunkSize)) {
+      List<Object[]> resultList =
+          JPA.em()
+              .createQuery(
+                  "SELECT self.id, journal.id FROM Move self LEFT JOIN self.journal journal "
+                      + "WHERE self.id IN :moveIdList ORDER BY self.id",
+                  Object[].class)
+              .setParameter("moveIdList", chunk)
+              .getResultList();
+
+      for (Object[] result : resultList) {
+        Long journalId = result[1] != null ? (Long) result[1] : 0L;
+        moveIdListByJournal
+            .computeIfAbsent(journalId, key -> new ArrayList<>())
+            .add((Long) result[0]);
+      }
+    }
+
+    return moveIdListByJournal;
+  }
+
+  protected void validateMovesConcurrently(
+      Long fecImportId,
+      Collection<List<Long>> partitionList,
+      int chunkSize,
+      int workerCount,
+      ImporterListener listener) {
+    LOG.info(
+        "Validating the moves of {} journals with {} workers", partitionList.size(), workerCount);
+
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            workerCount,
+            runnable -> {
+              Thread thread = new Thread(runnable, "fec-import");
+              thread.setDaemon(true);
+              return thread;
+            });
+    // The workers act on behalf of the user running the import, e.g. for the period checks
+    Subject subject = AuthUtils.getSubject();
+
+    try {
+      List<Future<Void>> futureList = new ArrayList<>();
+      for (List<Long> partition : partitionList) {
+        Callable<Void> task =
+            () -> validateMovesInWorker(fecImportId, partition, chunkSize, listener);
+        futureList.add(executor.submit(subject != null ? subject.associateWith(task) : task));
+      }
+
+      for (Future<Void> future : futureList) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          handle(listener, null, cause instanceof Exception ? (Exception) cause : e);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      handle(listener, null, e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  protected Void validateMovesInWorker(
+      Long fecImportId, List<Long> moveIdList, int chunkSize, ImporterListener listener) {
+    RequestScoper scope = ServletScopes.scopeRequest(Collections.emptyMap());
+    try (RequestScoper.CloseableScope ignored = scope.open()) {
+      validateMoves(fecImportId, moveIdList, chunkSize, listener);
+      return null;
+    } finally {
+      Beans.get(UnitOfWork.class).end();
+    }
+  }
+
+  /**
+   * Sets the reference of the moves and validates them, one transaction per chunk. The anomalies
+   * of a chunk are reported once it is committed. When a chunk can not be committed, e.g. because
+   * of a duplicated reference, its moves are processed again one by one.
+   */
+  protected void validateMoves(
+      Long fecImportId, List<Long> moveIdList, int chunkSize, ImporterListener listener) {
+    for (List<Long> chunk : Lists.partition(moveIdList, chunkSize)) {
+      Map<Move, Exception> anomalyMap = new LinkedHashMap<>();
+      try {
+        runInTransaction(
+            () ->
+                anomalyMap.putAll(
+                    validateMoveChunk(fecImportRepository.find(fecImportId), chunk)));
+      } catch (Exception e) {
+        LOG.debug("Validating the moves one by one after a chunk failure", e);
+        anomalyMap.clear();
+        clear();
+        for (Long moveId : chunk) {
+          setReferenceAndValidate(
+              fecImportRepository.find(fecImportId), listener, moveRepository.find(moveId));
+          clear();
+        }
+      }
+      anomalyMap.forEach((move, e) -> handle(listener, move, e));
+      clear();
+    }
+  }
+
+  protected void runInTransaction(Runnable task) {
+    JPA.runInTransaction(task);
+  }
+
+  protected void clear() {
+    JPA.clear();
+  }
+
+  /**
+   * Sets the reference of the given moves and validates them.
+   *
+   * @return the anomaly of each move which could not be validated, to be reported once the chunk
+   *     is committed
+   */
+  protected Map<Move, Exception> validateMoveChunk(FECImport fecImport, List<Long> moveIdList) {
+    Map<Move, Exception> anomalyMap = new LinkedHashMap<>();
+    List<Move> moveList = new ArrayList<>();
+    for (Long moveId : moveIdList) {
+      Move move = moveRepository.find(moveId);
+      if (move != null) {
+        setReference(move);
+        moveList.add(moveRepository.save(move));
+      }
+    }
+
+    if (!fecImport.getValidGeneratedMove()) {
+      return anomalyMap;
+    }
+
+    // Moves failing the checks done by query are reported without running their accounting
+    Map<Long, String> moveAnomalyMap = fecImportMoveCheckService.getMoveAnomalyMap(moveIdList);
+
+    List<Move> moveToAccountList = new ArrayList<>();
+    for (Move move : moveList) {
+      String anomaly = moveAnomalyMap.get(move.getId());
+      if (anomaly != null) {
+        move.setStatusSelect(MoveRepository.STATUS_NEW);
+        anomalyMap.put(
+            move, new AxelorException(move, TraceBackRepository.CATEGORY_INCONSISTENCY, anomaly));
+      } else {
+        moveToAccountList.add(move);
+      }
+    }
+
+    Map<Move, Exception> failureMap = moveValidateService.bulkAccounting(moveToAccountList, true);
+    for (Move move : moveToAccountList) {
+      Exception e = failureMap.get(move);
+      if (e != null) {
+        move.setStatusSelect(MoveRepository.STATUS_NEW);
+        anomalyMap.put(move, e);
+      }
+    }
+    return anomalyMap;
+  }
+
+  /** The listener is shared by the workers validating the moves. */
+  protected void handle(ImporterListener listener, Model bean, Exception e) {
+    synchronized (listener) {
+      listener.handle(bean, e);
+    }
+  }
+
   protected String extractCSVMoveReference(String reference) {
     if (reference != null) {
       int indexOfSeparator = reference.indexOf("-");
@@ -23,11 +23,16 @@ import com.axelor.apps.account.db.Move;
 import com.axelor.apps.account.db.repo.MoveRepository;
 import com.axelor.apps.account.exception.AccountExceptionMessage;
 import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Sequence;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.service.administration.SequenceService;
 import com.axelor.i18n.I18n;
 import com.google.common.base.Strings;
 import com.google.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class MoveSequenceService {
 
@@ -51,6 +56,19 @@ public class MoveSequenceService {
 
   public void setSequence(Move move) throws AxelorException {
 
+    checkJournalSequence(move);
+
+    if (!sequenceService.isEmptyOrDraftSequenceNumber(move.getReference())) {
+      return;
+    }
+
+    move.setReference(
+        sequenceService.getSequenceNumber(
+            move.getJournal().getSequence(), move.getDate(), Move.class, "reference", move));
+  }
+
+  public void checkJournalSequence(Move move) throws AxelorException {
+
     Journal journal = move.getJournal();
 
     if (journal.getSequence() == null) {
@@ -59,13 +77,38 @@ public class MoveSequenceService {
           I18n.get(AccountExceptionMessage.MOVE_5),
           journal.getName());
     }
+  }
 
-    if (!sequenceService.isEmptyOrDraftSequenceNumber(move.getReference())) {
-      return;
+  /**
+   * Sets the sequence of the given moves, the numbers of each journal sequence being allocated in
+   * one block. The sequences are locked in the order of their ids, so that concurrent calls
+   * numbering moves of the same sequences can not deadlock. A call still waits for the sequences
+   * locked by another one until its transaction ends.
+   *
+   * @param moveList the moves, whose journal must have a sequence
+   * @throws AxelorException if a number can not be computed, the moves of its sequence and of the
+   *     following ones are then left without number
+   */
+  public void setSequences(List<Move> moveList) throws AxelorException {
+
+    Map<Long, List<Move>> moveListBySequence = new TreeMap<>();
+    for (Move move : moveList) {
+      checkJournalSequence(move);
+      if (sequenceService.isEmptyOrDraftSequenceNumber(move.getReference())) {
+        moveListBySequence
+            .computeIfAbsent(move.getJournal().getSequence().getId(), id -> new ArrayList<>())
+            .add(move);
+      }
     }
 
-    move.setReference(
-        sequenceService.getSequenceNumber(
-            journal.getSequence(), move.getDate(), Move.class, "reference", move));
+    for (List<Move> sequenceMoveList : moveListBySequence.values()) {
+      Sequence sequence = sequenceMoveList.get(0).getJournal().getSequence();
+      List<String> referenceList =
+          sequenceService.getSequenceNumbers(
+              sequence, sequenceMoveList, Move::getDate, Move.class, "reference");
+      for (int i = 0; i < sequenceMoveList.size(); i++) {
+        sequenceMoveList.get(i).setReference(referenceList.get(i));
+      }
+    }
   }
 }
@@ -22,7 +22,9 @@ import com.axelor.apps.account.db.Move;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Partner;
 import com.axelor.db.Query;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface MoveValidateService {
 
@@ -43,6 +45,30 @@ public interface MoveValidateService {
 
   public void accounting(Move move, boolean updateCustomerAccount) throws AxelorException;
 
+  /**
+   * Accounts the given moves in a single transaction. The journals, periods, accounts and account
+   * configurations they use are loaded once, and the checks are run on every move before their
+   * sequence numbers are allocated by block.
+   *
+   * <p>A failing move is reported without stopping the others, but it is not reverted as the
+   * transaction is committed for the other moves:
+   *
+   * <ul>
+   *   <li>a move failing its checks or the allocation of its number is not modified and uses no
+   *       number;
+   *   <li>a move failing once numbered keeps its number, which can not be given back without
+   *       leaving a gap in the sequence, and the changes already made to it. The caller has to set
+   *       it back to an editable status;
+   *   <li>when the partner balances of a company can not be updated, all its moves are reported,
+   *       although they are accounted.
+   * </ul>
+   *
+   * @param moveList the moves to account
+   * @param updateCustomerAccount whether the partner balances are updated
+   * @return the failure of each move which could not be accounted, by move instance
+   */
+  Map<Move, Exception> bulkAccounting(Collection<Move> moveList, boolean updateCustomerAccount);
+
   /**
    * This method may generate fixed asset for each moveLine of move. It will generate if
    * moveLine.fixedAssetCategory != null AND moveLine.account.accountType.technicalTypeSelect =
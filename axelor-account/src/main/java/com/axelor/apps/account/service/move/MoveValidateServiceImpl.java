@@ -51,6 +51,7 @@ import com.axelor.apps.account.service.period.PeriodCheckService;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Company;
 import com.axelor.apps.base.db.Partner;
+import com.axelor.apps.base.db.Period;
 import com.axelor.apps.base.db.repo.PartnerRepository;
 import com.axelor.apps.base.db.repo.PeriodRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
@@ -64,11 +65,13 @@ import com.axelor.auth.AuthUtils;
 import com.axelor.auth.db.User;
 import com.axelor.common.ObjectUtils;
 import com.axelor.db.JPA;
+import com.axelor.db.Model;
 import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
 import com.axelor.meta.MetaStore;
 import com.axelor.meta.schema.views.Selection.Option;
 import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import com.google.inject.servlet.RequestScoped;
@@ -80,7 +83,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -92,6 +99,7 @@ import org.slf4j.LoggerFactory;
 public class MoveValidateServiceImpl implements MoveValidateService {
   private final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   protected int jpaLimit = 20;
+  protected static final int PRELOAD_CHUNK_SIZE = 1000;
   protected MoveLineControlService moveLineControlService;
   protected MoveLineToolService moveLineToolService;
   protected AccountConfigService accountConfigService;
@@ -437,13 +445,186 @@ public class MoveValidateServiceImpl implements MoveValidateService {
 
     log.debug("Accounting of the move {}", move.getReference());
 
+    beforeAccounting(move);
     this.checkPreconditions(move);
 
     log.debug("Precondition check of move {} OK", move.getReference());
-    boolean dayBookMode =
-        accountConfigService.getAccountConfig(move.getCompany()).getAccountingDaybook()
-            && move.getJournal().getAllowAccountingDaybook();
+    boolean dayBookMode = isDayBookMode(move);
+    checkPeriodStatus(move, dayBookMode);
 
+    if (isSequenceNeeded(move, dayBookMode)) {
+      moveSequenceService.setSequence(move);
+    }
+
+    completeAccounting(move, dayBookMode);
+
+    if (updateCustomerAccount) {
+      moveCustAccountService.updateCustomerAccount(move);
+    }
+  }
+
+  @Override
+  @Transactional(rollbackOn = {Exception.class})
+  public Map<Move, Exception> bulkAccounting(
+      Collection<Move> moveList, boolean updateCustomerAccount) {
+    Map<Move, Exception> failureMap = new IdentityHashMap<>();
+    if (CollectionUtils.isEmpty(moveList)) {
+      return failureMap;
+    }
+
+    preloadReferences(moveList);
+
+    List<Move> checkedMoveList = new ArrayList<>();
+    List<Move> sequenceMoveList = new ArrayList<>();
+    for (Move move : moveList) {
+      try {
+        beforeAccounting(move);
+        this.checkPreconditions(move);
+        boolean dayBookMode = isDayBookMode(move);
+        checkPeriodStatus(move, dayBookMode);
+        if (isSequenceNeeded(move, dayBookMode)) {
+          moveSequenceService.checkJournalSequence(move);
+          sequenceMoveList.add(move);
+        }
+        checkedMoveList.add(move);
+      } catch (Exception e) {
+        failureMap.put(move, e);
+      }
+    }
+
+    try {
+      moveSequenceService.setSequences(sequenceMoveList);
+    } catch (Exception e) {
+      // The moves left without number are numbered one by one to find the failing ones
+      log.debug("Sequence allocation by block failed", e);
+      for (Move move : sequenceMoveList) {
+        try {
+          moveSequenceService.setSequence(move);
+        } catch (Exception moveException) {
+          failureMap.put(move, moveException);
+        }
+      }
+    }
+
+    List<Move> accountedMoveList = new ArrayList<>();
+    for (Move move : checkedMoveList) {
+      if (failureMap.containsKey(move)) {
+        continue;
+      }
+      try {
+        completeAccounting(move, isDayBookMode(move));
+        accountedMoveList.add(move);
+      } catch (Exception e) {
+        failureMap.put(move, e);
+      }
+    }
+
+    if (updateCustomerAccount) {
+      updateCustomerAccounts(accountedMoveList, failureMap);
+    }
+
+    return failureMap;
+  }
+
+  /**
+   * Completes a move before its checks, when it is accounted alone or in bulk.
+   *
+   * @param move the move to account
+   * @throws AxelorException if the move can not be completed, it is then not accounted
+   */
+  protected void beforeAccounting(Move move) throws AxelorException {}
+
+  /**
+   * Loads the move lines of the moves, and the journals, periods, accounts and account
+   * configurations they use, with one query each per chunk of moves instead of one query per
+   * entity.
+   */
+  protected void preloadReferences(Collection<Move> moveList) {
+    Set<Long> moveIdSet = new LinkedHashSet<>();
+    Set<Long> journalIdSet = new HashSet<>();
+    Set<Long> periodIdSet = new HashSet<>();
+    Set<Long> companyIdSet = new HashSet<>();
+    for (Move move : moveList) {
+      addId(moveIdSet, move);
+      addId(journalIdSet, move.getJournal());
+      addId(periodIdSet, move.getPeriod());
+      addId(companyIdSet, move.getCompany());
+    }
+
+    Set<Long> accountIdSet = new HashSet<>();
+    for (List<Long> moveIdList : Lists.partition(new ArrayList<>(moveIdSet), PRELOAD_CHUNK_SIZE)) {
+      preloadMoveLines(moveIdList);
+    }
+    for (Move move : moveList) {
+      if (move.getMoveLineList() != null) {
+        move.getMoveLineList().forEach(moveLine -> addId(accountIdSet, moveLine.getAccount()));
+      }
+    }
+
+    preload(Journal.class, "self.id", journalIdSet);
+    preload(Period.class, "self.id", periodIdSet);
+    preload(Account.class, "self.id", accountIdSet);
+    preload(AccountConfig.class, "self.company.id", companyIdSet);
+  }
+
+  protected void addId(Set<Long> idSet, Model model) {
+    if (model != null && model.getId() != null) {
+      idSet.add(model.getId());
+    }
+  }
+
+  protected void preloadMoveLines(List<Long> moveIdList) {
+    JPA.em()
+        .createQuery(
+            "SELECT DISTINCT self FROM Move self LEFT JOIN FETCH self.moveLineList "
+                + "WHERE self.id IN :idList",
+            Move.class)
+        .setParameter("idList", moveIdList)
+        .getResultList();
+  }
+
+  protected <T extends Model> void preload(Class<T> modelClass, String idPath, Set<Long> idSet) {
+    for (List<Long> idList : Lists.partition(new ArrayList<>(idSet), PRELOAD_CHUNK_SIZE)) {
+      Query.of(modelClass).filter(idPath + " IN :idList").bind("idList", idList).fetch();
+    }
+  }
+
+  /** Updates the balances of the partners of the moves once per company. */
+  protected void updateCustomerAccounts(List<Move> moveList, Map<Move, Exception> failureMap) {
+    Map<Long, List<Move>> moveListByCompany = new LinkedHashMap<>();
+    for (Move move : moveList) {
+      moveListByCompany
+          .computeIfAbsent(move.getCompany().getId(), id -> new ArrayList<>())
+          .add(move);
+    }
+
+    for (List<Move> companyMoveList : moveListByCompany.values()) {
+      Map<Long, Partner> partnerMap = new LinkedHashMap<>();
+      for (Move move : companyMoveList) {
+        for (Partner partner : moveCustAccountService.getPartnerOfMove(move)) {
+          partnerMap.putIfAbsent(partner.getId(), partner);
+        }
+      }
+
+      try {
+        moveCustAccountService.updateCustomerAccount(
+            new ArrayList<>(partnerMap.values()), companyMoveList.get(0).getCompany());
+      } catch (Exception e) {
+        companyMoveList.forEach(move -> failureMap.put(move, e));
+      }
+    }
+  }
+
+  protected boolean isDayBookMode(Move move) throws AxelorException {
+    return accountConfigService.getAccountConfig(move.getCompany()).getAccountingDaybook()
+        && move.getJournal().getAllowAccountingDaybook();
+  }
+
+  protected boolean isSequenceNeeded(Move move, boolean dayBookMode) {
+    return !dayBookMode || move.getStatusSelect() == MoveRepository.STATUS_DAYBOOK;
+  }
+
+  protected void checkPeriodStatus(Move move, boolean dayBookMode) throws AxelorException {
     if (move.getPeriod().getStatusSelect() == PeriodRepository.STATUS_CLOSED
         && !move.getAutoYearClosureMove()) {
       if (dayBookMode
@@ -458,11 +639,10 @@ public class MoveValidateServiceImpl implements MoveValidateService {
             I18n.get(AccountExceptionMessage.MOVE_ACCOUNTING_FISCAL_PERIOD_CLOSED));
       }
     }
+  }
 
-    if (!dayBookMode || move.getStatusSelect() == MoveRepository.STATUS_DAYBOOK) {
-      moveSequenceService.setSequence(move);
-    }
-
+  /** Completes and saves a move whose checks passed and sequence is set. */
+  protected void completeAccounting(Move move, boolean dayBookMode) throws AxelorException {
     if (move.getPeriod().getStatusSelect() == PeriodRepository.STATUS_ADJUSTING) {
       move.setAdjustingMove(true);
     }
@@ -480,10 +660,6 @@ public class MoveValidateServiceImpl implements MoveValidateService {
     }
 
     moveRepository.save(move);
-
-    if (updateCustomerAccount) {
-      moveCustAccountService.updateCustomerAccount(move);
-    }
   }
 
   protected void setMoveLineAccountingDate(Move move, boolean daybook) {
@@ -26,7 +26,6 @@ import com.axelor.apps.account.db.MoveLine;
 import com.axelor.apps.account.db.repo.AccountRepository;
 import com.axelor.apps.account.db.repo.FECImportRepository;
 import com.axelor.apps.account.db.repo.JournalRepository;
-import com.axelor.apps.account.db.repo.MoveLineRepository;
 import com.axelor.apps.account.db.repo.MoveRepository;
 import com.axelor.apps.account.exception.AccountExceptionMessage;
 import com.axelor.apps.account.service.app.AppAccountService;
@@ -38,6 +37,7 @@ import com.axelor.apps.base.db.Partner;
 import com.axelor.apps.base.db.Period;
 import com.axelor.apps.base.db.repo.CompanyRepository;
 import com.axelor.apps.base.db.repo.CurrencyRepository;
+import com.axelor.apps.base.db.repo.PeriodRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.db.repo.YearRepository;
 import com.axelor.apps.base.service.PeriodService;
@@ -53,6 +53,7 @@ import java.math.BigDecimal;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -63,7 +64,6 @@ import org.apache.commons.collections.CollectionUtils;
 public class ImportMove {
 
   @Inject private MoveRepository moveRepository;
-  @Inject private MoveLineRepository moveLineRepo;
   @Inject private MoveValidateService moveValidateService;
   @Inject private MoveLineToolService moveLineToolService;
   @Inject private AppAccountService appAccountService;
@@ -72,6 +72,14 @@ public class ImportMove {
 
   private String lastImportDate;
 
+  // The lines of a FEC file are grouped by move, the moves, their last line counter and the
+  // journals, accounts and periods used by the file are kept to avoid querying them on every line.
+  private final Map<String, Long> moveIdMap = new HashMap<>();
+  private final Map<String, Integer> moveLineCounterMap = new HashMap<>();
+  private final Map<String, Long> journalIdMap = new HashMap<>();
+  private final Map<String, Long> accountIdMap = new HashMap<>();
+  private final Map<String, Long> periodIdMap = new HashMap<>();
+
   @Transactional(rollbackOn = {Exception.class})
   public Object importFECMove(Object bean, Map<String, Object> values) throws AxelorException {
     assert bean instanceof MoveLine;
@@ -102,25 +110,15 @@ public class ImportMove {
       }
       String importReference = String.format("#%s-%s", csvReference, lastImportDate);
 
-      MoveLine mvLine =
-          moveLineRepo
-              .all()
-              .filter("self.name LIKE '" + importReference + "-%'")
-              .order("-counter")
-              .fetchOne();
-      if (mvLine != null) {
-        int counter = mvLine.getCounter() + 1;
-        moveLine.setCounter(counter);
-      }
+      moveLine.setCounter(moveLineCounterMap.getOrDefault(importReference, 0) + 1);
 
       if (values.get("EcritureDate") != null) {
         moveLine.setDate(parseDate(values.get("EcritureDate").toString()));
       }
 
-      Period period =
-          periodService.getPeriod(moveLine.getDate(), company, YearRepository.TYPE_FISCAL);
+      Period period = getPeriod(moveLine.getDate(), company);
 
-      Move move = moveRepository.all().filter("self.reference = ?", importReference).fetchOne();
+      Move move = getImportedMove(importReference);
       if (move == null) {
         move = new Move();
         move.setFecImport(fecImport);
@@ -157,14 +155,7 @@ public class ImportMove {
 
         Journal journal = null;
         if (values.get("JournalCode") != null) {
-          journal =
-              Beans.get(JournalRepository.class)
-                  .all()
-                  .filter(
-                      "self.code = ?1 AND self.company.id = ?2",
-                      values.get("JournalCode").toString(),
-                      move.getCompany().getId())
-                  .fetchOne();
+          journal = getJournal(values.get("JournalCode").toString(), move.getCompany());
           if (journal == null) {
             throw new AxelorException(
                 fecImport,
@@ -194,14 +185,7 @@ public class ImportMove {
         moveRepository.save(move);
       }
       if (values.get("CompteNum") != null) {
-        Account account =
-            Beans.get(AccountRepository.class)
-                .all()
-                .filter(
-                    "self.code = ?1 AND self.company.id = ?2",
-                    values.get("CompteNum").toString(),
-                    move.getCompany().getId())
-                .fetchOne();
+        Account account = getAccount(values.get("CompteNum").toString(), move.getCompany());
         if (account == null) {
           throw new AxelorException(
               fecImport,
@@ -233,6 +217,9 @@ public class ImportMove {
           moveLine.setCurrencyAmount(currencyAmount.negate());
         }
       }
+
+      moveIdMap.put(importReference, move.getId());
+      moveLineCounterMap.put(importReference, moveLine.getCounter());
     } catch (AxelorException e) {
       TraceBackService.trace(e);
       throw e;
@@ -244,6 +231,70 @@ public class ImportMove {
     return moveLine;
   }
 
+  /**
+   * Returns the move previously created by this import for the given reference. A reference is
+   * only used by one import as it contains the import date, so a move not created by this import
+   * does not exist yet.
+   */
+  protected Move getImportedMove(String importReference) {
+    Long moveId = moveIdMap.get(importReference);
+    return moveId != null ? moveRepository.find(moveId) : null;
+  }
+
+  protected Journal getJournal(String journalCode, Company company) {
+    String key = company.getId() + "/" + journalCode;
+    JournalRepository journalRepository = Beans.get(JournalRepository.class);
+    Journal journal =
+        journalIdMap.containsKey(key) ? journalRepository.find(journalIdMap.get(key)) : null;
+    if (journal == null) {
+      journal =
+          journalRepository
+              .all()
+              .filter("self.code = ?1 AND self.company.id = ?2", journalCode, company.getId())
+              .fetchOne();
+      if (journal != null) {
+        journalIdMap.put(key, journal.getId());
+      }
+    }
+    return journal;
+  }
+
+  protected Account getAccount(String accountCode, Company company) {
+    String key = company.getId() + "/" + accountCode;
+    AccountRepository accountRepository = Beans.get(AccountRepository.class);
+    Account account =
+        accountIdMap.containsKey(key) ? accountRepository.find(accountIdMap.get(key)) : null;
+    if (account == null) {
+      account =
+          accountRepository
+              .all()
+              .filter("self.code = ?1 AND self.company.id = ?2", accountCode, company.getId())
+              .fetchOne();
+      if (account != null) {
+        accountIdMap.put(key, account.getId());
+      }
+    }
+    return account;
+  }
+
+  protected Period getPeriod(LocalDate date, Company company) {
+    if (date == null || company == null) {
+      return periodService.getPeriod(date, company, YearRepository.TYPE_FISCAL);
+    }
+    String key = company.getId() + "/" + date;
+    Period period =
+        periodIdMap.containsKey(key)
+            ? Beans.get(PeriodRepository.class).find(periodIdMap.get(key))
+            : null;
+    if (period == null) {
+      period = periodService.getPeriod(date, company, YearRepository.TYPE_FISCAL);
+      if (period != null) {
+        periodIdMap.put(key, period.getId());
+      }
+    }
+    return period;
+  }
+
   protected void setMovePartner(Move move, MoveLine moveLine) {
     List<Partner> partnerList =
         move.getMoveLineList().stream()
@@ -0,0 +1,466 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.batch;
+
+import com.axelor.apps.account.db.MoveLine;
+import com.axelor.apps.account.db.repo.AccountingBatchRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestAutoMoveLetteringMatcher {
+
+  private static final Comparator<MoveLine> ID_COMPARATOR = Comparator.comparing(MoveLine::getId);
+
+  private long nextId;
+  private List<MoveLine> debitMoveLineList;
+  private List<MoveLine> creditMoveLineList;
+
+  @BeforeEach
+  void prepare() {
+    nextId = 1;
+    debitMoveLineList = new ArrayList<>();
+    creditMoveLineList = new ArrayList<>();
+  }
+
+  @Test
+  void match_byAmount_matchesEqualAmounts() {
+    MoveLine debit1 = createDebit("100", "100", null);
+    createDebit("50", "50", null);
+    MoveLine debit3 = createDebit("100", "100", null);
+    MoveLine credit1 = createCredit("100", "100", null);
+    MoveLine credit2 = createCredit("100.00", "100.00", null);
+    createCredit("30", "30", null);
+
+    List<Pair<List<MoveLine>, List<MoveLine>>> matchList =
+        match(AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_AMOUNT, false, 1);
+
+    Assertions.assertEquals(
+        List.of(
+            Pair.of(List.of(debit1), List.of(credit1)), Pair.of(List.of(debit3), List.of(credit2))),
+        matchList);
+    assertSameAsPairByPair(
+        AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_AMOUNT, false, matchList);
+  }
+
+  @Test
+  void match_byAmount_lettersPartiallyLetteredLines() {
+    MoveLine debit1 = createDebit("100", "30", null);
+    MoveLine debit2 = createDebit("100", "100", null);
+    MoveLine credit1 = createCredit("100", "100", null);
+    MoveLine credit2 = createCredit("100", "40", null);
+
+    List<Pair<List<MoveLine>, List<MoveLine>>> matchList =
+        match(AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_AMOUNT, false, 1);
+
+    Assertions.assertEquals(
+        List.of(
+            Pair.of(List.of(debit1), List.of(credit1)),
+            Pair.of(List.of(debit2), List.of(credit1)),
+            Pair.of(List.of(debit2), List.of(credit2))),
+        matchList);
+    assertSameAsPairByPair(
+        AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_AMOUNT, false, matchList);
+  }
+
+  @Test
+  void match_byBalancedAccount_matchesEqualAmounts() {
+    createDebit("80", "80", null);
+    createDebit("20", "20", null);
+    createCredit("20", "20", null);
+    createCredit("100", "100", null);
+
+    assertSameAsPairByPair(
+        AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_ACCOUNT,
+        false,
+        match(
+            AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_ACCOUNT, false, 1));
+  }
+
+  @Test
+  void match_byOrigin_partial() {
+    MoveLine debit1 = createDebit("60", "60", "INV1");
+    MoveLine debit2 = createDebit("40", "40", "INV1");
+    createDebit("10", "10", "INV2");
+    createDebit("10", "10", null);
+    MoveLine credit1 = createCredit("90", "90", "INV1");
+    createCredit("10", "10", "INV3");
+    createCredit("10", "10", null);
+
+    List<Pair<List<MoveLine>, List<MoveLine>>> matchList =
+        match(AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_ORIGIN, true, 1);
+
+    Assertions.assertEquals(List.of(Pair.of(List.of(debit1, debit2), List.of(credit1))), matchList);
+    assertSameAsPairByPair(
+        AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_ORIGIN, true, matchList);
+  }
+
+  @Test
+  void match_byOrigin_requiresEqualAmountsWhenNotPartial() {
+    createDebit("60", "60", "INV1");
+    MoveLine debit2 = createDebit("100", "100", "INV1");
+    MoveLine credit1 = createCredit("100", "100", "INV1");
+    createCredit("100", "100", "INV2");
+
+    List<Pair<List<MoveLine>, List<MoveLine>>> matchList =
+        match(AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_ORIGIN, false, 1);
+
+    Assertions.assertEquals(List.of(Pair.of(List.of(debit2), List.of(credit1))), matchList);
+    assertSameAsPairByPair(
+        AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_ORIGIN, false, matchList);
+  }
+
+  @Test
+  void match_byExternalIdentifier_partial() {
+    MoveLine debit1 = createDebit("60", "60", null);
+    debit1.setExternalOrigin("EXT1");
+    MoveLine debit2 = createDebit("60", "60", null);
+    debit2.setExternalOrigin("EXT1");
+    MoveLine credit1 = createCredit("80", "80", null);
+    credit1.setExternalOrigin("EXT1");
+    MoveLine credit2 = createCredit("50", "50", null);
+    credit2.setExternalOrigin("EXT1");
+
+    List<Pair<List<MoveLine>, List<MoveLine>>> matchList =
+        match(
+            AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_EXTERNAL_IDENTIFIER,
+            true,
+            1);
+
+    Assertions.assertEquals(
+        List.of(
+            Pair.of(List.of(debit1, debit2), List.of(credit1)),
+            Pair.of(List.of(debit1, debit2), List.of(credit2))),
+        matchList);
+    assertSameAsPairByPair(
+        AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_EXTERNAL_IDENTIFIER,
+        true,
+        matchList);
+  }
+
+  @Test
+  void match_byBalancedMove_matchesShortestBalancedSequences() {
+    createDebit("10", "10", null);
+    MoveLine debit2 = createDebit("100", "100", null);
+    MoveLine credit3 = createCredit("60", "60", null);
+    MoveLine credit4 = createCredit("40", "40", null);
+    MoveLine debit5 = createDebit("50", "50", null);
+    MoveLine credit6 = createCredit("50", "50", null);
+    createCredit("30", "30", null);
+
+    List<Pair<List<MoveLine>, List<MoveLine>>> matchList =
+        match(AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_MOVE, false, 1);
+
+    Assertions.assertEquals(
+        List.of(
+            Pair.of(List.of(debit2), List.of(credit3, credit4)),
+            Pair.of(List.of(debit5), List.of(credit6))),
+        matchList);
+    assertSameAsPairByPair(
+        AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_MOVE, false, matchList);
+  }
+
+  @Test
+  void match_byBalancedMove_usesRemainingAmounts() {
+    createDebit("100", "40", null);
+    createCredit("40", "40", null);
+    createCredit("70", "30", null);
+    createDebit("30", "30", null);
+
+    assertSameAsPairByPair(
+        AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_MOVE,
+        false,
+        match(AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_MOVE, false, 1));
+  }
+
+  @Test
+  void match_byAmount_matchesSubsets() {
+    MoveLine debit1 = createDebit("100", "100", null);
+    MoveLine debit2 = createDebit("25", "25", null);
+    MoveLine debit3 = createDebit("45", "45", null);
+    MoveLine credit1 = createCredit("30", "30", null);
+    MoveLine credit2 = createCredit("50", "50", null);
+    MoveLine credit3 = createCredit("70", "70", null);
+    MoveLine credit4 = createCredit("70", "70", null);
+
+    List<Pair<List<MoveLine>, List<MoveLine>>> matchList =
+        match(AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_AMOUNT, false, 3);
+
+    Assertions.assertEquals(
+        List.of(
+            Pair.of(List.of(debit1), List.of(credit1, credit3)),
+            Pair.of(List.of(debit2, debit3), List.of(credit4))),
+        matchList);
+    Assertions.assertFalse(
+        matchList.stream().anyMatch(match -> match.getRight().contains(credit2)));
+  }
+
+  @Test
+  void match_byAmount_searchesNoSubsetByDefault() {
+    createDebit("100", "100", null);
+    createCredit("30", "30", null);
+    createCredit("70", "70", null);
+
+    Assertions.assertTrue(
+        match(AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_AMOUNT, false, 1)
+            .isEmpty());
+  }
+
+  protected List<Pair<List<MoveLine>, List<MoveLine>>> match(
+      int reconcileMethodSelect, boolean isPartialReconcile, int subsetMaxSize) {
+    return new AutoMoveLetteringMatcher(ID_COMPARATOR, isPartialReconcile, subsetMaxSize, 100)
+        .match(reconcileMethodSelect, debitMoveLineList, creditMoveLineList);
+  }
+
+  /**
+   * Checks that lettering the matches leaves the same remaining amounts as the lettering pair by
+   * pair, done by the batch when the lettering by group is disabled.
+   */
+  protected void assertSameAsPairByPair(
+      int reconcileMethodSelect,
+      boolean isPartialReconcile,
+      List<Pair<List<MoveLine>, List<MoveLine>>> matchList) {
+    Map<Long, BigDecimal> expectedMap = new HashMap<>();
+    if (reconcileMethodSelect
+        == AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_MOVE) {
+      letterBalancedMovesPairByPair(expectedMap);
+    } else {
+      letterPairByPair(
+          debitMoveLineList,
+          creditMoveLineList,
+          reconcileMethodSelect,
+          isPartialReconcile,
+          expectedMap);
+    }
+
+    Map<Long, BigDecimal> actualMap = new HashMap<>();
+    for (Pair<List<MoveLine>, List<MoveLine>> match : matchList) {
+      letterMatch(match.getLeft(), match.getRight(), actualMap);
+    }
+
+    for (MoveLine moveLine : getMoveLineList()) {
+      Assertions.assertEquals(
+          0,
+          getAmountRemaining(moveLine, expectedMap)
+              .compareTo(getAmountRemaining(moveLine, actualMap)),
+          "Remaining amount of move line " + moveLine.getId());
+    }
+    Assertions.assertTrue(
+        getMoveLineList().stream()
+            .anyMatch(moveLine -> getAmountRemaining(moveLine, actualMap).signum() == 0),
+        "No move line is lettered");
+  }
+
+  /** Same loops as BatchAutoMoveLettering.reconcileWithBalancedMove. */
+  protected void letterBalancedMovesPairByPair(Map<Long, BigDecimal> amountRemainingMap) {
+    List<MoveLine> moveLines = getMoveLineList();
+    Set<Long> moveLinesReconciled = new HashSet<>();
+    for (int i = 0; i < moveLines.size(); i++) {
+      List<MoveLine> moveLinesToProcess = new ArrayList<>();
+      BigDecimal progressiveAmount = BigDecimal.ZERO;
+      for (MoveLine moveLine : moveLines.subList(i, moveLines.size())) {
+        if (moveLinesReconciled.contains(moveLine.getId())) {
+          break;
+        }
+        moveLinesToProcess.add(moveLine);
+        progressiveAmount =
+            moveLine.getDebit().signum() > 0
+                ? progressiveAmount.subtract(moveLine.getAmountRemaining().abs())
+                : progressiveAmount.add(moveLine.getAmountRemaining().abs());
+        if (progressiveAmount.signum() == 0) {
+          letterPairByPair(
+              moveLinesToProcess.stream()
+                  .filter(ml -> ml.getDebit().signum() > 0)
+                  .collect(Collectors.toList()),
+              moveLinesToProcess.stream()
+                  .filter(ml -> ml.getCredit().signum() > 0)
+                  .collect(Collectors.toList()),
+              AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_MOVE,
+              false,
+              amountRemainingMap);
+          moveLinesToProcess.forEach(ml -> moveLinesReconciled.add(ml.getId()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Same loops as BatchAutoMoveLettering.reconcileWithMethod, the remaining amounts being kept in
+   * the map instead of the database. A reconcile without amount to letter is an anomaly.
+   */
+  protected void letterPairByPair(
+      List<MoveLine> debitMoveLines,
+      List<MoveLine> creditMoveLines,
+      int reconcileMethodSelect,
+      boolean isPartialReconcile,
+      Map<Long, BigDecimal> amountRemainingMap) {
+    BigDecimal debitTotalRemaining = getTotalRemaining(debitMoveLines);
+    BigDecimal creditTotalRemaining = getTotalRemaining(creditMoveLines);
+    boolean isBalanced = debitTotalRemaining.compareTo(creditTotalRemaining) == 0;
+
+    Map<Long, BigDecimal> debitRemaining = new HashMap<>();
+    for (MoveLine debitMoveLine : debitMoveLines) {
+      debitRemaining.put(debitMoveLine.getId(), debitMoveLine.getAmountRemaining().abs());
+    }
+    for (MoveLine creditMoveLine : creditMoveLines) {
+      BigDecimal creditRemaining = creditMoveLine.getAmountRemaining().abs();
+      for (MoveLine debitMoveLine : debitMoveLines) {
+        BigDecimal nextCreditRemaining = creditRemaining.subtract(debitMoveLine.getDebit());
+        BigDecimal nextDebitRemaining =
+            debitRemaining.get(debitMoveLine.getId()).subtract(creditMoveLine.getCredit());
+        if (reconcileMethodSelect
+                == AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_MOVE
+            && !isBalanced
+            && (nextCreditRemaining.signum() < 0 || nextDebitRemaining.signum() < 0)) {
+          continue;
+        }
+
+        if (canBeReconciled(
+            reconcileMethodSelect, isPartialReconcile, debitMoveLine, creditMoveLine)) {
+          BigDecimal amount =
+              getAmountRemaining(debitMoveLine, amountRemainingMap)
+                  .min(getAmountRemaining(creditMoveLine, amountRemainingMap));
+          if (amount.signum() > 0) {
+            letter(debitMoveLine, creditMoveLine, amount, amountRemainingMap);
+            creditRemaining = nextCreditRemaining;
+            debitRemaining.put(debitMoveLine.getId(), nextDebitRemaining);
+          }
+        }
+      }
+    }
+  }
+
+  /** Same conditions as BatchAutoMoveLettering.canBeReconciled. */
+  protected boolean canBeReconciled(
+      int reconcileMethodSelect,
+      boolean isPartialReconcile,
+      MoveLine debitMoveLine,
+      MoveLine creditMoveLine) {
+    boolean isBalanced = debitMoveLine.getDebit().compareTo(creditMoveLine.getCredit()) == 0;
+    switch (reconcileMethodSelect) {
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_MOVE:
+        return true;
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_AMOUNT:
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_ACCOUNT:
+        return isBalanced;
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_ORIGIN:
+        return debitMoveLine.getOrigin() != null
+            && debitMoveLine.getOrigin().equals(creditMoveLine.getOrigin())
+            && (isPartialReconcile || isBalanced);
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_EXTERNAL_IDENTIFIER:
+        return debitMoveLine.getExternalOrigin() != null
+            && debitMoveLine.getExternalOrigin().equals(creditMoveLine.getExternalOrigin())
+            && (isPartialReconcile || isBalanced);
+      default:
+        return false;
+    }
+  }
+
+  /** Same loop as BatchAutoMoveLettering.reconcileMatch. */
+  protected void letterMatch(
+      List<MoveLine> debitMoveLines,
+      List<MoveLine> creditMoveLines,
+      Map<Long, BigDecimal> amountRemainingMap) {
+    int debitIndex = 0;
+    int creditIndex = 0;
+    while (debitIndex < debitMoveLines.size() && creditIndex < creditMoveLines.size()) {
+      MoveLine debitMoveLine = debitMoveLines.get(debitIndex);
+      MoveLine creditMoveLine = creditMoveLines.get(creditIndex);
+      BigDecimal debitRemaining = getAmountRemaining(debitMoveLine, amountRemainingMap);
+      BigDecimal creditRemaining = getAmountRemaining(creditMoveLine, amountRemainingMap);
+      if (debitRemaining.signum() <= 0) {
+        debitIndex++;
+      } else if (creditRemaining.signum() <= 0) {
+        creditIndex++;
+      } else {
+        letter(
+            debitMoveLine, creditMoveLine, debitRemaining.min(creditRemaining), amountRemainingMap);
+      }
+    }
+  }
+
+  protected void letter(
+      MoveLine debitMoveLine,
+      MoveLine creditMoveLine,
+      BigDecimal amount,
+      Map<Long, BigDecimal> amountRemainingMap) {
+    amountRemainingMap.put(
+        debitMoveLine.getId(),
+        getAmountRemaining(debitMoveLine, amountRemainingMap).subtract(amount));
+    amountRemainingMap.put(
+        creditMoveLine.getId(),
+        getAmountRemaining(creditMoveLine, amountRemainingMap).subtract(amount));
+  }
+
+  protected BigDecimal getAmountRemaining(
+      MoveLine moveLine, Map<Long, BigDecimal> amountRemainingMap) {
+    return amountRemainingMap.computeIfAbsent(
+        moveLine.getId(), id -> moveLine.getAmountRemaining().abs());
+  }
+
+  protected BigDecimal getTotalRemaining(List<MoveLine> moveLineList) {
+    return moveLineList.stream()
+        .map(moveLine -> moveLine.getAmountRemaining().abs())
+        .reduce(BigDecimal.ZERO, BigDecimal::add);
+  }
+
+  protected List<MoveLine> getMoveLineList() {
+    return Stream.of(debitMoveLineList, creditMoveLineList)
+        .flatMap(Collection::stream)
+        .sorted(ID_COMPARATOR)
+        .collect(Collectors.toList());
+  }
+
+  protected MoveLine createDebit(String debit, String amountRemaining, String origin) {
+    MoveLine moveLine = createMoveLine(origin);
+    moveLine.setDebit(new BigDecimal(debit));
+    moveLine.setAmountRemaining(new BigDecimal(amountRemaining));
+    debitMoveLineList.add(moveLine);
+    return moveLine;
+  }
+
+  protected MoveLine createCredit(String credit, String amountRemaining, String origin) {
+    MoveLine moveLine = createMoveLine(origin);
+    moveLine.setCredit(new BigDecimal(credit));
+    moveLine.setAmountRemaining(new BigDecimal(amountRemaining).negate());
+    creditMoveLineList.add(moveLine);
+    return moveLine;
+  }
+
+  protected MoveLine createMoveLine(String origin) {
+    MoveLine moveLine = new MoveLine();
+    moveLine.setId(nextId++);
+    moveLine.setDebit(BigDecimal.ZERO);
+    moveLine.setCredit(BigDecimal.ZERO);
+    moveLine.setOrigin(origin);
+    return moveLine;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.custom;
+
+import com.axelor.apps.account.db.AccountingReportConfigLine;
+import com.axelor.apps.account.db.repo.AccountingReportConfigLineRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestAccountingReportValueService {
+
+  private AccountingReportValueServiceImpl accountingReportValueService;
+
+  @BeforeEach
+  void prepare() {
+    accountingReportValueService =
+        new AccountingReportValueServiceImpl(null, null, null, null, null, null, null, null, null);
+  }
+
+  @Test
+  void sortByDependencies_putsReferencedColumnBeforeRule() {
+    AccountingReportConfigLine total = createCustomRuleLine("TOTAL", "A + B");
+    AccountingReportConfigLine a = createNoValueLine("A");
+    AccountingReportConfigLine b = createNoValueLine("B");
+
+    List<AccountingReportConfigLine> sortedList =
+        accountingReportValueService.sortByDependencies(List.of(total, a, b));
+
+    Assertions.assertEquals(List.of(a, b, total), sortedList);
+  }
+
+  @Test
+  void sortByDependencies_putsPercentageBaseColumnBeforePercentage() {
+    AccountingReportConfigLine percentage = createNoValueLine("PCT");
+    percentage.setRuleTypeSelect(AccountingReportConfigLineRepository.RULE_TYPE_PERCENTAGE);
+    percentage.setPercentageBaseColumn("BASE");
+    AccountingReportConfigLine other = createNoValueLine("OTHER");
+    AccountingReportConfigLine base = createNoValueLine("BASE");
+
+    List<AccountingReportConfigLine> sortedList =
+        accountingReportValueService.sortByDependencies(List.of(percentage, other, base));
+
+    Assertions.assertEquals(List.of(other, base, percentage), sortedList);
+  }
+
+  @Test
+  void sortByDependencies_keepsOriginalOrderOfCycle() {
+    AccountingReportConfigLine a = createCustomRuleLine("A", "B + 1");
+    AccountingReportConfigLine b = createCustomRuleLine("B", "C * 2");
+    AccountingReportConfigLine c = createCustomRuleLine("C", "A - 3");
+    AccountingReportConfigLine free = createNoValueLine("FREE");
+
+    List<AccountingReportConfigLine> sortedList =
+        accountingReportValueService.sortByDependencies(List.of(a, b, c, free));
+
+    Assertions.assertEquals(List.of(free, a, b, c), sortedList);
+  }
+
+  @Test
+  void getDependencies_ignoresOwnCodeAndUnknownCodes() {
+    AccountingReportConfigLine a = createCustomRuleLine("A", "A + UNKNOWN + B");
+    AccountingReportConfigLine b = createNoValueLine("B");
+
+    Assertions.assertEquals(
+        Set.of(b), accountingReportValueService.getDependencies(a, Map.of("A", a, "B", b)));
+  }
+
+  protected AccountingReportConfigLine createNoValueLine(String code) {
+    AccountingReportConfigLine configLine = new AccountingReportConfigLine();
+    configLine.setCode(code);
+    configLine.setRuleTypeSelect(AccountingReportConfigLineRepository.RULE_TYPE_NO_VALUE);
+    return configLine;
+  }
+
+  protected AccountingReportConfigLine createCustomRuleLine(String code, String rule) {
+    AccountingReportConfigLine configLine = createNoValueLine(code);
+    configLine.setRuleTypeSelect(AccountingReportConfigLineRepository.RULE_TYPE_CUSTOM_RULE);
+    configLine.setRule(rule);
+    return configLine;
+  }
+}
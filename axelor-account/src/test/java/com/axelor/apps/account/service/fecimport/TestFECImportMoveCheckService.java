@@ -0,0 +1,124 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.fecimport;
+
+import com.axelor.apps.account.exception.AccountExceptionMessage;
+import com.axelor.i18n.I18n;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestFECImportMoveCheckService {
+
+  private List<Object[]> moveTotalList;
+  private List<Object[]> inactiveAccountList;
+  private FECImportMoveCheckService fecImportMoveCheckService;
+
+  @BeforeEach
+  void prepare() {
+    moveTotalList = new ArrayList<>();
+    inactiveAccountList = new ArrayList<>();
+
+    fecImportMoveCheckService =
+        new FECImportMoveCheckServiceImpl() {
+          @Override
+          protected List<Object[]> getMoveTotalList(List<Long> moveIdList) {
+            return moveTotalList;
+          }
+
+          @Override
+          protected List<Object[]> getInactiveAccountList(List<Long> moveIdList) {
+            return inactiveAccountList;
+          }
+        };
+  }
+
+  @Test
+  void getMoveAnomalyMap_reportsEmptyAndUnbalancedMoves() {
+    addMoveTotal(1L, "#1", 2L, "100", "100");
+    addMoveTotal(2L, "#2", 0L, "0", "0");
+    addMoveTotal(3L, "#3", 2L, "100", "99.99");
+
+    Map<Long, String> moveAnomalyMap =
+        fecImportMoveCheckService.getMoveAnomalyMap(List.of(1L, 2L, 3L));
+
+    Assertions.assertEquals(Set.of(2L, 3L), moveAnomalyMap.keySet());
+    Assertions.assertEquals(
+        String.format(I18n.get(AccountExceptionMessage.MOVE_8), "#2"), moveAnomalyMap.get(2L));
+    Assertions.assertEquals(
+        String.format(
+            I18n.get(AccountExceptionMessage.MOVE_7),
+            "#3",
+            new BigDecimal("100"),
+            new BigDecimal("99.99")),
+        moveAnomalyMap.get(3L));
+  }
+
+  @Test
+  void getMoveAnomalyMap_comparesTotalsWhateverTheirScale() {
+    addMoveTotal(1L, "#1", 2L, "100.00", "100");
+
+    Assertions.assertTrue(fecImportMoveCheckService.getMoveAnomalyMap(List.of(1L)).isEmpty());
+  }
+
+  @Test
+  void getMoveAnomalyMap_reportsInactiveAccountsOfBalancedMoves() {
+    addMoveTotal(1L, "#1", 2L, "100", "100");
+    addMoveTotal(2L, "#2", 3L, "100", "100");
+    addMoveTotal(3L, "#3", 0L, "0", "0");
+    inactiveAccountList.add(new Object[] {1L, "401"});
+    inactiveAccountList.add(new Object[] {2L, "401"});
+    inactiveAccountList.add(new Object[] {2L, "411"});
+    inactiveAccountList.add(new Object[] {3L, "512"});
+
+    Map<Long, String> moveAnomalyMap =
+        fecImportMoveCheckService.getMoveAnomalyMap(List.of(1L, 2L, 3L));
+
+    Assertions.assertEquals(
+        String.format(I18n.get(AccountExceptionMessage.INACTIVE_ACCOUNT_FOUND), "401"),
+        moveAnomalyMap.get(1L));
+    Assertions.assertEquals(
+        String.format(I18n.get(AccountExceptionMessage.INACTIVE_ACCOUNTS_FOUND), "401, 411"),
+        moveAnomalyMap.get(2L));
+    // the first anomaly found is kept
+    Assertions.assertEquals(
+        String.format(I18n.get(AccountExceptionMessage.MOVE_8), "#3"), moveAnomalyMap.get(3L));
+  }
+
+  @Test
+  void getMoveAnomalyMap_doesNothingWithoutMove() {
+    addMoveTotal(1L, "#1", 0L, "0", "0");
+
+    Assertions.assertTrue(fecImportMoveCheckService.getMoveAnomalyMap(List.of()).isEmpty());
+    Assertions.assertTrue(fecImportMoveCheckService.getMoveAnomalyMap(null).isEmpty());
+  }
+
+  protected void addMoveTotal(
+      Long moveId, String reference, Long lineCount, String totalDebit, String totalCredit) {
+    moveTotalList.add(
+        new Object[] {
+          moveId, reference, lineCount, new BigDecimal(totalDebit), new BigDecimal(totalCredit)
+        });
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.fecimport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.axelor.apps.account.db.FECImport;
+import com.axelor.apps.account.db.Move;
+import com.axelor.apps.account.db.repo.FECImportRepository;
+import com.axelor.apps.account.db.repo.MoveRepository;
+import com.axelor.apps.account.service.app.AppAccountService;
+import com.axelor.apps.account.service.move.MoveValidateService;
+import com.axelor.apps.base.db.repo.CompanyRepository;
+import com.axelor.apps.base.service.imports.listener.ImporterListener;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestFECImporterBulkValidation {
+
+  private Map<Long, Move> moveMap;
+  private Map<Long, String> moveAnomalyMap;
+  private List<Move> accountedMoveList;
+  private List<Long> replayedMoveIdList;
+  private boolean failCommit;
+  private ImporterListener listener;
+  private FECImporter fecImporter;
+
+  @BeforeEach
+  void prepare() {
+    moveMap = new HashMap<>();
+    moveAnomalyMap = new HashMap<>();
+    accountedMoveList = Collections.synchronizedList(new ArrayList<>());
+    replayedMoveIdList = new ArrayList<>();
+    listener = mock(ImporterListener.class);
+
+    FECImport fecImport = new FECImport();
+    fecImport.setId(1L);
+    fecImport.setValidGeneratedMove(true);
+    FECImportRepository fecImportRepository = mock(FECImportRepository.class);
+    when(fecImportRepository.find(1L)).thenReturn(fecImport);
+
+    MoveRepository moveRepository = mock(MoveRepository.class);
+    when(moveRepository.find(anyLong()))
+        .thenAnswer(invocation -> moveMap.get(invocation.<Long>getArgument(0)));
+    when(moveRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    FECImportMoveCheckService fecImportMoveCheckService = mock(FECImportMoveCheckService.class);
+    when(fecImportMoveCheckService.getMoveAnomalyMap(anyList())).thenReturn(moveAnomalyMap);
+
+    MoveValidateService moveValidateService = mock(MoveValidateService.class);
+    when(moveValidateService.bulkAccounting(any(), anyBoolean()))
+        .thenAnswer(
+            invocation -> {
+              accountedMoveList.addAll(invocation.<Collection<Move>>getArgument(0));
+              return Map.of();
+            });
+
+    fecImporter =
+        new FECImporter(
+            moveValidateService,
+            mock(AppAccountService.class),
+            moveRepository,
+            fecImportRepository,
+            mock(CompanyRepository.class),
+            fecImportMoveCheckService) {
+          @Override
+          protected void runInTransaction(Runnable task) {
+            task.run();
+            if (failCommit) {
+              throw new IllegalStateException("commit failed");
+            }
+          }
+
+          @Override
+          protected void clear() {}
+
+          @Override
+          protected Move setReferenceAndValidate(
+              FECImport fecImport, ImporterListener listener, Move move) {
+            replayedMoveIdList.add(move.getId());
+            return move;
+          }
+
+          // the workers validate the moves without request scope
+          @Override
+          protected Void validateMovesInWorker(
+              Long fecImportId, List<Long> moveIdList, int chunkSize, ImporterListener listener) {
+            if (moveIdList.contains(99L)) {
+              throw new IllegalStateException("worker failed");
+            }
+            validateMoves(fecImportId, moveIdList, chunkSize, listener);
+            return null;
+          }
+        };
+  }
+
+  @Test
+  void validateMoves_reportsChunkAnomaliesOnceCommitted() {
+    Move move1 = createMove(1L);
+    Move move2 = createMove(2L);
+    Move move3 = createMove(3L);
+    moveAnomalyMap.put(2L, "unbalanced");
+
+    fecImporter.validateMoves(1L, List.of(1L, 2L, 3L), 2, listener);
+
+    Assertions.assertEquals(List.of(move1, move3), accountedMoveList);
+    Assertions.assertEquals("1", move1.getReference());
+    Assertions.assertEquals(MoveRepository.STATUS_NEW, move2.getStatusSelect());
+    Assertions.assertTrue(replayedMoveIdList.isEmpty());
+    verify(listener, times(1)).handle(eq(move2), any());
+    verify(listener, times(1)).handle(any(), any());
+  }
+
+  @Test
+  void validateMoves_whenChunkCommitFails_replaysMovesWithoutReportingAnomalies() {
+    createMove(1L);
+    createMove(2L);
+    moveAnomalyMap.put(2L, "unbalanced");
+    failCommit = true;
+
+    fecImporter.validateMoves(1L, List.of(1L, 2L), 2, listener);
+
+    Assertions.assertEquals(List.of(1L, 2L), replayedMoveIdList);
+    verify(listener, never()).handle(any(), any());
+  }
+
+  @Test
+  void validateMovesConcurrently_validatesEveryPartition() {
+    Move move1 = createMove(1L);
+    Move move2 = createMove(2L);
+    Move move3 = createMove(3L);
+
+    fecImporter.validateMovesConcurrently(
+        1L, List.of(List.of(1L, 2L), List.of(3L)), 1, 2, listener);
+
+    Assertions.assertEquals(Set.of(move1, move2, move3), Set.copyOf(accountedMoveList));
+    verify(listener, never()).handle(any(), any());
+  }
+
+  @Test
+  void validateMovesConcurrently_reportsFailingPartition() {
+    Move move1 = createMove(1L);
+
+    fecImporter.validateMovesConcurrently(
+        1L, List.of(List.of(1L), List.of(99L)), 1, 2, listener);
+
+    Assertions.assertEquals(List.of(move1), accountedMoveList);
+    verify(listener, times(1)).handle(isNull(), any(IllegalStateException.class));
+  }
+
+  protected Move createMove(Long id) {
+    Move move = new Move();
+    move.setId(id);
+    move.setReference("#" + id);
+    move.setAccountingDate(LocalDate.of(2024, 1, 1));
+    move.setStatusSelect(MoveRepository.STATUS_NEW);
+    moveMap.put(id, move);
+    return move;
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.move;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.axelor.apps.account.db.Account;
+import com.axelor.apps.account.db.AccountConfig;
+import com.axelor.apps.account.db.Journal;
+import com.axelor.apps.account.db.Move;
+import com.axelor.apps.account.db.MoveLine;
+import com.axelor.apps.account.db.repo.MoveRepository;
+import com.axelor.apps.account.service.config.AccountConfigService;
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Company;
+import com.axelor.apps.base.db.Partner;
+import com.axelor.apps.base.db.Period;
+import com.axelor.apps.base.db.repo.PeriodRepository;
+import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.db.Model;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestMoveValidateServiceBulkAccounting {
+
+  private MoveSequenceService moveSequenceService;
+  private MoveCustAccountService moveCustAccountService;
+  private Set<Move> failingCheckMoveSet;
+  private Set<Move> failingAccountingMoveSet;
+  private List<Move> accountedMoveList;
+  private List<List<Long>> preloadedMoveIdListList;
+  private Map<String, Set<Long>> preloadedIdSetMap;
+  private MoveValidateService moveValidateService;
+
+  @BeforeEach
+  void prepare() throws AxelorException {
+    moveSequenceService = mock(MoveSequenceService.class);
+    moveCustAccountService = mock(MoveCustAccountService.class);
+    AccountConfigService accountConfigService = mock(AccountConfigService.class);
+    when(accountConfigService.getAccountConfig(any())).thenReturn(new AccountConfig());
+    failingCheckMoveSet = new HashSet<>();
+    failingAccountingMoveSet = new HashSet<>();
+    accountedMoveList = new ArrayList<>();
+    preloadedMoveIdListList = new ArrayList<>();
+    preloadedIdSetMap = new HashMap<>();
+
+    moveValidateService =
+        new MoveValidateServiceImpl(
+            null,
+            null,
+            accountConfigService,
+            moveSequenceService,
+            moveCustAccountService,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null) {
+          @Override
+          protected void preloadMoveLines(List<Long> moveIdList) {
+            preloadedMoveIdListList.add(moveIdList);
+          }
+
+          @Override
+          protected <T extends Model> void preload(
+              Class<T> modelClass, String idPath, Set<Long> idSet) {
+            preloadedIdSetMap.put(modelClass.getSimpleName() + " " + idPath, new HashSet<>(idSet));
+          }
+
+          @Override
+          public void checkPreconditions(Move move) throws AxelorException {
+            if (failingCheckMoveSet.contains(move)) {
+              throw new AxelorException(TraceBackRepository.CATEGORY_INCONSISTENCY, "check");
+            }
+          }
+
+          @Override
+          protected void completeAccounting(Move move, boolean dayBookMode)
+              throws AxelorException {
+            if (failingAccountingMoveSet.contains(move)) {
+              throw new AxelorException(TraceBackRepository.CATEGORY_INCONSISTENCY, "accounting");
+            }
+            move.setStatusSelect(MoveRepository.STATUS_ACCOUNTED);
+            accountedMoveList.add(move);
+          }
+        };
+  }
+
+  @Test
+  void bulkAccounting_reportsEachFailingMove() throws AxelorException {
+    Move checkFailingMove = createMove("#1");
+    Move accountingFailingMove = createMove("#2");
+    Move move = createMove("#3");
+    failingCheckMoveSet.add(checkFailingMove);
+    failingAccountingMoveSet.add(accountingFailingMove);
+    doAnswer(
+            invocation -> {
+              List<Move> moveList = invocation.getArgument(0);
+              // the move failing its checks is not numbered
+              Assertions.assertEquals(List.of(accountingFailingMove, move), moveList);
+              for (Move sequenceMove : moveList) {
+                sequenceMove.setReference("MV" + sequenceMove.getId());
+              }
+              return null;
+            })
+        .when(moveSequenceService)
+        .setSequences(anyList());
+
+    Map<Move, Exception> failureMap =
+        moveValidateService.bulkAccounting(
+            List.of(checkFailingMove, accountingFailingMove, move), false);
+
+    Assertions.assertEquals(Set.of(checkFailingMove, accountingFailingMove), failureMap.keySet());
+    Assertions.assertEquals("check", failureMap.get(checkFailingMove).getMessage());
+    Assertions.assertEquals("accounting", failureMap.get(accountingFailingMove).getMessage());
+    Assertions.assertEquals(List.of(move), accountedMoveList);
+    Assertions.assertEquals("#1", checkFailingMove.getReference());
+    Assertions.assertEquals("MV2", accountingFailingMove.getReference());
+    Assertions.assertEquals("MV3", move.getReference());
+  }
+
+  @Test
+  void bulkAccounting_numbersOneByOneWhenBlockFails() throws AxelorException {
+    Move move1 = createMove("#1");
+    Move sequenceFailingMove = createMove("#2");
+    Move move3 = createMove("#3");
+    doThrow(new AxelorException(TraceBackRepository.CATEGORY_INCONSISTENCY, "block"))
+        .when(moveSequenceService)
+        .setSequences(anyList());
+    doAnswer(
+            invocation -> {
+              Move sequenceMove = invocation.getArgument(0);
+              if (sequenceMove == sequenceFailingMove) {
+                throw new AxelorException(TraceBackRepository.CATEGORY_INCONSISTENCY, "sequence");
+              }
+              sequenceMove.setReference("MV" + sequenceMove.getId());
+              return null;
+            })
+        .when(moveSequenceService)
+        .setSequence(any());
+
+    Map<Move, Exception> failureMap =
+        moveValidateService.bulkAccounting(List.of(move1, sequenceFailingMove, move3), false);
+
+    Assertions.assertEquals(Set.of(sequenceFailingMove), failureMap.keySet());
+    Assertions.assertEquals("sequence", failureMap.get(sequenceFailingMove).getMessage());
+    Assertions.assertEquals(List.of(move1, move3), accountedMoveList);
+    Assertions.assertEquals("#2", sequenceFailingMove.getReference());
+    Assertions.assertEquals(MoveRepository.STATUS_NEW, sequenceFailingMove.getStatusSelect());
+  }
+
+  @Test
+  void bulkAccounting_preloadsReferencesAndUpdatesCustomerAccountsByCompany()
+      throws AxelorException {
+    Company company1 = createCompany(1L);
+    Company company2 = createCompany(2L);
+    Partner partner1 = createPartner(1L);
+    Partner partner2 = createPartner(2L);
+    Partner partner3 = createPartner(3L);
+    Move move1 = createMove("#1", company1, 7L);
+    Move move2 = createMove("#2", company1, 8L);
+    Move move3 = createMove("#3", company2, 7L);
+    when(moveCustAccountService.getPartnerOfMove(move1)).thenReturn(List.of(partner1));
+    when(moveCustAccountService.getPartnerOfMove(move2)).thenReturn(List.of(partner1, partner2));
+    when(moveCustAccountService.getPartnerOfMove(move3)).thenReturn(List.of(partner3));
+    AxelorException customerAccountException =
+        new AxelorException(TraceBackRepository.CATEGORY_INCONSISTENCY, "customer account");
+    doThrow(customerAccountException)
+        .when(moveCustAccountService)
+        .updateCustomerAccount(List.of(partner3), company2);
+
+    Map<Move, Exception> failureMap =
+        moveValidateService.bulkAccounting(List.of(move1, move2, move3), true);
+
+    Assertions.assertEquals(List.of(List.of(1L, 2L, 3L)), preloadedMoveIdListList);
+    Assertions.assertEquals(
+        Map.of(
+            "Journal self.id",
+            Set.of(5L),
+            "Period self.id",
+            Set.of(6L),
+            "Account self.id",
+            Set.of(7L, 8L),
+            "AccountConfig self.company.id",
+            Set.of(1L, 2L)),
+        preloadedIdSetMap);
+    verify(moveCustAccountService).updateCustomerAccount(List.of(partner1, partner2), company1);
+    verify(moveCustAccountService).updateCustomerAccount(List.of(partner3), company2);
+    Assertions.assertEquals(List.of(move1, move2, move3), accountedMoveList);
+    Assertions.assertEquals(Map.of(move3, customerAccountException), failureMap);
+  }
+
+  @Test
+  void bulkAccounting_doesNothingWithoutMove() throws AxelorException {
+    Assertions.assertTrue(moveValidateService.bulkAccounting(List.of(), true).isEmpty());
+    verify(moveSequenceService, never()).setSequences(anyList());
+  }
+
+  protected Move createMove(String reference) {
+    Period period = new Period();
+    period.setStatusSelect(PeriodRepository.STATUS_OPENED);
+
+    Move move = new Move();
+    move.setId(Long.valueOf(reference.substring(1)));
+    move.setReference(reference);
+    move.setStatusSelect(MoveRepository.STATUS_NEW);
+    move.setPeriod(period);
+    return move;
+  }
+
+  protected Move createMove(String reference, Company company, Long accountId) {
+    Journal journal = new Journal();
+    journal.setId(5L);
+    Account account = new Account();
+    account.setId(accountId);
+    MoveLine moveLine = new MoveLine();
+    moveLine.setAccount(account);
+
+    Move move = createMove(reference);
+    move.getPeriod().setId(6L);
+    move.setCompany(company);
+    move.setJournal(journal);
+    move.addMoveLineListItem(moveLine);
+    return move;
+  }
+
+  protected Company createCompany(Long id) {
+    Company company = new Company();
+    company.setId(id);
+    return company;
+  }
+
+  protected Partner createPartner(Long id) {
+    Partner partner = new Partner();
+    partner.setId(id);
+    return partner;
+  }
+}
@@ -212,6 +212,9 @@ public final class BankPaymentExceptionMessage {
   public static final String BANK_STATEMENT_IMPORT_ERROR = /*$$(*/
       "Error while reading the csv file. Make sure that decimal values use a dot and not a comma." /*)*/;
 
+  public static final String BANK_STATEMENT_INCOMPLETE_AFB120_RECORD = /*$$(*/
+      "Line %s : the record is incomplete, AFB120 records are 120 characters long." /*)*/;
+
   /*
    * Batch direct debit
    */
@@ -257,6 +260,8 @@ public final class BankPaymentExceptionMessage {
       "Please select one move line" /*)*/;
   public static final String BANK_RECONCILIATION_ALREADY_OPEN = /*$$(*/
       "Can't load while another reconciliation is open" /*)*/;
+  public static final String BANK_RECONCILIATION_MATCH_DETAILS = /*$$(*/
+      "Rule: %s, amount gap: %s, date gap: %s day(s), score: %s/100" /*)*/;
   public static final String BANK_RECONCILIATION_BANK_STATEMENT_NO_BANK_DETAIL = /*$$(*/
       "The selected bank statement doesn't contain, at the lines level, any information allowing to identify which bank details it concerns. Please verify the format of the data source or the configuration of the bank details in the software and please make sure both are matching." /*)*/;
   public static final String BANK_RECONCILIATION_CANNOT_DELETE_VALIDATED = /*$$(*/
@@ -0,0 +1,126 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.bankpayment.service.bankreconciliation;
+
+import com.axelor.apps.account.db.MoveLine;
+import com.axelor.apps.base.db.Currency;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Move lines which may be reconciled with the lines of a bank reconciliation, indexed by move
+ * currency and absolute currency amount, and by date and due date.
+ *
+ * <p>Candidates are always returned in the order of the list the index was built from. The
+ * reconciliation keeps the matching move line with the best score, so among move lines with the
+ * same score, it keeps the one that a scan of every move line would have matched first.
+ * Reconciled move lines are removed from the index.
+ */
+public class BankReconciliationCandidateIndex {
+
+  /** Position of the move lines in the initial list, by instance as models share a hash code. */
+  protected final Map<MoveLine, Integer> positionMap = new IdentityHashMap<>();
+  protected final Map<Currency, NavigableMap<BigDecimal, List<MoveLine>>> amountMap =
+      new HashMap<>();
+  protected final NavigableMap<LocalDate, List<MoveLine>> dateMap = new TreeMap<>();
+
+  public BankReconciliationCandidateIndex(List<MoveLine> moveLineList) {
+    for (MoveLine moveLine : moveLineList) {
+      positionMap.put(moveLine, positionMap.size());
+
+      amountMap
+          .computeIfAbsent(moveLine.getMove().getCurrency(), currency -> new TreeMap<>())
+          .computeIfAbsent(moveLine.getCurrencyAmount().abs(), amount -> new ArrayList<>())
+          .add(moveLine);
+
+      addDate(moveLine.getDate(), moveLine);
+      if (!Objects.equals(moveLine.getDate(), moveLine.getDueDate())) {
+        addDate(moveLine.getDueDate(), moveLine);
+      }
+    }
+  }
+
+  protected void addDate(LocalDate date, MoveLine moveLine) {
+    if (date != null) {
+      dateMap.computeIfAbsent(date, key -> new ArrayList<>()).add(moveLine);
+    }
+  }
+
+  /** Returns the currencies of the moves of the indexed move lines. */
+  public Set<Currency> getCurrencySet() {
+    return amountMap.keySet();
+  }
+
+  /**
+   * Returns the move lines of the given currency whose absolute currency amount is between the
+   * given bounds, included.
+   */
+  public List<MoveLine> getByAmount(Currency currency, BigDecimal minAmount, BigDecimal maxAmount) {
+    NavigableMap<BigDecimal, List<MoveLine>> currencyAmountMap = amountMap.get(currency);
+    if (currencyAmountMap == null || minAmount.compareTo(maxAmount) > 0) {
+      return List.of();
+    }
+    return sort(
+        currencyAmountMap.subMap(minAmount, true, maxAmount, true).values().stream()
+            .flatMap(List::stream)
+            .collect(Collectors.toList()));
+  }
+
+  /** Returns the move lines whose date or due date is between the given dates, included. */
+  public List<MoveLine> getByDate(LocalDate fromDate, LocalDate toDate) {
+    if (fromDate.isAfter(toDate)) {
+      return List.of();
+    }
+    return sort(
+        dateMap.subMap(fromDate, true, toDate, true).values().stream()
+            .flatMap(List::stream)
+            .collect(Collectors.toList()));
+  }
+
+  public List<MoveLine> getAll() {
+    return sort(positionMap.keySet());
+  }
+
+  public void remove(MoveLine moveLine) {
+    positionMap.remove(moveLine);
+  }
+
+  /** Keeps the move lines still in the index, once each, in the order of the initial list. */
+  protected List<MoveLine> sort(Collection<MoveLine> moveLineList) {
+    Set<MoveLine> moveLineSet = Collections.newSetFromMap(new IdentityHashMap<>());
+    return moveLineList.stream()
+        .filter(positionMap::containsKey)
+        .filter(moveLineSet::add)
+        .sorted(Comparator.comparing(positionMap::get))
+        .collect(Collectors.toList());
+  }
+}
@@ -296,6 +296,8 @@ public class BankReconciliationLineServiceImpl implements BankReconciliationLine
     }
     bankReconciliationLine.setMoveLine(null);
     bankReconciliationLine.setConfidenceIndex(0);
+    bankReconciliationLine.setMatchScore(0);
+    bankReconciliationLine.setMatchDetails(null);
     bankReconciliationLine.setPostedNbr(null);
   }
 
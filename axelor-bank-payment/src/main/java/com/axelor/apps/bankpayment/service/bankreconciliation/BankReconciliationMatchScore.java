@@ -0,0 +1,107 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.bankpayment.service.bankreconciliation;
+
+import com.axelor.apps.bankpayment.db.BankStatementQuery;
+import com.axelor.apps.bankpayment.db.repo.BankStatementQueryRepository;
+import com.axelor.apps.bankpayment.exception.BankPaymentExceptionMessage;
+import com.axelor.i18n.I18n;
+import java.math.BigDecimal;
+
+/**
+ * Score out of 100 of a move line matched with a bank statement line by a reconciliation rule.
+ *
+ * <p>Half of the score comes from the confidence index of the rule, the rest from how close the
+ * amounts are, relatively to the statement amount, and how close the dates are, relatively to the
+ * date margin.
+ */
+public class BankReconciliationMatchScore {
+
+  protected static final double CONFIDENCE_WEIGHT = 0.5;
+  protected static final double AMOUNT_WEIGHT = 0.3;
+  protected static final double DATE_WEIGHT = 0.2;
+
+  protected final BankStatementQuery bankStatementQuery;
+  protected final BigDecimal amountGap;
+  protected final Long dayGap;
+  protected final int score;
+
+  /**
+   * @param bankStatementQuery the matching rule
+   * @param amount the amount of the bank statement line, in the currency of the move
+   * @param amountGap the absolute difference between the amounts
+   * @param dayGap the smallest number of days between the dates, null when a date is missing
+   * @param dateMargin the date margin of the reconciliation
+   */
+  public BankReconciliationMatchScore(
+      BankStatementQuery bankStatementQuery,
+      BigDecimal amount,
+      BigDecimal amountGap,
+      Long dayGap,
+      long dateMargin) {
+    this.bankStatementQuery = bankStatementQuery;
+    this.amountGap = amountGap;
+    this.dayGap = dayGap;
+
+    double amountRatio =
+        amount.signum() == 0
+            ? (amountGap.signum() == 0 ? 1 : 0)
+            : Math.max(0, 1 - amountGap.doubleValue() / amount.abs().doubleValue());
+    double dateRatio = dayGap == null ? 0 : Math.max(0, 1 - (double) dayGap / (dateMargin + 1));
+
+    this.score =
+        (int)
+            Math.round(
+                100
+                    * (CONFIDENCE_WEIGHT * getConfidenceRatio()
+                        + AMOUNT_WEIGHT * amountRatio
+                        + DATE_WEIGHT * dateRatio));
+  }
+
+  protected double getConfidenceRatio() {
+    Integer confidenceIndex = bankStatementQuery.getConfidenceIndex();
+    if (confidenceIndex == null) {
+      return 0;
+    }
+    switch (confidenceIndex) {
+      case BankStatementQueryRepository.CONFIDENCE_INDEX_GREEN:
+        return 1;
+      case BankStatementQueryRepository.CONFIDENCE_INDEX_ORANGE:
+        return 0.6;
+      case BankStatementQueryRepository.CONFIDENCE_INDEX_RED:
+        return 0.3;
+      default:
+        return 0;
+    }
+  }
+
+  public int getScore() {
+    return score;
+  }
+
+  /** Returns the explanation of the score, displayed on the bank reconciliation line. */
+  public String getDetails() {
+    return String.format(
+        I18n.get(BankPaymentExceptionMessage.BANK_RECONCILIATION_MATCH_DETAILS),
+        bankStatementQuery.getName(),
+        amountGap.toPlainString(),
+        dayGap != null ? dayGap.toString() : "-",
+        score);
+  }
+}
@@ -18,6 +18,7 @@
  */
 package com.axelor.apps.bankpayment.service.bankreconciliation;
 
+import com.axelor.app.AppSettings;
 import com.axelor.apps.account.db.MoveLine;
 import com.axelor.apps.account.db.repo.MoveLineRepository;
 import com.axelor.apps.bankpayment.db.BankReconciliation;
@@ -30,6 +31,7 @@ import com.axelor.apps.bankpayment.db.repo.BankStatementQueryRepository;
 import com.axelor.apps.bankpayment.db.repo.BankStatementRuleRepository;
 import com.axelor.apps.bankpayment.exception.BankPaymentExceptionMessage;
 import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Currency;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.service.CurrencyScaleService;
 import com.axelor.apps.base.service.CurrencyService;
@@ -43,12 +45,29 @@ import com.google.inject.persist.Transactional;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class BankReconciliationReconciliationServiceImpl
     implements BankReconciliationReconciliationService {
 
+  /**
+   * Application setting enabling the candidate index for the automatic reconciliation, see {@link
+   * BankReconciliationCandidateIndex}. When disabled, every rule is tested on every move line.
+   */
+  public static final String MATCHING_ENGINE_SETTING =
+      "bank-payment.reconciliation.matching-engine";
+
   protected BankStatementQueryRepository bankStatementQueryRepository;
   protected MoveLineRepository moveLineRepository;
   protected BankReconciliationQueryService bankReconciliationQueryService;
@@ -105,6 +124,18 @@ public class BankReconciliationReconciliationServiceImpl
     BigDecimal amountMarginLow = this.getAmountMarginLow(bankReconciliation);
     BigDecimal amountMarginHigh = BigDecimal.ONE;
 
+    if (AppSettings.get().getBoolean(MATCHING_ENGINE_SETTING, true)) {
+      reconciliateUsingCandidateIndex(
+          bankReconciliation,
+          bankStatementQueries,
+          moveLines,
+          bankReconciliationLines,
+          dateMargin,
+          amountMarginLow,
+          amountMarginHigh);
+      return bankReconciliation;
+    }
+
     Context scriptContext;
 
     for (BankStatementQuery bankStatementQuery : bankStatementQueries) {
@@ -125,18 +156,8 @@ public class BankReconciliationReconciliationServiceImpl
 
           if (result) {
             bankReconciliationLine =
-                updateBankReconciliationLine(bankReconciliationLine, moveLine, bankStatementQuery);
-            boolean isUnderCorrection =
-                bankReconciliation.getStatusSelect()
-                    == BankReconciliationRepository.STATUS_UNDER_CORRECTION;
-
-            if (isUnderCorrection) {
-              bankReconciliationLine.setIsPosted(true);
-              bankReconciliationLineService.checkAmount(bankReconciliationLine);
-              bankReconciliationLineService.updateBankReconciledAmounts(bankReconciliationLine);
-            }
-
-            moveLine.setPostedNbr(bankReconciliationLine.getPostedNbr());
+                reconcileLine(
+                    bankReconciliation, bankReconciliationLine, moveLine, bankStatementQuery);
             moveLines.remove(moveLine);
             break;
           }
@@ -148,6 +169,205 @@ public class BankReconciliationReconciliationServiceImpl
     return bankReconciliation;
   }
 
+  /**
+   * Tests each rule only on the move lines whose amount or dates are within the margins of the
+   * bank statement line, when the rule is set to match on them. Among the matching move lines, the
+   * one with the best {@link BankReconciliationMatchScore} is reconciled.
+   */
+  protected void reconciliateUsingCandidateIndex(
+      BankReconciliation bankReconciliation,
+      List<BankStatementQuery> bankStatementQueries,
+      List<MoveLine> moveLines,
+      List<BankReconciliationLine> bankReconciliationLines,
+      BigInteger dateMargin,
+      BigDecimal amountMarginLow,
+      BigDecimal amountMarginHigh)
+      throws AxelorException {
+    BankReconciliationCandidateIndex candidateIndex =
+        new BankReconciliationCandidateIndex(moveLines);
+    Map<BankReconciliationLine, Map<Currency, BigDecimal>> currencyAmountMap =
+        new IdentityHashMap<>();
+
+    for (BankStatementQuery bankStatementQuery : bankStatementQueries) {
+      String query =
+          computeQuery(bankStatementQuery, dateMargin, amountMarginLow, amountMarginHigh);
+
+      for (BankReconciliationLine bankReconciliationLine : bankReconciliationLines) {
+        BankStatementLine bankStatementLine = bankReconciliationLine.getBankStatementLine();
+        if (bankReconciliationLine.getMoveLine() != null || bankStatementLine == null) {
+          continue;
+        }
+
+        Map<Currency, BigDecimal> lineCurrencyAmountMap =
+            currencyAmountMap.get(bankReconciliationLine);
+        if (lineCurrencyAmountMap == null) {
+          lineCurrencyAmountMap = new HashMap<>();
+          for (Currency currency : candidateIndex.getCurrencySet()) {
+            lineCurrencyAmountMap.put(
+                currency, getCurrencyAmount(bankReconciliation, bankReconciliationLine, currency));
+          }
+          currencyAmountMap.put(bankReconciliationLine, lineCurrencyAmountMap);
+        }
+
+        List<MoveLine> candidates =
+            getCandidates(
+                candidateIndex,
+                bankStatementQuery,
+                bankStatementLine,
+                lineCurrencyAmountMap,
+                dateMargin.longValue(),
+                amountMarginLow,
+                amountMarginHigh);
+        if (candidates.isEmpty()) {
+          continue;
+        }
+
+        Map<String, Object> statementLineValues = Mapper.toMap(bankStatementLine);
+        MoveLine bestMoveLine = null;
+        BankReconciliationMatchScore bestMatchScore = null;
+        for (MoveLine moveLine : candidates) {
+          BigDecimal currencyAmount = lineCurrencyAmountMap.get(moveLine.getMove().getCurrency());
+          Context scriptContext =
+              getScriptContext(
+                  bankReconciliation,
+                  statementLineValues,
+                  bankReconciliationLine,
+                  moveLine,
+                  currencyAmount);
+          if (!isMatching(query, scriptContext)) {
+            continue;
+          }
+
+          BankReconciliationMatchScore matchScore =
+              computeMatchScore(
+                  bankStatementQuery,
+                  bankStatementLine,
+                  moveLine,
+                  currencyAmount,
+                  dateMargin.longValue());
+          if (bestMatchScore == null || matchScore.getScore() > bestMatchScore.getScore()) {
+            bestMoveLine = moveLine;
+            bestMatchScore = matchScore;
+          }
+        }
+
+        if (bestMoveLine != null) {
+          bankStatementLine.setMoveLine(bestMoveLine);
+          reconcileLine(
+              bankReconciliation, bankReconciliationLine, bestMoveLine, bankStatementQuery);
+          bankReconciliationLine.setMatchScore(bestMatchScore.getScore());
+          bankReconciliationLine.setMatchDetails(bestMatchScore.getDetails());
+          candidateIndex.remove(bestMoveLine);
+        }
+      }
+    }
+  }
+
+  /** Returns whether the query of a rule is true in the given script context. */
+  protected boolean isMatching(String query, Context scriptContext) {
+    return Boolean.TRUE.equals(new GroovyScriptHelper(scriptContext).eval(query));
+  }
+
+  /**
+   * Returns the move lines the rule may match with the bank statement line, in the order of the
+   * initial move line list.
+   */
+  protected List<MoveLine> getCandidates(
+      BankReconciliationCandidateIndex candidateIndex,
+      BankStatementQuery bankStatementQuery,
+      BankStatementLine bankStatementLine,
+      Map<Currency, BigDecimal> currencyAmountMap,
+      long dateMargin,
+      BigDecimal amountMarginLow,
+      BigDecimal amountMarginHigh) {
+    List<LocalDate> statementDates =
+        Stream.of(bankStatementLine.getOperationDate(), bankStatementLine.getValueDate())
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    boolean matchOnDate = bankStatementQuery.getMatchOnDate();
+    if (matchOnDate && statementDates.isEmpty()) {
+      return List.of();
+    }
+    LocalDate fromDate = matchOnDate ? Collections.min(statementDates).minusDays(dateMargin) : null;
+    LocalDate toDate = matchOnDate ? Collections.max(statementDates).plusDays(dateMargin) : null;
+
+    List<MoveLine> candidates;
+    if (bankStatementQuery.getMatchOnAmount()) {
+      candidates = new ArrayList<>();
+      for (Map.Entry<Currency, BigDecimal> entry : currencyAmountMap.entrySet()) {
+        BigDecimal lowAmount = entry.getValue().multiply(amountMarginLow);
+        BigDecimal highAmount = entry.getValue().multiply(amountMarginHigh);
+        candidates.addAll(
+            candidateIndex.getByAmount(
+                entry.getKey(), lowAmount.min(highAmount), lowAmount.max(highAmount)));
+      }
+      candidates = candidateIndex.sort(candidates);
+    } else if (matchOnDate) {
+      candidates = candidateIndex.getByDate(fromDate, toDate);
+    } else {
+      candidates = candidateIndex.getAll();
+    }
+
+    if (!matchOnDate) {
+      return candidates;
+    }
+    return candidates.stream()
+        .filter(
+            moveLine ->
+                isBetween(moveLine.getDate(), fromDate, toDate)
+                    || isBetween(moveLine.getDueDate(), fromDate, toDate))
+        .collect(Collectors.toList());
+  }
+
+  protected boolean isBetween(LocalDate date, LocalDate fromDate, LocalDate toDate) {
+    return date != null && !date.isBefore(fromDate) && !date.isAfter(toDate);
+  }
+
+  protected BankReconciliationMatchScore computeMatchScore(
+      BankStatementQuery bankStatementQuery,
+      BankStatementLine bankStatementLine,
+      MoveLine moveLine,
+      BigDecimal currencyAmount,
+      long dateMargin) {
+    BigDecimal amountGap = moveLine.getCurrencyAmount().abs().subtract(currencyAmount).abs();
+
+    Long dayGap = null;
+    for (LocalDate moveLineDate : Arrays.asList(moveLine.getDate(), moveLine.getDueDate())) {
+      for (LocalDate statementDate :
+          Arrays.asList(bankStatementLine.getOperationDate(), bankStatementLine.getValueDate())) {
+        if (moveLineDate != null && statementDate != null) {
+          long days = Math.abs(ChronoUnit.DAYS.between(moveLineDate, statementDate));
+          dayGap = dayGap == null ? days : Math.min(dayGap, days);
+        }
+      }
+    }
+
+    return new BankReconciliationMatchScore(
+        bankStatementQuery, currencyAmount, amountGap, dayGap, dateMargin);
+  }
+
+  protected BankReconciliationLine reconcileLine(
+      BankReconciliation bankReconciliation,
+      BankReconciliationLine bankReconciliationLine,
+      MoveLine moveLine,
+      BankStatementQuery bankStatementQuery)
+      throws AxelorException {
+    bankReconciliationLine =
+        updateBankReconciliationLine(bankReconciliationLine, moveLine, bankStatementQuery);
+    boolean isUnderCorrection =
+        bankReconciliation.getStatusSelect()
+            == BankReconciliationRepository.STATUS_UNDER_CORRECTION;
+
+    if (isUnderCorrection) {
+      bankReconciliationLine.setIsPosted(true);
+      bankReconciliationLineService.checkAmount(bankReconciliationLine);
+      bankReconciliationLineService.updateBankReconciledAmounts(bankReconciliationLine);
+    }
+
+    moveLine.setPostedNbr(bankReconciliationLine.getPostedNbr());
+    return bankReconciliationLine;
+  }
+
   @Override
   public void checkReconciliation(List<MoveLine> moveLines, BankReconciliation br)
       throws AxelorException {
@@ -271,27 +491,55 @@ public class BankReconciliationReconciliationServiceImpl
       BankReconciliationLine bankReconciliationLine,
       MoveLine moveLine)
       throws AxelorException {
-    Context scriptContext =
-        new Context(Mapper.toMap(bankStatementLine), BankStatementLineAFB120.class);
+    return getScriptContext(
+        bankReconciliation,
+        Mapper.toMap(bankStatementLine),
+        bankReconciliationLine,
+        moveLine,
+        getCurrencyAmount(
+            bankReconciliation, bankReconciliationLine, moveLine.getMove().getCurrency()));
+  }
+
+  /**
+   * Builds the script context of a rule from the values of the bank statement line, which can be
+   * computed once for every tested move line.
+   */
+  protected Context getScriptContext(
+      BankReconciliation bankReconciliation,
+      Map<String, Object> statementLineValues,
+      BankReconciliationLine bankReconciliationLine,
+      MoveLine moveLine,
+      BigDecimal currencyAmount) {
+    Map<String, Object> values = new HashMap<>(statementLineValues);
+    values.put("moveLine", moveLine);
+    Context scriptContext = new Context(values, BankStatementLineAFB120.class);
 
+    scriptContext.put(
+        "debit",
+        currencyScaleService.getScaledValue(bankReconciliation, bankReconciliationLine.getDebit()));
+    scriptContext.put(
+        "credit",
+        currencyScaleService.getScaledValue(
+            bankReconciliation, bankReconciliationLine.getCredit()));
+    scriptContext.put("currencyAmount", currencyAmount);
+
+    return scriptContext;
+  }
+
+  /** Returns the amount of the bank reconciliation line converted in the given move currency. */
+  protected BigDecimal getCurrencyAmount(
+      BankReconciliation bankReconciliation,
+      BankReconciliationLine bankReconciliationLine,
+      Currency currency)
+      throws AxelorException {
     BigDecimal debit =
         currencyScaleService.getScaledValue(bankReconciliation, bankReconciliationLine.getDebit());
     BigDecimal credit =
         currencyScaleService.getScaledValue(bankReconciliation, bankReconciliationLine.getCredit());
 
     BigDecimal currencyAmount = debit.compareTo(BigDecimal.ZERO) == 0 ? credit : debit;
-    currencyAmount =
-        currencyService.getAmountCurrencyConvertedAtDate(
-            bankReconciliation.getCurrency(),
-            moveLine.getMove().getCurrency(),
-            currencyAmount,
-            dateService.date());
-
-    scriptContext.put("debit", debit);
-    scriptContext.put("credit", credit);
-    scriptContext.put("currencyAmount", currencyAmount);
-
-    return scriptContext;
+    return currencyService.getAmountCurrencyConvertedAtDate(
+        bankReconciliation.getCurrency(), currency, currencyAmount, dateService.date());
   }
 
   protected BankReconciliationLine updateBankReconciliationLine(
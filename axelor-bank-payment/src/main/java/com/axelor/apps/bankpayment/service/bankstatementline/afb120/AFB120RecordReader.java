@@ -0,0 +1,87 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.bankpayment.service.bankstatementline.afb120;
+
+import com.axelor.apps.bankpayment.exception.BankPaymentExceptionMessage;
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.common.StringUtils;
+import com.axelor.i18n.I18n;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads the fixed-width records of an AFB120 file one at a time. Records are usually on their own
+ * line, but a line may also hold several consecutive records.
+ */
+public class AFB120RecordReader implements Closeable {
+
+  public static final int RECORD_LENGTH = 120;
+
+  protected final BufferedReader reader;
+  protected String line;
+  protected int position;
+  protected int lineNumber;
+
+  public AFB120RecordReader(BufferedReader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Returns the next record of the file.
+   *
+   * @return the next record, or null once the end of the file is reached
+   * @throws AxelorException if a line ends with an incomplete record
+   */
+  public String next() throws IOException, AxelorException {
+    while (line == null || position >= line.length()) {
+      line = reader.readLine();
+      if (line == null) {
+        return null;
+      }
+      lineNumber++;
+      position = 0;
+    }
+
+    if (position + RECORD_LENGTH > line.length()) {
+      if (StringUtils.isBlank(line.substring(position))) {
+        line = null;
+        return next();
+      }
+      throw new AxelorException(
+          TraceBackRepository.CATEGORY_INCONSISTENCY,
+          I18n.get(BankPaymentExceptionMessage.BANK_STATEMENT_INCOMPLETE_AFB120_RECORD),
+          lineNumber);
+    }
+
+    String record = line.substring(position, position + RECORD_LENGTH);
+    position += RECORD_LENGTH;
+    return record;
+  }
+
+  public int getLineNumber() {
+    return lineNumber;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
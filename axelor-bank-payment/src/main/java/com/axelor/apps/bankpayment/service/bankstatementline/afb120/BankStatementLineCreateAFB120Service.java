@@ -18,6 +18,7 @@
  */
 package com.axelor.apps.bankpayment.service.bankstatementline.afb120;
 
+import com.axelor.app.AppSettings;
 import com.axelor.apps.account.db.InterbankCodeLine;
 import com.axelor.apps.account.db.repo.InterbankCodeLineRepository;
 import com.axelor.apps.bankpayment.db.BankStatementLine;
@@ -32,14 +33,23 @@ import com.axelor.apps.base.db.BankDetails;
 import com.axelor.apps.base.db.Currency;
 import com.axelor.apps.base.db.repo.BankDetailsRepository;
 import com.axelor.apps.base.db.repo.CurrencyRepository;
+import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
+import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.common.StringUtils;
+import com.axelor.db.JPA;
 import com.axelor.utils.helpers.file.FileHelper;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.invoke.MethodHandles;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,6 +58,21 @@ public class BankStatementLineCreateAFB120Service extends BankStatementLineCreat
 
   private final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  /**
+   * Application setting enabling the streaming import, which reads the file record by record
+   * instead of loading its whole content first.
+   */
+  public static final String STREAMING_IMPORT_SETTING = "bank-payment.afb120-import.streaming";
+
+  /**
+   * Application setting giving the number of lines inserted before the session is flushed and
+   * cleared during a streaming import. It should be a multiple of {@code hibernate.jdbc.batch_size}
+   * for the inserts to be sent in full JDBC batches.
+   */
+  public static final String BATCH_SIZE_SETTING = "bank-payment.afb120-import.batch-size";
+
+  protected static final int DEFAULT_BATCH_SIZE = 50;
+
   protected BankStatementLineCreationAFB120Service bankStatementLineCreationAFB120Service;
   protected BankStatementLineAFB120Repository bankStatementLineAFB120Repository;
   protected CurrencyRepository currencyRepository;
@@ -77,6 +102,82 @@ public class BankStatementLineCreateAFB120Service extends BankStatementLineCreat
     this.bankStatementDateService = bankStatementDateService;
   }
 
+  @Override
+  protected void process() throws IOException, AxelorException {
+    bankStatementLineMapperAFB120Service.clearCache();
+
+    if (!AppSettings.get().getBoolean(STREAMING_IMPORT_SETTING, true)) {
+      super.process();
+      return;
+    }
+
+    int batchSize = Math.max(1, AppSettings.get().getInt(BATCH_SIZE_SETTING, DEFAULT_BATCH_SIZE));
+    List<StructuredContentLine> pendingContent = new ArrayList<>();
+    int sequence = 0;
+    findBankStatement();
+
+    try (AFB120RecordReader reader = new AFB120RecordReader(openReader())) {
+      for (String record; (record = reader.next()) != null; ) {
+        log.debug("Read record : {}", record);
+        bankStatementLineMapperAFB120Service.writeStructuredContent(record, pendingContent);
+
+        // The last line is kept until the next record, which may complete its description
+        while (pendingContent.size() > 1) {
+          sequence = createBankStatementLine(pendingContent.remove(0), sequence, batchSize);
+        }
+      }
+    }
+
+    for (StructuredContentLine structuredContentLine : pendingContent) {
+      sequence = createBankStatementLine(structuredContentLine, sequence, batchSize);
+    }
+
+    JPA.flush();
+    JPA.clear();
+    findBankStatement();
+  }
+
+  /**
+   * Opens the file with the default charset, like {@link FileHelper#reader(String)}. Malformed
+   * characters are replaced instead of failing the import, as bank files are often encoded in
+   * ISO-8859-1.
+   */
+  protected BufferedReader openReader() throws IOException {
+    return new BufferedReader(
+        new InputStreamReader(
+            Files.newInputStream(file.toPath()),
+            Charset.defaultCharset()
+                .newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)));
+  }
+
+  /**
+   * Creates the line of the given sequence, then flushes and clears the session once a batch of
+   * lines is complete.
+   *
+   * @return the sequence of the next line
+   */
+  protected int createBankStatementLine(
+      StructuredContentLine structuredContentLine, int sequence, int batchSize) {
+    try {
+      createBankStatementLine(structuredContentLine, sequence++);
+      if (sequence % batchSize == 0) {
+        JPA.flush();
+      }
+    } catch (Exception e) {
+      TraceBackService.trace(
+          new Exception(String.format("Line %s : %s", sequence, e), e),
+          ExceptionOriginRepository.IMPORT);
+    } finally {
+      if (sequence % batchSize == 0) {
+        JPA.clear();
+      }
+      findBankStatement();
+    }
+    return sequence;
+  }
+
   @Transactional
   protected BankStatementLine createBankStatementLine(
       StructuredContentLine structuredContentLine, int sequence) {
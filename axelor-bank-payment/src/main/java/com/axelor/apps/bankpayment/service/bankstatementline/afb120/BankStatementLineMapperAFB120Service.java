@@ -24,4 +24,10 @@ import java.util.List;
 public interface BankStatementLineMapperAFB120Service {
   void writeStructuredContent(String lineData, List<StructuredContentLine> structuredContent)
       throws AxelorException;
+
+  /**
+   * Clears the currencies, bank details and interbank code lines resolved while reading the
+   * previous file. To be called before reading a new file.
+   */
+  void clearCache();
 }
@@ -33,7 +33,9 @@ import com.google.inject.Inject;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class BankStatementLineMapperAFB120ServiceImpl
     implements BankStatementLineMapperAFB120Service {
@@ -49,6 +51,11 @@ public class BankStatementLineMapperAFB120ServiceImpl
   protected static final String NEW_BALANCE_OPERATION_CODE = "07";
   private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("ddMMyy");
 
+  // Every record of a file repeats the same few codes, they are only looked up once per file.
+  protected final Map<String, Currency> currencyCache = new HashMap<>();
+  protected final Map<String, BankDetails> bankDetailsCache = new HashMap<>();
+  protected final Map<String, InterbankCodeLine> interbankCodeLineCache = new HashMap<>();
+
   @Inject
   public BankStatementLineMapperAFB120ServiceImpl(
       CfonbToolService cfonbToolService,
@@ -61,6 +68,13 @@ public class BankStatementLineMapperAFB120ServiceImpl
     this.bankDetailsRepository = bankDetailsRepository;
   }
 
+  @Override
+  public void clearCache() {
+    currencyCache.clear();
+    bankDetailsCache.clear();
+    interbankCodeLineCache.clear();
+  }
+
   @Override
   public void writeStructuredContent(String lineData, List<StructuredContentLine> structuredContent)
       throws AxelorException {
@@ -627,11 +641,23 @@ public class BankStatementLineMapperAFB120ServiceImpl
 
   protected Currency getCurrency(String isoCode) {
 
-    return currencyRepository.findByCode(isoCode);
+    if (!currencyCache.containsKey(isoCode)) {
+      currencyCache.put(isoCode, currencyRepository.findByCode(isoCode));
+    }
+    return currencyCache.get(isoCode);
   }
 
   protected BankDetails getBankDetails(String accountNumber, String bankCode, String sortCode) {
 
+    String key = String.join("/", accountNumber, bankCode, sortCode);
+    if (!bankDetailsCache.containsKey(key)) {
+      bankDetailsCache.put(key, findBankDetails(accountNumber, bankCode, sortCode));
+    }
+    return bankDetailsCache.get(key);
+  }
+
+  protected BankDetails findBankDetails(String accountNumber, String bankCode, String sortCode) {
+
     return bankDetailsRepository
         .all()
         .filter(
@@ -762,6 +788,16 @@ public class BankStatementLineMapperAFB120ServiceImpl
   }
 
   protected InterbankCodeLine getInterbankCodeLine(String code) {
+    if (code == null) {
+      return null;
+    }
+    if (!interbankCodeLineCache.containsKey(code)) {
+      interbankCodeLineCache.put(code, findInterbankCodeLine(code));
+    }
+    return interbankCodeLineCache.get(code);
+  }
+
+  protected InterbankCodeLine findInterbankCodeLine(String code) {
     return interbankCodeLineRepository
         .all()
         .filter("self.code = :code AND self.interbankCode.typeSelect = :type")
@@ -37,11 +37,10 @@ import com.axelor.apps.base.db.repo.BatchRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.administration.AbstractBatch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
@@ -127,10 +126,9 @@ public class BatchBankOrderGenerationBillOfExchange extends AbstractBatch {
       return;
     }
 
-    List<Long> anomalyList = Lists.newArrayList(0L); // Can't pass an empty collection to the query
-    Query<Invoice> query = buildOrderedQueryFetchLcrAccountedInvoices(accountingBatch, anomalyList);
+    ChunkedQuery<Invoice> query = buildOrderedQueryFetchLcrAccountedInvoices(accountingBatch);
     try {
-      List<Long> invoicePaymentIdList = createInvoicePayments(query, anomalyList);
+      List<Long> invoicePaymentIdList = createInvoicePayments(query);
       if (invoicePaymentIdList != null && !invoicePaymentIdList.isEmpty()) {
 
         bankOrderMergeService.mergeFromInvoicePayments(
@@ -151,12 +149,12 @@ public class BatchBankOrderGenerationBillOfExchange extends AbstractBatch {
         : accountingBatch.getCompany().getDefaultBankDetails();
   }
 
-  protected List<Long> createInvoicePayments(Query<Invoice> query, List<Long> anomalyList) {
+  protected List<Long> createInvoicePayments(ChunkedQuery<Invoice> query) {
     List<Invoice> invoicesList = null;
     List<Long> invoicePaymentIdList = new ArrayList<>();
     AccountingBatch accountingBatch = batch.getAccountingBatch();
     BankDetails companyBankDetails = getAccountingBankDetails(accountingBatch);
-    while (!(invoicesList = query.fetch(FETCH_LIMIT)).isEmpty()) {
+    while (!(invoicesList = query.fetchNext()).isEmpty()) {
       if (!JPA.em().contains(companyBankDetails)) {
         companyBankDetails = bankDetailsRepository.find(companyBankDetails.getId());
       }
@@ -165,8 +163,8 @@ public class BatchBankOrderGenerationBillOfExchange extends AbstractBatch {
           createInvoicePayment(invoicePaymentIdList, companyBankDetails, invoice, null);
         } catch (Exception e) {
           incrementAnomaly();
-          anomalyList.add(invoice.getId());
-          query.bind("anomalyList", anomalyList);
+          // the rest of the chunk is fetched again once the session is cleared
+          query.startAfter(invoice.getId());
           TraceBackService.trace(e, "billOfExchangeBatch: create invoice payment", batch.getId());
           break;
         }
@@ -195,8 +193,8 @@ public class BatchBankOrderGenerationBillOfExchange extends AbstractBatch {
     incrementDone();
   }
 
-  protected Query<Invoice> buildOrderedQueryFetchLcrAccountedInvoices(
-      AccountingBatch accountingBatch, List<Long> anomalyList) {
+  protected ChunkedQuery<Invoice> buildOrderedQueryFetchLcrAccountedInvoices(
+      AccountingBatch accountingBatch) {
     StringBuilder filter = new StringBuilder();
     boolean manageMultiBanks = appAccountService.getAppBase().getManageMultiBanks();
     filter.append(
@@ -205,7 +203,6 @@ public class BatchBankOrderGenerationBillOfExchange extends AbstractBatch {
             + "AND self.amountRemaining > 0 "
             + "AND self.company = :company "
             + "AND self.hasPendingPayments = FALSE "
-            + "AND self.id NOT IN (:anomalyList) "
             + "AND self.paymentMode = :paymentMode "
             + "AND self.lcrAccounted = TRUE "
             + "AND (self.billOfExchangeBlockingOk = FALSE OR (self.billOfExchangeBlockingOk = TRUE AND self.billOfExchangeBlockingToDate < :dueDate))");
@@ -215,7 +212,6 @@ public class BatchBankOrderGenerationBillOfExchange extends AbstractBatch {
     bindings.put("statusSelect", InvoiceRepository.STATUS_VENTILATED);
     bindings.put("company", accountingBatch.getCompany());
     bindings.put("paymentMode", accountingBatch.getPaymentMode());
-    bindings.put("anomalyList", anomalyList);
     bindings.put("dueDate", accountingBatch.getDueDate());
 
     if (accountingBatch.getDueDate() != null) {
@@ -235,9 +231,7 @@ public class BatchBankOrderGenerationBillOfExchange extends AbstractBatch {
       bindings.put("bankDetailsSet", bankDetailsSet);
     }
 
-    Query<Invoice> query =
-        invoiceRepository.all().filter(filter.toString()).bind(bindings).order("id");
-    return query;
+    return chunkedQuery(Invoice.class).filter(filter.toString()).bind(bindings);
   }
 
   @Override
@@ -51,6 +51,7 @@ import com.axelor.apps.base.db.Partner;
 import com.axelor.apps.base.db.repo.BatchRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.service.administration.AbstractBatch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.app.AppBaseService;
 import com.axelor.db.JPA;
 import com.axelor.db.Query;
@@ -155,11 +156,10 @@ public class BatchBankPaymentServiceImpl implements BatchBankPaymentService {
       throws AxelorException, JAXBException, IOException, DatatypeConfigurationException {
 
     List<PaymentScheduleLine> paymentScheduleLineList;
-    int offset = 0;
+    ChunkedQuery<PaymentScheduleLine> query = getPaymentScheduleLineDoneListChunkedQuery(batch);
 
-    while (!(paymentScheduleLineList = fetchPaymentScheduleLineDoneList(batch, offset)).isEmpty()) {
+    while (!(paymentScheduleLineList = query.fetchNext()).isEmpty()) {
       createBankOrders(batch, paymentScheduleLineList);
-      offset += paymentScheduleLineList.size();
       JPA.clear();
       batch = batchRepo.find(batch.getId());
     }
@@ -270,11 +270,10 @@ public class BatchBankPaymentServiceImpl implements BatchBankPaymentService {
     bankOrder = JPA.save(bankOrder);
 
     List<PaymentScheduleLine> paymentScheduleLineList;
-    int offset = 0;
+    ChunkedQuery<PaymentScheduleLine> query = getPaymentScheduleLineDoneListChunkedQuery(batch);
 
     try {
-      while (!(paymentScheduleLineList = fetchPaymentScheduleLineDoneList(batch, offset))
-          .isEmpty()) {
+      while (!(paymentScheduleLineList = query.fetchNext()).isEmpty()) {
         bankOrder = bankOrderRepo.find(bankOrder.getId());
 
         for (PaymentScheduleLine paymentScheduleLine : paymentScheduleLineList) {
@@ -300,7 +299,6 @@ public class BatchBankPaymentServiceImpl implements BatchBankPaymentService {
         }
 
         bankOrder = JPA.save(bankOrder);
-        offset += paymentScheduleLineList.size();
         JPA.clear();
       }
     } catch (Exception e) {
@@ -319,8 +317,12 @@ public class BatchBankPaymentServiceImpl implements BatchBankPaymentService {
     return bankOrder;
   }
 
-  protected List<PaymentScheduleLine> fetchPaymentScheduleLineDoneList(Batch batch, int offset) {
-    return getPaymentScheduleLineDoneListQuery(batch).fetch(AbstractBatch.FETCH_LIMIT, offset);
+  protected ChunkedQuery<PaymentScheduleLine> getPaymentScheduleLineDoneListChunkedQuery(
+      Batch batch) {
+    return ChunkedQuery.of(PaymentScheduleLine.class)
+        .filter("(:batch MEMBER OF self.batchSet) AND (self.statusSelect = :statusSelect)")
+        .bind("batch", batch)
+        .bind("statusSelect", PaymentScheduleLineRepository.STATUS_VALIDATED);
   }
 
   private Query<PaymentScheduleLine> getPaymentScheduleLineDoneListQuery(Batch batch) {
@@ -42,11 +42,10 @@ import com.axelor.apps.base.db.repo.BatchRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.administration.AbstractBatch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
@@ -111,16 +110,15 @@ public class BatchBillOfExchange extends AbstractBatch {
       return;
     }
 
-    List<Long> anomalyList = Lists.newArrayList(0L); // Can't pass an empty collection to the query
-    Query<Invoice> query = buildOrderedQueryFetchInvoices(accountingBatch, anomalyList);
+    ChunkedQuery<Invoice> query = buildOrderedQueryFetchInvoices(accountingBatch);
     // Creation des ecriture comptable lcr + modification des factures
-    createLCRAccountingMovesForInvoices(query, anomalyList, accountingBatch);
+    createLCRAccountingMovesForInvoices(query, accountingBatch);
   }
 
   protected void createLCRAccountingMovesForInvoices(
-      Query<Invoice> query, List<Long> anomalyList, AccountingBatch accountingBatch) {
+      ChunkedQuery<Invoice> query, AccountingBatch accountingBatch) {
     List<Invoice> invoicesList = null;
-    while (!(invoicesList = query.bind("anomalyList", anomalyList).fetch(FETCH_LIMIT)).isEmpty()) {
+    while (!(invoicesList = query.fetchNext()).isEmpty()) {
       findBatch();
       accountingBatch = accountingBatchRepository.find(accountingBatch.getId());
       for (Invoice invoice : invoicesList) {
@@ -128,7 +126,8 @@ public class BatchBillOfExchange extends AbstractBatch {
           createMoveAndUpdateInvoice(accountingBatch, invoice);
           incrementDone();
         } catch (Exception e) {
-          anomalyList.add(invoice.getId());
+          // the rest of the chunk is fetched again once the session is cleared
+          query.startAfter(invoice.getId());
           incrementAnomaly();
           TraceBackService.trace(
               e, "billOfExchangeBatch: create lcr accounting move", batch.getId());
@@ -252,8 +251,7 @@ public class BatchBillOfExchange extends AbstractBatch {
     return move;
   }
 
-  protected Query<Invoice> buildOrderedQueryFetchInvoices(
-      AccountingBatch accountingBatch, List<Long> anomalyList) {
+  protected ChunkedQuery<Invoice> buildOrderedQueryFetchInvoices(AccountingBatch accountingBatch) {
     StringBuilder filter = new StringBuilder();
     boolean manageMultiBanks = appAccountService.getAppBase().getManageMultiBanks();
     filter.append(
@@ -262,7 +260,6 @@ public class BatchBillOfExchange extends AbstractBatch {
             + "AND self.amountRemaining > 0 "
             + "AND self.company = :company "
             + "AND self.hasPendingPayments = FALSE "
-            + "AND self.id NOT IN (:anomalyList) "
             + "AND self.paymentMode = :paymentMode "
             + "AND self.lcrAccounted = FALSE "
             + "AND (self.billOfExchangeBlockingOk = FALSE OR (self.billOfExchangeBlockingOk = TRUE AND self.billOfExchangeBlockingToDate < :dueDate))");
@@ -272,7 +269,6 @@ public class BatchBillOfExchange extends AbstractBatch {
     bindings.put("statusSelect", InvoiceRepository.STATUS_VENTILATED);
     bindings.put("company", accountingBatch.getCompany());
     bindings.put("paymentMode", accountingBatch.getPaymentMode());
-    bindings.put("anomalyList", anomalyList);
     bindings.put("dueDate", accountingBatch.getDueDate());
 
     if (accountingBatch.getDueDate() != null) {
@@ -292,9 +288,7 @@ public class BatchBillOfExchange extends AbstractBatch {
       bindings.put("bankDetailsSet", bankDetailsSet);
     }
 
-    Query<Invoice> query =
-        invoiceRepository.all().filter(filter.toString()).bind(bindings).order("id");
-    return query;
+    return chunkedQuery(Invoice.class).filter(filter.toString()).bind(bindings);
   }
 
   @Override
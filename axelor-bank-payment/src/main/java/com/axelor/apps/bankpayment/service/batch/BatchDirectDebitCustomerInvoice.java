@@ -30,10 +30,10 @@ import com.axelor.apps.base.db.BankDetails;
 import com.axelor.apps.base.db.repo.BankDetailsRepository;
 import com.axelor.apps.base.db.repo.BlockingRepository;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.app.AppBaseService;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.inject.Beans;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
@@ -42,9 +42,10 @@ import com.google.common.collect.Sets;
 import java.lang.invoke.MethodHandles;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -122,11 +123,7 @@ public class BatchDirectDebitCustomerInvoice extends BatchDirectDebit {
   private List<InvoicePayment> processQuery(
       List<String> filterList, List<Pair<String, Object>> bindingList) {
 
-    List<InvoicePayment> doneList = new ArrayList<>();
-
-    List<Long> anomalyList = Lists.newArrayList(0L);
-    filterList.add("self.id NOT IN (:anomalyList)");
-    bindingList.add(Pair.of("anomalyList", (Object) anomalyList));
+    List<InvoicePayment> doneList = Collections.synchronizedList(new ArrayList<>());
 
     String filter =
         Joiner.on(" AND ")
@@ -140,39 +137,50 @@ public class BatchDirectDebitCustomerInvoice extends BatchDirectDebit {
                       }
                     }));
 
-    Query<Invoice> query = Beans.get(InvoiceRepository.class).all().filter(filter);
+    ChunkedQuery<Invoice> query = chunkedQuery(Invoice.class).filter(filter);
 
     for (Pair<String, Object> binding : bindingList) {
       query.bind(binding.getLeft(), binding.getRight());
     }
 
-    Set<Long> treatedSet = new HashSet<>();
+    Set<Long> treatedSet = ConcurrentHashMap.newKeySet();
+    Long companyBankDetailsId = getCompanyBankDetails(batch.getAccountingBatch()).getId();
+
+    // invoices of a partner are processed by the same worker
+    processPartitioned(
+        query,
+        "self.partner.id",
+        partition ->
+            doneList.addAll(processInvoices(partition, companyBankDetailsId, treatedSet)));
+
+    return doneList;
+  }
+
+  protected List<InvoicePayment> processInvoices(
+      ChunkedQuery<Invoice> query, Long companyBankDetailsId, Set<Long> treatedSet) {
+
+    List<InvoicePayment> doneList = new ArrayList<>();
     List<Invoice> invoiceList;
     InvoicePaymentCreateService invoicePaymentCreateService =
         Beans.get(InvoicePaymentCreateService.class);
     BankDetailsRepository bankDetailsRepo = Beans.get(BankDetailsRepository.class);
-    BankDetails companyBankDetails = getCompanyBankDetails(batch.getAccountingBatch());
 
-    while (!(invoiceList = query.fetch(FETCH_LIMIT)).isEmpty()) {
-      if (!JPA.em().contains(companyBankDetails)) {
-        companyBankDetails = bankDetailsRepo.find(companyBankDetails.getId());
-      }
+    while (!(invoiceList = query.fetchNext()).isEmpty()) {
+      BankDetails companyBankDetails = bankDetailsRepo.find(companyBankDetailsId);
 
       for (Invoice invoice : invoiceList) {
-        if (treatedSet.contains(invoice.getId())) {
+        if (!treatedSet.add(invoice.getId())) {
           throw new IllegalArgumentException("Invoice payment generation error");
         }
 
-        treatedSet.add(invoice.getId());
-
         try {
           doneList.add(
               invoicePaymentCreateService.createAndAddInvoicePayment(invoice, companyBankDetails));
           incrementDone();
         } catch (Exception e) {
           incrementAnomaly();
-          anomalyList.add(invoice.getId());
-          query.bind("anomalyList", anomalyList);
+          // the rest of the chunk is fetched again once the session is cleared
+          query.startAfter(invoice.getId());
           TraceBackService.trace(e, ExceptionOriginRepository.DIRECT_DEBIT, batch.getId());
           LOG.error(e.getMessage());
           break;
@@ -41,22 +41,25 @@ import com.axelor.apps.base.db.Partner;
 import com.axelor.apps.base.db.repo.BankDetailsRepository;
 import com.axelor.apps.base.db.repo.BlockingRepository;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.app.AppBaseService;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
-import com.axelor.utils.helpers.QueryBuilder;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import java.io.File;
 import java.lang.invoke.MethodHandles;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -137,34 +140,35 @@ public class BatchDirectDebitPaymentSchedule extends BatchDirectDebit {
               dataExpotDir + bankOrderExportPath));
     }
 
-    QueryBuilder<PaymentScheduleLine> queryBuilder = QueryBuilder.of(PaymentScheduleLine.class);
+    List<String> filterList = new ArrayList<>();
+    Map<String, Object> bindingMap = new HashMap<>();
 
-    queryBuilder.add("self.paymentSchedule.statusSelect = :paymentScheduleStatusSelect");
-    queryBuilder.bind("paymentScheduleStatusSelect", PaymentScheduleRepository.STATUS_CONFIRMED);
+    filterList.add("self.paymentSchedule.statusSelect = :paymentScheduleStatusSelect");
+    bindingMap.put("paymentScheduleStatusSelect", PaymentScheduleRepository.STATUS_CONFIRMED);
 
-    queryBuilder.add("self.paymentSchedule.typeSelect = :paymentScheduleTypeSelect");
-    queryBuilder.bind("paymentScheduleTypeSelect", paymentScheduleType);
+    filterList.add("self.paymentSchedule.typeSelect = :paymentScheduleTypeSelect");
+    bindingMap.put("paymentScheduleTypeSelect", paymentScheduleType);
 
-    queryBuilder.add("self.statusSelect = :statusSelect");
-    queryBuilder.bind("statusSelect", PaymentScheduleLineRepository.STATUS_IN_PROGRESS);
+    filterList.add("self.statusSelect = :statusSelect");
+    bindingMap.put("statusSelect", PaymentScheduleLineRepository.STATUS_IN_PROGRESS);
 
     LocalDate dueDate =
         accountingBatch.getDueDate() != null
             ? accountingBatch.getDueDate()
             : Beans.get(AppBaseService.class).getTodayDate(accountingBatch.getCompany());
-    queryBuilder.add("self.scheduleDate <= :dueDate");
-    queryBuilder.bind("dueDate", dueDate);
+    filterList.add("self.scheduleDate <= :dueDate");
+    bindingMap.put("dueDate", dueDate);
 
     if (accountingBatch.getCompany() != null) {
-      queryBuilder.add(
+      filterList.add(
           "self.paymentSchedule.company IS NULL OR self.paymentSchedule.company = :company");
-      queryBuilder.bind("company", accountingBatch.getCompany());
+      bindingMap.put("company", accountingBatch.getCompany());
     }
 
-    queryBuilder.add(
+    filterList.add(
         "self.paymentSchedule.partner.id NOT IN (SELECT DISTINCT partner.id FROM Partner partner LEFT JOIN partner.blockingList blocking WHERE blocking.blockingSelect = :blockingSelect AND blocking.blockingToDate >= :blockingToDate)");
-    queryBuilder.bind("blockingSelect", BlockingRepository.DEBIT_BLOCKING);
-    queryBuilder.bind(
+    bindingMap.put("blockingSelect", BlockingRepository.DEBIT_BLOCKING);
+    bindingMap.put(
         "blockingToDate",
         Beans.get(AppBaseService.class).getTodayDate(accountingBatch.getCompany()));
 
@@ -176,25 +180,29 @@ public class BatchDirectDebitPaymentSchedule extends BatchDirectDebit {
         bankDetailsSet.addAll(accountingBatch.getCompany().getBankDetailsList());
       }
 
-      queryBuilder.add(
+      filterList.add(
           "self.paymentSchedule.companyBankDetails IS NULL OR self.paymentSchedule.companyBankDetails IN (:bankDetailsSet)");
-      queryBuilder.bind("bankDetailsSet", bankDetailsSet);
+      bindingMap.put("bankDetailsSet", bankDetailsSet);
     }
 
     if (accountingBatch.getPaymentMode() != null) {
-      queryBuilder.add(
+      filterList.add(
           "self.paymentSchedule.paymentMode IS NULL OR self.paymentSchedule.paymentMode = :paymentMode");
-      queryBuilder.bind("paymentMode", accountingBatch.getPaymentMode());
+      bindingMap.put("paymentMode", accountingBatch.getPaymentMode());
     }
 
-    queryBuilder.add(":batch NOT MEMBER OF self.batchSet");
-    queryBuilder.bind("batch", batch);
+    filterList.add(":batch NOT MEMBER OF self.batchSet");
+    bindingMap.put("batch", batch);
 
-    processQuery(queryBuilder);
+    String filter =
+        filterList.stream()
+            .map(it -> String.format("(%s)", it))
+            .collect(Collectors.joining(" AND "));
+
+    processQuery(chunkedQuery(PaymentScheduleLine.class).filter(filter).bind(bindingMap));
   }
 
-  protected void processQuery(QueryBuilder<PaymentScheduleLine> queryBuilder) {
-    Query<PaymentScheduleLine> query = queryBuilder.build();
+  protected void processQuery(ChunkedQuery<PaymentScheduleLine> query) {
 
     List<PaymentScheduleLine> paymentScheduleLineList;
     PaymentScheduleService paymentScheduleService = Beans.get(PaymentScheduleService.class);
@@ -204,7 +212,7 @@ public class BatchDirectDebitPaymentSchedule extends BatchDirectDebit {
 
     BankDetails companyBankDetails = getCompanyBankDetails(batch.getAccountingBatch());
 
-    while (!(paymentScheduleLineList = query.fetch(FETCH_LIMIT)).isEmpty()) {
+    while (!(paymentScheduleLineList = query.fetchNext()).isEmpty()) {
       findBatch();
       companyBankDetails = bankDetailsRepo.find(companyBankDetails.getId());
       PaymentMode directDebitPaymentMode = batch.getAccountingBatch().getPaymentMode();
@@ -242,6 +250,8 @@ public class BatchDirectDebitPaymentSchedule extends BatchDirectDebit {
         } catch (Exception e) {
           TraceBackService.trace(e, ExceptionOriginRepository.DIRECT_DEBIT, batch.getId());
           incrementAnomaly(paymentScheduleLine);
+          // the rest of the chunk is fetched again once the session is cleared
+          query.startAfter(paymentScheduleLine.getId());
           break;
         }
       }
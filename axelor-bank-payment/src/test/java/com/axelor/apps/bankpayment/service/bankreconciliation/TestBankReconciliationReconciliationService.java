@@ -0,0 +1,199 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.bankpayment.service.bankreconciliation;
+
+import com.axelor.apps.account.db.Move;
+import com.axelor.apps.account.db.MoveLine;
+import com.axelor.apps.bankpayment.db.BankReconciliation;
+import com.axelor.apps.bankpayment.db.BankReconciliationLine;
+import com.axelor.apps.bankpayment.db.BankStatementLine;
+import com.axelor.apps.bankpayment.db.BankStatementQuery;
+import com.axelor.apps.bankpayment.db.repo.BankReconciliationRepository;
+import com.axelor.apps.bankpayment.db.repo.BankStatementQueryRepository;
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Currency;
+import com.axelor.rpc.Context;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestBankReconciliationReconciliationService {
+
+  private static final LocalDate DATE = LocalDate.of(2024, 3, 15);
+
+  private Currency currency;
+  private BankReconciliation bankReconciliation;
+  private BankStatementQuery bankStatementQuery;
+  private List<MoveLine> moveLineList;
+  private BankReconciliationReconciliationServiceImpl bankReconciliationReconciliationService;
+
+  @BeforeEach
+  void prepare() {
+    currency = new Currency();
+    currency.setId(1L);
+
+    bankReconciliation = new BankReconciliation();
+    bankReconciliation.setStatusSelect(BankReconciliationRepository.STATUS_DRAFT);
+
+    bankStatementQuery = new BankStatementQuery();
+    bankStatementQuery.setName("Amount");
+    bankStatementQuery.setQuery("true");
+    bankStatementQuery.setConfidenceIndex(BankStatementQueryRepository.CONFIDENCE_INDEX_GREEN);
+    bankStatementQuery.setMatchOnAmount(true);
+    bankStatementQuery.setMatchOnDate(false);
+
+    moveLineList = new ArrayList<>();
+
+    // every candidate matches the rule, only the scores differ
+    bankReconciliationReconciliationService =
+        new BankReconciliationReconciliationServiceImpl(null, null, null, null, null, null, null) {
+          @Override
+          protected BigDecimal getCurrencyAmount(
+              BankReconciliation bankReconciliation,
+              BankReconciliationLine bankReconciliationLine,
+              Currency currency) {
+            return bankReconciliationLine.getDebit();
+          }
+
+          @Override
+          protected Context getScriptContext(
+              BankReconciliation bankReconciliation,
+              Map<String, Object> statementLineValues,
+              BankReconciliationLine bankReconciliationLine,
+              MoveLine moveLine,
+              BigDecimal currencyAmount) {
+            return null;
+          }
+
+          @Override
+          protected boolean isMatching(String query, Context scriptContext) {
+            return true;
+          }
+
+          @Override
+          protected BankReconciliationMatchScore computeMatchScore(
+              BankStatementQuery bankStatementQuery,
+              BankStatementLine bankStatementLine,
+              MoveLine moveLine,
+              BigDecimal currencyAmount,
+              long dateMargin) {
+            BankReconciliationMatchScore matchScore =
+                super.computeMatchScore(
+                    bankStatementQuery, bankStatementLine, moveLine, currencyAmount, dateMargin);
+            return new BankReconciliationMatchScore(
+                bankStatementQuery, currencyAmount, BigDecimal.ZERO, 0L, dateMargin) {
+              @Override
+              public int getScore() {
+                return matchScore.getScore();
+              }
+
+              @Override
+              public String getDetails() {
+                return "";
+              }
+            };
+          }
+        };
+  }
+
+  @Test
+  void reconciliate_keepsBestScoringMoveLine() throws AxelorException {
+    MoveLine approximateMoveLine = createMoveLine(1L, "95", DATE);
+    MoveLine exactMoveLine = createMoveLine(2L, "100", DATE);
+    BankReconciliationLine bankReconciliationLine = createBankReconciliationLine(1L, "100", DATE);
+
+    reconciliate(List.of(bankReconciliationLine));
+
+    // a scan of every move line would have matched the first one
+    Assertions.assertSame(exactMoveLine, bankReconciliationLine.getMoveLine());
+    Assertions.assertSame(bankStatementQuery, bankReconciliationLine.getBankStatementQuery());
+    Assertions.assertEquals(Integer.valueOf(100), bankReconciliationLine.getMatchScore());
+    Assertions.assertEquals("1", exactMoveLine.getPostedNbr());
+    Assertions.assertNull(approximateMoveLine.getPostedNbr());
+  }
+
+  @Test
+  void reconciliate_keepsFirstMoveLineAmongEqualScores() throws AxelorException {
+    MoveLine firstMoveLine = createMoveLine(1L, "100", DATE);
+    MoveLine secondMoveLine = createMoveLine(2L, "100", DATE);
+    BankReconciliationLine firstLine = createBankReconciliationLine(1L, "100", DATE);
+    BankReconciliationLine secondLine = createBankReconciliationLine(2L, "100", DATE);
+
+    reconciliate(List.of(firstLine, secondLine));
+
+    Assertions.assertSame(firstMoveLine, firstLine.getMoveLine());
+    Assertions.assertSame(secondMoveLine, secondLine.getMoveLine());
+  }
+
+  @Test
+  void reconciliate_ignoresMoveLinesOutsideAmountMargin() throws AxelorException {
+    createMoveLine(1L, "50", DATE);
+    BankReconciliationLine bankReconciliationLine = createBankReconciliationLine(1L, "100", DATE);
+
+    reconciliate(List.of(bankReconciliationLine));
+
+    Assertions.assertNull(bankReconciliationLine.getMoveLine());
+  }
+
+  protected void reconciliate(List<BankReconciliationLine> bankReconciliationLineList)
+      throws AxelorException {
+    bankReconciliationReconciliationService.reconciliateUsingCandidateIndex(
+        bankReconciliation,
+        List.of(bankStatementQuery),
+        moveLineList,
+        bankReconciliationLineList,
+        BigInteger.valueOf(3),
+        new BigDecimal("0.9"),
+        BigDecimal.ONE);
+  }
+
+  protected MoveLine createMoveLine(Long id, String currencyAmount, LocalDate date) {
+    Move move = new Move();
+    move.setCurrency(currency);
+
+    MoveLine moveLine = new MoveLine();
+    moveLine.setId(id);
+    moveLine.setMove(move);
+    moveLine.setCurrencyAmount(new BigDecimal(currencyAmount));
+    moveLine.setDate(date);
+    moveLine.setDueDate(date);
+    moveLineList.add(moveLine);
+    return moveLine;
+  }
+
+  protected BankReconciliationLine createBankReconciliationLine(
+      Long id, String debit, LocalDate date) {
+    BankStatementLine bankStatementLine = new BankStatementLine();
+    bankStatementLine.setOperationDate(date);
+    bankStatementLine.setValueDate(date);
+
+    BankReconciliationLine bankReconciliationLine = new BankReconciliationLine();
+    bankReconciliationLine.setId(id);
+    bankReconciliationLine.setDebit(new BigDecimal(debit));
+    bankReconciliationLine.setCredit(BigDecimal.ZERO);
+    bankReconciliationLine.setBankStatementLine(bankStatementLine);
+    return bankReconciliationLine;
+  }
+}
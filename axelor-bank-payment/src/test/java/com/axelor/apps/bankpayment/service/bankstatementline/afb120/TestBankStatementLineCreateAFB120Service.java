@@ -0,0 +1,60 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.bankpayment.service.bankstatementline.afb120;
+
+import com.axelor.apps.base.AxelorException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestBankStatementLineCreateAFB120Service {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void openReader_readsLatin1Records() throws IOException, AxelorException {
+    String record =
+        String.format("%-" + AFB120RecordReader.RECORD_LENGTH + "s", "0430004SOCIETE GENERALE");
+    record = record.substring(0, 40) + "\u00e9" + record.substring(41);
+    File statementFile = tempDir.resolve("statement.txt").toFile();
+    Files.write(statementFile.toPath(), (record + "\n").getBytes(StandardCharsets.ISO_8859_1));
+
+    BankStatementLineCreateAFB120Service bankStatementLineCreateAFB120Service =
+        new BankStatementLineCreateAFB120Service(
+            null, null, null, null, null, null, null, null, null) {
+          {
+            file = statementFile;
+          }
+        };
+
+    try (AFB120RecordReader reader =
+        new AFB120RecordReader(bankStatementLineCreateAFB120Service.openReader())) {
+      String readRecord = reader.next();
+      Assertions.assertNotNull(readRecord);
+      Assertions.assertEquals(AFB120RecordReader.RECORD_LENGTH, readRecord.length());
+      Assertions.assertEquals(record.substring(0, 40), readRecord.substring(0, 40));
+      Assertions.assertNull(reader.next());
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.db.repo;
+
+import com.axelor.apps.base.db.Sequence;
+import com.axelor.apps.base.service.administration.SequenceBlockAllocator;
+import com.axelor.apps.base.utils.TransactionHelper;
+import com.axelor.inject.Beans;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+public class SequenceListener {
+
+  @PostUpdate
+  @PostRemove
+  protected void clearNumberBlocks(Sequence sequence) {
+    clearNumberBlocks(Beans.get(SequenceBlockAllocator.class), sequence.getId());
+  }
+
+  protected static void clearNumberBlocks(
+      SequenceBlockAllocator sequenceBlockAllocator, Long sequenceId) {
+    sequenceBlockAllocator.clear(sequenceId);
+
+    // a block may be reserved from the previous values before the changes are committed
+    TransactionHelper.afterCompletion(() -> sequenceBlockAllocator.clear(sequenceId));
+  }
+}
@@ -94,6 +94,7 @@ import com.axelor.apps.base.service.DMSService;
 import com.axelor.apps.base.service.DMSServiceImpl;
 import com.axelor.apps.base.service.DataBackupAnonymizeService;
 import com.axelor.apps.base.service.DataBackupAnonymizeServiceImpl;
+import com.axelor.apps.base.service.DataBackupExecutor;
 import com.axelor.apps.base.service.DataBackupService;
 import com.axelor.apps.base.service.DataBackupServiceImpl;
 import com.axelor.apps.base.service.DurationService;
@@ -197,6 +198,8 @@ import com.axelor.apps.base.service.exception.HandleExceptionResponse;
 import com.axelor.apps.base.service.exception.HandleExceptionResponseImpl;
 import com.axelor.apps.base.service.filesourceconnector.FileSourceConnectorService;
 import com.axelor.apps.base.service.filesourceconnector.FileSourceConnectorServiceImpl;
+import com.axelor.apps.base.service.formula.FormulaEngineService;
+import com.axelor.apps.base.service.formula.FormulaEngineServiceImpl;
 import com.axelor.apps.base.service.imports.ConvertDemoDataFileService;
 import com.axelor.apps.base.service.imports.ConvertDemoDataFileServiceImpl;
 import com.axelor.apps.base.service.imports.ImportCityService;
@@ -425,6 +428,7 @@ public class BaseModule extends AxelorModule {
     bind(FakerService.class).to(FakerServiceImpl.class);
     bind(DataBackupRepository.class).to(DataBackupManagementRepository.class);
     bind(DataBackupAnonymizeService.class).to(DataBackupAnonymizeServiceImpl.class);
+    bind(DataBackupExecutor.class);
     bind(DataBackupService.class).to(DataBackupServiceImpl.class);
     bind(BankDetailsFullNameComputeService.class).to(BankDetailsFullNameComputeServiceImpl.class);
     bind(ResearchRequestService.class).to(ResearchRequestServiceImpl.class);
@@ -474,5 +478,6 @@ public class BaseModule extends AxelorModule {
     bind(TranslationBaseService.class).to(TranslationBaseServiceImpl.class);
     bind(UserPermissionResponseComputeService.class)
         .to(UserPermissionResponseComputeServiceImpl.class);
+    bind(FormulaEngineService.class).to(FormulaEngineServiceImpl.class);
   }
 }
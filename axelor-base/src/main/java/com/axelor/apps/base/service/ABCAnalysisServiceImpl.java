@@ -18,8 +18,6 @@
  */
 package com.axelor.apps.base.service;
 
-import static com.axelor.apps.base.service.administration.AbstractBatch.FETCH_LIMIT;
-
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.ABCAnalysis;
 import com.axelor.apps.base.db.ABCAnalysisClass;
@@ -32,6 +30,7 @@ import com.axelor.apps.base.db.repo.ABCAnalysisRepository;
 import com.axelor.apps.base.db.repo.ProductRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.administration.SequenceService;
 import com.axelor.db.JPA;
 import com.axelor.db.Query;
@@ -192,18 +191,14 @@ public class ABCAnalysisServiceImpl implements ABCAnalysisService {
   }
 
   protected void createAllABCAnalysisLine(ABCAnalysis abcAnalysis) throws AxelorException {
-    int offset = 0;
-
     List<Product> productList;
-    Query<Product> productQuery =
-        productRepository
-            .all()
+    ChunkedQuery<Product> productQuery =
+        ChunkedQuery.of(Product.class)
             .filter(
                 "self.id IN (" + StringHelper.getIdListString(getProductSet(abcAnalysis)) + ")");
 
-    while (!(productList = productQuery.fetch(FETCH_LIMIT, offset)).isEmpty()) {
+    while (!(productList = productQuery.fetchNext()).isEmpty()) {
       abcAnalysis = abcAnalysisRepository.find(abcAnalysis.getId());
-      offset += productList.size();
 
       for (Product product : productList) {
         product = productRepository.find(product.getId());
@@ -261,7 +256,9 @@ public class ABCAnalysisServiceImpl implements ABCAnalysisService {
             .order("-decimalWorth")
             .order("id");
 
-    while (!(abcAnalysisLineList = query.fetch(FETCH_LIMIT, offset)).isEmpty()) {
+    // lines are ordered by worth, they can not be read with a keyset pagination on the id
+    int chunkSize = ChunkedQuery.getConfiguredChunkSize(null);
+    while (!(abcAnalysisLineList = query.fetch(chunkSize, offset)).isEmpty()) {
       offset += abcAnalysisLineList.size();
       abcAnalysisLineList.forEach(this::analyzeLine);
       JPA.clear();
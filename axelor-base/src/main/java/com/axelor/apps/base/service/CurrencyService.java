@@ -24,6 +24,7 @@ import com.axelor.apps.base.db.CurrencyConversionLine;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import org.apache.commons.lang3.tuple.Pair;
 
 public interface CurrencyService {
 
@@ -37,6 +38,20 @@ public interface CurrencyService {
       Currency startCurrency, Currency endCurrency, BigDecimal amount, LocalDate date)
       throws AxelorException;
 
+  /**
+   * Converts each amount in start currency into the end currency at its date, looking up the
+   * exchange rate once per distinct date.
+   *
+   * @param amountDateList the amounts to convert with their date, the date of the day being used
+   *     when the date is null
+   * @return the converted amounts, in the same order
+   */
+  List<BigDecimal> getAmountsCurrencyConvertedAtDates(
+      Currency startCurrency,
+      Currency endCurrency,
+      List<Pair<BigDecimal, LocalDate>> amountDateList)
+      throws AxelorException;
+
   BigDecimal getAmountCurrencyConvertedUsingExchangeRate(
       BigDecimal amount, BigDecimal exchangeRate, Currency endCurrency);
 
@@ -25,9 +25,12 @@ import com.axelor.apps.base.db.repo.CurrencyConversionLineRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.app.AppBaseService;
+import com.axelor.apps.base.service.currency.CurrencyRateIndex;
 import com.axelor.auth.AuthUtils;
 import com.axelor.auth.db.User;
+import com.axelor.db.JPA;
 import com.axelor.i18n.I18n;
+import com.axelor.inject.Beans;
 import com.axelor.meta.CallMethod;
 import com.axelor.utils.helpers.date.LocalDateHelper;
 import com.google.inject.Inject;
@@ -36,9 +39,13 @@ import java.lang.invoke.MethodHandles;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,13 +56,17 @@ public class CurrencyServiceImpl implements CurrencyService {
 
   protected AppBaseService appBaseService;
   protected CurrencyConversionLineRepository currencyConversionLineRepo;
+  protected CurrencyRateIndex currencyRateIndex;
   private LocalDate today;
 
   @Inject
   public CurrencyServiceImpl(
-      AppBaseService appBaseService, CurrencyConversionLineRepository currencyConversionLineRepo) {
+      AppBaseService appBaseService,
+      CurrencyConversionLineRepository currencyConversionLineRepo,
+      CurrencyRateIndex currencyRateIndex) {
 
     this.appBaseService = appBaseService;
+    this.currencyRateIndex = currencyRateIndex;
     this.today =
         appBaseService.getTodayDate(
             Optional.ofNullable(AuthUtils.getUser()).map(User::getActiveCompany).orElse(null));
@@ -91,17 +102,16 @@ public class CurrencyServiceImpl implements CurrencyService {
       boolean isInverse = true;
       BigDecimal exchangeRate = null;
 
-      CurrencyConversionLine currencyConversionLine =
-          this.getCurrencyConversionLine(startCurrency, endCurrency, dateToConvert);
-      if (currencyConversionLine != null) {
-        exchangeRate = currencyConversionLine.getExchangeRate();
+      CurrencyRateIndex.Rate rate =
+          getCurrencyRateIndex().getRate(startCurrency, endCurrency, dateToConvert);
+      if (rate != null) {
+        exchangeRate = rate.getExchangeRate();
         isInverse = false;
 
       } else {
-        currencyConversionLine =
-            this.getCurrencyConversionLine(endCurrency, startCurrency, dateToConvert);
+        rate = getCurrencyRateIndex().getRate(endCurrency, startCurrency, dateToConvert);
 
-        if (currencyConversionLine == null) {
+        if (rate == null) {
           throw new AxelorException(
               TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
               I18n.get(BaseExceptionMessage.CURRENCY_1),
@@ -109,7 +119,7 @@ public class CurrencyServiceImpl implements CurrencyService {
               endCurrency.getName(),
               dateToConvert);
         }
-        exchangeRate = currencyConversionLine.getExchangeRate();
+        exchangeRate = rate.getExchangeRate();
       }
 
       if (exchangeRate == null || exchangeRate.compareTo(BigDecimal.ZERO) == 0) {
@@ -135,34 +145,22 @@ public class CurrencyServiceImpl implements CurrencyService {
   protected CurrencyConversionLine getCurrencyConversionLine(
       Currency startCurrency, Currency endCurrency, LocalDate localDate) {
 
-    List<CurrencyConversionLine> currencyConversionLineList =
-        appBaseService.getCurrencyConfigurationLineList();
-
-    if (currencyConversionLineList == null) {
-      return null;
-    }
-
     log.debug(
         "Currency from: {}, Currency to: {}, localDate: {}", startCurrency, endCurrency, localDate);
 
-    for (CurrencyConversionLine ccl : currencyConversionLineList) {
+    CurrencyRateIndex.Rate rate =
+        getCurrencyRateIndex().getRate(startCurrency, endCurrency, localDate);
 
-      String cclStartCode = ccl.getStartCurrency().getCodeISO();
-      String cclEndCode = ccl.getEndCurrency().getCodeISO();
-      String startCode = startCurrency.getCodeISO();
-      String endCode = endCurrency.getCodeISO();
-      LocalDate fromDate = ccl.getFromDate();
-      LocalDate toDate = ccl.getToDate();
+    return rate != null
+        ? JPA.find(CurrencyConversionLine.class, rate.getCurrencyConversionLineId())
+        : null;
+  }
 
-      if (cclStartCode.equals(startCode) && cclEndCode.equals(endCode)) {
-        if ((fromDate.isBefore(localDate) || fromDate.equals(localDate))
-            && (toDate == null || toDate.isAfter(localDate) || toDate.isEqual(localDate))) {
-          return ccl;
-        }
-      }
+  protected CurrencyRateIndex getCurrencyRateIndex() {
+    if (currencyRateIndex == null) {
+      currencyRateIndex = Beans.get(CurrencyRateIndex.class);
     }
-
-    return null;
+    return currencyRateIndex;
   }
 
   /**
@@ -190,6 +188,38 @@ public class CurrencyServiceImpl implements CurrencyService {
     return amount;
   }
 
+  @Override
+  public List<BigDecimal> getAmountsCurrencyConvertedAtDates(
+      Currency startCurrency,
+      Currency endCurrency,
+      List<Pair<BigDecimal, LocalDate>> amountDateList)
+      throws AxelorException {
+
+    List<BigDecimal> convertedAmountList = new ArrayList<>(amountDateList.size());
+    Map<LocalDate, BigDecimal> exchangeRateMap = new HashMap<>();
+
+    for (Pair<BigDecimal, LocalDate> amountDate : amountDateList) {
+      BigDecimal amount = amountDate.getLeft();
+
+      if (startCurrency == null || endCurrency == null || startCurrency.equals(endCurrency)) {
+        convertedAmountList.add(amount);
+        continue;
+      }
+
+      LocalDate dateToConvert = this.getDateToConvert(amountDate.getRight());
+      BigDecimal exchangeRate = exchangeRateMap.get(dateToConvert);
+      if (exchangeRate == null) {
+        exchangeRate = this.getCurrencyConversionRate(startCurrency, endCurrency, dateToConvert);
+        exchangeRateMap.put(dateToConvert, exchangeRate);
+      }
+
+      convertedAmountList.add(
+          this.getAmountCurrencyConvertedUsingExchangeRate(amount, exchangeRate, endCurrency));
+    }
+
+    return convertedAmountList;
+  }
+
   /**
    * Convert the amount in start currency into the end currency according to the exchange rate
    *
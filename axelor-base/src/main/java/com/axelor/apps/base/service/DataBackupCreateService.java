@@ -18,12 +18,14 @@
  */
 package com.axelor.apps.base.service;
 
+import com.axelor.app.AppSettings;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.AnonymizerLine;
 import com.axelor.apps.base.db.DataBackup;
 import com.axelor.apps.base.db.repo.AnonymizerLineRepository;
 import com.axelor.apps.base.db.repo.DataBackupRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.auth.db.AuditableModel;
 import com.axelor.common.StringUtils;
@@ -38,6 +40,7 @@ import com.axelor.db.Query;
 import com.axelor.db.internal.DBHelper;
 import com.axelor.db.mapper.Mapper;
 import com.axelor.db.mapper.Property;
+import com.axelor.inject.Beans;
 import com.axelor.meta.MetaFiles;
 import com.axelor.meta.db.MetaFile;
 import com.axelor.meta.db.MetaJsonField;
@@ -49,10 +52,12 @@ import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
+import com.google.inject.persist.UnitOfWork;
+import com.google.inject.servlet.RequestScoper;
+import com.google.inject.servlet.ServletScopes;
 import com.thoughtworks.xstream.XStream;
-import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -69,15 +74,21 @@ import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import javax.naming.NamingException;
 import org.apache.commons.csv.CSVPrinter;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -87,6 +98,9 @@ public class DataBackupCreateService {
   protected static final char REFERENCE_FIELD_SEPARATOR = '|';
   protected static final int BUFFER_SIZE = 1000;
 
+  /** Application setting giving the number of models exported at the same time. */
+  public static final String WORKER_COUNT_SETTING = "data.backup.workers";
+
   protected boolean notNullReferenceFlag;
   protected boolean referenceFlag;
   protected boolean byteArrFieldFlag = false;
@@ -174,79 +188,69 @@ public class DataBackupCreateService {
       salt = anonymizeService.getSalt();
     }
 
+    File zippedFile = null;
     if (errorsCount == 0) {
-      for (MetaModel metaModel : metaModelList) {
-
-        try {
-          List<String> subClasses = subClassesMap.get(metaModel.getFullName());
-          long totalRecord = getMetaModelDataCount(metaModel, subClasses);
-          if (!dataBackup.getIsProcessEmptyTable() && totalRecord < 1) {
+      zippedFile = new File(tempDirectoryPath, getZipFileName());
+      try (ZipOutputStream zipOut =
+          new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(zippedFile)))) {
+        List<DataBackupModelExport> modelExportList =
+            exportModels(dataBackup, metaModelList, subClassesMap, tempDirectoryPath, salt, zipOut);
+
+        for (DataBackupModelExport modelExport : modelExportList) {
+          sb.append(modelExport.getLog());
+          if (modelExport.getError() != null) {
+            sb.append(modelExport.getError());
+            errorsCount++;
             continue;
           }
-
-          LOG.debug("Exporting Model : " + metaModel.getFullName());
-          notNullReferenceFlag = false;
-          referenceFlag = false;
-
-          File templateFile = new File(tempDirectoryPath, metaModel.getName() + ".csv");
-          CSVFile csvFormat =
-              CSVFile.DEFAULT.withDelimiter(SEPARATOR).withQuoteAll().withFirstRecordAsHeader();
-          CSVPrinter printer = csvFormat.write(templateFile);
-          CSVInput csvInput =
-              writeCSVData(
-                  metaModel, printer, dataBackup, totalRecord, subClasses, tempDirectoryPath, salt);
-          printer.close();
-
-          if (notNullReferenceFlag) {
-            notNullReferenceCsvs.add(csvInput);
-          } else if (referenceFlag) {
-            refernceCsvs.add(csvInput);
-            CSVInput temcsv = new CSVInput();
-            temcsv.setFileName(csvInput.getFileName());
-            temcsv.setTypeName(csvInput.getTypeName());
-
-            if (dataBackup.getIsRelativeDate()) {
-              temcsv.setBindings(new ArrayList<>());
-              getCsvInputForDateorDateTime(metaModel, temcsv);
-            }
-            if (AutoImportModelMap.containsKey(csvInput.getTypeName())) {
-              temcsv.setSearch(AutoImportModelMap.get(csvInput.getTypeName()).toString());
-            }
-            if (Class.forName(metaModel.getFullName()).getSuperclass() == App.class) {
-              temcsv.setSearch("self.code = :code");
-            }
-            if (!AutoImportModelMap.containsKey(csvInput.getTypeName())
-                && !((Class.forName(metaModel.getFullName()).getSuperclass()).equals(App.class))) {
-              temcsv.setSearch("self.importId = :importId");
-            }
-            simpleCsvs.add(temcsv);
-          } else {
-            simpleCsvs.add(csvInput);
+          CSVInput csvInput = modelExport.getCsvInput();
+          if (csvInput == null) {
+            continue;
           }
-
-          fileNameList.add(metaModel.getName() + ".csv");
-        } catch (ClassNotFoundException | IOException e) {
-          TraceBackService.trace(e, DataBackupService.class.getName());
-        } catch (Exception e) {
-          JPA.em().getTransaction().rollback();
-          if (!dataBackup.getCheckAllErrorFirst()) {
-            sb.append("\nError occured while processing model : " + metaModel.getFullName() + "\n");
-            sb.append(e.getMessage() + "\n");
+          MetaModel metaModel = modelExport.getMetaModel();
+
+          try {
+            if (modelExport.isNotNullReference()) {
+              notNullReferenceCsvs.add(csvInput);
+            } else if (modelExport.isReference()) {
+              refernceCsvs.add(csvInput);
+              CSVInput temcsv = new CSVInput();
+              temcsv.setFileName(csvInput.getFileName());
+              temcsv.setTypeName(csvInput.getTypeName());
+
+              if (dataBackup.getIsRelativeDate()) {
+                temcsv.setBindings(new ArrayList<>());
+                getCsvInputForDateorDateTime(metaModel, temcsv);
+              }
+              if (AutoImportModelMap.containsKey(csvInput.getTypeName())) {
+                temcsv.setSearch(AutoImportModelMap.get(csvInput.getTypeName()).toString());
+              }
+              if (Class.forName(metaModel.getFullName()).getSuperclass() == App.class) {
+                temcsv.setSearch("self.code = :code");
+              }
+              if (!AutoImportModelMap.containsKey(csvInput.getTypeName())
+                  && !((Class.forName(metaModel.getFullName()).getSuperclass())
+                      .equals(App.class))) {
+                temcsv.setSearch("self.importId = :importId");
+              }
+              simpleCsvs.add(temcsv);
+            } else {
+              simpleCsvs.add(csvInput);
+            }
+          } catch (ClassNotFoundException e) {
+            TraceBackService.trace(e, DataBackupService.class.getName());
           }
-          JPA.em().getTransaction().begin();
-          dataBackup = dataBackupRepository.find(dataBackup.getId());
-          errorsCount++;
         }
-      }
 
-      CSVConfig csvConfig = new CSVConfig();
-      csvConfig.setInputs(simpleCsvs);
-      csvConfig.getInputs().addAll(notNullReferenceCsvs);
-      csvConfig.getInputs().addAll(refernceCsvs);
-      csvConfig.getInputs().addAll(notNullReferenceCsvs);
-      generateConfig(tempDirectoryPath, csvConfig);
+        CSVConfig csvConfig = new CSVConfig();
+        csvConfig.setInputs(simpleCsvs);
+        csvConfig.getInputs().addAll(notNullReferenceCsvs);
+        csvConfig.getInputs().addAll(refernceCsvs);
+        csvConfig.getInputs().addAll(notNullReferenceCsvs);
+        generateConfig(tempDirectoryPath, csvConfig);
 
-      fileNameList.add(DataBackupServiceImpl.CONFIG_FILE_NAME);
+        addToZip(zipOut, tempDirectoryPath, DataBackupServiceImpl.CONFIG_FILE_NAME);
+      }
     }
 
     try {
@@ -266,7 +270,6 @@ public class DataBackupCreateService {
       }
 
       if (errorsCount == 0) {
-        File zippedFile = generateZIP(tempDirectoryPath, fileNameList);
         dataBackup.setBackupMetaFile(metaFiles.upload(zippedFile));
       } else {
         dataBackup.setStatusSelect(DataBackupRepository.DATA_BACKUP_STATUS_ERROR);
@@ -278,6 +281,163 @@ public class DataBackupCreateService {
     return dataBackup;
   }
 
+  /**
+   * Exports every model in its own CSV file, with {@link #WORKER_COUNT_SETTING} models exported at
+   * the same time. Each model is read by a new instance of this service, in its own read-only
+   * session, and its files are added to the archive as soon as it is exported.
+   *
+   * @return the export of each model, in the order of the given models
+   */
+  protected List<DataBackupModelExport> exportModels(
+      DataBackup dataBackup,
+      List<MetaModel> metaModelList,
+      Map<String, List<String>> subClassesMap,
+      String dirPath,
+      byte[] salt,
+      ZipOutputStream zipOut)
+      throws IOException {
+    Long dataBackupId = dataBackup.getId();
+    int workerCount = getWorkerCount();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            workerCount,
+            runnable -> {
+              Thread thread = new Thread(runnable, "data-backup-export");
+              thread.setDaemon(true);
+              return thread;
+            });
+
+    try {
+      List<Future<DataBackupModelExport>> futureList = new ArrayList<>();
+      for (MetaModel metaModel : metaModelList) {
+        Long metaModelId = metaModel.getId();
+        List<String> subClasses = subClassesMap.get(metaModel.getFullName());
+        futureList.add(
+            executor.submit(
+                () -> exportModelInWorker(dataBackupId, metaModelId, subClasses, dirPath, salt)));
+      }
+
+      List<DataBackupModelExport> modelExportList = new ArrayList<>();
+      long startTime = System.currentTimeMillis();
+      long recordCount = 0;
+      for (int index = 0; index < metaModelList.size(); index++) {
+        MetaModel metaModel = metaModelList.get(index);
+        DataBackupModelExport modelExport;
+        try {
+          modelExport = futureList.get(index).get();
+        } catch (ExecutionException e) {
+          modelExport = new DataBackupModelExport();
+          modelExport.setError(
+              "\nError occured while processing model : "
+                  + metaModel.getFullName()
+                  + "\n"
+                  + e.getCause().getMessage()
+                  + "\n");
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException(e);
+        }
+        modelExport.setMetaModel(metaModel);
+        modelExportList.add(modelExport);
+
+        for (String fileName : modelExport.getFileNameList()) {
+          addToZip(zipOut, dirPath, fileName);
+        }
+        if (modelExport.getCsvInput() != null) {
+          recordCount += modelExport.getRecordCount();
+          LOG.info(
+              "Exported model {} ({}/{}): {} records in {} ms, {} records/s overall",
+              metaModel.getName(),
+              index + 1,
+              metaModelList.size(),
+              modelExport.getRecordCount(),
+              modelExport.getDuration(),
+              recordCount * 1000 / Math.max(1, System.currentTimeMillis() - startTime));
+        }
+      }
+      return modelExportList;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Returns the number of models exported at the same time, see {@link #WORKER_COUNT_SETTING}. */
+  protected int getWorkerCount() {
+    return Math.max(1, AppSettings.get().getInt(WORKER_COUNT_SETTING, 1));
+  }
+
+  protected DataBackupModelExport exportModelInWorker(
+      Long dataBackupId, Long metaModelId, List<String> subClasses, String dirPath, byte[] salt) {
+    RequestScoper scope = ServletScopes.scopeRequest(Collections.emptyMap());
+    try (RequestScoper.CloseableScope ignored = scope.open()) {
+      JPA.em().unwrap(Session.class).setDefaultReadOnly(true);
+      return Beans.get(DataBackupCreateService.class)
+          .exportModel(dataBackupId, metaModelId, subClasses, dirPath, salt);
+    } finally {
+      Beans.get(UnitOfWork.class).end();
+    }
+  }
+
+  /**
+   * Exports the records of a model in a CSV file of the given directory. This instance must not be
+   * used for other models at the same time, as it keeps the state of the export.
+   *
+   * @return the export, without CSV input if the model is skipped
+   */
+  protected DataBackupModelExport exportModel(
+      Long dataBackupId, Long metaModelId, List<String> subClasses, String dirPath, byte[] salt) {
+    DataBackup dataBackup = dataBackupRepository.find(dataBackupId);
+    MetaModel metaModel = metaModelRepo.find(metaModelId);
+    DataBackupModelExport modelExport = new DataBackupModelExport();
+    long startTime = System.currentTimeMillis();
+    fileNameList = new ArrayList<>();
+    sb = new StringBuilder();
+
+    try {
+      long totalRecord = getMetaModelDataCount(metaModel, subClasses);
+      if (!dataBackup.getIsProcessEmptyTable() && totalRecord < 1) {
+        return modelExport;
+      }
+
+      LOG.debug("Exporting Model : " + metaModel.getFullName());
+      notNullReferenceFlag = false;
+      referenceFlag = false;
+
+      File templateFile = new File(dirPath, metaModel.getName() + ".csv");
+      CSVFile csvFormat =
+          CSVFile.DEFAULT.withDelimiter(SEPARATOR).withQuoteAll().withFirstRecordAsHeader();
+      CSVInput csvInput;
+      try (CSVPrinter printer = csvFormat.write(templateFile)) {
+        csvInput =
+            writeCSVData(metaModel, printer, dataBackup, totalRecord, subClasses, dirPath, salt);
+      }
+      fileNameList.add(metaModel.getName() + ".csv");
+
+      modelExport.setCsvInput(csvInput);
+      modelExport.setReference(referenceFlag);
+      modelExport.setNotNullReference(notNullReferenceFlag);
+      modelExport.setRecordCount(totalRecord);
+    } catch (ClassNotFoundException | IOException e) {
+      TraceBackService.trace(e, DataBackupService.class.getName());
+    } catch (Exception e) {
+      if (!dataBackup.getCheckAllErrorFirst()) {
+        modelExport.setError(
+            "\nError occured while processing model : "
+                + metaModel.getFullName()
+                + "\n"
+                + e.getMessage()
+                + "\n");
+      } else {
+        modelExport.setError("");
+      }
+    } finally {
+      modelExport.setFileNameList(fileNameList);
+      modelExport.setLog(sb.toString());
+      modelExport.setDuration(System.currentTimeMillis() - startTime);
+    }
+    return modelExport;
+  }
+
   protected void getCsvInputForDateorDateTime(MetaModel metaModel, CSVInput csvInput) {
     try {
       Mapper metaModelMapper = Mapper.of(Class.forName(metaModel.getFullName()));
@@ -339,18 +499,13 @@ public class DataBackupCreateService {
     return subClassMap;
   }
 
-  /* Get All Data of Specific MetaModel */
-  protected List<Model> getMetaModelDataList(
-      MetaModel metaModel, int start, Integer fetchLimit, List<String> subClasses)
+  /* Get All Data of Specific MetaModel, by chunks ordered by id */
+  protected ChunkedQuery<Model> getChunkedQuery(
+      MetaModel metaModel, int chunkSize, List<String> subClasses)
       throws ClassNotFoundException {
-
-    Query<Model> query = getQuery(metaModel, subClasses);
-
-    if (query != null) {
-      return query.fetch(fetchLimit, start);
-    }
-
-    return null;
+    @SuppressWarnings("unchecked")
+    Class<Model> klass = (Class<Model>) Class.forName(metaModel.getFullName());
+    return ChunkedQuery.of(klass).filter(getSubClassesFilter(subClasses)).chunkSize(chunkSize);
   }
 
   protected long getMetaModelDataCount(MetaModel metaModel, List<String> subClasses)
@@ -363,8 +518,8 @@ public class DataBackupCreateService {
     return count;
   }
 
-  protected Query<Model> getQuery(MetaModel metaModel, List<String> subClasses)
-      throws ClassNotFoundException {
+  /* Exclude the records of the sub classes, exported with their own model */
+  protected String getSubClassesFilter(List<String> subClasses) {
     StringBuilder whereStr = new StringBuilder();
     if (subClasses != null && !subClasses.isEmpty()) {
       for (String subClassName : subClasses) {
@@ -372,6 +527,12 @@ public class DataBackupCreateService {
         whereStr.append("id NOT IN (select id from ").append(subClassName).append(")");
       }
     }
+    return whereStr.toString();
+  }
+
+  protected Query<Model> getQuery(MetaModel metaModel, List<String> subClasses)
+      throws ClassNotFoundException {
+    String whereStr = getSubClassesFilter(subClasses);
     @SuppressWarnings("unchecked")
     Class<Model> klass = (Class<Model>) Class.forName(metaModel.getFullName());
     JpaRepository<Model> model = null;
@@ -383,8 +544,8 @@ public class DataBackupCreateService {
     }
     if (model != null) {
       query = JpaRepository.of(klass).all();
-      if (StringUtils.notEmpty(whereStr.toString())) {
-        query.filter(whereStr.toString());
+      if (StringUtils.notEmpty(whereStr)) {
+        query.filter(whereStr);
       }
 
       try {
@@ -452,54 +613,54 @@ public class DataBackupCreateService {
       csvInput.setBindings(new ArrayList<>());
 
       if (totalRecord > 0) {
-        for (int i = 0; i < totalRecord; i = i + fetchLimit) {
-
-          dataList = getMetaModelDataList(metaModel, i, fetchLimit, subClasses);
-
-          if (dataList != null && !dataList.isEmpty()) {
-            dataBackup = dataBackupRepository.find(dataBackup.getId());
-            for (Object dataObject : dataList) {
-              dataArr = new ArrayList<>();
-
-              for (Property property : pro) {
-                if (isPropertyExportable(property)) {
-                  if (headerFlag) {
-                    String headerStr = getMetaModelHeader(property, csvInput, isRelativeDate);
-                    headerArr.add(headerStr);
-                  }
-                  dataArr.add(
-                      getMetaModelData(
-                          metaModel.getName(),
-                          metaModelMapper,
-                          property,
-                          dataObject,
-                          dirPath,
-                          isRelativeDate,
-                          updateImportId,
-                          dataBackup));
-                }
-              }
-              if (headerFlag) {
-                if (byteArrFieldFlag) {
-                  csvInput.setCallable(
-                      "com.axelor.apps.base.service.DataBackupRestoreService:importObjectWithByteArray");
-                  byteArrFieldFlag = false;
+        ChunkedQuery<Model> chunkedQuery = getChunkedQuery(metaModel, fetchLimit, subClasses);
+        long exportedRecord = 0;
+
+        while (exportedRecord < totalRecord && !(dataList = chunkedQuery.fetchNext()).isEmpty()) {
+          dataBackup = dataBackupRepository.find(dataBackup.getId());
+          for (Object dataObject : dataList) {
+            if (exportedRecord++ >= totalRecord) {
+              break;
+            }
+            dataArr = new ArrayList<>();
+
+            for (Property property : pro) {
+              if (isPropertyExportable(property)) {
+                if (headerFlag) {
+                  String headerStr = getMetaModelHeader(property, csvInput, isRelativeDate);
+                  headerArr.add(headerStr);
                 }
-                printer.printRecord(headerArr);
-                headerFlag = false;
+                dataArr.add(
+                    getMetaModelData(
+                        metaModel.getName(),
+                        metaModelMapper,
+                        property,
+                        dataObject,
+                        dirPath,
+                        isRelativeDate,
+                        updateImportId,
+                        dataBackup));
               }
-
-              if ("Partner".equals(metaModel.getName()) && dataBackup.getAnonymizer() != null) {
-                dataArr =
-                    dataBackupAnonymizeService.csvComputeAnonymizedFullname(dataArr, headerArr);
+            }
+            if (headerFlag) {
+              if (byteArrFieldFlag) {
+                csvInput.setCallable(
+                    "com.axelor.apps.base.service.DataBackupRestoreService:importObjectWithByteArray");
+                byteArrFieldFlag = false;
               }
+              printer.printRecord(headerArr);
+              headerFlag = false;
+            }
 
-              if (dataBackup.getAnonymizer() != null) {
-                dataBackupAnonymizeService.csvAnonymizeImportId(dataArr, headerArr, salt);
-              }
+            if ("Partner".equals(metaModel.getName()) && dataBackup.getAnonymizer() != null) {
+              dataArr = dataBackupAnonymizeService.csvComputeAnonymizedFullname(dataArr, headerArr);
+            }
 
-              printer.printRecord(dataArr);
+            if (dataBackup.getAnonymizer() != null) {
+              dataBackupAnonymizeService.csvAnonymizeImportId(dataArr, headerArr, salt);
             }
+
+            printer.printRecord(dataArr);
           }
           JPA.clear();
         }
@@ -794,38 +955,19 @@ public class DataBackupCreateService {
     }
   }
 
-  protected File generateZIP(String dirPath, List<String> fileNameList) {
-
+  protected String getZipFileName() {
     DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
-    String backupZipFileName = "DataBackup_" + LocalDateTime.now().format(formatter) + ".zip";
-    File zipFile = new File(dirPath, backupZipFileName);
-    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
-
-      for (String fileName : fileNameList) {
-        ZipEntry e = new ZipEntry(fileName);
-        out.putNextEntry(e);
-        File file = new File(dirPath, fileName);
-        try (BufferedInputStream bin = new BufferedInputStream(new FileInputStream(file))) {
-          byte[] data;
-          while (bin.available() > 0) {
-            if (bin.available() < BUFFER_SIZE) {
-              data = new byte[bin.available()];
-            } else {
-              data = new byte[BUFFER_SIZE];
-            }
-            bin.read(data, 0, data.length);
-            out.write(data, 0, data.length);
-          }
-          out.closeEntry();
-
-          file.delete();
-        }
-      }
-    } catch (IOException e) {
-      TraceBackService.trace(e, "Error From DataBackupCreateService - generateZIP()");
-    }
+    return "DataBackup_" + LocalDateTime.now().format(formatter) + ".zip";
+  }
 
-    return zipFile;
+  /* Add a file of the directory to the archive, then delete it */
+  protected void addToZip(ZipOutputStream zipOut, String dirPath, String fileName)
+      throws IOException {
+    File file = new File(dirPath, fileName);
+    zipOut.putNextEntry(new ZipEntry(fileName));
+    Files.copy(file.toPath(), zipOut);
+    zipOut.closeEntry();
+    Files.delete(file.toPath());
   }
 
   /* Generate XML File from CSVConfig */
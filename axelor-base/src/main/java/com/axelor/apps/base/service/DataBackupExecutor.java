@@ -0,0 +1,72 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service;
+
+import com.axelor.app.AppSettings;
+import com.axelor.event.Observes;
+import com.axelor.events.ShutdownEvent;
+import com.google.inject.Singleton;
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool running the backups and restores of {@link DataBackupServiceImpl}, so that they are queued
+ * once {@link #JOB_COUNT_SETTING} of them are running. It is shut down with the application.
+ */
+@Singleton
+public class DataBackupExecutor {
+
+  /** Application setting giving the number of backups and restores run at the same time. */
+  public static final String JOB_COUNT_SETTING = "data.backup.jobs";
+
+  protected static final int DEFAULT_JOB_COUNT = 1;
+
+  private final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  protected final ExecutorService executor;
+
+  public DataBackupExecutor() {
+    int jobCount = Math.max(1, AppSettings.get().getInt(JOB_COUNT_SETTING, DEFAULT_JOB_COUNT));
+    executor =
+        Executors.newFixedThreadPool(
+            jobCount,
+            runnable -> {
+              Thread thread = new Thread(runnable, "data-backup");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  public <T> Future<T> submit(Callable<T> job) {
+    return executor.submit(job);
+  }
+
+  public void onShutdown(@Observes ShutdownEvent event) {
+    List<Runnable> pendingJobList = executor.shutdownNow();
+    if (!pendingJobList.isEmpty()) {
+      log.warn("{} data backup jobs were not started before shutdown", pendingJobList.size());
+    }
+  }
+}
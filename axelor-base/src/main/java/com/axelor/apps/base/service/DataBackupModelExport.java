@@ -0,0 +1,117 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service;
+
+import com.axelor.data.csv.CSVInput;
+import com.axelor.meta.db.MetaModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Result of the export of a model by {@link DataBackupCreateService}. */
+public class DataBackupModelExport {
+
+  private MetaModel metaModel;
+  private CSVInput csvInput;
+  private boolean reference;
+  private boolean notNullReference;
+  private List<String> fileNameList = new ArrayList<>();
+  private String log = "";
+  private String error;
+  private long recordCount;
+  private long duration;
+
+  public MetaModel getMetaModel() {
+    return metaModel;
+  }
+
+  public void setMetaModel(MetaModel metaModel) {
+    this.metaModel = metaModel;
+  }
+
+  /** The CSV input of the exported file, null if the model was skipped. */
+  public CSVInput getCsvInput() {
+    return csvInput;
+  }
+
+  public void setCsvInput(CSVInput csvInput) {
+    this.csvInput = csvInput;
+  }
+
+  /** Whether the model references other records. */
+  public boolean isReference() {
+    return reference;
+  }
+
+  public void setReference(boolean reference) {
+    this.reference = reference;
+  }
+
+  /** Whether the model has a required reference to other records. */
+  public boolean isNotNullReference() {
+    return notNullReference;
+  }
+
+  public void setNotNullReference(boolean notNullReference) {
+    this.notNullReference = notNullReference;
+  }
+
+  /** The files written in the backup directory, to be added to the archive. */
+  public List<String> getFileNameList() {
+    return fileNameList;
+  }
+
+  public void setFileNameList(List<String> fileNameList) {
+    this.fileNameList = fileNameList;
+  }
+
+  /** The issues found during the export, to be added to the backup log. */
+  public String getLog() {
+    return log;
+  }
+
+  public void setLog(String log) {
+    this.log = log;
+  }
+
+  /** The error which made the export fail, null if it succeeded. */
+  public String getError() {
+    return error;
+  }
+
+  public void setError(String error) {
+    this.error = error;
+  }
+
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  public void setRecordCount(long recordCount) {
+    this.recordCount = recordCount;
+  }
+
+  /** The duration of the export, in milliseconds. */
+  public long getDuration() {
+    return duration;
+  }
+
+  public void setDuration(long duration) {
+    this.duration = duration;
+  }
+}
@@ -18,39 +18,81 @@
  */
 package com.axelor.apps.base.service;
 
+import com.axelor.app.AppSettings;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.common.StringUtils;
 import com.axelor.data.Listener;
+import com.axelor.data.XStreamUtils;
+import com.axelor.data.csv.CSVBind;
+import com.axelor.data.csv.CSVConfig;
 import com.axelor.data.csv.CSVImporter;
+import com.axelor.data.csv.CSVInput;
 import com.axelor.db.JPA;
 import com.axelor.db.Model;
 import com.axelor.db.mapper.Mapper;
+import com.axelor.db.mapper.Property;
+import com.axelor.inject.Beans;
 import com.axelor.meta.MetaFiles;
 import com.axelor.meta.db.MetaFile;
 import com.google.common.base.Strings;
-import com.google.common.io.Files;
+import com.google.inject.persist.UnitOfWork;
+import com.google.inject.servlet.RequestScoper;
+import com.google.inject.servlet.ServletScopes;
+import com.thoughtworks.xstream.XStream;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import org.apache.commons.io.FileUtils;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class DataBackupRestoreService {
 
+  /**
+   * Application setting giving the number of models restored at the same time. When it is set, the
+   * models are restored in dependency order with a checkpoint for each model, so that a failed
+   * restore can be resumed. Otherwise, the backup is restored in a single import.
+   */
+  public static final String WORKER_COUNT_SETTING = "data.backup.restore.workers";
+
+  /** Application setting giving the JDBC batch size of the inserts of a staged restore. */
+  public static final String BATCH_SIZE_SETTING = "data.backup.restore.batch-size";
+
+  /** Application setting giving the directory of the checkpoints, the temp directory by default. */
+  public static final String CHECKPOINT_DIR_SETTING = "data.backup.restore.checkpoint-dir";
+
+  protected static final int DEFAULT_BATCH_SIZE = 50;
+  protected static final String CHECKPOINT_EXTENSION = ".done";
+
   /* Restore the Data using provided zip File and prepare Log File and Return it*/
   public File restore(MetaFile zipedBackupFile) {
     Logger LOG = LoggerFactory.getLogger(getClass());
-    File tempDir = Files.createTempDir();
+    File tempDir = com.google.common.io.Files.createTempDir();
     String dirPath = tempDir.getAbsolutePath();
     StringBuilder sb = new StringBuilder();
     try {
@@ -58,41 +100,14 @@ public class DataBackupRestoreService {
       String configFName =
           tempDir.getAbsolutePath() + File.separator + DataBackupServiceImpl.CONFIG_FILE_NAME;
 
-      CSVImporter csvImporter = new CSVImporter(configFName, tempDir.getAbsolutePath());
-      csvImporter.addListener(
-          new Listener() {
-            String modelName;
-            StringBuilder sb1 = new StringBuilder();
-
-            @Override
-            public void handle(Model bean, Exception e) {
-              if (e.getMessage() != null && !e.getMessage().equals("null")) {
-                if (bean != null) {
-                  sb1.append(bean.getClass().getSimpleName() + " : \n" + e.getMessage() + "\n\n");
-                } else {
-                  sb1.append(e.getMessage() + "\n\n");
-                }
-              }
-            }
-
-            @Override
-            public void imported(Model model) {
-              modelName = model.getClass().getSimpleName();
-            }
-
-            @Override
-            public void imported(Integer total, Integer count) {
-              String str = "", strError = "";
-              if (!StringUtils.isBlank(sb1)) {
-                strError = "Errors : \n" + sb1.toString();
-              }
-              str = "Total Records :  {" + total + "} - Success Records :  {" + count + "}  \n";
-              sb.append(modelName + " : \n");
-              sb.append(strError).append(str + "-----------------------------------------\n");
-              sb1.setLength(0);
-            }
-          });
-      csvImporter.run();
+      int workerCount = AppSettings.get().getInt(WORKER_COUNT_SETTING, 0);
+      if (workerCount > 0) {
+        restoreByStages(zipedBackupFile, configFName, dirPath, workerCount, sb);
+      } else {
+        CSVImporter csvImporter = new CSVImporter(configFName, tempDir.getAbsolutePath());
+        csvImporter.addListener(new RestoreListener(sb));
+        csvImporter.run();
+      }
       LOG.info("Data Restore Completed");
       FileUtils.cleanDirectory(new File(tempDir.getAbsolutePath()));
       DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmSS");
@@ -109,6 +124,223 @@ public class DataBackupRestoreService {
     }
   }
 
+  /**
+   * Restores the inputs of the configuration stage by stage, the inputs of a stage being imported
+   * at the same time by {@code workerCount} threads. Each input imported without error leaves a
+   * checkpoint, and the inputs having a checkpoint are skipped, so that a failed restore resumes
+   * where it stopped. The checkpoints are removed once the whole backup is restored.
+   *
+   * @throws IOException if an input could not be imported, the following stages are not imported
+   */
+  protected void restoreByStages(
+      MetaFile zipedBackupFile,
+      String configFName,
+      String dirPath,
+      int workerCount,
+      StringBuilder sb)
+      throws IOException {
+    Logger LOG = LoggerFactory.getLogger(getClass());
+    CSVConfig csvConfig = parseConfig(new File(configFName));
+    List<CSVInput> inputList = csvConfig.getInputs();
+    Path checkpointDir = getCheckpointDirectory(zipedBackupFile);
+    Files.createDirectories(checkpointDir);
+
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            workerCount,
+            runnable -> {
+              Thread thread = new Thread(runnable, "data-backup-restore");
+              thread.setDaemon(true);
+              return thread;
+            });
+
+    try {
+      List<List<Integer>> stageList = getRestoreStages(inputList);
+      for (int stageIndex = 0; stageIndex < stageList.size(); stageIndex++) {
+        Map<Integer, Future<String>> futureMap = new LinkedHashMap<>();
+        for (Integer index : stageList.get(stageIndex)) {
+          CSVInput input = inputList.get(index);
+          Path checkpoint =
+              checkpointDir.resolve(index + "_" + input.getFileName() + CHECKPOINT_EXTENSION);
+          if (Files.exists(checkpoint)) {
+            LOG.info("Skipping {}, already restored", input.getFileName());
+            byte[] log = Files.readAllBytes(checkpoint);
+            sb.append(new String(log, StandardCharsets.UTF_8));
+            continue;
+          }
+          futureMap.put(
+              index,
+              executor.submit(() -> restoreInputInWorker(csvConfig, input, dirPath, checkpoint)));
+        }
+
+        Throwable failure = null;
+        for (Map.Entry<Integer, Future<String>> entry : futureMap.entrySet()) {
+          try {
+            sb.append(entry.getValue().get());
+          } catch (ExecutionException e) {
+            if (failure == null) {
+              failure = e.getCause();
+            }
+            sb.append(inputList.get(entry.getKey()).getFileName())
+                .append(" : \n")
+                .append(e.getCause().getMessage())
+                .append("\n-----------------------------------------\n");
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+          }
+        }
+        if (failure != null) {
+          throw new IOException(failure);
+        }
+        LOG.info("Restore stage {}/{} completed", stageIndex + 1, stageList.size());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    FileUtils.deleteDirectory(checkpointDir.toFile());
+  }
+
+  protected String restoreInputInWorker(
+      CSVConfig csvConfig, CSVInput input, String dirPath, Path checkpoint) throws IOException {
+    RequestScoper scope = ServletScopes.scopeRequest(Collections.emptyMap());
+    try (RequestScoper.CloseableScope ignored = scope.open()) {
+      JPA.em()
+          .unwrap(Session.class)
+          .setJdbcBatchSize(
+              Math.max(1, AppSettings.get().getInt(BATCH_SIZE_SETTING, DEFAULT_BATCH_SIZE)));
+
+      CSVConfig inputConfig = new CSVConfig();
+      inputConfig.setInputs(new ArrayList<>(Collections.singletonList(input)));
+      if (csvConfig.getAdapters() != null) {
+        inputConfig.getAdapters().addAll(csvConfig.getAdapters());
+      }
+
+      StringBuilder sb = new StringBuilder();
+      RestoreListener restoreListener = new RestoreListener(sb);
+      CSVImporter csvImporter = new CSVImporter(inputConfig, dirPath);
+      csvImporter.addListener(restoreListener);
+      csvImporter.run();
+
+      String log = sb.toString();
+      // an input with rejected records is imported again by the next restore
+      if (!restoreListener.hasError()) {
+        Files.write(checkpoint, log.getBytes(StandardCharsets.UTF_8));
+      }
+      return log;
+    } finally {
+      Beans.get(UnitOfWork.class).end();
+    }
+  }
+
+  protected CSVConfig parseConfig(File configFile) {
+    XStream xStream = XStreamUtils.createXStream();
+    xStream.processAnnotations(CSVConfig.class);
+    return (CSVConfig) xStream.fromXML(configFile);
+  }
+
+  protected Path getCheckpointDirectory(MetaFile zipedBackupFile) {
+    String checkpointDir =
+        AppSettings.get().get(CHECKPOINT_DIR_SETTING, System.getProperty("java.io.tmpdir"));
+    return Paths.get(checkpointDir, "DataBackupRestore_" + zipedBackupFile.getId());
+  }
+
+  /**
+   * Splits the inputs of the configuration in stages imported one after the other, the inputs of a
+   * stage being independent from each other.
+   *
+   * <p>The configuration is cut in segments before each model imported for the second time (e.g.
+   * a model created without its references then updated with them). In a segment, a model is
+   * imported in a later stage than the models it searches references in. Models referencing each
+   * other are imported one by one, in the order of the configuration.
+   *
+   * @return the indexes of the inputs of each stage
+   */
+  protected List<List<Integer>> getRestoreStages(List<CSVInput> inputList) {
+    List<List<Integer>> stageList = new ArrayList<>();
+    List<Integer> segment = new ArrayList<>();
+    Set<String> segmentFileNameSet = new HashSet<>();
+
+    for (int index = 0; index < inputList.size(); index++) {
+      String fileName = inputList.get(index).getFileName();
+      if (!segmentFileNameSet.add(fileName)) {
+        stageList.addAll(getSegmentStages(inputList, segment));
+        segment = new ArrayList<>();
+        segmentFileNameSet.clear();
+        segmentFileNameSet.add(fileName);
+      }
+      segment.add(index);
+    }
+    stageList.addAll(getSegmentStages(inputList, segment));
+
+    return stageList;
+  }
+
+  protected List<List<Integer>> getSegmentStages(List<CSVInput> inputList, List<Integer> segment) {
+    Map<Integer, Set<Integer>> dependencyMap = new HashMap<>();
+    for (Integer index : segment) {
+      Set<Class<?>> referencedClassSet = getReferencedClasses(inputList.get(index));
+      Set<Integer> dependencySet = new HashSet<>();
+      for (Integer otherIndex : segment) {
+        Class<?> otherClass = getInputClass(inputList.get(otherIndex));
+        if (!otherIndex.equals(index)
+            && otherClass != null
+            && referencedClassSet.stream().anyMatch(klass -> klass.isAssignableFrom(otherClass))) {
+          dependencySet.add(otherIndex);
+        }
+      }
+      dependencyMap.put(index, dependencySet);
+    }
+
+    List<List<Integer>> stageList = new ArrayList<>();
+    Set<Integer> importedSet = new HashSet<>();
+    List<Integer> remainingList = new ArrayList<>(segment);
+    while (!remainingList.isEmpty()) {
+      List<Integer> stage =
+          remainingList.stream()
+              .filter(index -> importedSet.containsAll(dependencyMap.get(index)))
+              .collect(Collectors.toList());
+      if (stage.isEmpty()) {
+        remainingList.forEach(index -> stageList.add(Collections.singletonList(index)));
+        break;
+      }
+      stageList.add(stage);
+      importedSet.addAll(stage);
+      remainingList.removeAll(stage);
+    }
+    return stageList;
+  }
+
+  /* Classes of the references searched by the bindings of the input */
+  protected Set<Class<?>> getReferencedClasses(CSVInput input) {
+    Set<Class<?>> referencedClassSet = new HashSet<>();
+    Class<?> inputClass = getInputClass(input);
+    if (inputClass == null || input.getBindings() == null) {
+      return referencedClassSet;
+    }
+
+    Mapper mapper = Mapper.of(inputClass);
+    for (CSVBind csvBind : input.getBindings()) {
+      if (StringUtils.isBlank(csvBind.getSearch()) || StringUtils.isBlank(csvBind.getField())) {
+        continue;
+      }
+      Property property = mapper.getProperty(csvBind.getField());
+      if (property != null && property.getTarget() != null) {
+        referencedClassSet.add(property.getTarget());
+      }
+    }
+    return referencedClassSet;
+  }
+
+  protected Class<?> getInputClass(CSVInput input) {
+    try {
+      return Class.forName(input.getTypeName());
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+  }
+
   protected boolean unZip(MetaFile zipMetaFile, String destinationDirectoryPath)
       throws IOException {
     File zipFile = MetaFiles.getPath(zipMetaFile).toFile();
@@ -151,7 +383,7 @@ public class DataBackupRestoreService {
         try {
           final File image = path.resolve(fileName).toFile();
           byte[] bytes = new byte[(int) image.length()];
-          bytes = java.nio.file.Files.readAllBytes(image.toPath());
+          bytes = Files.readAllBytes(image.toPath());
           mapper.set(bean, fieldName.substring(5), bytes);
         } catch (Exception e) {
           e.printStackTrace();
@@ -160,4 +392,51 @@ public class DataBackupRestoreService {
     }
     return bean;
   }
+
+  /* Writes the errors and the number of imported records of each model in the log */
+  protected static class RestoreListener implements Listener {
+
+    protected final StringBuilder sb;
+    protected String modelName;
+    protected StringBuilder sb1 = new StringBuilder();
+    protected boolean error;
+
+    public RestoreListener(StringBuilder sb) {
+      this.sb = sb;
+    }
+
+    /** Returns whether a record failed to be imported. */
+    public boolean hasError() {
+      return error;
+    }
+
+    @Override
+    public void handle(Model bean, Exception e) {
+      error = true;
+      if (e.getMessage() != null && !e.getMessage().equals("null")) {
+        if (bean != null) {
+          sb1.append(bean.getClass().getSimpleName() + " : \n" + e.getMessage() + "\n\n");
+        } else {
+          sb1.append(e.getMessage() + "\n\n");
+        }
+      }
+    }
+
+    @Override
+    public void imported(Model model) {
+      modelName = model.getClass().getSimpleName();
+    }
+
+    @Override
+    public void imported(Integer total, Integer count) {
+      String str = "", strError = "";
+      if (!StringUtils.isBlank(sb1)) {
+        strError = "Errors : \n" + sb1.toString();
+      }
+      str = "Total Records :  {" + total + "} - Success Records :  {" + count + "}  \n";
+      sb.append(modelName + " : \n");
+      sb.append(strError).append(str + "-----------------------------------------\n");
+      sb1.setLength(0);
+    }
+  }
 }
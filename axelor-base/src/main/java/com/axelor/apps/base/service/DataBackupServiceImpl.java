@@ -39,8 +39,6 @@ import java.time.format.DateTimeFormatter;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,7 +56,7 @@ public class DataBackupServiceImpl implements DataBackupService {
 
   @Inject private MetaModelRepository metaModelRepo;
 
-  private ExecutorService executor = Executors.newCachedThreadPool();
+  @Inject private DataBackupExecutor dataBackupExecutor;
 
   @Override
   public void createBackUp(DataBackup dataBackup) {
@@ -67,7 +65,7 @@ public class DataBackupServiceImpl implements DataBackupService {
       updateImportId();
     }
     try {
-      executor.submit(
+      dataBackupExecutor.submit(
           new Callable<Boolean>() {
             @Override
             public Boolean call() throws Exception {
@@ -118,7 +116,7 @@ public class DataBackupServiceImpl implements DataBackupService {
     setStatus(dataBackup);
 
     try {
-      executor.submit(
+      dataBackupExecutor.submit(
           new Callable<Boolean>() {
             @Override
             public Boolean call() throws Exception {
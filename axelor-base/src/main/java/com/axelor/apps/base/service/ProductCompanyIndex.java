@@ -0,0 +1,186 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service;
+
+import com.axelor.apps.base.db.AppBase;
+import com.axelor.apps.base.db.Product;
+import com.axelor.apps.base.db.ProductCompany;
+import com.axelor.apps.base.db.repo.ProductCompanyRepository;
+import com.axelor.db.mapper.Mapper;
+import com.axelor.meta.db.MetaField;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * In-memory index used to resolve company-specific product fields without loading the company
+ * products of a product nor looking up the fields on each call.
+ *
+ * <p>The company products are indexed by (product, company) pair. The index is built on first use
+ * and invalidated whenever a {@link ProductCompany} is created, updated or removed, see {@link
+ * com.axelor.apps.base.db.repo.ProductCompanyListener}. The names of the company-specific fields
+ * are kept for the current version of the app, and the getters of the product fields are bound
+ * once.
+ */
+@Singleton
+public class ProductCompanyIndex {
+
+  protected ProductCompanyRepository productCompanyRepo;
+
+  private volatile Map<Pair<Long, Long>, Long> index;
+  private long generation;
+
+  private volatile CompanySpecificFields companySpecificFields;
+
+  private final Map<String, Function<Product, Object>> accessorMap = new ConcurrentHashMap<>();
+
+  @Inject
+  public ProductCompanyIndex(ProductCompanyRepository productCompanyRepo) {
+    this.productCompanyRepo = productCompanyRepo;
+  }
+
+  /**
+   * Returns the id of the company product of the given product and company.
+   *
+   * @return the id, or {@code null} if the product has no company product for this company
+   */
+  public Long getProductCompanyId(Long productId, Long companyId) {
+    return getIndex().get(Pair.of(productId, companyId));
+  }
+
+  /** Whether the given field is overwritten by company in the given app. */
+  public boolean isCompanySpecificField(AppBase appBase, String fieldName) {
+    CompanySpecificFields currentFields = companySpecificFields;
+    if (currentFields == null || !currentFields.isFor(appBase)) {
+      currentFields = new CompanySpecificFields(appBase);
+      companySpecificFields = currentFields;
+    }
+    return currentFields.fieldNameSet.contains(fieldName);
+  }
+
+  /** Returns the value of the given field, read with a getter bound on first use. */
+  public Object get(Product product, String fieldName) {
+    return accessorMap.computeIfAbsent(fieldName, this::createAccessor).apply(product);
+  }
+
+  protected Function<Product, Object> createAccessor(String fieldName) {
+    Mapper mapper = Mapper.of(Product.class);
+    Method getter = mapper.getGetter(fieldName);
+    if (getter == null) {
+      return product -> mapper.get(product, fieldName);
+    }
+
+    MethodHandle handle;
+    try {
+      handle = MethodHandles.publicLookup().unreflect(getter);
+    } catch (IllegalAccessException e) {
+      return product -> mapper.get(product, fieldName);
+    }
+    return product -> {
+      try {
+        return handle.invoke(product);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    };
+  }
+
+  public synchronized void invalidate() {
+    generation++;
+    index = null;
+  }
+
+  protected Map<Pair<Long, Long>, Long> getIndex() {
+    Map<Pair<Long, Long>, Long> currentIndex = index;
+    if (currentIndex != null) {
+      return currentIndex;
+    }
+
+    long buildGeneration;
+    synchronized (this) {
+      buildGeneration = generation;
+    }
+
+    currentIndex = buildIndex();
+
+    synchronized (this) {
+      if (buildGeneration == generation) {
+        index = currentIndex;
+      }
+    }
+    return currentIndex;
+  }
+
+  @SuppressWarnings("rawtypes")
+  protected Map<Pair<Long, Long>, Long> buildIndex() {
+    Map<Pair<Long, Long>, Long> newIndex = new HashMap<>();
+
+    List<Map> productCompanyList =
+        productCompanyRepo
+            .all()
+            .filter("self.company IS NOT NULL")
+            .order("id")
+            .select("id", "product.id", "company.id")
+            .fetch(0, 0);
+    for (Map productCompany : productCompanyList) {
+      newIndex.putIfAbsent(
+          Pair.of((Long) productCompany.get("product.id"), (Long) productCompany.get("company.id")),
+          (Long) productCompany.get("id"));
+    }
+
+    return newIndex;
+  }
+
+  /** Names of the company-specific fields of a given version of the app. */
+  protected static class CompanySpecificFields {
+
+    private final Long appBaseId;
+    private final Integer appBaseVersion;
+    private final Set<String> fieldNameSet;
+
+    protected CompanySpecificFields(AppBase appBase) {
+      this.appBaseId = appBase.getId();
+      this.appBaseVersion = appBase.getVersion();
+      Set<MetaField> metaFieldSet = appBase.getCompanySpecificProductFieldsSet();
+      this.fieldNameSet =
+          metaFieldSet != null
+              ? metaFieldSet.stream().map(MetaField::getName).collect(Collectors.toSet())
+              : Set.of();
+    }
+
+    protected boolean isFor(AppBase appBase) {
+      return appBase.getId() != null
+          && appBase.getId().equals(appBaseId)
+          && appBase.getVersion() != null
+          && appBase.getVersion().equals(appBaseVersion);
+    }
+  }
+}
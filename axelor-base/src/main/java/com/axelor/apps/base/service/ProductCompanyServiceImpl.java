@@ -25,25 +25,24 @@ import com.axelor.apps.base.db.ProductCompany;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.app.AppBaseService;
+import com.axelor.db.JPA;
 import com.axelor.db.mapper.Mapper;
 import com.axelor.i18n.I18n;
 import com.axelor.meta.CallMethod;
-import com.axelor.meta.db.MetaField;
 import com.google.inject.Inject;
-import java.util.Set;
 
 public class ProductCompanyServiceImpl implements ProductCompanyService {
 
   @Inject protected AppBaseService appBaseService;
+  @Inject protected ProductCompanyIndex productCompanyIndex;
 
   @Override
   @CallMethod
   public Object get(Product originalProduct, String fieldName, Company company)
       throws AxelorException {
-    Mapper mapper = Mapper.of(Product.class);
     Product product = findAppropriateProductCompany(originalProduct, fieldName, company);
 
-    return mapper.get(product, fieldName);
+    return productCompanyIndex.get(product, fieldName);
   }
 
   @Override
@@ -59,7 +58,6 @@ public class ProductCompanyServiceImpl implements ProductCompanyService {
   @Override
   public Object getWithNoDefault(Product originalProduct, String fieldName, Company company)
       throws AxelorException {
-    Mapper mapper = Mapper.of(Product.class);
     Product product =
         findAppropriateProductCompanyWithNoDefault(originalProduct, fieldName, company);
 
@@ -67,7 +65,7 @@ public class ProductCompanyServiceImpl implements ProductCompanyService {
       return null;
     }
 
-    return mapper.get(product, fieldName);
+    return productCompanyIndex.get(product, fieldName);
   }
 
   /**
@@ -88,18 +86,9 @@ public class ProductCompanyServiceImpl implements ProductCompanyService {
       return originalProduct;
     }
 
-    Product product = originalProduct;
+    ProductCompany productCompany = findProductCompany(originalProduct, company);
 
-    if (company != null && originalProduct.getProductCompanyList() != null) {
-      for (ProductCompany productCompany : originalProduct.getProductCompanyList()) {
-        if (company.equals(productCompany.getCompany())) {
-          product = productCompany;
-          break;
-        }
-      }
-    }
-
-    return product;
+    return productCompany != null ? productCompany : originalProduct;
   }
 
   /**
@@ -120,18 +109,42 @@ public class ProductCompanyServiceImpl implements ProductCompanyService {
       return null;
     }
 
-    Product product = null;
+    return findProductCompany(originalProduct, company);
+  }
 
-    if (company != null && originalProduct.getProductCompanyList() != null) {
+  /**
+   * Finds the company-specific version of a product. The company products of a saved product are
+   * found with {@link ProductCompanyIndex} unless they are already loaded, as they may then contain
+   * unsaved changes.
+   *
+   * @param originalProduct
+   * @param company
+   * @return the company product, or null if there is none for this company
+   */
+  protected ProductCompany findProductCompany(Product originalProduct, Company company) {
+    if (company == null) {
+      return null;
+    }
+
+    if (originalProduct.getId() != null
+        && company.getId() != null
+        && !JPA.em()
+            .getEntityManagerFactory()
+            .getPersistenceUnitUtil()
+            .isLoaded(originalProduct, "productCompanyList")) {
+      Long productCompanyId =
+          productCompanyIndex.getProductCompanyId(originalProduct.getId(), company.getId());
+      return productCompanyId != null ? JPA.find(ProductCompany.class, productCompanyId) : null;
+    }
+
+    if (originalProduct.getProductCompanyList() != null) {
       for (ProductCompany productCompany : originalProduct.getProductCompanyList()) {
         if (company.equals(productCompany.getCompany())) {
-          product = productCompany;
-          break;
+          return productCompany;
         }
       }
     }
-
-    return product;
+    return null;
   }
 
   protected void checkProductAndFieldName(Product originalProduct, String fieldName)
@@ -151,10 +164,6 @@ public class ProductCompanyServiceImpl implements ProductCompanyService {
 
   @Override
   public boolean isCompanySpecificProductFields(String fieldName) {
-    Set<MetaField> companySpecificFields =
-        appBaseService.getAppBase().getCompanySpecificProductFieldsSet();
-
-    return companySpecificFields.stream()
-        .anyMatch(metaField -> metaField.getName().equals(fieldName));
+    return productCompanyIndex.isCompanySpecificField(appBaseService.getAppBase(), fieldName);
   }
 }
@@ -0,0 +1,130 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service;
+
+import com.axelor.apps.base.db.Unit;
+import com.axelor.apps.base.db.UnitConversion;
+import com.axelor.apps.base.db.repo.UnitConversionRepository;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * In-memory index of the unit conversions by entity and by (start unit, end unit) pair, so that
+ * conversions do not query every unit conversion on each call.
+ *
+ * <p>The index is built on first use and invalidated whenever a {@link UnitConversion} is created,
+ * updated or removed, see {@link com.axelor.apps.base.db.repo.UnitConversionListener}.
+ */
+@Singleton
+public class UnitConversionIndex {
+
+  protected UnitConversionRepository unitConversionRepo;
+
+  private volatile Map<Integer, Map<Pair<Long, Long>, Conversion>> index;
+  private long generation;
+
+  @Inject
+  public UnitConversionIndex(UnitConversionRepository unitConversionRepo) {
+    this.unitConversionRepo = unitConversionRepo;
+  }
+
+  /**
+   * Returns the conversion from the start unit to the end unit defined for the given entity.
+   *
+   * @param entitySelect the entity of the conversion, see {@link
+   *     UnitConversionRepository#ENTITY_ALL}
+   * @return the conversion, or {@code null} if there is none in this direction
+   */
+  public Conversion getConversion(int entitySelect, Unit startUnit, Unit endUnit) {
+    Map<Pair<Long, Long>, Conversion> conversionMap = getIndex().get(entitySelect);
+    return conversionMap != null
+        ? conversionMap.get(Pair.of(startUnit.getId(), endUnit.getId()))
+        : null;
+  }
+
+  public synchronized void invalidate() {
+    generation++;
+    index = null;
+  }
+
+  protected Map<Integer, Map<Pair<Long, Long>, Conversion>> getIndex() {
+    Map<Integer, Map<Pair<Long, Long>, Conversion>> currentIndex = index;
+    if (currentIndex != null) {
+      return currentIndex;
+    }
+
+    long buildGeneration;
+    synchronized (this) {
+      buildGeneration = generation;
+    }
+
+    currentIndex = buildIndex();
+
+    synchronized (this) {
+      if (buildGeneration == generation) {
+        index = currentIndex;
+      }
+    }
+    return currentIndex;
+  }
+
+  protected Map<Integer, Map<Pair<Long, Long>, Conversion>> buildIndex() {
+    Map<Integer, Map<Pair<Long, Long>, Conversion>> newIndex = new HashMap<>();
+
+    for (UnitConversion unitConversion : unitConversionRepo.all().order("id").fetch()) {
+      newIndex
+          .computeIfAbsent(unitConversion.getEntitySelect(), key -> new HashMap<>())
+          .putIfAbsent(
+              Pair.of(unitConversion.getStartUnit().getId(), unitConversion.getEndUnit().getId()),
+              new Conversion(unitConversion));
+    }
+
+    return newIndex;
+  }
+
+  /** Immutable copy of the values of a unit conversion, safe to share between sessions. */
+  public static class Conversion {
+
+    private final int typeSelect;
+    private final BigDecimal coef;
+    private final String formula;
+
+    protected Conversion(UnitConversion unitConversion) {
+      this.typeSelect = unitConversion.getTypeSelect();
+      this.coef = unitConversion.getCoef();
+      this.formula = unitConversion.getFormula();
+    }
+
+    public int getTypeSelect() {
+      return typeSelect;
+    }
+
+    public BigDecimal getCoef() {
+      return coef;
+    }
+
+    public String getFormula() {
+      return formula;
+    }
+  }
+}
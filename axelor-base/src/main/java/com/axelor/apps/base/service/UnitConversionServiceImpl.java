@@ -23,28 +23,24 @@ import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Company;
 import com.axelor.apps.base.db.Product;
 import com.axelor.apps.base.db.Unit;
-import com.axelor.apps.base.db.UnitConversion;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.db.repo.UnitConversionRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.app.AppBaseService;
 import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.apps.base.service.formula.FormulaEngineService;
 import com.axelor.auth.AuthUtils;
 import com.axelor.auth.db.User;
 import com.axelor.db.Model;
 import com.axelor.i18n.I18n;
 import com.axelor.utils.template.TemplateMaker;
 import com.google.inject.Inject;
-import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.codehaus.groovy.control.CompilationFailedException;
-import org.codehaus.groovy.control.CompilerConfiguration;
-import org.codehaus.groovy.control.customizers.ImportCustomizer;
 
 public class UnitConversionServiceImpl implements UnitConversionService {
 
@@ -55,11 +51,20 @@ public class UnitConversionServiceImpl implements UnitConversionService {
 
   protected UnitConversionRepository unitConversionRepo;
 
+  protected UnitConversionIndex unitConversionIndex;
+
+  protected FormulaEngineService formulaEngineService;
+
   @Inject
   public UnitConversionServiceImpl(
-      AppBaseService appBaseService, UnitConversionRepository unitConversionRepo) {
+      AppBaseService appBaseService,
+      UnitConversionRepository unitConversionRepo,
+      UnitConversionIndex unitConversionIndex,
+      FormulaEngineService formulaEngineService) {
     this.appBaseService = appBaseService;
     this.unitConversionRepo = unitConversionRepo;
+    this.unitConversionIndex = unitConversionIndex;
+    this.formulaEngineService = formulaEngineService;
   }
 
   /**
@@ -77,12 +82,12 @@ public class UnitConversionServiceImpl implements UnitConversionService {
   public BigDecimal convert(
       Unit startUnit, Unit endUnit, BigDecimal value, int scale, Product product)
       throws AxelorException {
-    List<UnitConversion> unitConversionList = fetchUnitConversionList();
-    return convert(unitConversionList, startUnit, endUnit, value, scale, product, "Product");
+    return convert(
+        UnitConversionRepository.ENTITY_ALL, startUnit, endUnit, value, scale, product, "Product");
   }
 
   protected BigDecimal convert(
-      List<UnitConversion> unitConversionList,
+      int entitySelect,
       Unit startUnit,
       Unit endUnit,
       BigDecimal value,
@@ -112,7 +117,7 @@ public class UnitConversionServiceImpl implements UnitConversionService {
     else {
       try {
         BigDecimal coefficient =
-            this.getCoefficient(unitConversionList, startUnit, endUnit, model, nameInContext);
+            this.getCoefficient(entitySelect, startUnit, endUnit, model, nameInContext);
 
         return value.multiply(coefficient).setScale(scale, RoundingMode.HALF_UP);
       } catch (IOException | ClassNotFoundException e) {
@@ -139,78 +144,41 @@ public class UnitConversionServiceImpl implements UnitConversionService {
   @Override
   public BigDecimal getCoefficient(Unit startUnit, Unit endUnit, Product product)
       throws AxelorException, CompilationFailedException, ClassNotFoundException, IOException {
-    List<UnitConversion> unitConversionList = fetchUnitConversionList();
-    return getCoefficient(unitConversionList, startUnit, endUnit, product, "Product");
+    return getCoefficient(
+        UnitConversionRepository.ENTITY_ALL, startUnit, endUnit, product, "Product");
   }
 
   protected BigDecimal getCoefficient(
-      List<UnitConversion> unitConversionList,
-      Unit startUnit,
-      Unit endUnit,
-      Model model,
-      String nameInContext)
+      int entitySelect, Unit startUnit, Unit endUnit, Model model, String nameInContext)
       throws AxelorException, CompilationFailedException, ClassNotFoundException, IOException {
-    /* Looking for the start unit and the end unit in the unitConversionList to get the coefficient */
-    TemplateMaker maker = null;
-    if (model != null) {
-      maker =
-          new TemplateMaker(
-              Optional.ofNullable(AuthUtils.getUser()).map(User::getActiveCompany).orElse(null)
-                      != null
-                  ? Optional.ofNullable(AuthUtils.getUser())
-                      .map(User::getActiveCompany)
-                      .map(Company::getTimezone)
-                      .orElse(null)
-                  : "",
-              AppFilter.getLocale(),
-              TEMPLATE_DELIMITER,
-              TEMPLATE_DELIMITER);
-      maker.setContext(model, nameInContext);
-    }
-    String eval = null;
-    for (UnitConversion unitConversion : unitConversionList) {
-
-      if (unitConversion.getStartUnit().equals(startUnit)
-          && unitConversion.getEndUnit().equals(endUnit)) {
-        if (unitConversion.getTypeSelect() == UnitConversionRepository.TYPE_COEFF) {
-          return unitConversion.getCoef();
-        } else if (model != null) {
-          maker.setTemplate(unitConversion.getFormula());
-          eval = maker.make();
-          CompilerConfiguration conf = new CompilerConfiguration();
-          ImportCustomizer customizer = new ImportCustomizer();
-          customizer.addStaticStars("java.lang.Math");
-          conf.addCompilationCustomizers(customizer);
-          Binding binding = new Binding();
-          GroovyShell shell = new GroovyShell(binding, conf);
-          return new BigDecimal(shell.evaluate(eval).toString());
-        }
+    /* Looking for the start unit and the end unit in the unit conversions to get the coefficient */
+    UnitConversionIndex.Conversion conversion =
+        unitConversionIndex.getConversion(entitySelect, startUnit, endUnit);
+
+    if (conversion != null) {
+      if (conversion.getTypeSelect() == UnitConversionRepository.TYPE_COEFF) {
+        return conversion.getCoef();
+      } else if (model != null) {
+        return evaluateFormula(conversion.getFormula(), model, nameInContext);
       }
+    }
 
-      /* The endUnit become the start unit and the startUnit become the end unit */
-
-      if (unitConversion.getStartUnit().equals(endUnit)
-          && unitConversion.getEndUnit().equals(startUnit)) {
-        if (unitConversion.getTypeSelect() == UnitConversionRepository.TYPE_COEFF
-            && unitConversion.getCoef().compareTo(BigDecimal.ZERO) != 0) {
-          return BigDecimal.ONE.divide(
-              unitConversion.getCoef(), DEFAULT_COEFFICIENT_SCALE, RoundingMode.HALF_UP);
-        } else if (model != null) {
-          maker.setTemplate(unitConversion.getFormula());
-          eval = maker.make();
-          CompilerConfiguration conf = new CompilerConfiguration();
-          ImportCustomizer customizer = new ImportCustomizer();
-          customizer.addStaticStars("java.lang.Math");
-          conf.addCompilationCustomizers(customizer);
-          Binding binding = new Binding();
-          GroovyShell shell = new GroovyShell(binding, conf);
-          BigDecimal result = new BigDecimal(shell.evaluate(eval).toString());
-          if (result.compareTo(BigDecimal.ZERO) != 0) {
-            return BigDecimal.ONE.divide(result, DEFAULT_COEFFICIENT_SCALE, RoundingMode.HALF_UP);
-          }
+    /* The endUnit become the start unit and the startUnit become the end unit */
+    conversion = unitConversionIndex.getConversion(entitySelect, endUnit, startUnit);
+
+    if (conversion != null) {
+      if (conversion.getTypeSelect() == UnitConversionRepository.TYPE_COEFF
+          && conversion.getCoef().compareTo(BigDecimal.ZERO) != 0) {
+        return BigDecimal.ONE.divide(
+            conversion.getCoef(), DEFAULT_COEFFICIENT_SCALE, RoundingMode.HALF_UP);
+      } else if (model != null) {
+        BigDecimal result = evaluateFormula(conversion.getFormula(), model, nameInContext);
+        if (result.compareTo(BigDecimal.ZERO) != 0) {
+          return BigDecimal.ONE.divide(result, DEFAULT_COEFFICIENT_SCALE, RoundingMode.HALF_UP);
         }
       }
     }
+
     /* If there is no startUnit and endUnit in the UnitConversion list so we throw an exception */
     throw new AxelorException(
         TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
@@ -219,11 +187,37 @@ public class UnitConversionServiceImpl implements UnitConversionService {
         endUnit.getName());
   }
 
-  protected List<UnitConversion> fetchUnitConversionList() {
-    return unitConversionRepo
-        .all()
-        .filter("self.entitySelect = :entitySelect")
-        .bind("entitySelect", UnitConversionRepository.ENTITY_ALL)
-        .fetch();
+  /**
+   * Evaluates a conversion formula on the given record. Formulas only referring to fields of the
+   * record (e.g. {@code $Product.netMass$ / $Product.articleVolume$}) are compiled once and
+   * evaluated with the record bound to the script. Other formulas are rendered as templates first.
+   */
+  protected BigDecimal evaluateFormula(String formula, Model model, String nameInContext)
+      throws ClassNotFoundException, IOException {
+    Object result =
+        formulaEngineService.evaluateTemplate(
+            formula,
+            Map.of(nameInContext, model),
+            Map.of(),
+            template -> renderTemplate(template, model, nameInContext));
+    return new BigDecimal(result.toString());
+  }
+
+  protected String renderTemplate(String formula, Model model, String nameInContext) {
+    TemplateMaker maker =
+        new TemplateMaker(
+            Optional.ofNullable(AuthUtils.getUser()).map(User::getActiveCompany).orElse(null)
+                    != null
+                ? Optional.ofNullable(AuthUtils.getUser())
+                    .map(User::getActiveCompany)
+                    .map(Company::getTimezone)
+                    .orElse(null)
+                : "",
+            AppFilter.getLocale(),
+            TEMPLATE_DELIMITER,
+            TEMPLATE_DELIMITER);
+    maker.setContext(model, nameInContext);
+    maker.setTemplate(formula);
+    return maker.make();
   }
 }
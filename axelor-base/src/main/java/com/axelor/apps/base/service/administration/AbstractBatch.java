@@ -18,6 +18,7 @@
  */
 package com.axelor.apps.base.service.administration;
 
+import com.axelor.app.AppSettings;
 import com.axelor.apps.base.db.Batch;
 import com.axelor.apps.base.db.Company;
 import com.axelor.apps.base.db.repo.BatchRepository;
@@ -31,10 +32,15 @@ import com.axelor.db.JPA;
 import com.axelor.db.Model;
 import com.axelor.db.mapper.Mapper;
 import com.axelor.i18n.I18n;
+import com.axelor.inject.Beans;
 import com.axelor.utils.helpers.MetaSelectHelper;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.inject.persist.Transactional;
+import com.google.inject.persist.UnitOfWork;
+import com.google.inject.servlet.RequestScoper;
+import com.google.inject.servlet.ServletScopes;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -43,7 +49,14 @@ import java.sql.SQLException;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
@@ -51,7 +64,12 @@ import org.slf4j.LoggerFactory;
 
 public abstract class AbstractBatch {
   private static final ThreadLocal<Long> threadBatchId = new ThreadLocal<>();
+  private static final ThreadLocal<Boolean> partitionWorker = new ThreadLocal<>();
 
+  /**
+   * Page size used by offset paginated queries. Batches should rather use {@link
+   * #chunkedQuery(Class)}, whose chunk size can be configured.
+   */
   public static final int FETCH_LIMIT = 10;
 
   @Inject protected AppBaseService appBaseService;
@@ -64,19 +82,43 @@ public abstract class AbstractBatch {
 
   @Inject protected BatchRepository batchRepo;
 
-  private int done;
-  private int anomaly;
+  /**
+   * Application settings giving, for batches with buffered progress, the number of processed
+   * records and the delay in seconds after which the counters are written to the batch.
+   */
+  public static final String PROGRESS_FLUSH_COUNT_SETTING = "batch.progress.flush-count";
+
+  public static final String PROGRESS_FLUSH_DELAY_SETTING = "batch.progress.flush-delay";
+
+  protected static final int DEFAULT_PROGRESS_FLUSH_COUNT = 100;
+  protected static final int DEFAULT_PROGRESS_FLUSH_DELAY = 5;
+
+  /**
+   * Application setting giving the number of worker threads used by batches supporting the
+   * partitioned mode. It can be overridden for a given batch type with {@code
+   * batch.workers.<BatchClassSimpleName>}. Defaults to 1, which processes every partition on the
+   * calling thread.
+   */
+  public static final String WORKER_COUNT_SETTING = "batch.workers";
+
+  /** Number of partitions created per worker, so that faster workers take over remaining work. */
+  protected static final int PARTITIONS_PER_WORKER = 4;
+
+  private final AtomicInteger done = new AtomicInteger();
+  private final AtomicInteger anomaly = new AtomicInteger();
+
+  private final AtomicInteger unflushedProgress = new AtomicInteger();
+  private long lastProgressFlush = System.currentTimeMillis();
+  private int progressFlushCount = -1;
+  private long progressFlushDelayMillis;
 
   protected AbstractBatch() {
     this.batch = new Batch();
 
     this.batch.setStartDate(ZonedDateTime.now());
 
-    this.done = 0;
-    this.anomaly = 0;
-
-    this.batch.setDone(this.done);
-    this.batch.setAnomaly(this.anomaly);
+    this.batch.setDone(0);
+    this.batch.setAnomaly(0);
 
     JPA.runInTransaction(() -> batch = JPA.persist(batch));
   }
@@ -117,9 +159,11 @@ public abstract class AbstractBatch {
         setHistoryInformation(model);
         start();
         process();
+        flushProgress();
         stop();
         return batch;
       } catch (Exception e) {
+        saveProgressOnFailure();
         throw new RuntimeException(e);
       } finally {
         threadBatchId.remove();
@@ -203,6 +247,7 @@ public abstract class AbstractBatch {
    * entity in the persistant context. Warning : {@code batch} entity have to be saved before.
    */
   protected void stop() {
+    flushProgress();
     findBatch();
 
     batch.setEndDate(ZonedDateTime.now());
@@ -219,11 +264,16 @@ public abstract class AbstractBatch {
   }
 
   protected void _incrementDone() {
-    done += 1;
-    batch.setDone(done);
-    checkPoint();
+    int count = done.incrementAndGet();
+
+    if (isPartitionWorker() || isProgressBuffered()) {
+      bufferProgress(1);
+    } else {
+      batch.setDone(count);
+      checkPoint();
+    }
 
-    LOG.debug("Done ::: {}", done);
+    LOG.debug("Done ::: {}", count);
   }
 
   protected void incrementAnomaly() {
@@ -232,11 +282,130 @@ public abstract class AbstractBatch {
   }
 
   protected void _incrementAnomaly() {
-    anomaly += 1;
-    batch.setAnomaly(anomaly);
+    int count = anomaly.incrementAndGet();
+
+    if (isPartitionWorker() || isProgressBuffered()) {
+      bufferProgress(1);
+    } else {
+      batch.setAnomaly(count);
+      checkPoint();
+    }
+
+    LOG.debug("Anomaly ::: {}", count);
+  }
+
+  /**
+   * Reports several processed records at once.
+   *
+   * @param count the number of records processed without anomaly
+   */
+  protected void addDone(int count) {
+    if (count <= 0) {
+      return;
+    }
+    int total = done.addAndGet(count);
+
+    if (isPartitionWorker() || isProgressBuffered()) {
+      bufferProgress(count);
+    } else {
+      findBatch().setDone(total);
+      checkPoint();
+    }
+
+    LOG.debug("Done ::: {}", total);
+  }
+
+  /**
+   * Reports several records in anomaly at once.
+   *
+   * @param count the number of records in anomaly
+   */
+  protected void addAnomaly(int count) {
+    if (count <= 0) {
+      return;
+    }
+    int total = anomaly.addAndGet(count);
+
+    if (isPartitionWorker() || isProgressBuffered()) {
+      bufferProgress(count);
+    } else {
+      findBatch().setAnomaly(total);
+      checkPoint();
+    }
+
+    LOG.debug("Anomaly ::: {}", total);
+  }
+
+  /**
+   * Whether the done and anomaly counters are accumulated in memory and written to the batch only
+   * every {@value #PROGRESS_FLUSH_COUNT_SETTING} records or {@value #PROGRESS_FLUSH_DELAY_SETTING}
+   * seconds, and at the end of the batch.
+   *
+   * <p>Batches relying on {@link #incrementDone()} or {@link #incrementAnomaly()} to commit the
+   * changes made on the processed record must keep the default unbuffered mode. Batches saving each
+   * record in its own transaction, through a transactional service method, can enable it.
+   *
+   * <p>Progress is always buffered in partition workers, where it is written by the calling thread.
+   */
+  protected boolean isProgressBuffered() {
+    return false;
+  }
+
+  protected void bufferProgress(int count) {
+    if (progressFlushCount < 0) {
+      AppSettings appSettings = AppSettings.get();
+      progressFlushCount =
+          Math.max(
+              1, appSettings.getInt(PROGRESS_FLUSH_COUNT_SETTING, DEFAULT_PROGRESS_FLUSH_COUNT));
+      progressFlushDelayMillis =
+          1000L * appSettings.getInt(PROGRESS_FLUSH_DELAY_SETTING, DEFAULT_PROGRESS_FLUSH_DELAY);
+    }
+
+    int unflushed = unflushedProgress.addAndGet(count);
+
+    if (isPartitionWorker()) {
+      // keep the commit point of the processed record, the counters are written by the caller
+      checkPoint();
+      return;
+    }
+
+    if (unflushed >= progressFlushCount
+        || System.currentTimeMillis() - lastProgressFlush >= progressFlushDelayMillis) {
+      flushProgress();
+    }
+  }
+
+  /** Writes the buffered done and anomaly counters to the batch. */
+  protected void flushProgress() {
+    if (unflushedProgress.get() == 0 || isPartitionWorker()) {
+      return;
+    }
+
+    unflushedProgress.set(0);
+    findBatch();
+    batch.setDone(done.get());
+    batch.setAnomaly(anomaly.get());
     checkPoint();
 
-    LOG.debug("Anomaly ::: {}", anomaly);
+    lastProgressFlush = System.currentTimeMillis();
+  }
+
+  protected void saveProgressOnFailure() {
+    if (unflushedProgress.get() == 0) {
+      return;
+    }
+
+    try {
+      JPA.runInTransaction(
+          () -> {
+            Batch currentBatch = JPA.find(Batch.class, batch.getId());
+            currentBatch.setDone(done.get());
+            currentBatch.setAnomaly(anomaly.get());
+          });
+      unflushedProgress.set(0);
+    } catch (Exception e) {
+      LOG.error(e.getMessage(), e);
+    }
   }
 
   protected void addComment(String comment) {
@@ -293,11 +462,183 @@ public abstract class AbstractBatch {
     return field.getType().equals(EntityHelper.getEntityClass(model));
   }
 
+  /**
+   * Returns the chunk size configured for this batch type, see {@link
+   * ChunkedQuery#getConfiguredChunkSize(String)}.
+   */
+  protected int getChunkSize() {
+    return ChunkedQuery.getConfiguredChunkSize(getBatchTypeKey());
+  }
+
+  /**
+   * Returns the key identifying this batch type in the application settings: the simple name of
+   * the batch class, ignoring the classes generated by Guice interception.
+   */
+  protected String getBatchTypeKey() {
+    Class<?> batchClass = getClass();
+    while (batchClass.getName().contains("$$") && batchClass.getSuperclass() != null) {
+      batchClass = batchClass.getSuperclass();
+    }
+    return batchClass.getSimpleName();
+  }
+
+  /**
+   * Creates a keyset paginated query over the given model using the chunk size of this batch. The
+   * session is cleared and the batch is reattached after each chunk.
+   */
+  protected <T extends Model> ChunkedQuery<T> chunkedQuery(Class<T> modelClass) {
+    return ChunkedQuery.of(modelClass).chunkSize(getChunkSize()).afterChunk(this::findBatch);
+  }
+
+  /**
+   * Returns the number of worker threads configured for this batch type, see {@link
+   * #WORKER_COUNT_SETTING}.
+   */
+  protected int getWorkerCount() {
+    AppSettings appSettings = AppSettings.get();
+    int defaultWorkerCount = appSettings.getInt(WORKER_COUNT_SETTING, 1);
+    return Math.max(
+        1, appSettings.getInt(WORKER_COUNT_SETTING + "." + getBatchTypeKey(), defaultWorkerCount));
+  }
+
+  /**
+   * Returns whether the current thread is a worker processing a partition of a batch. Workers have
+   * their own session, in which {@link #findBatch()} returns a copy of the batch: the {@code
+   * batch} field must not be reassigned or modified there.
+   */
+  protected static boolean isPartitionWorker() {
+    return Boolean.TRUE.equals(partitionWorker.get());
+  }
+
+  /**
+   * Processes the records of the given query, split into partitions processed in parallel when
+   * several workers are configured for this batch type.
+   *
+   * @param query the records to process
+   * @param partitionKey the path of the key records are partitioned by (e.g. {@code
+   *     self.partner.id}) so that records sharing the same key are processed by the same worker,
+   *     or {@code null} to partition by id ranges
+   * @param processor the processor of a partition, called with the whole query when a single
+   *     worker is configured
+   */
+  protected <T extends Model> void processPartitioned(
+      ChunkedQuery<T> query, String partitionKey, PartitionProcessor<ChunkedQuery<T>> processor) {
+    int workerCount = getWorkerCount();
+
+    if (workerCount <= 1) {
+      processPartitions(List.of(query), processor);
+      return;
+    }
+
+    int partitionCount = workerCount * PARTITIONS_PER_WORKER;
+    processPartitions(
+        partitionKey == null
+            ? query.partitionByIdRange(partitionCount)
+            : query.partitionByKey(partitionKey, partitionCount),
+        processor);
+  }
+
+  /**
+   * Processes the given partitions using the configured number of workers. Each worker runs in its
+   * own thread, with its own session and transactions, and only reports its progress through the
+   * done and anomaly counters, which are written to the batch by the calling thread.
+   *
+   * <p>The partitions are processed sequentially on the calling thread when a single worker is
+   * configured.
+   *
+   * @param partitions the partitions, e.g. lists of ids or {@link ChunkedQuery} partitions
+   * @param processor the processor of a partition, which must handle the anomalies of the records
+   */
+  protected <P> void processPartitions(List<P> partitions, PartitionProcessor<P> processor) {
+    int workerCount = Math.min(getWorkerCount(), partitions.size());
+
+    if (workerCount <= 1) {
+      for (P partition : partitions) {
+        try {
+          processor.process(partition);
+        } catch (Exception e) {
+          Throwables.throwIfUnchecked(e);
+          throw new RuntimeException(e);
+        }
+      }
+      return;
+    }
+
+    LOG.info("Processing {} partitions with {} workers", partitions.size(), workerCount);
+
+    ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+    List<Future<?>> futures = new ArrayList<>();
+    long batchId = batch.getId();
+
+    try {
+      for (P partition : partitions) {
+        futures.add(executor.submit(() -> processPartition(batchId, partition, processor)));
+      }
+      executor.shutdown();
+
+      long flushDelay = Math.max(1, AppSettings.get().getInt(PROGRESS_FLUSH_DELAY_SETTING, 5));
+      while (!executor.awaitTermination(flushDelay, TimeUnit.SECONDS)) {
+        flushProgress();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } finally {
+      flushProgress();
+    }
+
+    Throwable failure = null;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        TraceBackService.trace(e.getCause(), null, batchId);
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+
+    if (failure != null) {
+      Throwables.throwIfUnchecked(failure);
+      throw new RuntimeException(failure);
+    }
+  }
+
+  protected <P> Void processPartition(long batchId, P partition, PartitionProcessor<P> processor)
+      throws Exception {
+    threadBatchId.set(batchId);
+    partitionWorker.set(true);
+
+    RequestScoper scope = ServletScopes.scopeRequest(Collections.emptyMap());
+    try (RequestScoper.CloseableScope ignored = scope.open()) {
+      processor.process(partition);
+      return null;
+    } finally {
+      threadBatchId.remove();
+      partitionWorker.remove();
+      Beans.get(UnitOfWork.class).end();
+    }
+  }
+
   protected Batch findBatch() {
+    if (isPartitionWorker()) {
+      return JPA.find(Batch.class, batch.getId());
+    }
+
     if (!JPA.em().contains(batch)) {
       batch = JPA.find(Batch.class, batch.getId());
     }
 
     return batch;
   }
+
+  @FunctionalInterface
+  public interface PartitionProcessor<P> {
+    void process(P partition) throws Exception;
+  }
 }
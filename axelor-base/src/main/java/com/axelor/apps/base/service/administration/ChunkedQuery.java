@@ -0,0 +1,330 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.administration;
+
+import com.axelor.app.AppSettings;
+import com.axelor.common.StringUtils;
+import com.axelor.db.JPA;
+import com.axelor.db.Model;
+import com.axelor.db.Query;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityTransaction;
+
+/**
+ * Iterates over the records matching a filter in chunks, using keyset pagination on the id
+ * ({@code self.id > :lastId ORDER BY id}) instead of offset pagination.
+ *
+ * <p>Each chunk is fetched with a query whose cost does not depend on how many records were already
+ * read, and records leaving the filter while being processed (e.g. a status changed by the batch)
+ * can not cause the following ones to be skipped.
+ *
+ * <pre>
+ * ChunkedQuery.of(Address.class)
+ *     .filter("self.country.id IN :countryIds")
+ *     .bind("countryIds", countryIdList)
+ *     .chunkSize(getChunkSize())
+ *     .forEachChunk(addressList -&gt; ...);
+ * </pre>
+ *
+ * @param <T> the type of the records
+ */
+public class ChunkedQuery<T extends Model> {
+
+  public static final int DEFAULT_CHUNK_SIZE = 100;
+
+  /**
+   * Application setting giving the default chunk size. It can be overridden for a given batch type
+   * with {@code batch.chunk-size.<BatchClassSimpleName>}.
+   */
+  public static final String CHUNK_SIZE_SETTING = "batch.chunk-size";
+
+  protected static final String LAST_ID_PARAM = "_chunkLastId";
+  protected static final String PARTITION_FROM_PARAM = "_partitionFrom";
+  protected static final String PARTITION_TO_PARAM = "_partitionTo";
+  protected static final String PARTITION_COUNT_PARAM = "_partitionCount";
+  protected static final String PARTITION_INDEX_PARAM = "_partitionIndex";
+
+  protected final Class<T> modelClass;
+  protected String filter;
+  protected final Map<String, Object> params = new HashMap<>();
+  protected int chunkSize = getConfiguredChunkSize(null);
+  protected boolean transactional;
+  protected boolean clearSession = true;
+  protected Runnable afterChunk;
+
+  protected Long lastId = 0L;
+  protected boolean exhausted;
+
+  protected ChunkedQuery(Class<T> modelClass) {
+    this.modelClass = modelClass;
+  }
+
+  public static <T extends Model> ChunkedQuery<T> of(Class<T> modelClass) {
+    return new ChunkedQuery<>(modelClass);
+  }
+
+  /**
+   * Returns the configured chunk size for the given key, falling back on the global setting and
+   * then on {@link #DEFAULT_CHUNK_SIZE}.
+   *
+   * @param key the batch type key, usually the simple name of the batch class
+   * @return the chunk size to use
+   */
+  public static int getConfiguredChunkSize(String key) {
+    AppSettings appSettings = AppSettings.get();
+    int defaultChunkSize = appSettings.getInt(CHUNK_SIZE_SETTING, DEFAULT_CHUNK_SIZE);
+    if (StringUtils.isBlank(key)) {
+      return Math.max(1, defaultChunkSize);
+    }
+    return Math.max(1, appSettings.getInt(CHUNK_SIZE_SETTING + "." + key, defaultChunkSize));
+  }
+
+  public ChunkedQuery<T> filter(String filter) {
+    this.filter = filter;
+    return this;
+  }
+
+  public ChunkedQuery<T> bind(String name, Object value) {
+    params.put(name, value);
+    return this;
+  }
+
+  public ChunkedQuery<T> bind(Map<String, Object> params) {
+    if (params != null) {
+      this.params.putAll(params);
+    }
+    return this;
+  }
+
+  public ChunkedQuery<T> chunkSize(int chunkSize) {
+    this.chunkSize = Math.max(1, chunkSize);
+    return this;
+  }
+
+  /**
+   * Process every chunk in its own transaction, committed once the chunk is processed and rolled
+   * back if the processing fails. When a transaction is already active, the chunk joins it.
+   */
+  public ChunkedQuery<T> transactional(boolean transactional) {
+    this.transactional = transactional;
+    return this;
+  }
+
+  /** Whether the session is cleared after each chunk. Enabled by default. */
+  public ChunkedQuery<T> clearSession(boolean clearSession) {
+    this.clearSession = clearSession;
+    return this;
+  }
+
+  /** Action run after each chunk, once the session is cleared (e.g. reattaching the batch). */
+  public ChunkedQuery<T> afterChunk(Runnable afterChunk) {
+    this.afterChunk = afterChunk;
+    return this;
+  }
+
+  /** Restart the iteration after the given id. */
+  public ChunkedQuery<T> startAfter(Long id) {
+    this.lastId = id != null ? id : 0L;
+    this.exhausted = false;
+    return this;
+  }
+
+  public Long getLastId() {
+    return lastId;
+  }
+
+  /**
+   * Fetches the next chunk. The caller is responsible for the session and transaction handling
+   * when using this method directly.
+   *
+   * @return the next chunk, empty when every record was read
+   */
+  public List<T> fetchNext() {
+    if (exhausted) {
+      return List.of();
+    }
+
+    List<T> chunk = buildQuery().fetch(chunkSize);
+
+    if (chunk.size() < chunkSize) {
+      exhausted = true;
+    }
+    if (!chunk.isEmpty()) {
+      lastId = chunk.get(chunk.size() - 1).getId();
+    }
+
+    return chunk;
+  }
+
+  /**
+   * Fetches and processes every chunk. After each chunk, the session is cleared and the {@link
+   * #afterChunk(Runnable)} action is run.
+   *
+   * @param processor the chunk processor
+   * @throws E if the processor fails, the remaining chunks are not processed
+   */
+  public <E extends Exception> void forEachChunk(ChunkProcessor<T, E> processor) throws E {
+    for (List<T> chunk; !(chunk = fetchNext()).isEmpty(); ) {
+      processChunk(processor, chunk);
+
+      if (clearSession) {
+        JPA.clear();
+      }
+      if (afterChunk != null) {
+        afterChunk.run();
+      }
+    }
+  }
+
+  /**
+   * Fetches and processes every record, chunk by chunk.
+   *
+   * @param processor the record processor
+   * @throws E if the processor fails, the remaining records are not processed
+   */
+  public <E extends Exception> void forEach(RecordProcessor<T, E> processor) throws E {
+    this.<E>forEachChunk(
+        chunk -> {
+          for (T record : chunk) {
+            processor.process(record);
+          }
+        });
+  }
+
+  protected <E extends Exception> void processChunk(ChunkProcessor<T, E> processor, List<T> chunk)
+      throws E {
+    if (!transactional) {
+      processor.process(chunk);
+      return;
+    }
+
+    EntityTransaction transaction = JPA.em().getTransaction();
+    boolean owner = !transaction.isActive();
+    if (owner) {
+      transaction.begin();
+    }
+
+    try {
+      processor.process(chunk);
+      if (owner) {
+        transaction.commit();
+      }
+    } catch (Exception e) {
+      if (owner && transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Splits the records in at most {@code count} partitions of contiguous id ranges, computed from
+   * the lowest and highest matching ids.
+   *
+   * @param count the maximum number of partitions
+   * @return the partitions, each of them being a new query
+   */
+  public List<ChunkedQuery<T>> partitionByIdRange(int count) {
+    Long minId = fetchBoundId("id");
+    Long maxId = fetchBoundId("-id");
+    if (minId == null || maxId == null) {
+      return List.of();
+    }
+
+    long rangeSize = Math.max(1, (maxId - minId + count) / count);
+
+    List<ChunkedQuery<T>> partitions = new ArrayList<>();
+    for (long from = minId; from <= maxId; from += rangeSize) {
+      partitions.add(
+          partition(
+                  String.format(
+                      "self.id >= :%s AND self.id < :%s", PARTITION_FROM_PARAM, PARTITION_TO_PARAM))
+              .bind(PARTITION_FROM_PARAM, from)
+              .bind(PARTITION_TO_PARAM, from + rangeSize));
+    }
+    return partitions;
+  }
+
+  /**
+   * Splits the records in {@code count} partitions by the given key, so that records sharing the
+   * same key are in the same partition. Records with no key are in the first partition.
+   *
+   * @param key the path of a numeric key, e.g. {@code self.partner.id}
+   * @param count the number of partitions
+   * @return the partitions, each of them being a new query
+   */
+  public List<ChunkedQuery<T>> partitionByKey(String key, int count) {
+    List<ChunkedQuery<T>> partitions = new ArrayList<>();
+    for (int index = 0; index < count; index++) {
+      partitions.add(
+          partition(
+                  String.format(
+                      "MOD(COALESCE(%s, 0), :%s) = :%s",
+                      key, PARTITION_COUNT_PARAM, PARTITION_INDEX_PARAM))
+              .bind(PARTITION_COUNT_PARAM, count)
+              .bind(PARTITION_INDEX_PARAM, index));
+    }
+    return partitions;
+  }
+
+  protected Long fetchBoundId(String order) {
+    List<Map> idList =
+        Query.of(modelClass).filter(filter).bind(params).order(order).select("id").fetch(1, 0);
+    return idList.isEmpty() ? null : (Long) idList.get(0).get("id");
+  }
+
+  protected ChunkedQuery<T> partition(String partitionFilter) {
+    return new ChunkedQuery<>(modelClass)
+        .filter(
+            StringUtils.notBlank(filter)
+                ? "(" + filter + ") AND " + partitionFilter
+                : partitionFilter)
+        .bind(params)
+        .chunkSize(chunkSize)
+        .transactional(transactional)
+        .clearSession(clearSession)
+        .afterChunk(afterChunk);
+  }
+
+  protected Query<T> buildQuery() {
+    String keysetFilter = "self.id > :" + LAST_ID_PARAM;
+    if (StringUtils.notBlank(filter)) {
+      keysetFilter = "(" + filter + ") AND " + keysetFilter;
+    }
+
+    return Query.of(modelClass)
+        .filter(keysetFilter)
+        .bind(params)
+        .bind(LAST_ID_PARAM, lastId)
+        .order("id");
+  }
+
+  @FunctionalInterface
+  public interface ChunkProcessor<T, E extends Exception> {
+    void process(List<T> chunk) throws E;
+  }
+
+  @FunctionalInterface
+  public interface RecordProcessor<T, E extends Exception> {
+    void process(T record) throws E;
+  }
+}
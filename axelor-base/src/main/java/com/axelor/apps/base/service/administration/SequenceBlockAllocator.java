@@ -0,0 +1,232 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.administration;
+
+import com.axelor.apps.base.db.Sequence;
+import com.axelor.apps.base.db.SequenceVersion;
+import com.axelor.apps.base.db.repo.SequenceVersionRepository;
+import com.axelor.db.JPA;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import javax.persistence.LockModeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands out the numbers of the sequences allowing gaps ({@code numberBlockSize} greater than 1).
+ *
+ * <p>Numbers are reserved by blocks in a short dedicated transaction, which is the only time the
+ * sequence is locked, and then handed out from memory. Each node has its own blocks, so numbers
+ * are not ordered across nodes, and the numbers of a block which are not used before a restart,
+ * like the numbers of rolled back documents, are lost.
+ *
+ * <p>The blocks of a sequence are discarded when the sequence or one of its versions is changed,
+ * see {@link com.axelor.apps.base.db.repo.SequenceListener}, so that a new increment, pattern or
+ * next number applies to the next number handed out by this node.
+ */
+@Singleton
+public class SequenceBlockAllocator {
+
+  private final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  protected final SequenceVersionRepository sequenceVersionRepository;
+  protected final SequenceVersionGeneratorService sequenceVersionGeneratorService;
+
+  /** Blocks of numbers by sequence version id. */
+  protected final Map<Long, NumberBlock> blocks = new ConcurrentHashMap<>();
+
+  /** Whether the current thread is reserving a block, which updates the sequence version. */
+  protected final ThreadLocal<Boolean> reserving = new ThreadLocal<>();
+
+  @Inject
+  public SequenceBlockAllocator(
+      SequenceVersionRepository sequenceVersionRepository,
+      SequenceVersionGeneratorService sequenceVersionGeneratorService) {
+    this.sequenceVersionRepository = sequenceVersionRepository;
+    this.sequenceVersionGeneratorService = sequenceVersionGeneratorService;
+  }
+
+  public boolean isBlockAllocated(Sequence sequence) {
+    return sequence.getNumberBlockSize() > 1;
+  }
+
+  /**
+   * Returns the next number of the version of the sequence at the given date, reserving a new
+   * block of numbers if needed.
+   */
+  public long nextNum(Sequence sequence, LocalDate refDate) {
+    SequenceVersion sequenceVersion = sequenceVersionRepository.findByDate(sequence, refDate);
+    Long sequenceVersionId =
+        sequenceVersion != null
+            ? sequenceVersion.getId()
+            : createVersion(sequence.getId(), refDate);
+
+    Long sequenceId = sequence.getId();
+    NumberBlock block =
+        blocks.computeIfAbsent(sequenceVersionId, id -> new NumberBlock(sequenceId));
+    synchronized (block) {
+      if (!block.hasNext()) {
+        reserve(block, sequenceId, sequenceVersionId);
+      }
+      return block.next();
+    }
+  }
+
+  /**
+   * Discards the blocks reserved for the versions of the given sequence. Their unused numbers are
+   * lost, the next number being reserved from the next number of the version.
+   */
+  public void clear(Long sequenceId) {
+    blocks.values().removeIf(block -> block.sequenceId.equals(sequenceId));
+  }
+
+  /** Returns whether the current thread is updating a sequence version to reserve a block. */
+  public boolean isReserving() {
+    return Boolean.TRUE.equals(reserving.get());
+  }
+
+  protected Long createVersion(Long sequenceId, LocalDate refDate) {
+    return inNewTransaction(
+        em -> {
+          Sequence sequence = em.find(Sequence.class, sequenceId, LockModeType.PESSIMISTIC_WRITE);
+          List<SequenceVersion> sequenceVersionList =
+              em.createQuery(
+                      "SELECT self FROM SequenceVersion self WHERE self.sequence = :sequence"
+                          + " AND self.startDate <= :date"
+                          + " AND (self.endDate IS NULL OR self.endDate >= :date)"
+                          + " ORDER BY self.startDate DESC",
+                      SequenceVersion.class)
+                  .setParameter("sequence", sequence)
+                  .setParameter("date", refDate)
+                  .setMaxResults(1)
+                  .getResultList();
+
+          if (!sequenceVersionList.isEmpty()) {
+            return sequenceVersionList.get(0).getId();
+          }
+
+          SequenceVersion sequenceVersion =
+              sequenceVersionGeneratorService.createNewSequenceVersion(sequence, refDate);
+          em.persist(sequenceVersion);
+          em.flush();
+          return sequenceVersion.getId();
+        });
+  }
+
+  protected void reserve(NumberBlock block, Long sequenceId, Long sequenceVersionId) {
+    Reservation reservation;
+    reserving.set(true);
+    try {
+      reservation =
+          inNewTransaction(
+              em -> {
+                Sequence sequence =
+                    em.find(Sequence.class, sequenceId, LockModeType.PESSIMISTIC_WRITE);
+                SequenceVersion sequenceVersion =
+                    em.find(SequenceVersion.class, sequenceVersionId);
+
+                long firstNum = sequenceVersion.getNextNum();
+                int increment = sequence.getToBeAdded();
+                int size = Math.max(1, sequence.getNumberBlockSize());
+                sequenceVersion.setNextNum(firstNum + (long) size * increment);
+                return new Reservation(firstNum, size, increment);
+              });
+    } finally {
+      reserving.remove();
+    }
+
+    // the numbers are handed out only once the new next number is committed, so that they are not
+    // handed out again by the next reservation if the commit fails
+    block.reset(reservation.firstNum, reservation.size, reservation.increment);
+
+    log.debug(
+        "Numbers {} to {} of sequence version {} reserved",
+        block.nextNum,
+        block.endNum,
+        sequenceVersionId);
+  }
+
+  /** Runs the given work in a new transaction, committed before returning. */
+  protected <T> T inNewTransaction(Function<EntityManager, T> work) {
+    EntityManager em = JPA.em().getEntityManagerFactory().createEntityManager();
+    EntityTransaction transaction = em.getTransaction();
+    try {
+      transaction.begin();
+      T result = work.apply(em);
+      transaction.commit();
+      return result;
+    } finally {
+      if (transaction.isActive()) {
+        transaction.rollback();
+      }
+      em.close();
+    }
+  }
+
+  /** Numbers reserved in the database, not yet handed out. */
+  protected static class Reservation {
+
+    protected final long firstNum;
+    protected final int size;
+    protected final int increment;
+
+    protected Reservation(long firstNum, int size, int increment) {
+      this.firstNum = firstNum;
+      this.size = size;
+      this.increment = increment;
+    }
+  }
+
+  /** A block of reserved numbers. Access must be synchronized on the block. */
+  protected static class NumberBlock {
+
+    protected final Long sequenceId;
+    protected long nextNum;
+    protected long endNum;
+    protected int increment;
+
+    protected NumberBlock(Long sequenceId) {
+      this.sequenceId = sequenceId;
+    }
+
+    protected void reset(long firstNum, int size, int increment) {
+      this.nextNum = firstNum;
+      this.endNum = firstNum + (long) size * increment;
+      this.increment = increment;
+    }
+
+    protected boolean hasNext() {
+      return nextNum < endNum;
+    }
+
+    protected long next() {
+      long num = nextNum;
+      nextNum += increment;
+      return num;
+    }
+  }
+}
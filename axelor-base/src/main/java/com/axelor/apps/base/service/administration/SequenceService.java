@@ -29,6 +29,7 @@ import com.axelor.apps.base.db.repo.SequenceVersionRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.app.AppBaseService;
+import com.axelor.apps.base.service.formula.FormulaEngineService;
 import com.axelor.common.ObjectUtils;
 import com.axelor.db.EntityHelper;
 import com.axelor.db.JPA;
@@ -39,7 +40,6 @@ import com.axelor.inject.Beans;
 import com.axelor.meta.db.MetaSelectItem;
 import com.axelor.meta.db.repo.MetaSelectItemRepository;
 import com.axelor.rpc.Context;
-import com.axelor.script.GroovyScriptHelper;
 import com.axelor.utils.helpers.StringHelper;
 import com.google.common.base.Strings;
 import com.google.inject.Inject;
@@ -50,10 +50,15 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoField;
 import java.time.temporal.IsoFields;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import javax.annotation.concurrent.ThreadSafe;
 import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
@@ -91,17 +96,25 @@ public class SequenceService {
 
   protected final SequenceRepository sequenceRepo;
 
+  protected final FormulaEngineService formulaEngineService;
+
+  protected final SequenceBlockAllocator sequenceBlockAllocator;
+
   @Inject
   public SequenceService(
       SequenceVersionRepository sequenceVersionRepository,
       AppBaseService appBaseService,
       SequenceRepository sequenceRepo,
-      SequenceVersionGeneratorService sequenceVersionGeneratorService) {
+      SequenceVersionGeneratorService sequenceVersionGeneratorService,
+      FormulaEngineService formulaEngineService,
+      SequenceBlockAllocator sequenceBlockAllocator) {
 
     this.sequenceVersionRepository = sequenceVersionRepository;
     this.appBaseService = appBaseService;
     this.sequenceRepo = sequenceRepo;
     this.sequenceVersionGeneratorService = sequenceVersionGeneratorService;
+    this.formulaEngineService = formulaEngineService;
+    this.sequenceBlockAllocator = sequenceBlockAllocator;
   }
 
   public static boolean isYearValid(Sequence sequence) {
@@ -173,15 +186,15 @@ public class SequenceService {
   protected void isSequenceAlreadyExisting(
       Class objectClass, String fieldName, String nextSeq, Sequence seq) throws AxelorException {
     String table = objectClass.getSimpleName();
+    // the sequence is already locked (or the number reserved), no need to lock the records
     boolean isSequenceAlreadyExisting =
         CollectionUtils.isNotEmpty(
             JPA.em()
                 .createQuery(
-                    "SELECT self FROM " + table + " self WHERE " + fieldName + " = :nextSeq",
-                    objectClass)
+                    "SELECT self.id FROM " + table + " self WHERE " + fieldName + " = :nextSeq")
                 .setParameter("nextSeq", nextSeq)
-                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
                 .setFlushMode(FlushModeType.COMMIT)
+                .setMaxResults(1)
                 .getResultList());
     if (isSequenceAlreadyExisting) {
       throw new AxelorException(
@@ -217,10 +230,12 @@ public class SequenceService {
   }
 
   protected String getSequenceValue(SequenceVersion sequenceVersion) throws AxelorException {
+    return getSequenceValue(sequenceVersion.getSequence(), sequenceVersion.getNextNum());
+  }
+
+  protected String getSequenceValue(Sequence sequence, Long nextNum) throws AxelorException {
 
-    Sequence sequence = sequenceVersion.getSequence();
     SequenceTypeSelect sequenceTypeSelect = sequence.getSequenceTypeSelect();
-    Long nextNum = sequenceVersion.getNextNum();
 
     String padStr;
     String nextSequence;
@@ -245,7 +260,7 @@ public class SequenceService {
 
       default:
         throw new AxelorException(
-            sequenceVersion,
+            sequence,
             TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
             I18n.get(BaseExceptionMessage.SEQUENCE_TYPE_UNHANDLED),
             sequenceTypeSelect);
@@ -536,23 +551,42 @@ public class SequenceService {
         sequence, appBaseService.getTodayDate(company), objectClass, fieldName, model);
   }
 
+  /**
+   * Returns the next number of the sequence at the given date.
+   *
+   * <p>For sequences allowing gaps ({@code numberBlockSize} greater than 1), the number comes from
+   * a block of numbers reserved in a dedicated transaction, see {@link SequenceBlockAllocator}.
+   *
+   * <p>Other sequences stay gapless: the sequence is locked until the end of the current
+   * transaction, so that the number is only consumed if the transaction is committed. Everything
+   * not depending on the number is therefore computed before taking the lock.
+   */
   @Transactional(rollbackOn = {Exception.class})
   public String getSequenceNumber(
       Sequence sequence, LocalDate refDate, Class objectClass, String fieldName, Model model)
       throws AxelorException {
-    Sequence seq =
-        JPA.em()
-            .createQuery("SELECT self FROM Sequence self WHERE id = :id", Sequence.class)
-            .setParameter("id", sequence.getId())
-            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
-            .setFlushMode(FlushModeType.COMMIT)
-            .getSingleResult();
+    String seqPrefixe = computePrefix(sequence, model);
+    String seqSuffixe = computeSuffix(sequence, model);
+    boolean checkExisting =
+        appBaseService.getAppBase().getCheckExistingSequenceOnGeneration()
+            && objectClass != null
+            && !Strings.isNullOrEmpty(fieldName);
+
+    if (sequenceBlockAllocator.isBlockAllocated(sequence)) {
+      long nextNum = sequenceBlockAllocator.nextNum(sequence, refDate);
+      String nextSeq = computeSequenceNumber(sequence, nextNum, seqPrefixe, seqSuffixe, refDate);
+      if (checkExisting) {
+        this.isSequenceAlreadyExisting(objectClass, fieldName, nextSeq, sequence);
+      }
+      return nextSeq;
+    }
+
+    Sequence seq = lockSequence(sequence);
     SequenceVersion sequenceVersion = getVersion(seq, refDate);
-    String nextSeq = computeSequenceNumber(sequenceVersion, seq, refDate, model);
+    String nextSeq =
+        computeSequenceNumber(seq, sequenceVersion.getNextNum(), seqPrefixe, seqSuffixe, refDate);
 
-    if (appBaseService.getAppBase().getCheckExistingSequenceOnGeneration()
-        && objectClass != null
-        && !Strings.isNullOrEmpty(fieldName)) {
+    if (checkExisting) {
       this.isSequenceAlreadyExisting(objectClass, fieldName, nextSeq, seq);
     }
 
@@ -563,19 +597,125 @@ public class SequenceService {
     return nextSeq;
   }
 
+  /**
+   * Returns the next numbers of the sequence for the given records, in the order of the records.
+   *
+   * <p>For gapless sequences, the sequence is locked once for all the records instead of once per
+   * record, and the numbers are consecutive. As for {@link #getSequenceNumber(Sequence, LocalDate,
+   * Class, String, Model)}, the numbers are only consumed if the transaction is committed.
+   *
+   * @param sequence the sequence
+   * @param modelList the records to number
+   * @param refDateGetter gives the reference date of a record
+   * @param objectClass the class of the records, to check the numbers are not already used
+   * @param fieldName the field holding the number, to check the numbers are not already used
+   * @return the numbers, in the order of the records
+   */
+  @Transactional(rollbackOn = {Exception.class})
+  public <T extends Model> List<String> getSequenceNumbers(
+      Sequence sequence,
+      List<T> modelList,
+      Function<T, LocalDate> refDateGetter,
+      Class objectClass,
+      String fieldName)
+      throws AxelorException {
+    List<String> sequenceNumberList = new ArrayList<>();
+
+    if (sequenceBlockAllocator.isBlockAllocated(sequence)) {
+      for (T model : modelList) {
+        sequenceNumberList.add(
+            getSequenceNumber(
+                sequence, refDateGetter.apply(model), objectClass, fieldName, model));
+      }
+      return sequenceNumberList;
+    }
+
+    List<String> prefixList = new ArrayList<>();
+    List<String> suffixList = new ArrayList<>();
+    for (T model : modelList) {
+      prefixList.add(computePrefix(sequence, model));
+      suffixList.add(computeSuffix(sequence, model));
+    }
+    boolean checkExisting =
+        appBaseService.getAppBase().getCheckExistingSequenceOnGeneration()
+            && objectClass != null
+            && !Strings.isNullOrEmpty(fieldName);
+
+    Sequence seq = lockSequence(sequence);
+    Map<LocalDate, SequenceVersion> sequenceVersionMap = new HashMap<>();
+    // The versions are only updated once every number is computed, so that no number is consumed
+    // when one of them can not be computed.
+    Map<SequenceVersion, Long> nextNumMap = new IdentityHashMap<>();
+
+    for (int i = 0; i < modelList.size(); i++) {
+      LocalDate refDate = refDateGetter.apply(modelList.get(i));
+      SequenceVersion sequenceVersion = sequenceVersionMap.get(refDate);
+      if (sequenceVersion == null) {
+        sequenceVersion = getVersion(seq, refDate);
+        if (sequenceVersion.getId() == null) {
+          sequenceVersionRepository.save(sequenceVersion);
+        }
+        sequenceVersionMap.put(refDate, sequenceVersion);
+      }
+
+      long nextNum = nextNumMap.getOrDefault(sequenceVersion, sequenceVersion.getNextNum());
+      String nextSeq =
+          computeSequenceNumber(seq, nextNum, prefixList.get(i), suffixList.get(i), refDate);
+      if (checkExisting) {
+        this.isSequenceAlreadyExisting(objectClass, fieldName, nextSeq, seq);
+      }
+
+      nextNumMap.put(sequenceVersion, nextNum + seq.getToBeAdded());
+      sequenceNumberList.add(nextSeq);
+    }
+
+    nextNumMap.forEach(SequenceVersion::setNextNum);
+    return sequenceNumberList;
+  }
+
+  /**
+   * Locks the sequence until the end of the current transaction.
+   *
+   * @return the locked sequence
+   */
+  protected Sequence lockSequence(Sequence sequence) {
+    return JPA.em()
+        .createQuery("SELECT self FROM Sequence self WHERE id = :id", Sequence.class)
+        .setParameter("id", sequence.getId())
+        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+        .setFlushMode(FlushModeType.COMMIT)
+        .getSingleResult();
+  }
+
   protected String computeSequenceNumber(
       SequenceVersion sequenceVersion, Sequence sequence, LocalDate refDate, Model model)
       throws AxelorException {
-    String seqPrefixe = StringUtils.defaultString(sequence.getPrefixe(), "");
-    String seqSuffixe = StringUtils.defaultString(sequence.getSuffixe(), "");
+    return computeSequenceNumber(
+        sequence,
+        sequenceVersion.getNextNum(),
+        computePrefix(sequence, model),
+        computeSuffix(sequence, model),
+        refDate);
+  }
+
+  protected String computePrefix(Sequence sequence, Model model) throws AxelorException {
     if (sequence.getPrefixGroovyOk()) {
-      seqPrefixe = StringUtils.defaultString(getGroovyValue(sequence.getPrefixGroovy(), model), "");
+      return StringUtils.defaultString(getGroovyValue(sequence.getPrefixGroovy(), model), "");
     }
+    return StringUtils.defaultString(sequence.getPrefixe(), "");
+  }
+
+  protected String computeSuffix(Sequence sequence, Model model) throws AxelorException {
     if (sequence.getSuffixGroovyOk()) {
-      seqSuffixe = StringUtils.defaultString(getGroovyValue(sequence.getSuffixGroovy(), model), "");
+      return StringUtils.defaultString(getGroovyValue(sequence.getSuffixGroovy(), model), "");
     }
+    return StringUtils.defaultString(sequence.getSuffixe(), "");
+  }
 
-    String sequenceValue = getSequenceValue(sequenceVersion);
+  protected String computeSequenceNumber(
+      Sequence sequence, Long nextNum, String seqPrefixe, String seqSuffixe, LocalDate refDate)
+      throws AxelorException {
+    String sequenceValue = getSequenceValue(sequence, nextNum);
 
     String nextSeq =
         (seqPrefixe + sequenceValue + seqSuffixe)
@@ -597,7 +737,7 @@ public class SequenceService {
     if (!Strings.isNullOrEmpty(prefixOrSuffix) && Objects.nonNull(model)) {
       try {
         Context cxt = new Context(Mapper.toMap(model), EntityHelper.getEntityClass(model));
-        return String.valueOf(new GroovyScriptHelper(cxt).eval(prefixOrSuffix));
+        return String.valueOf(formulaEngineService.evaluate(prefixOrSuffix, cxt));
 
       } catch (Exception e) {
         throw new AxelorException(
@@ -0,0 +1,166 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.currency;
+
+import com.axelor.apps.base.db.Currency;
+import com.axelor.apps.base.db.CurrencyConversionLine;
+import com.axelor.apps.base.service.app.AppBaseService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * In-memory index of the currency conversion lines of the application configuration, giving the
+ * rate of a currency pair at a date with a floor lookup on the start dates of the lines instead of
+ * scanning every line. The lines starting before the date are checked from the latest one until a
+ * line covers the date, so that a line closed in the past does not hide an earlier open-ended one.
+ *
+ * <p>The index is built on first use and invalidated whenever a {@link CurrencyConversionLine} is
+ * created, updated or removed, see {@link
+ * com.axelor.apps.base.db.repo.CurrencyConversionLineListener}.
+ */
+@Singleton
+public class CurrencyRateIndex {
+
+  protected AppBaseService appBaseService;
+
+  private volatile Map<Pair<String, String>, NavigableMap<LocalDate, List<Rate>>> index;
+  private long generation;
+
+  @Inject
+  public CurrencyRateIndex(AppBaseService appBaseService) {
+    this.appBaseService = appBaseService;
+  }
+
+  /**
+   * Returns the conversion line rate from the start currency to the end currency valid at the
+   * given date.
+   *
+   * @return the rate, or {@code null} if no line of this currency pair covers the date
+   */
+  public Rate getRate(Currency startCurrency, Currency endCurrency, LocalDate date) {
+    NavigableMap<LocalDate, List<Rate>> rateMap =
+        getIndex().get(Pair.of(startCurrency.getCodeISO(), endCurrency.getCodeISO()));
+
+    if (rateMap == null) {
+      return null;
+    }
+
+    for (Map.Entry<LocalDate, List<Rate>> entry = rateMap.floorEntry(date);
+        entry != null;
+        entry = rateMap.lowerEntry(entry.getKey())) {
+      for (Rate rate : entry.getValue()) {
+        if (rate.getToDate() == null || !rate.getToDate().isBefore(date)) {
+          return rate;
+        }
+      }
+    }
+
+    return null;
+  }
+
+  public synchronized void invalidate() {
+    generation++;
+    index = null;
+  }
+
+  protected Map<Pair<String, String>, NavigableMap<LocalDate, List<Rate>>> getIndex() {
+    Map<Pair<String, String>, NavigableMap<LocalDate, List<Rate>>> currentIndex = index;
+    if (currentIndex != null) {
+      return currentIndex;
+    }
+
+    long buildGeneration;
+    synchronized (this) {
+      buildGeneration = generation;
+    }
+
+    currentIndex = buildIndex();
+
+    synchronized (this) {
+      // do not keep an index built while the lines were changing
+      if (buildGeneration == generation) {
+        index = currentIndex;
+      }
+    }
+    return currentIndex;
+  }
+
+  protected Map<Pair<String, String>, NavigableMap<LocalDate, List<Rate>>> buildIndex() {
+    Map<Pair<String, String>, NavigableMap<LocalDate, List<Rate>>> newIndex = new HashMap<>();
+    List<CurrencyConversionLine> currencyConversionLineList =
+        appBaseService.getCurrencyConfigurationLineList();
+
+    if (currencyConversionLineList == null) {
+      return newIndex;
+    }
+
+    for (CurrencyConversionLine ccl : currencyConversionLineList) {
+      // lines of a pair starting at the same date are kept in the configuration order
+      newIndex
+          .computeIfAbsent(
+              Pair.of(ccl.getStartCurrency().getCodeISO(), ccl.getEndCurrency().getCodeISO()),
+              key -> new TreeMap<>())
+          .computeIfAbsent(ccl.getFromDate(), key -> new ArrayList<>())
+          .add(new Rate(ccl));
+    }
+
+    return newIndex;
+  }
+
+  /** Immutable copy of the values of a conversion line, safe to share between sessions. */
+  public static class Rate {
+
+    private final Long currencyConversionLineId;
+    private final LocalDate fromDate;
+    private final LocalDate toDate;
+    private final BigDecimal exchangeRate;
+
+    protected Rate(CurrencyConversionLine ccl) {
+      this.currencyConversionLineId = ccl.getId();
+      this.fromDate = ccl.getFromDate();
+      this.toDate = ccl.getToDate();
+      this.exchangeRate = ccl.getExchangeRate();
+    }
+
+    public Long getCurrencyConversionLineId() {
+      return currencyConversionLineId;
+    }
+
+    public LocalDate getFromDate() {
+      return fromDate;
+    }
+
+    public LocalDate getToDate() {
+      return toDate;
+    }
+
+    public BigDecimal getExchangeRate() {
+      return exchangeRate;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.formula;
+
+import java.util.concurrent.TimeUnit;
+
+/** Snapshot of the formula engine metrics. Durations are in nanoseconds. */
+public class FormulaEngineMetrics {
+
+  protected final long hitCount;
+  protected final long missCount;
+  protected final long compileCount;
+  protected final long compileFailureCount;
+  protected final long totalCompileTime;
+  protected final long evaluationCount;
+  protected final long totalEvaluationTime;
+  protected final long cachedFormulaCount;
+
+  public FormulaEngineMetrics(
+      long hitCount,
+      long missCount,
+      long compileCount,
+      long compileFailureCount,
+      long totalCompileTime,
+      long evaluationCount,
+      long totalEvaluationTime,
+      long cachedFormulaCount) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.compileCount = compileCount;
+    this.compileFailureCount = compileFailureCount;
+    this.totalCompileTime = totalCompileTime;
+    this.evaluationCount = evaluationCount;
+    this.totalEvaluationTime = totalEvaluationTime;
+    this.cachedFormulaCount = cachedFormulaCount;
+  }
+
+  /** Number of evaluations of a formula which was already compiled. */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /** Number of evaluations of a formula which had to be compiled. */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public double getHitRate() {
+    long requestCount = hitCount + missCount;
+    return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+  }
+
+  public long getCompileCount() {
+    return compileCount;
+  }
+
+  public long getCompileFailureCount() {
+    return compileFailureCount;
+  }
+
+  public long getTotalCompileTime() {
+    return totalCompileTime;
+  }
+
+  public long getAverageCompileTime() {
+    long count = compileCount + compileFailureCount;
+    return count == 0 ? 0 : totalCompileTime / count;
+  }
+
+  /** Number of evaluations, including the scripts evaluated against bindings. */
+  public long getEvaluationCount() {
+    return evaluationCount;
+  }
+
+  public long getTotalEvaluationTime() {
+    return totalEvaluationTime;
+  }
+
+  public long getCachedFormulaCount() {
+    return cachedFormulaCount;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "hits=%d, misses=%d, hitRate=%.2f, compilations=%d, compileFailures=%d, compileTime=%dms,"
+            + " evaluations=%d, evaluationTime=%dms, cachedFormulas=%d",
+        hitCount,
+        missCount,
+        getHitRate(),
+        compileCount,
+        compileFailureCount,
+        TimeUnit.NANOSECONDS.toMillis(totalCompileTime),
+        evaluationCount,
+        TimeUnit.NANOSECONDS.toMillis(totalEvaluationTime),
+        cachedFormulaCount);
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.formula;
+
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import javax.script.Bindings;
+
+/**
+ * Evaluates the Groovy formulas configured by users (bonus formulas, conversion formulas,
+ * sequence prefixes, ...).
+ *
+ * <p>Each distinct formula is parsed and compiled once, the compiled class being kept in a bounded
+ * cache and evaluated against lightweight bindings. Formulas should therefore read the values that
+ * change from one evaluation to another from variables instead of having them written in the
+ * formula.
+ */
+public interface FormulaEngineService {
+
+  /**
+   * Evaluates a formula with the given variables. {@code java.lang.Math} is statically imported.
+   *
+   * @param formula the Groovy formula
+   * @param variables the variables of the formula, may be empty
+   * @return the result of the formula
+   */
+  Object evaluate(String formula, Map<String, Object> variables);
+
+  /**
+   * Evaluates a template formula, where {@code $Name.field$} expressions refer to the fields of
+   * the given records.
+   *
+   * <p>Those expressions are translated into accesses to variables holding the records, so that the
+   * formula is compiled once whatever the records. A template using any other template syntax is
+   * rendered with the given renderer first, and the rendered formula is evaluated.
+   *
+   * @param template the template formula
+   * @param records the records used by the template, by name
+   * @param variables other variables of the formula, may be empty
+   * @param renderer renders the template when it can not be translated
+   * @return the result of the formula
+   */
+  Object evaluateTemplate(
+      String template,
+      Map<String, Object> records,
+      Map<String, Object> variables,
+      UnaryOperator<String> renderer);
+
+  /**
+   * Evaluates a script against script bindings or a context, with the same imports and helpers as
+   * the scripts of the views.
+   *
+   * @param script the Groovy script
+   * @param bindings the bindings, usually a {@link com.axelor.rpc.Context}
+   * @return the result of the script
+   */
+  Object evaluate(String script, Bindings bindings);
+
+  /** Returns a snapshot of the compilation cache and evaluation metrics. */
+  FormulaEngineMetrics getMetrics();
+
+  /** Discards every compiled formula. */
+  void clearCache();
+}
@@ -0,0 +1,207 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.formula;
+
+import com.axelor.app.AppSettings;
+import com.axelor.script.GroovyScriptHelper;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Singleton;
+import groovy.lang.Binding;
+import groovy.lang.GroovyShell;
+import groovy.lang.Script;
+import java.lang.invoke.MethodHandles;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.script.Bindings;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ImportCustomizer;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Singleton
+public class FormulaEngineServiceImpl implements FormulaEngineService {
+
+  private final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** Application setting giving the maximum number of compiled formulas kept. */
+  public static final String CACHE_SIZE_SETTING = "formula-engine.cache-size";
+
+  protected static final int DEFAULT_CACHE_SIZE = 500;
+
+  protected static final String TEMPLATE_DELIMITER = "$";
+
+  /** Prefix of the variables holding the records of a template formula. */
+  protected static final String RECORD_VARIABLE_PREFIX = "_";
+
+  protected static final Pattern TEMPLATE_VARIABLE_PATTERN =
+      Pattern.compile("\\$([A-Za-z_]\\w*)((?:\\.\\w+)*)\\$");
+
+  protected final CompilerConfiguration compilerConfiguration;
+
+  protected final Cache<String, Class<? extends Script>> scriptCache;
+
+  protected final LongAdder evaluationCount = new LongAdder();
+
+  protected final LongAdder evaluationTime = new LongAdder();
+
+  public FormulaEngineServiceImpl() {
+    this(AppSettings.get().getInt(CACHE_SIZE_SETTING, DEFAULT_CACHE_SIZE));
+  }
+
+  protected FormulaEngineServiceImpl(int cacheSize) {
+    this.compilerConfiguration = createCompilerConfiguration();
+    this.scriptCache = CacheBuilder.newBuilder().maximumSize(cacheSize).recordStats().build();
+  }
+
+  protected CompilerConfiguration createCompilerConfiguration() {
+    CompilerConfiguration conf = new CompilerConfiguration();
+    ImportCustomizer customizer = new ImportCustomizer();
+    customizer.addStaticStars("java.lang.Math");
+    conf.addCompilationCustomizers(customizer);
+    return conf;
+  }
+
+  @Override
+  public Object evaluate(String formula, Map<String, Object> variables) {
+    // the script may assign variables, which must not end up in the given map
+    return run(getScriptClass(formula), new HashMap<>(variables));
+  }
+
+  @Override
+  public Object evaluateTemplate(
+      String template,
+      Map<String, Object> records,
+      Map<String, Object> variables,
+      UnaryOperator<String> renderer) {
+    String script = toScript(template, records.keySet());
+
+    if (script == null) {
+      return evaluate(renderer.apply(template), variables);
+    }
+
+    Map<String, Object> scriptVariables = new HashMap<>(variables);
+    records.forEach((name, record) -> scriptVariables.put(RECORD_VARIABLE_PREFIX + name, record));
+    return run(getScriptClass(script), scriptVariables);
+  }
+
+  @Override
+  public Object evaluate(String script, Bindings bindings) {
+    // the helper keeps its own cache of compiled scripts, with the imports used by the views
+    long start = System.nanoTime();
+    try {
+      return new GroovyScriptHelper(bindings).eval(script);
+    } finally {
+      recordEvaluation(start);
+    }
+  }
+
+  @Override
+  public FormulaEngineMetrics getMetrics() {
+    CacheStats stats = scriptCache.stats();
+    return new FormulaEngineMetrics(
+        stats.hitCount(),
+        stats.missCount(),
+        stats.loadSuccessCount(),
+        stats.loadExceptionCount(),
+        stats.totalLoadTime(),
+        evaluationCount.sum(),
+        evaluationTime.sum(),
+        scriptCache.size());
+  }
+
+  @Override
+  public void clearCache() {
+    scriptCache.invalidateAll();
+  }
+
+  /**
+   * Translates the template variables of the formula into accesses to the variables holding the
+   * records.
+   *
+   * @return the script, or {@code null} if the formula uses other template expressions or string
+   *     literals, in which the template variables are rendered as text
+   */
+  protected String toScript(String template, Collection<String> recordNames) {
+    if (template.indexOf('\'') >= 0 || template.indexOf('"') >= 0) {
+      return null;
+    }
+
+    Matcher matcher = TEMPLATE_VARIABLE_PATTERN.matcher(template);
+    StringBuffer script = new StringBuffer();
+
+    while (matcher.find()) {
+      if (!recordNames.contains(matcher.group(1))) {
+        return null;
+      }
+      matcher.appendReplacement(
+          script,
+          Matcher.quoteReplacement(RECORD_VARIABLE_PREFIX + matcher.group(1) + matcher.group(2)));
+    }
+    matcher.appendTail(script);
+
+    return script.indexOf(TEMPLATE_DELIMITER) < 0 ? script.toString() : null;
+  }
+
+  protected Class<? extends Script> getScriptClass(String formula) {
+    try {
+      return scriptCache.get(formula, () -> compile(formula));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  protected Class<? extends Script> compile(String formula) {
+    long start = System.nanoTime();
+    // each formula has its own class loader, released once evicted from the cache
+    Class<? extends Script> scriptClass =
+        new GroovyShell(compilerConfiguration).parse(formula).getClass();
+    log.debug(
+        "Formula compiled in {} ms: {}",
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+        formula);
+    return scriptClass;
+  }
+
+  protected Object run(Class<? extends Script> scriptClass, Map<String, Object> variables) {
+    long start = System.nanoTime();
+    try {
+      return InvokerHelper.createScript(scriptClass, new Binding(variables)).run();
+    } finally {
+      recordEvaluation(start);
+    }
+  }
+
+  protected void recordEvaluation(long start) {
+    evaluationCount.increment();
+    evaluationTime.add(System.nanoTime() - start);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.utils;
+
+import com.axelor.db.JPA;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+public final class TransactionHelper {
+
+  private TransactionHelper() {}
+
+  /**
+   * Runs the given action once the current transaction is committed or rolled back, or right away
+   * when there is no active transaction.
+   *
+   * @param action the action to run, e.g. invalidating a cache
+   */
+  public static void afterCompletion(Runnable action) {
+    Transaction transaction = JPA.em().unwrap(Session.class).getTransaction();
+
+    if (!transaction.isActive()) {
+      action.run();
+      return;
+    }
+
+    transaction.registerSynchronization(
+        new Synchronization() {
+          @Override
+          public void beforeCompletion() {}
+
+          @Override
+          public void afterCompletion(int status) {
+            if (status == Status.STATUS_COMMITTED || status == Status.STATUS_ROLLEDBACK) {
+              action.run();
+            }
+          }
+        });
+  }
+
+  /**
+   * Runs the given action once the current transaction is committed, or right away when there is
+   * no active transaction. The action is not run if the transaction is rolled back.
+   *
+   * @param action the action to run, e.g. starting a job reading the committed data
+   */
+  public static void afterCommit(Runnable action) {
+    Transaction transaction = JPA.em().unwrap(Session.class).getTransaction();
+
+    if (!transaction.isActive()) {
+      action.run();
+      return;
+    }
+
+    transaction.registerSynchronization(
+        new Synchronization() {
+          @Override
+          public void beforeCompletion() {}
+
+          @Override
+          public void afterCompletion(int status) {
+            if (status == Status.STATUS_COMMITTED) {
+              action.run();
+            }
+          }
+        });
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.administration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.axelor.apps.base.db.Sequence;
+import com.axelor.apps.base.db.SequenceVersion;
+import com.axelor.apps.base.db.repo.SequenceVersionRepository;
+import java.time.LocalDate;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestSequenceBlockAllocator {
+
+  private static final LocalDate REF_DATE = LocalDate.of(2024, 6, 1);
+
+  private Sequence sequence;
+  private SequenceVersion sequenceVersion;
+  private EntityManager em;
+  private int reservationCount;
+  private boolean failCommit;
+  private SequenceBlockAllocator sequenceBlockAllocator;
+
+  @BeforeEach
+  void prepare() {
+    sequence = new Sequence();
+    sequence.setId(1L);
+    sequence.setToBeAdded(1);
+    sequence.setNumberBlockSize(3);
+
+    sequenceVersion = new SequenceVersion();
+    sequenceVersion.setId(10L);
+    sequenceVersion.setSequence(sequence);
+    sequenceVersion.setNextNum(1L);
+
+    SequenceVersionRepository sequenceVersionRepository = mock(SequenceVersionRepository.class);
+    when(sequenceVersionRepository.findByDate(eq(sequence), any())).thenReturn(sequenceVersion);
+
+    em = mock(EntityManager.class);
+    when(em.find(Sequence.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(sequence);
+    when(em.find(SequenceVersion.class, 10L)).thenReturn(sequenceVersion);
+
+    sequenceBlockAllocator =
+        new SequenceBlockAllocator(
+            sequenceVersionRepository, mock(SequenceVersionGeneratorService.class)) {
+          // runs the work on the mocked entity manager, the version standing for the database
+          @Override
+          protected <T> T inNewTransaction(Function<EntityManager, T> work) {
+            Long nextNum = sequenceVersion.getNextNum();
+            T result = work.apply(em);
+            reservationCount++;
+            if (failCommit) {
+              sequenceVersion.setNextNum(nextNum);
+              throw new IllegalStateException("commit failed");
+            }
+            return result;
+          }
+        };
+  }
+
+  @Test
+  void nextNum_handsOutReservedBlockFromMemory() {
+    Assertions.assertEquals(1L, sequenceBlockAllocator.nextNum(sequence, REF_DATE));
+    Assertions.assertEquals(2L, sequenceBlockAllocator.nextNum(sequence, REF_DATE));
+    Assertions.assertEquals(3L, sequenceBlockAllocator.nextNum(sequence, REF_DATE));
+
+    Assertions.assertEquals(1, reservationCount);
+    Assertions.assertEquals(4L, sequenceVersion.getNextNum());
+  }
+
+  @Test
+  void nextNum_whenBlockIsExhausted_reservesNextBlock() {
+    sequence.setToBeAdded(2);
+
+    for (long expected = 1L; expected <= 11L; expected += 2) {
+      Assertions.assertEquals(expected, sequenceBlockAllocator.nextNum(sequence, REF_DATE));
+    }
+
+    Assertions.assertEquals(2, reservationCount);
+    Assertions.assertEquals(13L, sequenceVersion.getNextNum());
+  }
+
+  @Test
+  void nextNum_whenCommitFails_handsOutNoNumberOfTheBlock() {
+    failCommit = true;
+    Assertions.assertThrows(
+        IllegalStateException.class, () -> sequenceBlockAllocator.nextNum(sequence, REF_DATE));
+    Assertions.assertEquals(1L, sequenceVersion.getNextNum());
+
+    failCommit = false;
+    Assertions.assertEquals(1L, sequenceBlockAllocator.nextNum(sequence, REF_DATE));
+    Assertions.assertEquals(2L, sequenceBlockAllocator.nextNum(sequence, REF_DATE));
+    Assertions.assertEquals(4L, sequenceVersion.getNextNum());
+    Assertions.assertFalse(sequenceBlockAllocator.isReserving());
+  }
+
+  @Test
+  void clear_discardsUnusedNumbersOfTheSequence() {
+    Assertions.assertEquals(1L, sequenceBlockAllocator.nextNum(sequence, REF_DATE));
+
+    sequenceBlockAllocator.clear(sequence.getId());
+
+    Assertions.assertEquals(4L, sequenceBlockAllocator.nextNum(sequence, REF_DATE));
+    Assertions.assertEquals(2, reservationCount);
+    Assertions.assertEquals(7L, sequenceVersion.getNextNum());
+  }
+
+  @Test
+  void clear_keepsBlocksOfOtherSequences() {
+    Assertions.assertEquals(1L, sequenceBlockAllocator.nextNum(sequence, REF_DATE));
+
+    sequenceBlockAllocator.clear(2L);
+
+    Assertions.assertEquals(2L, sequenceBlockAllocator.nextNum(sequence, REF_DATE));
+    Assertions.assertEquals(1, reservationCount);
+  }
+}
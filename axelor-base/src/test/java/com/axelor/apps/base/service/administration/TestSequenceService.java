@@ -26,6 +26,7 @@ import com.axelor.apps.base.db.SequenceLettersTypeSelect;
 import com.axelor.apps.base.db.repo.SequenceRepository;
 import com.axelor.apps.base.db.repo.SequenceVersionRepository;
 import com.axelor.apps.base.service.app.AppBaseService;
+import com.axelor.apps.base.service.formula.FormulaEngineService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -44,13 +45,17 @@ class TestSequenceService {
     SequenceRepository sequenceRepo = mock(SequenceRepository.class);
     SequenceVersionGeneratorService sequenceVersionGeneratorService =
         mock(SequenceVersionGeneratorService.class);
+    FormulaEngineService formulaEngineService = mock(FormulaEngineService.class);
+    SequenceBlockAllocator sequenceBlockAllocator = mock(SequenceBlockAllocator.class);
 
     sequenceService =
         new SequenceService(
             sequenceVersionRepository,
             appBaseService,
             sequenceRepo,
-            sequenceVersionGeneratorService);
+            sequenceVersionGeneratorService,
+            formulaEngineService,
+            sequenceBlockAllocator);
   }
 
   @Test
@@ -0,0 +1,156 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.administration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Period;
+import com.axelor.apps.base.db.Sequence;
+import com.axelor.apps.base.db.SequenceTypeSelect;
+import com.axelor.apps.base.db.SequenceVersion;
+import com.axelor.apps.base.db.repo.SequenceRepository;
+import com.axelor.apps.base.db.repo.SequenceVersionRepository;
+import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.apps.base.service.app.AppBaseService;
+import com.axelor.apps.base.service.formula.FormulaEngineService;
+import com.axelor.studio.db.AppBase;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestSequenceServiceSequenceNumbers {
+
+  private Sequence sequence;
+  private SequenceVersion sequenceVersion2024;
+  private SequenceVersion sequenceVersion2025;
+  private AppBase appBase;
+  private SequenceService sequenceService;
+
+  @BeforeEach
+  void prepare() {
+    sequence = new Sequence();
+    sequence.setId(1L);
+    sequence.setSequenceTypeSelect(SequenceTypeSelect.NUMBERS);
+    sequence.setPrefixe("MV%YY-");
+    sequence.setPadding(3);
+    sequence.setToBeAdded(1);
+
+    sequenceVersion2024 = createSequenceVersion(2024, 41L);
+    sequenceVersion2025 = createSequenceVersion(2025, 7L);
+
+    SequenceVersionRepository sequenceVersionRepository = mock(SequenceVersionRepository.class);
+    when(sequenceVersionRepository.findByDate(eq(sequence), any()))
+        .thenAnswer(
+            invocation -> {
+              LocalDate date = invocation.getArgument(1);
+              return date.getYear() == 2024 ? sequenceVersion2024 : sequenceVersion2025;
+            });
+
+    appBase = new AppBase();
+    AppBaseService appBaseService = mock(AppBaseService.class);
+    when(appBaseService.getAppBase()).thenReturn(appBase);
+    SequenceBlockAllocator sequenceBlockAllocator = mock(SequenceBlockAllocator.class);
+    when(sequenceBlockAllocator.isBlockAllocated(sequence)).thenReturn(false);
+
+    sequenceService =
+        new SequenceService(
+            sequenceVersionRepository,
+            appBaseService,
+            mock(SequenceRepository.class),
+            mock(SequenceVersionGeneratorService.class),
+            mock(FormulaEngineService.class),
+            sequenceBlockAllocator) {
+          @Override
+          protected Sequence lockSequence(Sequence sequence) {
+            return sequence;
+          }
+
+          // the number MV24-042 is already used by another record
+          @Override
+          protected void isSequenceAlreadyExisting(
+              Class objectClass, String fieldName, String nextSeq, Sequence seq)
+              throws AxelorException {
+            if ("MV24-042".equals(nextSeq)) {
+              throw new AxelorException(TraceBackRepository.CATEGORY_CONFIGURATION_ERROR, nextSeq);
+            }
+          }
+        };
+  }
+
+  @Test
+  void getSequenceNumbers_numbersConsecutivelyByVersion() throws AxelorException {
+    List<Period> periodList =
+        List.of(
+            createPeriod(LocalDate.of(2024, 12, 30)),
+            createPeriod(LocalDate.of(2025, 1, 2)),
+            createPeriod(LocalDate.of(2024, 12, 31)),
+            createPeriod(LocalDate.of(2025, 1, 2)),
+            createPeriod(LocalDate.of(2024, 12, 31)));
+
+    List<String> sequenceNumberList =
+        sequenceService.getSequenceNumbers(
+            sequence, periodList, Period::getFromDate, Period.class, "code");
+
+    Assertions.assertEquals(
+        List.of("MV24-041", "MV25-007", "MV24-042", "MV25-008", "MV24-043"), sequenceNumberList);
+    Assertions.assertEquals(44L, sequenceVersion2024.getNextNum());
+    Assertions.assertEquals(9L, sequenceVersion2025.getNextNum());
+  }
+
+  @Test
+  void getSequenceNumbers_consumesNoNumberOnFailure() {
+    appBase.setCheckExistingSequenceOnGeneration(true);
+    List<Period> periodList =
+        List.of(
+            createPeriod(LocalDate.of(2025, 1, 2)),
+            createPeriod(LocalDate.of(2024, 12, 30)),
+            createPeriod(LocalDate.of(2024, 12, 31)));
+
+    Assertions.assertThrows(
+        AxelorException.class,
+        () ->
+            sequenceService.getSequenceNumbers(
+                sequence, periodList, Period::getFromDate, Period.class, "code"));
+
+    Assertions.assertEquals(41L, sequenceVersion2024.getNextNum());
+    Assertions.assertEquals(7L, sequenceVersion2025.getNextNum());
+  }
+
+  protected SequenceVersion createSequenceVersion(int year, Long nextNum) {
+    SequenceVersion sequenceVersion = new SequenceVersion();
+    sequenceVersion.setId((long) year);
+    sequenceVersion.setSequence(sequence);
+    sequenceVersion.setStartDate(LocalDate.of(year, 1, 1));
+    sequenceVersion.setEndDate(LocalDate.of(year, 12, 31));
+    sequenceVersion.setNextNum(nextNum);
+    return sequenceVersion;
+  }
+
+  protected Period createPeriod(LocalDate fromDate) {
+    Period period = new Period();
+    period.setFromDate(fromDate);
+    return period;
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.currency;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.axelor.apps.base.db.Currency;
+import com.axelor.apps.base.db.CurrencyConversionLine;
+import com.axelor.apps.base.service.app.AppBaseService;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestCurrencyRateIndex {
+
+  private Currency eur;
+  private Currency usd;
+  private List<CurrencyConversionLine> currencyConversionLineList;
+  private CurrencyRateIndex currencyRateIndex;
+
+  @BeforeEach
+  void prepare() {
+    eur = createCurrency("EUR");
+    usd = createCurrency("USD");
+    currencyConversionLineList = new ArrayList<>();
+
+    AppBaseService appBaseService = mock(AppBaseService.class);
+    when(appBaseService.getCurrencyConfigurationLineList()).thenReturn(currencyConversionLineList);
+    currencyRateIndex = new CurrencyRateIndex(appBaseService);
+  }
+
+  @Test
+  void getRate_returnsLatestLineCoveringTheDate() {
+    addLine(1L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), "1.1");
+    addLine(2L, LocalDate.of(2024, 2, 1), null, "1.2");
+
+    Assertions.assertEquals(1L, getRateLineId(LocalDate.of(2024, 1, 15)));
+    Assertions.assertEquals(2L, getRateLineId(LocalDate.of(2024, 2, 1)));
+    Assertions.assertEquals(2L, getRateLineId(LocalDate.of(2024, 6, 1)));
+  }
+
+  @Test
+  void getRate_returnsNullBeforeFirstLine() {
+    addLine(1L, LocalDate.of(2024, 1, 1), null, "1.1");
+
+    Assertions.assertNull(currencyRateIndex.getRate(eur, usd, LocalDate.of(2023, 12, 31)));
+    Assertions.assertNull(currencyRateIndex.getRate(usd, eur, LocalDate.of(2024, 1, 15)));
+  }
+
+  @Test
+  void getRate_whenLatestLineIsClosed_returnsEarlierOpenEndedLine() {
+    addLine(1L, LocalDate.of(2024, 1, 1), null, "1.1");
+    addLine(2L, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), "1.3");
+
+    Assertions.assertEquals(2L, getRateLineId(LocalDate.of(2024, 3, 15)));
+    Assertions.assertEquals(1L, getRateLineId(LocalDate.of(2024, 5, 1)));
+  }
+
+  @Test
+  void getRate_whenLinesStartTheSameDay_returnsFirstCoveringLine() {
+    addLine(1L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 10), "1.1");
+    addLine(2L, LocalDate.of(2024, 1, 1), null, "1.2");
+
+    Assertions.assertEquals(1L, getRateLineId(LocalDate.of(2024, 1, 5)));
+    Assertions.assertEquals(2L, getRateLineId(LocalDate.of(2024, 1, 20)));
+  }
+
+  @Test
+  void getRate_whenNoLineCoversTheDate_returnsNull() {
+    addLine(1L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), "1.1");
+
+    Assertions.assertNull(currencyRateIndex.getRate(eur, usd, LocalDate.of(2024, 2, 1)));
+  }
+
+  protected Long getRateLineId(LocalDate date) {
+    CurrencyRateIndex.Rate rate = currencyRateIndex.getRate(eur, usd, date);
+    Assertions.assertNotNull(rate);
+    return rate.getCurrencyConversionLineId();
+  }
+
+  protected void addLine(Long id, LocalDate fromDate, LocalDate toDate, String exchangeRate) {
+    CurrencyConversionLine ccl = new CurrencyConversionLine();
+    ccl.setId(id);
+    ccl.setStartCurrency(eur);
+    ccl.setEndCurrency(usd);
+    ccl.setFromDate(fromDate);
+    ccl.setToDate(toDate);
+    ccl.setExchangeRate(new BigDecimal(exchangeRate));
+    currencyConversionLineList.add(ccl);
+  }
+
+  protected Currency createCurrency(String codeISO) {
+    Currency currency = new Currency();
+    currency.setCodeISO(codeISO);
+    return currency;
+  }
+}
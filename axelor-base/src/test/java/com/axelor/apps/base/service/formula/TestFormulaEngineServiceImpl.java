@@ -0,0 +1,150 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.formula;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import groovy.lang.MissingPropertyException;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestFormulaEngineServiceImpl {
+
+  private FormulaEngineServiceImpl formulaEngineService;
+
+  @BeforeEach
+  void prepare() {
+    formulaEngineService = new FormulaEngineServiceImpl(10);
+  }
+
+  @Test
+  void evaluate_compilesEachFormulaOnce() {
+    for (int i = 1; i <= 5; i++) {
+      Assertions.assertEquals(i * 2, formulaEngineService.evaluate("x * 2", Map.of("x", i)));
+    }
+    formulaEngineService.evaluate("x + 1", Map.of("x", 1));
+
+    FormulaEngineMetrics metrics = formulaEngineService.getMetrics();
+    Assertions.assertEquals(2, metrics.getCompileCount());
+    Assertions.assertEquals(2, metrics.getMissCount());
+    Assertions.assertEquals(4, metrics.getHitCount());
+    Assertions.assertEquals(6, metrics.getEvaluationCount());
+    Assertions.assertEquals(2, metrics.getCachedFormulaCount());
+  }
+
+  @Test
+  void clearCache_compilesFormulaAgain() {
+    formulaEngineService.evaluate("1 + 1", Map.of());
+    formulaEngineService.clearCache();
+    formulaEngineService.evaluate("1 + 1", Map.of());
+
+    Assertions.assertEquals(2, formulaEngineService.getMetrics().getCompileCount());
+  }
+
+  @Test
+  void evaluate_bindsVariables() {
+    Map<String, Object> variables = Map.of("a", new BigDecimal("1.5"), "b", new BigDecimal("2"));
+
+    Object result = formulaEngineService.evaluate("a + b", variables);
+
+    Assertions.assertEquals(0, new BigDecimal("3.5").compareTo((BigDecimal) result));
+  }
+
+  @Test
+  void evaluate_importsMathStatically() {
+    Assertions.assertEquals(3, formulaEngineService.evaluate("max(x, 3)", Map.of("x", 2)));
+  }
+
+  @Test
+  void evaluate_doesNotLeakAssignedVariables() {
+    Map<String, Object> variables = new HashMap<>();
+    variables.put("x", 1);
+
+    Assertions.assertEquals(2, formulaEngineService.evaluate("y = x + 1; y", variables));
+    Assertions.assertEquals(Map.of("x", 1), variables);
+  }
+
+  @Test
+  void evaluateTemplate_bindsRecords() {
+    Map<String, Object> employee = Map.of("bonusCoef", new BigDecimal("2"));
+    String template = "$Employee.bonusCoef$ * base";
+
+    for (int base = 1; base <= 3; base++) {
+      Object result =
+          formulaEngineService.evaluateTemplate(
+              template,
+              Map.of("Employee", employee),
+              Map.of("base", base),
+              rendered -> {
+                throw new AssertionError("The template should not be rendered");
+              });
+      Assertions.assertEquals(0, BigDecimal.valueOf(2L * base).compareTo((BigDecimal) result));
+    }
+
+    Assertions.assertEquals(1, formulaEngineService.getMetrics().getCompileCount());
+  }
+
+  @Test
+  void evaluateTemplate_withStringLiteral_rendersTemplate() {
+    Object result =
+        formulaEngineService.evaluateTemplate(
+            "'$Employee.name$' == 'Smith'",
+            Map.of("Employee", Map.of("name", "Smith")),
+            Map.of(),
+            template -> template.replace("$Employee.name$", "Smith"));
+
+    Assertions.assertEquals(true, result);
+  }
+
+  @Test
+  void evaluateTemplate_withUnknownRecord_rendersTemplate() {
+    Object result =
+        formulaEngineService.evaluateTemplate(
+            "$Other.value$ + 1", Map.of(), Map.of(), template -> "41 + 1");
+
+    Assertions.assertEquals(42, result);
+  }
+
+  @Test
+  void evaluate_withSyntaxError_throwsAndCountsFailure() {
+    assertThrows(
+        CompilationFailedException.class, () -> formulaEngineService.evaluate("1 +", Map.of()));
+    assertThrows(
+        CompilationFailedException.class, () -> formulaEngineService.evaluate("1 +", Map.of()));
+
+    FormulaEngineMetrics metrics = formulaEngineService.getMetrics();
+    Assertions.assertEquals(2, metrics.getCompileFailureCount());
+    Assertions.assertEquals(0, metrics.getCachedFormulaCount());
+  }
+
+  @Test
+  void evaluate_withMissingVariable_throws() {
+    assertThrows(
+        MissingPropertyException.class, () -> formulaEngineService.evaluate("x + 1", Map.of()));
+
+    // the compiled formula is kept and can be evaluated once the variable is given
+    Assertions.assertEquals(2, formulaEngineService.evaluate("x + 1", Map.of("x", 1)));
+    Assertions.assertEquals(1, formulaEngineService.getMetrics().getCompileCount());
+  }
+}
@@ -22,6 +22,7 @@ import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.service.CurrencyScaleService;
 import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.apps.base.service.formula.FormulaEngineService;
 import com.axelor.apps.budget.db.BudgetScenario;
 import com.axelor.apps.budget.db.BudgetScenarioLine;
 import com.axelor.apps.budget.db.BudgetScenarioVariable;
@@ -31,8 +32,6 @@ import com.axelor.apps.budget.exception.BudgetExceptionMessage;
 import com.axelor.common.ObjectUtils;
 import com.axelor.i18n.I18n;
 import com.axelor.rpc.Context;
-import com.axelor.script.GroovyScriptHelper;
-import com.axelor.script.ScriptHelper;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import java.math.BigDecimal;
@@ -47,15 +46,18 @@ public class BudgetScenarioServiceImpl implements BudgetScenarioService {
   protected BudgetScenarioVariableRepository budgetScenarioVariableRepository;
   protected BudgetScenarioRepository budgetScenarioRepository;
   protected CurrencyScaleService currencyScaleService;
+  protected FormulaEngineService formulaEngineService;
 
   @Inject
   public BudgetScenarioServiceImpl(
       BudgetScenarioVariableRepository budgetScenarioVariableRepository,
       BudgetScenarioRepository budgetScenarioRepository,
-      CurrencyScaleService currencyScaleService) {
+      CurrencyScaleService currencyScaleService,
+      FormulaEngineService formulaEngineService) {
     this.budgetScenarioVariableRepository = budgetScenarioVariableRepository;
     this.budgetScenarioRepository = budgetScenarioRepository;
     this.currencyScaleService = currencyScaleService;
+    this.formulaEngineService = formulaEngineService;
   }
 
   @Override
@@ -211,10 +213,9 @@ public class BudgetScenarioServiceImpl implements BudgetScenarioService {
                   .BUDGET_SCENARIO_VARIABLE_ENTRY_METHOD_TYPE_SELECT_FORMULA
           && variable.getEntryMethod() != null) {
         Context scriptContext = new Context(variableAmountMap, Object.class);
-        ScriptHelper scriptHelper = new GroovyScriptHelper(scriptContext);
 
         try {
-          Object result = scriptHelper.eval(variable.getFormula());
+          Object result = formulaEngineService.evaluate(variable.getFormula(), scriptContext);
           if (result == null) {
             AxelorException exception =
                 new AxelorException(
@@ -247,10 +248,10 @@ public class BudgetScenarioServiceImpl implements BudgetScenarioService {
 
         BudgetScenarioVariable variable = budgetScenarioVariableRepository.findByCode(lineCode);
         Context scriptContext = new Context(variableAmountMap, Object.class);
-        ScriptHelper scriptHelper = new GroovyScriptHelper(scriptContext);
 
         try {
-          variableAmountMap.replace(lineCode, scriptHelper.eval(variable.getFormula()));
+          variableAmountMap.replace(
+              lineCode, formulaEngineService.evaluate(variable.getFormula(), scriptContext));
         } catch (Exception e) {
           // Exceptions will be throwed in traceErrorsOnScenarioMap and will be traced
         }
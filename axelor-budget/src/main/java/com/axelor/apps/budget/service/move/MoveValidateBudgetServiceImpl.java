@@ -104,12 +104,11 @@ public class MoveValidateBudgetServiceImpl extends MoveValidateHRServiceImpl {
   }
 
   @Override
-  public void accounting(Move move) throws AxelorException {
+  protected void beforeAccounting(Move move) throws AxelorException {
+    super.beforeAccounting(move);
 
     if (!moveBudgetService.isBudgetInLines(move)) {
       moveBudgetService.autoComputeBudgetDistribution(move);
     }
-
-    super.accounting(move);
   }
 }
@@ -0,0 +1,144 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.budget.service.move;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.axelor.apps.account.db.AccountConfig;
+import com.axelor.apps.account.db.Move;
+import com.axelor.apps.account.db.repo.MoveRepository;
+import com.axelor.apps.account.service.config.AccountConfigService;
+import com.axelor.apps.account.service.move.MoveSequenceService;
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Period;
+import com.axelor.apps.base.db.repo.PeriodRepository;
+import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.db.Model;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestMoveValidateBudgetService {
+
+  private MoveBudgetService moveBudgetService;
+  private List<Move> accountedMoveList;
+  private MoveValidateBudgetServiceImpl moveValidateBudgetService;
+
+  @BeforeEach
+  void prepare() throws AxelorException {
+    moveBudgetService = mock(MoveBudgetService.class);
+    AccountConfigService accountConfigService = mock(AccountConfigService.class);
+    when(accountConfigService.getAccountConfig(any())).thenReturn(new AccountConfig());
+    accountedMoveList = new ArrayList<>();
+
+    moveValidateBudgetService =
+        new MoveValidateBudgetServiceImpl(
+            null,
+            null,
+            accountConfigService,
+            mock(MoveSequenceService.class),
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            moveBudgetService,
+            null) {
+          @Override
+          protected void preloadMoveLines(List<Long> moveIdList) {}
+
+          @Override
+          protected <T extends Model> void preload(
+              Class<T> modelClass, String idPath, Set<Long> idSet) {}
+
+          @Override
+          public void checkPreconditions(Move move) {}
+
+          @Override
+          protected void completeAccounting(Move move, boolean dayBookMode) {
+            move.setStatusSelect(MoveRepository.STATUS_ACCOUNTED);
+            accountedMoveList.add(move);
+          }
+        };
+  }
+
+  @Test
+  void bulkAccounting_computesBudgetDistributionOfMovesWithoutBudget() throws AxelorException {
+    Move move = createMove(1L);
+    Move budgetMove = createMove(2L);
+    when(moveBudgetService.isBudgetInLines(move)).thenReturn(false);
+    when(moveBudgetService.isBudgetInLines(budgetMove)).thenReturn(true);
+
+    Map<Move, Exception> failureMap =
+        moveValidateBudgetService.bulkAccounting(List.of(move, budgetMove), false);
+
+    Assertions.assertTrue(failureMap.isEmpty());
+    Assertions.assertEquals(List.of(move, budgetMove), accountedMoveList);
+    verify(moveBudgetService).autoComputeBudgetDistribution(move);
+    verify(moveBudgetService, never()).autoComputeBudgetDistribution(budgetMove);
+  }
+
+  @Test
+  void bulkAccounting_reportsMoveFailingBudgetDistribution() throws AxelorException {
+    Move move = createMove(1L);
+    AxelorException budgetException =
+        new AxelorException(TraceBackRepository.CATEGORY_INCONSISTENCY, "budget");
+    when(moveBudgetService.isBudgetInLines(move)).thenReturn(false);
+    doThrow(budgetException).when(moveBudgetService).autoComputeBudgetDistribution(move);
+
+    Map<Move, Exception> failureMap =
+        moveValidateBudgetService.bulkAccounting(List.of(move), false);
+
+    Assertions.assertEquals(Map.of(move, budgetException), failureMap);
+    Assertions.assertTrue(accountedMoveList.isEmpty());
+  }
+
+  protected Move createMove(Long id) {
+    Period period = new Period();
+    period.setStatusSelect(PeriodRepository.STATUS_OPENED);
+
+    Move move = new Move();
+    move.setId(id);
+    move.setStatusSelect(MoveRepository.STATUS_NEW);
+    move.setPeriod(period);
+    return move;
+  }
+}
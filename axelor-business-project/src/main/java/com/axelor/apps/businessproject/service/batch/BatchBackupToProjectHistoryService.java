@@ -21,13 +21,13 @@ package com.axelor.apps.businessproject.service.batch;
 import com.axelor.apps.base.db.repo.BatchRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.administration.AbstractBatch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.businessproject.exception.BusinessProjectExceptionMessage;
 import com.axelor.apps.businessproject.service.ProjectBusinessService;
 import com.axelor.apps.project.db.Project;
 import com.axelor.apps.project.db.repo.ProjectRepository;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
 import com.google.inject.Inject;
 import java.util.List;
@@ -47,17 +47,13 @@ public class BatchBackupToProjectHistoryService extends AbstractBatch {
 
   @Override
   protected void process() {
-    int offset = 0;
     List<Project> projectList;
-    Query<Project> projectQuery =
-        projectRepository
-            .all()
-            .order("id")
+    ChunkedQuery<Project> projectQuery =
+        chunkedQuery(Project.class)
             .filter("self.isBusinessProject = true AND self.projectStatus.isCompleted = false");
-    while (!(projectList = projectQuery.fetch(FETCH_LIMIT, offset)).isEmpty()) {
+    while (!(projectList = projectQuery.fetchNext()).isEmpty()) {
       findBatch();
       for (Project project : projectList) {
-        ++offset;
         try {
           projectBusinessService.backupToProjectHistory(project);
           incrementDone();
@@ -75,6 +71,11 @@ public class BatchBackupToProjectHistoryService extends AbstractBatch {
     }
   }
 
+  @Override
+  protected boolean isProgressBuffered() {
+    return true;
+  }
+
   @Override
   protected void stop() {
 
@@ -92,6 +92,7 @@ public class BatchUpdateTaskService extends AbstractBatch {
             .collect(Collectors.toList());
 
     int offset = 0;
+    int chunkSize = getChunkSize();
     findBatch();
 
     for (Long projectTaskId : projectTaskIdList) {
@@ -109,7 +110,7 @@ public class BatchUpdateTaskService extends AbstractBatch {
                 I18n.get(BusinessProjectExceptionMessage.BATCH_TASK_UPDATION_1), projectTaskId),
             batch.getId());
       }
-      if (offset % FETCH_LIMIT == 0) {
+      if (offset % chunkSize == 0) {
         JPA.clear();
         findBatch();
       }
@@ -131,6 +132,7 @@ public class BatchUpdateTaskService extends AbstractBatch {
             .collect(Collectors.toList());
 
     int offset = 0;
+    int chunkSize = getChunkSize();
     ProjectTask projectTask;
     findBatch();
 
@@ -156,7 +158,7 @@ public class BatchUpdateTaskService extends AbstractBatch {
             ExceptionOriginRepository.INVOICE_ORIGIN,
             batch.getId());
       }
-      if (offset % FETCH_LIMIT == 0) {
+      if (offset % chunkSize == 0) {
         JPA.clear();
         findBatch();
       }
@@ -174,6 +176,7 @@ public class BatchUpdateTaskService extends AbstractBatch {
             .collect(Collectors.toList());
 
     int offset = 0;
+    int chunkSize = getChunkSize();
     TimesheetLine timesheetLine;
     findBatch();
 
@@ -200,7 +203,7 @@ public class BatchUpdateTaskService extends AbstractBatch {
             ExceptionOriginRepository.INVOICE_ORIGIN,
             batch.getId());
       }
-      if (offset % FETCH_LIMIT == 0) {
+      if (offset % chunkSize == 0) {
         JPA.clear();
         findBatch();
       }
@@ -18,7 +18,9 @@
  */
 package com.axelor.apps.contract.batch;
 
+import com.axelor.apps.base.db.Batch;
 import com.axelor.apps.base.db.repo.BatchRepository;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.batch.BatchStrategy;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.contract.db.Contract;
@@ -26,7 +28,6 @@ import com.axelor.apps.contract.db.repo.ContractBatchRepository;
 import com.axelor.apps.contract.db.repo.ContractRepository;
 import com.axelor.apps.contract.translation.ITranslation;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.google.common.base.Preconditions;
@@ -67,21 +68,13 @@ public class BatchContract extends BatchStrategy {
               I18n.get("Action %s has no Batch implementation."),
               batch.getContractBatch().getActionSelect()));
 
-      Query<Contract> query = factory.prepare(batch);
-      List<Contract> contracts;
+      ChunkedQuery<Contract> query = factory.prepare(batch).chunkSize(getChunkSize());
+      String partitionKey = factory.getPartitionKey();
 
-      while (!(contracts = query.fetch(FETCH_LIMIT)).isEmpty()) {
-        findBatch();
-        for (Contract contract : contracts) {
-          try {
-            factory.process(contract);
-            incrementDone(contract);
-          } catch (Exception e) {
-            TraceBackService.trace(e);
-            incrementAnomaly(contract);
-          }
-        }
-        JPA.clear();
+      if (partitionKey == null) {
+        processContracts(factory, query);
+      } else {
+        processPartitioned(query, partitionKey, partition -> processContracts(factory, partition));
       }
     } catch (Exception e) {
       TraceBackService.trace(e);
@@ -89,15 +82,33 @@ public class BatchContract extends BatchStrategy {
     }
   }
 
+  protected void processContracts(BatchContractFactory factory, ChunkedQuery<Contract> query) {
+    List<Contract> contracts;
+
+    while (!(contracts = query.fetchNext()).isEmpty()) {
+      findBatch();
+      for (Contract contract : contracts) {
+        try {
+          factory.process(contract);
+          incrementDone(contract);
+        } catch (Exception e) {
+          TraceBackService.trace(e);
+          incrementAnomaly(contract);
+        }
+      }
+      JPA.clear();
+    }
+  }
+
   protected void incrementDone(Contract contract) {
-    contract.addBatchSetItem(batch);
+    contract.addBatchSetItem(findBatch());
     super.incrementDone();
   }
 
   protected void incrementAnomaly(Contract contract) {
-    findBatch();
+    Batch currentBatch = findBatch();
     contract = repository.find(contract.getId());
-    contract.addBatchSetItem(batch);
+    contract.addBatchSetItem(currentBatch);
     super.incrementAnomaly();
   }
 
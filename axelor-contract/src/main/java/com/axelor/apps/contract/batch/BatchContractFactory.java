@@ -20,12 +20,12 @@ package com.axelor.apps.contract.batch;
 
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Batch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.app.AppBaseService;
 import com.axelor.apps.contract.db.Contract;
 import com.axelor.apps.contract.db.repo.ContractRepository;
 import com.axelor.apps.contract.service.ContractInvoicingService;
 import com.axelor.apps.contract.service.ContractService;
-import com.axelor.db.Query;
 import com.google.inject.Inject;
 
 abstract class BatchContractFactory {
@@ -46,7 +46,15 @@ abstract class BatchContractFactory {
     this.baseService = baseService;
   }
 
-  abstract Query<Contract> prepare(Batch batch);
+  abstract ChunkedQuery<Contract> prepare(Batch batch);
 
   abstract void process(Contract contract) throws AxelorException;
+
+  /**
+   * Returns the path of the key the contracts are partitioned by when several workers are
+   * configured, or {@code null} if the contracts must be processed by a single thread.
+   */
+  String getPartitionKey() {
+    return null;
+  }
 }
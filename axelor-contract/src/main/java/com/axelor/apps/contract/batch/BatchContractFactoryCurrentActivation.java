@@ -20,13 +20,13 @@ package com.axelor.apps.contract.batch;
 
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Batch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.app.AppBaseService;
 import com.axelor.apps.contract.db.Contract;
 import com.axelor.apps.contract.db.repo.ContractRepository;
 import com.axelor.apps.contract.db.repo.ContractVersionRepository;
 import com.axelor.apps.contract.service.ContractInvoicingService;
 import com.axelor.apps.contract.service.ContractService;
-import com.axelor.db.Query;
 import com.google.inject.Inject;
 import java.time.format.DateTimeFormatter;
 
@@ -42,9 +42,8 @@ public class BatchContractFactoryCurrentActivation extends BatchContractFactory
   }
 
   @Override
-  Query<Contract> prepare(Batch batch) {
-    return repository
-        .all()
+  ChunkedQuery<Contract> prepare(Batch batch) {
+    return ChunkedQuery.of(Contract.class)
         .filter(
             "self.currentContractVersion.supposedActivationDate <= :date "
                 + "AND self.currentContractVersion.statusSelect = :status "
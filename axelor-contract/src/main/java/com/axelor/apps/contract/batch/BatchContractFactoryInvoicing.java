@@ -21,13 +21,13 @@ package com.axelor.apps.contract.batch;
 import com.axelor.apps.account.db.Invoice;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Batch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.app.AppBaseService;
 import com.axelor.apps.contract.db.Contract;
 import com.axelor.apps.contract.db.repo.AbstractContractRepository;
 import com.axelor.apps.contract.db.repo.ContractRepository;
 import com.axelor.apps.contract.service.ContractInvoicingService;
 import com.axelor.apps.contract.service.ContractService;
-import com.axelor.db.Query;
 import com.google.inject.Inject;
 
 public class BatchContractFactoryInvoicing extends BatchContractFactory {
@@ -44,10 +44,9 @@ public class BatchContractFactoryInvoicing extends BatchContractFactory {
   }
 
   @Override
-  public Query<Contract> prepare(Batch batch) {
+  public ChunkedQuery<Contract> prepare(Batch batch) {
     this.batch = batch;
-    return repository
-        .all()
+    return ChunkedQuery.of(Contract.class)
         .filter(this.prepareFilter(true))
         .bind("date", batch.getContractBatch().getInvoicingDate())
         .bind("batch", batch)
@@ -63,6 +62,12 @@ public class BatchContractFactoryInvoicing extends BatchContractFactory {
     }
   }
 
+  @Override
+  String getPartitionKey() {
+    // contracts of a partner are invoiced by the same worker
+    return "self.partner.id";
+  }
+
   /**
    * To prepare filter that is to be used while running batch, set considerBatch = true
    *
@@ -20,12 +20,12 @@ package com.axelor.apps.contract.batch;
 
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Batch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.app.AppBaseService;
 import com.axelor.apps.contract.db.Contract;
 import com.axelor.apps.contract.db.repo.ContractRepository;
 import com.axelor.apps.contract.service.ContractInvoicingService;
 import com.axelor.apps.contract.service.ContractService;
-import com.axelor.db.Query;
 import com.google.inject.Inject;
 import java.time.format.DateTimeFormatter;
 
@@ -41,9 +41,8 @@ public class BatchContractFactoryTerminate extends BatchContractFactory {
   }
 
   @Override
-  Query<Contract> prepare(Batch batch) {
-    return repository
-        .all()
+  ChunkedQuery<Contract> prepare(Batch batch) {
+    return ChunkedQuery.of(Contract.class)
         .filter(
             "(self.terminatedDate <= :date "
                 + " OR self.currentContractVersion.supposedEndDate <= :date)"
@@ -23,6 +23,7 @@ import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Duration;
 import com.axelor.apps.base.db.repo.DurationRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.contract.db.Contract;
 import com.axelor.apps.contract.db.repo.ContractRepository;
@@ -33,7 +34,6 @@ import com.axelor.apps.contract.service.ContractService;
 import com.axelor.apps.contract.service.ContractVersionService;
 import com.axelor.apps.contract.translation.ITranslation;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
@@ -76,27 +76,15 @@ public class BatchContractRevaluate extends BatchStrategy {
   }
 
   protected void revaluateContracts() {
-    List<Long> idsOk = new ArrayList<>();
-    List<Long> idsFail = new ArrayList<>();
     List<Long> idsReevaluated = new ArrayList<>();
-    idsOk.add(0L);
-    idsFail.add(0L);
-    Query<Contract> query =
-        contractRepository
-            .all()
+    ChunkedQuery<Contract> query =
+        chunkedQuery(Contract.class)
             .filter(
-                "self.isToRevaluate = true AND self.currentContractVersion.statusSelect = :onGoingStatus AND self.id NOT IN (:idsOk) AND self.id NOT IN (:idsFail)");
+                "self.isToRevaluate = true AND self.currentContractVersion.statusSelect = :onGoingStatus")
+            .bind("onGoingStatus", ContractVersionRepository.ONGOING_VERSION);
     List<Contract> contractList;
-    while (!(contractList =
-            query
-                .bind("onGoingStatus", ContractVersionRepository.ONGOING_VERSION)
-                .bind("idsOk", idsOk)
-                .bind("idsFail", idsFail)
-                .fetch(FETCH_LIMIT))
-        .isEmpty()) {
+    while (!(contractList = query.fetchNext()).isEmpty()) {
       Map<String, List<Contract>> ids = revaluateContracts(contractList);
-      idsOk.addAll(ids.get("OK").stream().map(Contract::getId).collect(Collectors.toList()));
-      idsFail.addAll(ids.get("FAIL").stream().map(Contract::getId).collect(Collectors.toList()));
       idsReevaluated.addAll(
           ids.get("REEVALUATED").stream().map(Contract::getId).collect(Collectors.toList()));
       JPA.clear();
@@ -0,0 +1,108 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.gdpr.event;
+
+import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.apps.gdpr.db.GDPRSearchConfig;
+import com.axelor.apps.gdpr.service.GdprSearchConfigModelCache;
+import com.axelor.apps.gdpr.service.GdprSearchIndexService;
+import com.axelor.apps.gdpr.service.app.AppGdprService;
+import com.axelor.auth.db.AuditableModel;
+import com.axelor.db.Query;
+import com.axelor.event.Observes;
+import com.axelor.events.PostRequest;
+import com.axelor.events.RequestEvent;
+import com.axelor.inject.Beans;
+import com.axelor.studio.db.AppGdpr;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.inject.Named;
+
+/** Keeps the GDPR search index up to date with the records saved or removed from the views. */
+public class GdprSearchIndexObserver {
+
+  void onSave(@Observes @Named(RequestEvent.SAVE) PostRequest event) {
+    Optional<GDPRSearchConfig> searchConfig = getSearchConfig(event);
+    if (!searchConfig.isPresent()) {
+      return;
+    }
+
+    @SuppressWarnings("unchecked")
+    Class<? extends AuditableModel> modelClass =
+        (Class<? extends AuditableModel>) event.getRequest().getBeanClass();
+    List<Long> idList = getIdList(event.getResponse().getData());
+    if (idList.isEmpty()) {
+      return;
+    }
+
+    try {
+      Beans.get(GdprSearchIndexService.class)
+          .index(
+              searchConfig.get(),
+              Query.of(modelClass).filter("self.id IN :idList").bind("idList", idList).fetch());
+    } catch (Exception e) {
+      TraceBackService.trace(e);
+    }
+  }
+
+  void onRemove(@Observes @Named(RequestEvent.REMOVE) PostRequest event) {
+    Optional<GDPRSearchConfig> searchConfig = getSearchConfig(event);
+    if (!searchConfig.isPresent()) {
+      return;
+    }
+
+    Beans.get(GdprSearchIndexService.class)
+        .remove(
+            searchConfig.get().getMetaModel().getFullName(),
+            getIdList(event.getRequest().getRecords()));
+  }
+
+  protected Optional<GDPRSearchConfig> getSearchConfig(PostRequest event) {
+    String modelName = event.getRequest().getBeanClass().getName();
+    if (!Beans.get(GdprSearchConfigModelCache.class).isConfigured(modelName)) {
+      return Optional.empty();
+    }
+
+    AppGdpr appGdpr = Beans.get(AppGdprService.class).getAppGDPR();
+    if (appGdpr == null || !appGdpr.getUseSearchIndex()) {
+      return Optional.empty();
+    }
+
+    return appGdpr.getSearchConfigList().stream()
+        .filter(searchConfig -> modelName.equals(searchConfig.getMetaModel().getFullName()))
+        .findFirst();
+  }
+
+  protected List<Long> getIdList(Object data) {
+    List<Long> idList = new ArrayList<>();
+    if (!(data instanceof Collection)) {
+      return idList;
+    }
+
+    for (Object record : (Collection<?>) data) {
+      if (record instanceof Map && ((Map<?, ?>) record).get("id") != null) {
+        idList.add(Long.parseLong(String.valueOf(((Map<?, ?>) record).get("id"))));
+      }
+    }
+    return idList;
+  }
+}
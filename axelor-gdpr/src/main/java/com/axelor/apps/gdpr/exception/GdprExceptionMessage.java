@@ -22,6 +22,12 @@ public final class GdprExceptionMessage {
 
   public static final String FIELD_NOT_FOUND = /*$$(*/ "This field doesn't exist." /*)*/;
 
+  public static final String SEARCH_INDEX_FIELD_NOT_FOUND = /*$$(*/
+      "Field %s of model %s can not be found." /*)*/;
+
+  public static final String SEARCH_INDEX_REBUILT = /*$$(*/
+      "The search index has been rebuilt." /*)*/;
+
   public static final String NO_LINE_SELECTED = /*$$(*/ "Please select a line" /*)*/;
 
   public static final String TOO_MUCH_LINE_SELECTED = /*$$(*/ "Please select only one line" /*)*/;
@@ -0,0 +1,58 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.gdpr.job;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.apps.gdpr.service.GdprSearchIndexService;
+import com.axelor.apps.gdpr.service.app.AppGdprService;
+import com.axelor.studio.db.AppGdpr;
+import com.google.inject.Inject;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Indexes the records created or updated since the last indexation of the GDPR search
+ * configurations, so that a search only has the latest changes to index.
+ */
+public class GdprSearchIndexJob implements Job {
+
+  private final Logger log = LoggerFactory.getLogger(GdprSearchIndexJob.class);
+
+  @Inject AppGdprService appGdprService;
+  @Inject GdprSearchIndexService gdprSearchIndexService;
+
+  @Override
+  public void execute(JobExecutionContext context) throws JobExecutionException {
+    AppGdpr appGdpr = appGdprService.getAppGDPR();
+    if (appGdpr == null || !appGdpr.getUseSearchIndex()) {
+      return;
+    }
+
+    log.trace("Begin GDPR search index job");
+    try {
+      gdprSearchIndexService.refresh(appGdpr.getSearchConfigList());
+    } catch (ClassNotFoundException | AxelorException e) {
+      TraceBackService.trace(e);
+    }
+  }
+}
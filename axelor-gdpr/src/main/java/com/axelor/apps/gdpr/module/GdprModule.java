@@ -19,12 +19,15 @@
 package com.axelor.apps.gdpr.module;
 
 import com.axelor.app.AxelorModule;
+import com.axelor.apps.gdpr.event.GdprSearchIndexObserver;
 import com.axelor.apps.gdpr.service.GdprAnonymizeService;
 import com.axelor.apps.gdpr.service.GdprAnonymizeServiceImpl;
 import com.axelor.apps.gdpr.service.GdprErasureLogService;
 import com.axelor.apps.gdpr.service.GdprErasureLogServiceImpl;
 import com.axelor.apps.gdpr.service.GdprSearchEngineService;
 import com.axelor.apps.gdpr.service.GdprSearchEngineServiceImpl;
+import com.axelor.apps.gdpr.service.GdprSearchIndexService;
+import com.axelor.apps.gdpr.service.GdprSearchIndexServiceImpl;
 import com.axelor.apps.gdpr.service.app.AppGdprService;
 import com.axelor.apps.gdpr.service.app.AppGdprServiceImpl;
 import com.axelor.apps.gdpr.service.response.GdprDataToExcludeService;
@@ -50,5 +53,7 @@ public class GdprModule extends AxelorModule {
     bind(GdprSearchEngineService.class).to(GdprSearchEngineServiceImpl.class);
     bind(GdprGenerateFilesService.class).to(GdprGenerateFilesServiceImpl.class);
     bind(GdprDataToExcludeService.class).to(GdprDataToExcludeServiceImpl.class);
+    bind(GdprSearchIndexService.class).to(GdprSearchIndexServiceImpl.class);
+    bind(GdprSearchIndexObserver.class);
   }
 }
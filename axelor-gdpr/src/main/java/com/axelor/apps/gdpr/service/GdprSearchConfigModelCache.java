@@ -0,0 +1,81 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.gdpr.service;
+
+import com.axelor.db.JPA;
+import com.google.inject.Singleton;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Full names of the models having a GDPR search configuration, so that the records saved or removed
+ * from the views of the other models are not checked against the GDPR app.
+ *
+ * <p>The names are loaded on first use and invalidated whenever a GDPR search configuration is
+ * created, updated or removed, see {@link
+ * com.axelor.apps.gdpr.db.repo.GDPRSearchConfigListener}.
+ */
+@Singleton
+public class GdprSearchConfigModelCache {
+
+  private volatile Set<String> modelNameSet;
+  private long generation;
+
+  /** Returns whether the given model has a GDPR search configuration. */
+  public boolean isConfigured(String modelName) {
+    return getModelNameSet().contains(modelName);
+  }
+
+  public synchronized void invalidate() {
+    generation++;
+    modelNameSet = null;
+  }
+
+  protected Set<String> getModelNameSet() {
+    Set<String> currentModelNameSet = modelNameSet;
+    if (currentModelNameSet != null) {
+      return currentModelNameSet;
+    }
+
+    long loadGeneration;
+    synchronized (this) {
+      loadGeneration = generation;
+    }
+
+    currentModelNameSet = loadModelNameSet();
+
+    synchronized (this) {
+      // do not keep names loaded while the configurations were changing
+      if (loadGeneration == generation) {
+        modelNameSet = currentModelNameSet;
+      }
+    }
+    return currentModelNameSet;
+  }
+
+  protected Set<String> loadModelNameSet() {
+    return new HashSet<>(
+        JPA.em()
+            .createQuery(
+                "SELECT metaModel.fullName FROM GDPRSearchConfig self"
+                    + " JOIN self.metaModel metaModel",
+                String.class)
+            .getResultList());
+  }
+}
@@ -18,40 +18,69 @@
  */
 package com.axelor.apps.gdpr.service;
 
+import com.axelor.app.AppSettings;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.gdpr.db.GDPRSearchConfig;
 import com.axelor.apps.gdpr.db.GDPRSearchConfigLine;
+import com.axelor.apps.gdpr.db.repo.GDPRSearchConfigRepository;
 import com.axelor.apps.gdpr.exception.GdprExceptionMessage;
 import com.axelor.apps.gdpr.service.app.AppGdprService;
 import com.axelor.auth.db.AuditableModel;
 import com.axelor.common.StringUtils;
+import com.axelor.db.EntityHelper;
 import com.axelor.db.Query;
 import com.axelor.db.mapper.Mapper;
 import com.axelor.i18n.I18n;
+import com.axelor.inject.Beans;
 import com.axelor.meta.db.MetaField;
 import com.axelor.meta.db.MetaModel;
 import com.axelor.meta.db.repo.MetaModelRepository;
 import com.axelor.rpc.Context;
 import com.axelor.script.GroovyScriptHelper;
+import com.axelor.studio.db.AppGdpr;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
+import com.google.inject.persist.UnitOfWork;
+import com.google.inject.servlet.RequestScoper;
+import com.google.inject.servlet.ServletScopes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 public class GdprSearchEngineServiceImpl implements GdprSearchEngineService {
 
+  /** Application setting giving the number of search configurations queried at the same time. */
+  public static final String WORKER_COUNT_SETTING = "gdpr.search.workers";
+
+  protected static final int DEFAULT_WORKER_COUNT = 4;
+
+  protected static final int ID_CHUNK_SIZE = 1000;
+
   protected AppGdprService appGDPRService;
   protected MetaModelRepository metaModelRepo;
+  protected GdprSearchIndexService gdprSearchIndexService;
+  protected GDPRSearchConfigRepository searchConfigRepo;
 
   @Inject
   public GdprSearchEngineServiceImpl(
-      AppGdprService appGDPRService, MetaModelRepository metaModelRepo) {
+      AppGdprService appGDPRService,
+      MetaModelRepository metaModelRepo,
+      GdprSearchIndexService gdprSearchIndexService,
+      GDPRSearchConfigRepository searchConfigRepo) {
     this.appGDPRService = appGDPRService;
     this.metaModelRepo = metaModelRepo;
+    this.gdprSearchIndexService = gdprSearchIndexService;
+    this.searchConfigRepo = searchConfigRepo;
   }
 
   @Override
@@ -104,32 +133,155 @@ public class GdprSearchEngineServiceImpl implements GdprSearchEngineService {
    * @param searchParams
    * @return
    * @throws ClassNotFoundException
+   * @throws AxelorException
    */
   public List<Map<String, Object>> bindDataUsingSearchConfig(Map<String, Object> searchParams)
-      throws ClassNotFoundException {
-    List<GDPRSearchConfig> searchConfigs = appGDPRService.getAppGDPR().getSearchConfigList();
+      throws ClassNotFoundException, AxelorException {
+    AppGdpr appGdpr = appGDPRService.getAppGDPR();
+    List<Long> searchConfigIdList =
+        appGdpr.getSearchConfigList().stream()
+            .map(GDPRSearchConfig::getId)
+            .collect(Collectors.toList());
 
-    List<Map<String, Object>> results = new ArrayList<>();
+    if (appGdpr.getUseSearchIndex()) {
+      return searchUsingIndex(searchParams, searchConfigIdList);
+    }
 
-    for (GDPRSearchConfig searchConfig : searchConfigs) {
-      MetaModel metaModel = searchConfig.getMetaModel();
-      Class<? extends AuditableModel> modelClass =
-          (Class<? extends AuditableModel>) Class.forName(metaModel.getFullName());
+    return searchConcurrently(searchParams, searchConfigIdList);
+  }
 
-      String query = buildSearchQuery(searchParams, searchConfig);
+  /**
+   * Searches the candidates in the search index, which is first topped up with the records created
+   * or updated since its last update, then checks them against the search configurations. The
+   * configurations whose index is not up to date are searched with their query only.
+   */
+  protected List<Map<String, Object>> searchUsingIndex(
+      Map<String, Object> searchParams, List<Long> searchConfigIdList)
+      throws ClassNotFoundException, AxelorException {
+    Set<Long> indexedIdSet = gdprSearchIndexService.topUp(getSearchConfigList(searchConfigIdList));
+
+    List<GDPRSearchConfig> searchConfigList = getSearchConfigList(searchConfigIdList);
+    Map<Long, List<Long>> idListMap =
+        gdprSearchIndexService.search(
+            searchConfigList.stream()
+                .filter(searchConfig -> indexedIdSet.contains(searchConfig.getId()))
+                .collect(Collectors.toList()),
+            searchParams);
 
-      if (StringUtils.isBlank(query)) {
+    List<Map<String, Object>> results = new ArrayList<>();
+    for (GDPRSearchConfig searchConfig : searchConfigList) {
+      List<Long> idList = idListMap.get(searchConfig.getId());
+      if (idList == null) {
+        // not indexed, no filled parameter, or only values too short to be searched in the index
+        results.addAll(searchInConfig(searchParams, searchConfig, null));
         continue;
       }
+      for (List<Long> idChunk : Lists.partition(idList, ID_CHUNK_SIZE)) {
+        results.addAll(searchInConfig(searchParams, searchConfig, idChunk));
+      }
+    }
+    return results;
+  }
 
-      //       apply search config query
-      List<? extends AuditableModel> models =
-          Query.of(modelClass).filter(query).bind(searchParams).fetch();
+  /**
+   * Runs the query of every search configuration, several at the same time, see {@link
+   * #WORKER_COUNT_SETTING}. The results are kept in the order of the configurations.
+   */
+  protected List<Map<String, Object>> searchConcurrently(
+      Map<String, Object> searchParams, List<Long> searchConfigIdList)
+      throws ClassNotFoundException, AxelorException {
+    int workerCount =
+        Math.min(
+            searchConfigIdList.size(),
+            AppSettings.get().getInt(WORKER_COUNT_SETTING, DEFAULT_WORKER_COUNT));
+    if (workerCount <= 1) {
+      List<Map<String, Object>> results = new ArrayList<>();
+      for (GDPRSearchConfig searchConfig : getSearchConfigList(searchConfigIdList)) {
+        results.addAll(searchInConfig(searchParams, searchConfig, null));
+      }
+      return results;
+    }
+
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            workerCount,
+            runnable -> {
+              Thread thread = new Thread(runnable, "gdpr-search");
+              thread.setDaemon(true);
+              return thread;
+            });
 
-      models.forEach(model -> results.add(convertResultToDisplayMap(searchConfig, model)));
+    try {
+      List<Future<List<Map<String, Object>>>> futureList = new ArrayList<>();
+      for (Long searchConfigId : searchConfigIdList) {
+        futureList.add(executor.submit(() -> searchInWorker(searchParams, searchConfigId)));
+      }
+
+      List<Map<String, Object>> results = new ArrayList<>();
+      for (Future<List<Map<String, Object>>> future : futureList) {
+        results.addAll(future.get());
+      }
+      return results;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ClassNotFoundException) {
+        throw (ClassNotFoundException) e.getCause();
+      }
+      throw new AxelorException(e.getCause(), TraceBackRepository.CATEGORY_INCONSISTENCY);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AxelorException(e, TraceBackRepository.CATEGORY_INCONSISTENCY);
+    } finally {
+      executor.shutdownNow();
     }
+  }
 
-    return results;
+  protected List<Map<String, Object>> searchInWorker(
+      Map<String, Object> searchParams, Long searchConfigId) throws ClassNotFoundException {
+    RequestScoper scope = ServletScopes.scopeRequest(Collections.emptyMap());
+    try (RequestScoper.CloseableScope ignored = scope.open()) {
+      return searchInConfig(searchParams, searchConfigRepo.find(searchConfigId), null);
+    } finally {
+      Beans.get(UnitOfWork.class).end();
+    }
+  }
+
+  /**
+   * Runs the query of a search configuration.
+   *
+   * @param searchParams the search parameters
+   * @param searchConfig the search configuration
+   * @param idList the records to search in, all the records when null
+   * @return the matching records, converted with {@link #convertResultToDisplayMap}
+   * @throws ClassNotFoundException if the model of the configuration does not exist
+   */
+  protected List<Map<String, Object>> searchInConfig(
+      Map<String, Object> searchParams, GDPRSearchConfig searchConfig, List<Long> idList)
+      throws ClassNotFoundException {
+    MetaModel metaModel = searchConfig.getMetaModel();
+    Class<? extends AuditableModel> modelClass =
+        (Class<? extends AuditableModel>) Class.forName(metaModel.getFullName());
+
+    String query = buildSearchQuery(searchParams, searchConfig);
+
+    if (StringUtils.isBlank(query) || (idList != null && idList.isEmpty())) {
+      return Collections.emptyList();
+    }
+
+    if (idList != null) {
+      query = "self.id IN :_gdprIdList AND (" + query + ")";
+    }
+
+    //       apply search config query
+    List<? extends AuditableModel> models =
+        Query.of(modelClass).filter(query).bind(searchParams).bind("_gdprIdList", idList).fetch();
+
+    return models.stream()
+        .map(model -> convertResultToDisplayMap(searchConfig, model))
+        .collect(Collectors.toList());
+  }
+
+  protected List<GDPRSearchConfig> getSearchConfigList(List<Long> searchConfigIdList) {
+    return searchConfigIdList.stream().map(searchConfigRepo::find).collect(Collectors.toList());
   }
 
   public String buildSearchQuery(Map<String, Object> searchParams, GDPRSearchConfig searchConfig) {
@@ -164,16 +316,29 @@ public class GdprSearchEngineServiceImpl implements GdprSearchEngineService {
    */
   public Map<String, Object> convertResultToDisplayMap(
       GDPRSearchConfig searchConfig, AuditableModel reference) {
-    Context scriptContext = new Context(Mapper.toMap(reference), reference.getClass());
     Map<String, Object> mappedObject = new HashMap<>();
 
     mappedObject.put("type", I18n.get(reference.getClass().getSimpleName()));
     mappedObject.put("typeClass", reference.getClass().getName());
     mappedObject.put("objectId", reference.getId());
 
+    Class<?> modelClass = EntityHelper.getEntityClass(reference);
+    Context scriptContext = null;
     for (GDPRSearchConfigLine searchConfigLine : searchConfig.getSearchConfigLineList()) {
-      mappedObject.put(
-          searchConfigLine.getKey(), evalField(scriptContext, searchConfigLine.getMapping()));
+      String mapping = searchConfigLine.getMapping();
+      String value;
+      if (StringUtils.notBlank(mapping) && gdprSearchIndexService.isPath(modelClass, mapping)) {
+        value =
+            Optional.ofNullable(gdprSearchIndexService.getPathValue(reference, mapping))
+                .map(Object::toString)
+                .orElse("");
+      } else {
+        if (scriptContext == null) {
+          scriptContext = new Context(Mapper.toMap(reference), reference.getClass());
+        }
+        value = evalField(scriptContext, mapping);
+      }
+      mappedObject.put(searchConfigLine.getKey(), value);
     }
 
     return mappedObject;
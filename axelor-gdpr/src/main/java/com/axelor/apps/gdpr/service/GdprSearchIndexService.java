@@ -0,0 +1,137 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.gdpr.service;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.gdpr.db.GDPRSearchConfig;
+import com.axelor.auth.db.AuditableModel;
+import com.axelor.db.Model;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the substrings of the normalized names, emails and phones of the records of the GDPR
+ * search configurations, used by the search engine when enabled in the GDPR app.
+ */
+public interface GdprSearchIndexService {
+
+  String KEY_EMAIL = "email";
+  String KEY_PHONE = "phone";
+
+  /**
+   * Indexes the records of the given configurations created or updated since their last
+   * indexation, or all their records when they were never indexed. Run by {@link
+   * com.axelor.apps.gdpr.job.GdprSearchIndexJob}, waiting for a refresh of the same configuration
+   * to end.
+   *
+   * @param searchConfigList the search configurations
+   * @throws ClassNotFoundException if the model of a configuration does not exist
+   * @throws AxelorException if an indexed field does not exist
+   */
+  void refresh(List<GDPRSearchConfig> searchConfigList)
+      throws ClassNotFoundException, AxelorException;
+
+  /**
+   * Indexes the records of the given configurations created or updated since their last
+   * indexation, before a search. The configurations never indexed, or being indexed at the same
+   * time, are skipped.
+   *
+   * @param searchConfigList the search configurations
+   * @return the ids of the configurations whose index is up to date
+   * @throws ClassNotFoundException if the model of a configuration does not exist
+   * @throws AxelorException if an indexed field does not exist
+   */
+  Set<Long> topUp(List<GDPRSearchConfig> searchConfigList)
+      throws ClassNotFoundException, AxelorException;
+
+  /**
+   * Removes the index of the given configurations and indexes all their records again.
+   *
+   * @param searchConfigList the search configurations
+   * @throws ClassNotFoundException if the model of a configuration does not exist
+   * @throws AxelorException if an indexed field does not exist
+   */
+  void rebuild(List<GDPRSearchConfig> searchConfigList)
+      throws ClassNotFoundException, AxelorException;
+
+  /**
+   * Replaces the index of the given records.
+   *
+   * @param searchConfig the configuration of the model of the records
+   * @param modelList the records
+   * @throws AxelorException if an indexed field does not exist
+   */
+  void index(GDPRSearchConfig searchConfig, List<? extends AuditableModel> modelList)
+      throws AxelorException;
+
+  /**
+   * Removes the index of the given records.
+   *
+   * @param modelName the full name of the model of the records
+   * @param idList the ids of the records
+   */
+  void remove(String modelName, Collection<Long> idList);
+
+  /**
+   * Searches the index for the candidate records of the filled search parameters configured for
+   * their model. The candidates include every record found by the configured queries, and must be
+   * checked with them.
+   *
+   * @param searchConfigList the search configurations
+   * @param searchParams the search parameters, by key
+   * @return the ids of the candidate records by search configuration id, only for the
+   *     configurations having at least one filled parameter long enough to be searched in the
+   *     index, the others being searched with their queries only
+   */
+  Map<Long, List<Long>> search(
+      List<GDPRSearchConfig> searchConfigList, Map<String, Object> searchParams);
+
+  /**
+   * Returns the tokens stored in the index for a value of the given key: every substring of a given
+   * length of the normalized value.
+   */
+  Set<String> getIndexTokens(String key, String value);
+
+  /**
+   * Returns the tokens to look for in the index for a searched value of the given key, empty when
+   * the value is too short to be searched in the index.
+   */
+  Set<String> getSearchTokens(String key, String value);
+
+  /**
+   * Returns whether the given string is a field path, such as {@code emailAddress.address}, of the
+   * model rather than a script.
+   *
+   * @param modelClass the class of the model
+   * @param path the field path
+   * @return true if every field of the path exists and is not a collection
+   */
+  boolean isPath(Class<?> modelClass, String path);
+
+  /**
+   * Returns the value of a field path of a record, see {@link #isPath}.
+   *
+   * @param model the record
+   * @param path the field path
+   * @return the value, null if a field of the path is empty or does not exist
+   */
+  Object getPathValue(Model model, String path);
+}
@@ -0,0 +1,462 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.gdpr.service;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
+import com.axelor.apps.gdpr.db.GDPRSearchConfig;
+import com.axelor.apps.gdpr.db.GDPRSearchConfigLine;
+import com.axelor.apps.gdpr.db.GDPRSearchIndex;
+import com.axelor.apps.gdpr.db.repo.GDPRSearchConfigRepository;
+import com.axelor.apps.gdpr.db.repo.GDPRSearchIndexRepository;
+import com.axelor.apps.gdpr.exception.GdprExceptionMessage;
+import com.axelor.auth.db.AuditableModel;
+import com.axelor.common.StringUtils;
+import com.axelor.db.EntityHelper;
+import com.axelor.db.JPA;
+import com.axelor.db.Model;
+import com.axelor.db.Query;
+import com.axelor.db.mapper.Mapper;
+import com.axelor.db.mapper.Property;
+import com.axelor.i18n.I18n;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.persist.Transactional;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.persistence.TypedQuery;
+import org.hibernate.Session;
+
+@Singleton
+public class GdprSearchIndexServiceImpl implements GdprSearchIndexService {
+
+  /**
+   * Records updated shortly before the last indexation are indexed again, in case their
+   * transaction was committed after it.
+   */
+  protected static final long INDEX_OVERLAP_MINUTES = 5;
+
+  /**
+   * Length of the tokens: the values are indexed on all their substrings of this length, so that a
+   * part of a value can be searched as the configured queries do.
+   */
+  protected static final int NGRAM_LENGTH = 3;
+
+  protected static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+  protected static final Pattern NON_DIGIT = Pattern.compile("\\D+");
+
+  /** Number of index rows sent to the database in one JDBC batch. */
+  protected static final int INSERT_BATCH_SIZE = 50;
+
+  /** Prevents two refreshes from indexing the records of a configuration at the same time. */
+  protected final Map<Long, ReentrantLock> refreshLockMap = new ConcurrentHashMap<>();
+
+  protected GDPRSearchConfigRepository searchConfigRepo;
+  protected GDPRSearchIndexRepository searchIndexRepo;
+
+  @Inject
+  public GdprSearchIndexServiceImpl(
+      GDPRSearchConfigRepository searchConfigRepo, GDPRSearchIndexRepository searchIndexRepo) {
+    this.searchConfigRepo = searchConfigRepo;
+    this.searchIndexRepo = searchIndexRepo;
+  }
+
+  @Override
+  public void refresh(List<GDPRSearchConfig> searchConfigList)
+      throws ClassNotFoundException, AxelorException {
+    List<Long> searchConfigIdList =
+        searchConfigList.stream().map(GDPRSearchConfig::getId).collect(Collectors.toList());
+
+    for (Long searchConfigId : searchConfigIdList) {
+      ReentrantLock lock = getRefreshLock(searchConfigId);
+      lock.lock();
+      try {
+        GDPRSearchConfig searchConfig = searchConfigRepo.find(searchConfigId);
+        refresh(searchConfig, getModelClass(searchConfig));
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public Set<Long> topUp(List<GDPRSearchConfig> searchConfigList)
+      throws ClassNotFoundException, AxelorException {
+    List<Long> searchConfigIdList =
+        searchConfigList.stream().map(GDPRSearchConfig::getId).collect(Collectors.toList());
+
+    Set<Long> indexedIdSet = new LinkedHashSet<>();
+    for (Long searchConfigId : searchConfigIdList) {
+      ReentrantLock lock = getRefreshLock(searchConfigId);
+      // a configuration being indexed by the job is searched with its query meanwhile
+      if (!lock.tryLock()) {
+        continue;
+      }
+      try {
+        GDPRSearchConfig searchConfig = searchConfigRepo.find(searchConfigId);
+        if (searchConfig.getIndexedOn() == null) {
+          continue;
+        }
+        refresh(searchConfig, getModelClass(searchConfig));
+        indexedIdSet.add(searchConfigId);
+      } finally {
+        lock.unlock();
+      }
+    }
+    return indexedIdSet;
+  }
+
+  protected ReentrantLock getRefreshLock(Long searchConfigId) {
+    return refreshLockMap.computeIfAbsent(searchConfigId, id -> new ReentrantLock());
+  }
+
+  protected <T extends AuditableModel> void refresh(
+      GDPRSearchConfig searchConfig, Class<T> modelClass) throws AxelorException {
+    Long searchConfigId = searchConfig.getId();
+    LocalDateTime indexedOn = searchConfig.getIndexedOn();
+    LocalDateTime refreshDateTime = LocalDateTime.now();
+
+    ChunkedQuery<T> chunkedQuery = ChunkedQuery.of(modelClass).transactional(true);
+    if (indexedOn != null) {
+      chunkedQuery
+          .filter(getRefreshFilter(searchConfig, modelClass))
+          .bind("indexedOn", indexedOn.minusMinutes(INDEX_OVERLAP_MINUTES));
+    }
+    chunkedQuery.forEachChunk(
+        modelList -> index(searchConfigRepo.find(searchConfigId), modelList));
+
+    JPA.runInTransaction(() -> updateIndexedOn(searchConfigId, refreshDateTime));
+  }
+
+  /**
+   * Returns the filter of the records to index again, created or updated since {@code
+   * :indexedOn}. An indexed field read through a relation, such as {@code emailAddress.address},
+   * changes without updating the record, so the records whose related record was created or
+   * updated since then are selected too.
+   */
+  protected String getRefreshFilter(GDPRSearchConfig searchConfig, Class<?> modelClass) {
+    List<String> filterList = new ArrayList<>();
+    filterList.add("self.createdOn >= :indexedOn");
+    filterList.add("self.updatedOn >= :indexedOn");
+
+    Set<String> relationPathSet = new LinkedHashSet<>();
+    for (GDPRSearchConfigLine searchConfigLine : searchConfig.getSearchConfigLineList()) {
+      for (String path : getIndexedPaths(searchConfigLine)) {
+        Class<?> currentClass = modelClass;
+        String relationPath = null;
+        String[] names = path.split("\\.");
+        for (int i = 0; i < names.length - 1 && currentClass != null; i++) {
+          Property property = Mapper.of(currentClass).getProperty(names[i]);
+          currentClass = property != null ? property.getTarget() : null;
+          if (currentClass == null) {
+            break;
+          }
+          relationPath = relationPath == null ? names[i] : relationPath + "." + names[i];
+          if (AuditableModel.class.isAssignableFrom(currentClass)
+              && relationPathSet.add(relationPath)) {
+            filterList.add(
+                String.format(
+                    "self.%s.id IN (SELECT related.id FROM %s related"
+                        + " WHERE related.createdOn >= :indexedOn"
+                        + " OR related.updatedOn >= :indexedOn)",
+                    relationPath, currentClass.getSimpleName()));
+          }
+        }
+      }
+    }
+    return String.join(" OR ", filterList);
+  }
+
+  protected void updateIndexedOn(Long searchConfigId, LocalDateTime indexedOn) {
+    GDPRSearchConfig searchConfig = searchConfigRepo.find(searchConfigId);
+    searchConfig.setIndexedOn(indexedOn);
+    searchConfigRepo.save(searchConfig);
+  }
+
+  @Override
+  public void rebuild(List<GDPRSearchConfig> searchConfigList)
+      throws ClassNotFoundException, AxelorException {
+    for (GDPRSearchConfig searchConfig : searchConfigList) {
+      Long searchConfigId = searchConfig.getId();
+      JPA.runInTransaction(() -> clear(searchConfigId));
+    }
+    refresh(searchConfigList);
+  }
+
+  protected void clear(Long searchConfigId) {
+    GDPRSearchConfig searchConfig = searchConfigRepo.find(searchConfigId);
+    Query.of(GDPRSearchIndex.class)
+        .filter("self.modelName = :modelName")
+        .bind("modelName", searchConfig.getMetaModel().getFullName())
+        .delete();
+    searchConfig.setIndexedOn(null);
+    searchConfigRepo.save(searchConfig);
+  }
+
+  @Override
+  @Transactional(rollbackOn = {Exception.class})
+  public void index(GDPRSearchConfig searchConfig, List<? extends AuditableModel> modelList)
+      throws AxelorException {
+    if (modelList.isEmpty()) {
+      return;
+    }
+
+    String modelName = searchConfig.getMetaModel().getFullName();
+    remove(modelName, modelList.stream().map(Model::getId).collect(Collectors.toList()));
+
+    List<GDPRSearchIndex> searchIndexList = new ArrayList<>();
+    for (AuditableModel model : modelList) {
+      for (GDPRSearchConfigLine searchConfigLine : searchConfig.getSearchConfigLineList()) {
+        String key = searchConfigLine.getKey();
+        Set<String> tokenSet = new LinkedHashSet<>();
+        for (String value : getIndexedValues(searchConfigLine, model)) {
+          tokenSet.addAll(getIndexTokens(key, value));
+        }
+
+        for (String token : tokenSet) {
+          GDPRSearchIndex searchIndex = new GDPRSearchIndex();
+          searchIndex.setModelName(modelName);
+          searchIndex.setRelatedId(model.getId());
+          searchIndex.setSearchKey(key);
+          searchIndex.setToken(token);
+          searchIndexList.add(searchIndex);
+        }
+      }
+    }
+    insert(searchIndexList);
+  }
+
+  /** Inserts the given index rows in JDBC batches of {@link #INSERT_BATCH_SIZE}. */
+  protected void insert(List<GDPRSearchIndex> searchIndexList) {
+    if (searchIndexList.isEmpty()) {
+      return;
+    }
+
+    Session session = JPA.em().unwrap(Session.class);
+    Integer jdbcBatchSize = session.getJdbcBatchSize();
+    session.setJdbcBatchSize(INSERT_BATCH_SIZE);
+    try {
+      for (GDPRSearchIndex searchIndex : searchIndexList) {
+        JPA.em().persist(searchIndex);
+      }
+      JPA.flush();
+    } finally {
+      session.setJdbcBatchSize(jdbcBatchSize);
+    }
+  }
+
+  /** Returns the field paths indexed for a key: its indexed fields, or its mapping. */
+  protected List<String> getIndexedPaths(GDPRSearchConfigLine searchConfigLine) {
+    String fields =
+        StringUtils.notBlank(searchConfigLine.getIndexedFields())
+            ? searchConfigLine.getIndexedFields()
+            : searchConfigLine.getMapping();
+    if (StringUtils.isBlank(fields)) {
+      return new ArrayList<>();
+    }
+
+    List<String> pathList = new ArrayList<>();
+    for (String path : fields.split(",")) {
+      if (StringUtils.notBlank(path)) {
+        pathList.add(path.trim());
+      }
+    }
+    return pathList;
+  }
+
+  protected List<String> getIndexedValues(GDPRSearchConfigLine searchConfigLine, Model model)
+      throws AxelorException {
+    Class<?> modelClass = EntityHelper.getEntityClass(model);
+    List<String> valueList = new ArrayList<>();
+    for (String path : getIndexedPaths(searchConfigLine)) {
+      if (!isPath(modelClass, path)) {
+        throw new AxelorException(
+            TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
+            I18n.get(GdprExceptionMessage.SEARCH_INDEX_FIELD_NOT_FOUND),
+            path,
+            modelClass.getName());
+      }
+      Object value = getPathValue(model, path);
+      if (value != null) {
+        valueList.add(value.toString());
+      }
+    }
+    return valueList;
+  }
+
+  @Override
+  @Transactional
+  public void remove(String modelName, Collection<Long> idList) {
+    if (idList.isEmpty()) {
+      return;
+    }
+
+    Query.of(GDPRSearchIndex.class)
+        .filter("self.modelName = :modelName AND self.relatedId IN :idList")
+        .bind("modelName", modelName)
+        .bind("idList", idList)
+        .delete();
+  }
+
+  @Override
+  public Map<Long, List<Long>> search(
+      List<GDPRSearchConfig> searchConfigList, Map<String, Object> searchParams) {
+    Map<String, Set<String>> tokenMap = new HashMap<>();
+    searchParams.forEach(
+        (key, value) -> {
+          if (value != null && StringUtils.notBlank(value.toString())) {
+            tokenMap.put(key, getSearchTokens(key, value.toString()));
+          }
+        });
+
+    Map<Long, List<Long>> idListMap = new LinkedHashMap<>();
+    for (GDPRSearchConfig searchConfig : searchConfigList) {
+      // values too short to have a token are left to the configured query
+      Map<String, Set<String>> configTokenMap = new LinkedHashMap<>();
+      for (GDPRSearchConfigLine searchConfigLine : searchConfig.getSearchConfigLineList()) {
+        String key = searchConfigLine.getKey();
+        if (tokenMap.containsKey(key) && !tokenMap.get(key).isEmpty()) {
+          configTokenMap.put(key, tokenMap.get(key));
+        }
+      }
+
+      if (!configTokenMap.isEmpty()) {
+        idListMap.put(
+            searchConfig.getId(),
+            searchRecords(searchConfig.getMetaModel().getFullName(), configTokenMap));
+      }
+    }
+    return idListMap;
+  }
+
+  /**
+   * Returns the ids of the records of the model having every token of every key. A record may be
+   * indexed twice if it was indexed by two transactions at the same time, so the results must be
+   * checked against the search configuration.
+   */
+  protected List<Long> searchRecords(String modelName, Map<String, Set<String>> tokenMap) {
+    List<String> keyFilterList = new ArrayList<>();
+    Map<String, Object> params = new HashMap<>();
+    long tokenCount = 0;
+    for (Map.Entry<String, Set<String>> entry : tokenMap.entrySet()) {
+      int index = keyFilterList.size();
+      keyFilterList.add(
+          String.format("(self.searchKey = :key%d AND self.token IN :tokens%d)", index, index));
+      params.put("key" + index, entry.getKey());
+      params.put("tokens" + index, entry.getValue());
+      tokenCount += entry.getValue().size();
+    }
+
+    TypedQuery<Long> query =
+        JPA.em()
+            .createQuery(
+                "SELECT self.relatedId FROM GDPRSearchIndex self"
+                    + " WHERE self.modelName = :modelName AND ("
+                    + String.join(" OR ", keyFilterList)
+                    + ") GROUP BY self.relatedId HAVING COUNT(self.id) >= :tokenCount",
+                Long.class);
+    params.forEach(query::setParameter);
+    return query
+        .setParameter("modelName", modelName)
+        .setParameter("tokenCount", tokenCount)
+        .getResultList();
+  }
+
+  @Override
+  public Set<String> getIndexTokens(String key, String value) {
+    Set<String> tokenSet = new LinkedHashSet<>();
+    if (StringUtils.isBlank(value)) {
+      return tokenSet;
+    }
+
+    String text = normalize(key, value);
+    for (int i = 0; i + NGRAM_LENGTH <= text.length(); i++) {
+      tokenSet.add(text.substring(i, i + NGRAM_LENGTH));
+    }
+    return tokenSet;
+  }
+
+  @Override
+  public Set<String> getSearchTokens(String key, String value) {
+    return getIndexTokens(key, value);
+  }
+
+  /**
+   * Normalizes a value so that a value found by the configured queries, which look for the searched
+   * value anywhere in the field, also contains the normalized searched value: phones keep their
+   * digits only, and other values are lower cased and lose their accents.
+   */
+  protected String normalize(String key, String value) {
+    if (KEY_PHONE.equals(key)) {
+      return NON_DIGIT.matcher(value).replaceAll("");
+    }
+    String text = value.trim().toLowerCase(Locale.ROOT);
+    if (KEY_EMAIL.equals(key)) {
+      return text;
+    }
+    return DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+  }
+
+  @Override
+  public boolean isPath(Class<?> modelClass, String path) {
+    Class<?> currentClass = modelClass;
+    for (String name : path.split("\\.")) {
+      Property property = currentClass != null ? Mapper.of(currentClass).getProperty(name) : null;
+      if (property == null || property.isCollection()) {
+        return false;
+      }
+      currentClass = property.getTarget();
+    }
+    return true;
+  }
+
+  @Override
+  public Object getPathValue(Model model, String path) {
+    Object value = model;
+    for (String name : path.split("\\.")) {
+      if (value == null) {
+        return null;
+      }
+      Property property = Mapper.of(EntityHelper.getEntityClass(value)).getProperty(name);
+      value = property != null ? property.get(value) : null;
+    }
+    return value;
+  }
+
+  @SuppressWarnings("unchecked")
+  protected Class<? extends AuditableModel> getModelClass(GDPRSearchConfig searchConfig)
+      throws ClassNotFoundException {
+    return (Class<? extends AuditableModel>)
+        Class.forName(searchConfig.getMetaModel().getFullName());
+  }
+}
@@ -21,7 +21,10 @@ package com.axelor.apps.gdpr.web;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.ResponseMessageType;
 import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.apps.gdpr.exception.GdprExceptionMessage;
 import com.axelor.apps.gdpr.service.GdprSearchEngineService;
+import com.axelor.apps.gdpr.service.GdprSearchIndexService;
+import com.axelor.apps.gdpr.service.app.AppGdprService;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.axelor.rpc.ActionRequest;
@@ -92,4 +95,15 @@ public class GdprSearchEngineController {
       TraceBackService.trace(response, e, ResponseMessageType.ERROR);
     }
   }
+
+  public void rebuildSearchIndex(ActionRequest request, ActionResponse response) {
+    try {
+      Beans.get(GdprSearchIndexService.class)
+          .rebuild(Beans.get(AppGdprService.class).getAppGDPR().getSearchConfigList());
+      response.setInfo(I18n.get(GdprExceptionMessage.SEARCH_INDEX_REBUILT));
+      response.setReload(true);
+    } catch (Exception e) {
+      TraceBackService.trace(response, e);
+    }
+  }
 }
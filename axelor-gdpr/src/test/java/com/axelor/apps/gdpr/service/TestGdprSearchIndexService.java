@@ -0,0 +1,175 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.gdpr.service;
+
+import com.axelor.apps.gdpr.db.GDPRSearchConfig;
+import com.axelor.apps.gdpr.db.GDPRSearchConfigLine;
+import com.axelor.meta.db.MetaModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestGdprSearchIndexService {
+
+  private Map<String, Map<String, Set<String>>> searchedTokenMap;
+  private GdprSearchIndexServiceImpl gdprSearchIndexService;
+
+  @BeforeEach
+  void prepare() {
+    searchedTokenMap = new HashMap<>();
+    gdprSearchIndexService =
+        new GdprSearchIndexServiceImpl(null, null) {
+          @Override
+          protected List<Long> searchRecords(String modelName, Map<String, Set<String>> tokenMap) {
+            searchedTokenMap.put(modelName, tokenMap);
+            return new ArrayList<>(List.of(1L));
+          }
+        };
+  }
+
+  @Test
+  void getIndexTokens_name_lowerCasedWithoutAccents() {
+    Assertions.assertEquals(
+        Set.of("emi", "mil", "ile"), gdprSearchIndexService.getIndexTokens("lastName", " Émile "));
+  }
+
+  @Test
+  void getIndexTokens_email_keepsSymbols() {
+    Assertions.assertEquals(
+        Set.of("a.b", ".b@", "b@x"), gdprSearchIndexService.getIndexTokens("email", "A.b@X"));
+  }
+
+  @Test
+  void getIndexTokens_phone_keepsDigitsOnly() {
+    Assertions.assertEquals(
+        Set.of("336", "361", "612"), gdprSearchIndexService.getIndexTokens("phone", "+33 6-12"));
+  }
+
+  @Test
+  void getIndexTokens_blankValue_noToken() {
+    Assertions.assertTrue(gdprSearchIndexService.getIndexTokens("lastName", " ").isEmpty());
+    Assertions.assertTrue(gdprSearchIndexService.getIndexTokens("lastName", null).isEmpty());
+  }
+
+  @Test
+  void getSearchTokens_tooShortValue_noToken() {
+    Assertions.assertTrue(gdprSearchIndexService.getSearchTokens("firstName", "Jo").isEmpty());
+    Assertions.assertTrue(gdprSearchIndexService.getSearchTokens("phone", "+3 3").isEmpty());
+  }
+
+  @Test
+  void getSearchTokens_partOfValue_includedInIndexTokens() {
+    Set<String> indexTokenSet = gdprSearchIndexService.getIndexTokens("lastName", "Dupont-Martin");
+    Set<String> searchTokenSet = gdprSearchIndexService.getSearchTokens("lastName", "MARTÍN");
+
+    Assertions.assertFalse(searchTokenSet.isEmpty());
+    Assertions.assertTrue(indexTokenSet.containsAll(searchTokenSet));
+  }
+
+  @Test
+  void search_onlyConfigurationsWithSearchableParameters() {
+    GDPRSearchConfig partnerConfig =
+        createSearchConfig(1L, "com.test.Partner", "lastName", "email");
+    GDPRSearchConfig leadConfig = createSearchConfig(2L, "com.test.Lead", "firstName");
+
+    Map<String, Object> searchParams = new HashMap<>();
+    searchParams.put("lastName", "Durand");
+    searchParams.put("firstName", "Al");
+    searchParams.put("email", "");
+
+    Map<Long, List<Long>> idListMap =
+        gdprSearchIndexService.search(List.of(partnerConfig, leadConfig), searchParams);
+
+    Assertions.assertEquals(Set.of(1L), idListMap.keySet());
+    Assertions.assertEquals(List.of(1L), idListMap.get(1L));
+    Assertions.assertEquals(Set.of("com.test.Partner"), searchedTokenMap.keySet());
+    Assertions.assertEquals(
+        Map.of("lastName", new LinkedHashSet<>(List.of("dur", "ura", "ran", "and"))),
+        searchedTokenMap.get("com.test.Partner"));
+  }
+
+  @Test
+  void isPath_relationFields_trueUnlessCollection() {
+    Assertions.assertTrue(
+        gdprSearchIndexService.isPath(GDPRSearchConfigLine.class, "searchConfig.metaModel.name"));
+    Assertions.assertFalse(
+        gdprSearchIndexService.isPath(
+            GDPRSearchConfigLine.class, "searchConfig.searchConfigLineList.key"));
+    Assertions.assertFalse(gdprSearchIndexService.isPath(GDPRSearchConfigLine.class, "upper(key)"));
+  }
+
+  @Test
+  void getPathValue_emptyRelation_null() {
+    GDPRSearchConfigLine searchConfigLine = new GDPRSearchConfigLine();
+    searchConfigLine.setSearchConfig(createSearchConfig(1L, "com.test.Partner"));
+
+    Assertions.assertEquals(
+        "com.test.Partner",
+        gdprSearchIndexService.getPathValue(searchConfigLine, "searchConfig.metaModel.fullName"));
+
+    searchConfigLine.setSearchConfig(null);
+    Assertions.assertNull(
+        gdprSearchIndexService.getPathValue(searchConfigLine, "searchConfig.metaModel.fullName"));
+  }
+
+  @Test
+  void getRefreshFilter_relatedRecordsOfIndexedPaths() {
+    GDPRSearchConfig searchConfig = createSearchConfig(1L, GDPRSearchConfigLine.class.getName());
+    GDPRSearchConfigLine searchConfigLine = new GDPRSearchConfigLine();
+    searchConfigLine.setKey("lastName");
+    searchConfigLine.setMapping("key");
+    searchConfigLine.setIndexedFields("query, searchConfig.metaModel.fullName");
+    searchConfig.addSearchConfigLineListItem(searchConfigLine);
+
+    String filter =
+        gdprSearchIndexService.getRefreshFilter(searchConfig, GDPRSearchConfigLine.class);
+
+    Assertions.assertEquals(
+        "self.createdOn >= :indexedOn OR self.updatedOn >= :indexedOn"
+            + " OR self.searchConfig.id IN (SELECT related.id FROM GDPRSearchConfig related"
+            + " WHERE related.createdOn >= :indexedOn OR related.updatedOn >= :indexedOn)"
+            + " OR self.searchConfig.metaModel.id IN (SELECT related.id FROM MetaModel related"
+            + " WHERE related.createdOn >= :indexedOn OR related.updatedOn >= :indexedOn)",
+        filter);
+  }
+
+  private GDPRSearchConfig createSearchConfig(Long id, String modelName, String... keys) {
+    MetaModel metaModel = new MetaModel();
+    metaModel.setName(modelName.substring(modelName.lastIndexOf('.') + 1));
+    metaModel.setFullName(modelName);
+
+    GDPRSearchConfig searchConfig = new GDPRSearchConfig();
+    searchConfig.setId(id);
+    searchConfig.setMetaModel(metaModel);
+    searchConfig.setSearchConfigLineList(new ArrayList<>());
+    for (String key : keys) {
+      GDPRSearchConfigLine searchConfigLine = new GDPRSearchConfigLine();
+      searchConfigLine.setKey(key);
+      searchConfigLine.setMapping(key);
+      searchConfig.addSearchConfigLineListItem(searchConfigLine);
+    }
+    return searchConfig;
+  }
+}
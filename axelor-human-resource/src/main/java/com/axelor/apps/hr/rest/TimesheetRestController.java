@@ -24,6 +24,7 @@ import com.axelor.apps.hr.db.Timesheet;
 import com.axelor.apps.hr.rest.dto.TimesheetPostRequest;
 import com.axelor.apps.hr.rest.dto.TimesheetPutRequest;
 import com.axelor.apps.hr.rest.dto.TimesheetResponse;
+import com.axelor.apps.hr.service.timesheet.ProjectTimeSpentExecutor;
 import com.axelor.apps.hr.service.timesheet.TimesheetCheckResponseService;
 import com.axelor.apps.hr.service.timesheet.TimesheetCreateService;
 import com.axelor.apps.hr.service.timesheet.TimesheetLineService;
@@ -31,6 +32,7 @@ import com.axelor.apps.hr.service.timesheet.TimesheetPeriodComputationService;
 import com.axelor.apps.hr.service.timesheet.TimesheetService;
 import com.axelor.apps.hr.service.timesheet.TimesheetWorkflowService;
 import com.axelor.apps.hr.service.timesheet.timer.TimerTimesheetGenerationService;
+import com.axelor.apps.project.db.Project;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.axelor.utils.api.HttpExceptionHandler;
@@ -179,4 +181,19 @@ public class TimesheetRestController {
             Beans.get(TimesheetLineService.class)
                 .computeHoursDuration(timesheet, timesheet.getPeriodTotal(), false)));
   }
+
+  @Operation(
+      summary = "Get statistics of the project updates after timesheet validations",
+      tags = {"Timesheet"})
+  @Path("/project-update-stats")
+  @GET
+  @HttpExceptionHandler
+  public Response getProjectUpdateStats() {
+    new SecurityCheck().readAccess(Project.class).check();
+
+    return ResponseConstructor.build(
+        Response.Status.OK,
+        "Statistics of the project updates",
+        Beans.get(ProjectTimeSpentExecutor.class).getStats());
+  }
 }
@@ -23,6 +23,7 @@ import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Period;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.apps.base.service.formula.FormulaEngineService;
 import com.axelor.apps.hr.db.Employee;
 import com.axelor.apps.hr.db.EmployeeBonusMgt;
 import com.axelor.apps.hr.db.EmployeeBonusMgtLine;
@@ -39,14 +40,10 @@ import com.axelor.utils.template.TemplateMaker;
 import com.google.common.base.Strings;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
-import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import org.codehaus.groovy.control.CompilerConfiguration;
-import org.codehaus.groovy.control.customizers.ImportCustomizer;
 
 public class EmployeeBonusService {
 
@@ -58,8 +55,16 @@ public class EmployeeBonusService {
 
   @Inject EmployeeComputeDaysLeaveBonusService employeeComputeDaysLeaveBonusService;
 
+  @Inject FormulaEngineService formulaEngineService;
+
   private static final char TEMPLATE_DELIMITER = '$';
 
+  // script variables replacing the variables configured in the HR configuration
+  protected static final String AGE_VARIABLE = "_age";
+  protected static final String SENIORITY_VARIABLE = "_seniority";
+  protected static final String WORKING_DAYS_VARIABLE = "_workingDays";
+  protected static final String TOTAL_WORKING_DAYS_VARIABLE = "_totalWorkingDays";
+
   @Transactional(rollbackOn = {Exception.class})
   public void compute(EmployeeBonusMgt bonus) throws AxelorException {
     Map<Employee, EmployeeBonusMgtLine> employeeStatus = new HashMap<>();
@@ -78,13 +83,6 @@ public class EmployeeBonusService {
             AppFilter.getLocale(),
             TEMPLATE_DELIMITER,
             TEMPLATE_DELIMITER);
-    String eval;
-    CompilerConfiguration conf = new CompilerConfiguration();
-    ImportCustomizer customizer = new ImportCustomizer();
-    customizer.addStaticStars("java.lang.Math");
-    conf.addCompilationCustomizers(customizer);
-    Binding binding = new Binding();
-    GroovyShell shell = new GroovyShell(binding, conf);
 
     Integer employeeBonusStatus = EmployeeBonusMgtRepository.STATUS_CALCULATED;
     for (Employee employee : allEmployee) {
@@ -104,33 +102,35 @@ public class EmployeeBonusService {
         }
       }
 
-      maker.setContext(employee, "Employee");
       EmployeeBonusMgtLine line = new EmployeeBonusMgtLine();
       line.setEmployeeBonusMgt(bonus);
       line.setEmployee(employee);
-      maker.addInContext("EmployeeBonusMgtLine", line);
+      Map<String, Object> variables = new HashMap<>();
       String formula = bonus.getEmployeeBonusType().getApplicationCondition();
       Integer lineStatus = EmployeeBonusMgtLineRepository.STATUS_CALCULATED;
       try {
         formula =
             replaceExpressionInFormula(
-                formula, bonus.getCompany().getHrConfig(), employee, bonus.getPayPeriod());
+                formula,
+                bonus.getCompany().getHrConfig(),
+                employee,
+                bonus.getPayPeriod(),
+                variables);
       } catch (Exception e) {
         TraceBackService.trace(e);
         formula = "true";
         lineStatus = EmployeeBonusMgtLineRepository.STATUS_ANOMALY;
       }
-      maker.setTemplate(formula);
-      eval = maker.make();
 
-      if (shell.evaluate(eval).toString().equals("true")) {
+      if (evaluate(formula, employee, line, variables, maker).toString().equals("true")) {
         try {
           formula =
               replaceExpressionInFormula(
                   bonus.getEmployeeBonusType().getFormula(),
                   bonus.getCompany().getHrConfig(),
                   employee,
-                  bonus.getPayPeriod());
+                  bonus.getPayPeriod(),
+                  variables);
         } catch (Exception e) {
           lineStatus = EmployeeBonusMgtLineRepository.STATUS_ANOMALY;
         }
@@ -147,9 +147,8 @@ public class EmployeeBonusService {
         line.setCoef(employee.getBonusCoef());
         line.setWeeklyPlanning(employee.getWeeklyPlanning());
 
-        maker.setTemplate(formula);
-        eval = maker.make();
-        line.setAmount(new BigDecimal(shell.evaluate(eval).toString()));
+        line.setAmount(
+            new BigDecimal(evaluate(formula, employee, line, variables, maker).toString()));
 
         employeeBonusMgtLineRepo.save(line);
       }
@@ -158,36 +157,80 @@ public class EmployeeBonusService {
     employeeBonusMgtRepo.save(bonus);
   }
 
+  /**
+   * Evaluates a bonus formula. The employee and the line are bound to the formula, so that it is
+   * compiled once for all the employees.
+   */
+  protected Object evaluate(
+      String formula,
+      Employee employee,
+      EmployeeBonusMgtLine line,
+      Map<String, Object> variables,
+      TemplateMaker maker) {
+    return formulaEngineService.evaluateTemplate(
+        formula,
+        Map.of("Employee", employee, "EmployeeBonusMgtLine", line),
+        variables,
+        template -> {
+          maker.setContext(employee, "Employee");
+          maker.addInContext("EmployeeBonusMgtLine", line);
+          maker.setTemplate(template);
+          return maker.make();
+        });
+  }
+
+  /**
+   * Replaces the variables configured in the HR configuration by their values.
+   *
+   * @deprecated the formula is compiled again for each employee, use {@link
+   *     #replaceExpressionInFormula(String, HRConfig, Employee, Period, Map)} instead
+   */
+  @Deprecated
   public String replaceExpressionInFormula(
       String formula, HRConfig hrConfig, Employee employee, Period period) throws AxelorException {
+    Map<String, Object> variables = new HashMap<>();
+    formula = replaceExpressionInFormula(formula, hrConfig, employee, period, variables);
+    for (Map.Entry<String, Object> variable : variables.entrySet()) {
+      formula = formula.replace(variable.getKey(), String.valueOf(variable.getValue()));
+    }
+    return formula;
+  }
+
+  /**
+   * Replaces the variables configured in the HR configuration by script variables, whose values
+   * are put in the given map.
+   */
+  public String replaceExpressionInFormula(
+      String formula,
+      HRConfig hrConfig,
+      Employee employee,
+      Period period,
+      Map<String, Object> variables)
+      throws AxelorException {
 
     if (!Strings.isNullOrEmpty(hrConfig.getAgeVariableName())) {
-      formula =
-          formula.replace(
-              hrConfig.getAgeVariableName(),
-              String.valueOf(employeeService.getAge(employee, period.getFromDate())));
+      formula = formula.replace(hrConfig.getAgeVariableName(), AGE_VARIABLE);
+      variables.put(AGE_VARIABLE, employeeService.getAge(employee, period.getFromDate()));
     }
     if (!Strings.isNullOrEmpty(hrConfig.getSeniorityVariableName())) {
-      formula =
-          formula.replace(
-              hrConfig.getSeniorityVariableName(),
-              String.valueOf(employeeService.getLengthOfService(employee, period.getFromDate())));
+      formula = formula.replace(hrConfig.getSeniorityVariableName(), SENIORITY_VARIABLE);
+      variables.put(
+          SENIORITY_VARIABLE, employeeService.getLengthOfService(employee, period.getFromDate()));
     }
     if (!Strings.isNullOrEmpty(hrConfig.getWorkingDaysVariableName())) {
-      formula =
-          formula.replace(
-              hrConfig.getWorkingDaysVariableName(),
-              String.valueOf(
-                  employeeComputeDaysLeaveBonusService.getDaysWorkedInPeriod(
-                      employee, period.getFromDate(), period.getToDate())));
+      formula = formula.replace(hrConfig.getWorkingDaysVariableName(), WORKING_DAYS_VARIABLE);
+      variables.put(
+          WORKING_DAYS_VARIABLE,
+          employeeComputeDaysLeaveBonusService.getDaysWorkedInPeriod(
+              employee, period.getFromDate(), period.getToDate()));
     }
     if (!Strings.isNullOrEmpty(hrConfig.getTotalWorkingDaysVariableName())) {
       formula =
-          formula.replace(
-              hrConfig.getTotalWorkingDaysVariableName(),
-              String.valueOf(
-                  employeeService.getDaysWorksInPeriod(
-                      employee, period.getFromDate(), period.getToDate())));
+          formula.replace(hrConfig.getTotalWorkingDaysVariableName(), TOTAL_WORKING_DAYS_VARIABLE);
+      variables.put(
+          TOTAL_WORKING_DAYS_VARIABLE,
+          employeeService.getDaysWorksInPeriod(
+              employee, period.getFromDate(), period.getToDate()));
     }
 
     // For checking that formula contains variables like $*$
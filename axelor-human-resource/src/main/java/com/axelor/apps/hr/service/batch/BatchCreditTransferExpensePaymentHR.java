@@ -29,15 +29,14 @@ import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.BankDetails;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.hr.db.Expense;
 import com.axelor.apps.hr.db.repo.ExpenseRepository;
 import com.axelor.apps.hr.exception.HumanResourceExceptionMessage;
 import com.axelor.apps.hr.service.expense.ExpensePaymentService;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
@@ -110,28 +109,24 @@ public class BatchCreditTransferExpensePaymentHR extends BatchCreditTransferExpe
    */
   protected List<Expense> processExpenses() {
     List<Expense> doneList = new ArrayList<>();
-    List<Long> anomalyList = Lists.newArrayList(0L); // Can't pass an empty collection to the query
     AccountingBatch accountingBatch = batch.getAccountingBatch();
     boolean manageMultiBanks = appAccountService.getAppBase().getManageMultiBanks();
     String filter =
         "self.ventilated = true "
             + "AND self.paymentStatusSelect = :paymentStatusSelect "
             + "AND self.company = :company "
-            + "AND self.employee.contactPartner.outPaymentMode = :paymentMode "
-            + "AND self.id NOT IN (:anomalyList)";
+            + "AND self.employee.contactPartner.outPaymentMode = :paymentMode";
 
     if (manageMultiBanks) {
       filter += " AND self.bankDetails IN (:bankDetailsSet)";
     }
 
-    Query<Expense> query =
-        expenseRepo
-            .all()
+    ChunkedQuery<Expense> query =
+        chunkedQuery(Expense.class)
             .filter(filter)
             .bind("paymentStatusSelect", InvoicePaymentRepository.STATUS_DRAFT)
             .bind("company", accountingBatch.getCompany())
-            .bind("paymentMode", accountingBatch.getPaymentMode())
-            .bind("anomalyList", anomalyList);
+            .bind("paymentMode", accountingBatch.getPaymentMode());
 
     if (manageMultiBanks) {
       Set<BankDetails> bankDetailsSet = Sets.newHashSet(accountingBatch.getBankDetails());
@@ -143,9 +138,7 @@ public class BatchCreditTransferExpensePaymentHR extends BatchCreditTransferExpe
       query.bind("bankDetailsSet", bankDetailsSet);
     }
 
-    for (List<Expense> expenseList;
-        !(expenseList = query.fetch(FETCH_LIMIT)).isEmpty();
-        JPA.clear()) {
+    for (List<Expense> expenseList; !(expenseList = query.fetchNext()).isEmpty(); JPA.clear()) {
       for (Expense expense : expenseList) {
         try {
           addPayment(expense, accountingBatch.getBankDetails());
@@ -153,8 +146,8 @@ public class BatchCreditTransferExpensePaymentHR extends BatchCreditTransferExpe
           incrementDone();
         } catch (Exception ex) {
           incrementAnomaly();
-          anomalyList.add(expense.getId());
-          query.bind("anomalyList", anomalyList);
+          // the rest of the chunk is fetched again once the session is cleared
+          query.startAfter(expense.getId());
           TraceBackService.trace(ex, ExceptionOriginRepository.CREDIT_TRANSFER, batch.getId());
           ex.printStackTrace();
           log.error(
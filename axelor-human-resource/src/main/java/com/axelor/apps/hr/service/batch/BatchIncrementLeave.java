@@ -21,6 +21,7 @@ package com.axelor.apps.hr.service.batch;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.repo.BatchRepository;
 import com.axelor.apps.base.service.administration.AbstractBatch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.hr.db.Employee;
 import com.axelor.apps.hr.db.LeaveReason;
@@ -29,7 +30,6 @@ import com.axelor.apps.hr.db.repo.LeaveReasonRepository;
 import com.axelor.apps.hr.service.leave.IncrementLeaveService;
 import com.axelor.apps.hr.translation.ITranslation;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
 import com.axelor.utils.helpers.StringHelper;
 import com.google.inject.Inject;
@@ -78,21 +78,18 @@ public class BatchIncrementLeave extends AbstractBatch {
 
   protected void incrementLeaveForEmployees(Long id) throws AxelorException {
     List<Employee> employeeList;
-    int offset = 0;
-    LeaveReason leaveReason = leaveReasonRepository.find(id);
-    Query<Employee> query = getEmployeeQuery(leaveReason);
-    while (!(employeeList = query.fetch(FETCH_LIMIT, offset)).isEmpty()) {
+    ChunkedQuery<Employee> query = getEmployeeQuery(leaveReasonRepository.find(id));
+    while (!(employeeList = query.fetchNext()).isEmpty()) {
+      LeaveReason leaveReason = leaveReasonRepository.find(id);
       for (Employee employee : employeeList) {
-        ++offset;
-        employee = employeeRepository.find(employee.getId());
         incrementLeaveService.updateEmployeeLeaveLines(leaveReason, employee);
       }
+      JPA.clear();
     }
-    JPA.clear();
   }
 
-  protected Query<Employee> getEmployeeQuery(LeaveReason leaveReason) {
-    Query<Employee> query = employeeRepository.all().order("id");
+  protected ChunkedQuery<Employee> getEmployeeQuery(LeaveReason leaveReason) {
+    ChunkedQuery<Employee> query = chunkedQuery(Employee.class);
     if (CollectionUtils.isEmpty(leaveReason.getPlanningSet())) {
       return query;
     }
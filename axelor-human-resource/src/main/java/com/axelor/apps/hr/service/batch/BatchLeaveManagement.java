@@ -38,6 +38,7 @@ import com.axelor.apps.hr.service.leave.LeaveLineService;
 import com.axelor.apps.hr.service.leave.management.LeaveManagementService;
 import com.axelor.db.JPA;
 import com.axelor.i18n.I18n;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import java.math.BigDecimal;
@@ -45,14 +46,15 @@ import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.validation.constraints.Digits;
 import org.apache.commons.collections.CollectionUtils;
 
 public class BatchLeaveManagement extends BatchStrategy {
 
-  int total;
-  int noValueAnomaly;
-  int confAnomaly;
+  AtomicInteger total = new AtomicInteger();
+  AtomicInteger noValueAnomaly = new AtomicInteger();
+  AtomicInteger confAnomaly = new AtomicInteger();
 
   protected LeaveLineRepository leaveLineRepository;
   protected LeaveManagementRepository leaveManagementRepository;
@@ -98,9 +100,9 @@ public class BatchLeaveManagement extends BatchStrategy {
           ExceptionOriginRepository.LEAVE_MANAGEMENT,
           batch.getId());
     }
-    total = 0;
-    noValueAnomaly = 0;
-    confAnomaly = 0;
+    total.set(0);
+    noValueAnomaly.set(0);
+    confAnomaly.set(0);
     checkPoint();
   }
 
@@ -108,7 +110,9 @@ public class BatchLeaveManagement extends BatchStrategy {
   protected void process() {
 
     List<Employee> employeeList = employeeFetchService.getEmployees(batch.getHrBatch());
-    generateLeaveManagementLines(employeeList);
+    int partitionSize = employeeList.size() / (getWorkerCount() * PARTITIONS_PER_WORKER) + 1;
+    processPartitions(
+        Lists.partition(employeeList, partitionSize), this::generateLeaveManagementLines);
   }
 
   public void generateLeaveManagementLines(List<Employee> employeeList) {
@@ -122,13 +126,13 @@ public class BatchLeaveManagement extends BatchStrategy {
         TraceBackService.trace(e, ExceptionOriginRepository.LEAVE_MANAGEMENT, batch.getId());
         incrementAnomaly();
         if (e.getCategory() == TraceBackRepository.CATEGORY_NO_VALUE) {
-          noValueAnomaly++;
+          noValueAnomaly.incrementAndGet();
         }
         if (e.getCategory() == TraceBackRepository.CATEGORY_CONFIGURATION_ERROR) {
-          confAnomaly++;
+          confAnomaly.incrementAndGet();
         }
       } finally {
-        total++;
+        total.incrementAndGet();
         JPA.clear();
       }
     }
@@ -140,8 +144,7 @@ public class BatchLeaveManagement extends BatchStrategy {
       return;
     }
 
-    batch = batchRepo.find(batch.getId());
-    HrBatch hrBatch = batch.getHrBatch();
+    HrBatch hrBatch = findBatch().getHrBatch();
 
     for (LeaveReason leaveReason : getLeaveReasons(hrBatch)) {
       LeaveLine leaveLine = leaveLineService.addLeaveReasonOrCreateIt(employee, leaveReason);
@@ -224,7 +227,8 @@ public class BatchLeaveManagement extends BatchStrategy {
 
     String comment =
         String.format(
-                I18n.get(HumanResourceExceptionMessage.BATCH_LEAVE_MANAGEMENT_ENDING_0), total)
+                I18n.get(HumanResourceExceptionMessage.BATCH_LEAVE_MANAGEMENT_ENDING_0),
+                total.get())
             + '\n';
 
     comment +=
@@ -233,18 +237,18 @@ public class BatchLeaveManagement extends BatchStrategy {
                 batch.getDone())
             + '\n';
 
-    if (confAnomaly > 0) {
+    if (confAnomaly.get() > 0) {
       comment +=
           String.format(
                   I18n.get(HumanResourceExceptionMessage.BATCH_LEAVE_MANAGEMENT_ENDING_2),
-                  confAnomaly)
+                  confAnomaly.get())
               + '\n';
     }
-    if (noValueAnomaly > 0) {
+    if (noValueAnomaly.get() > 0) {
       comment +=
           String.format(
                   I18n.get(HumanResourceExceptionMessage.BATCH_LEAVE_MANAGEMENT_ENDING_3),
-                  noValueAnomaly)
+                  noValueAnomaly.get())
               + '\n';
     }
 
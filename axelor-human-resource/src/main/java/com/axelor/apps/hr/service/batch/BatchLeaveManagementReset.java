@@ -91,13 +91,13 @@ public class BatchLeaveManagementReset extends BatchLeaveManagement {
         TraceBackService.trace(e, ExceptionOriginRepository.LEAVE_MANAGEMENT, batch.getId());
         incrementAnomaly();
         if (e.getCategory() == TraceBackRepository.CATEGORY_NO_VALUE) {
-          noValueAnomaly++;
+          noValueAnomaly.incrementAndGet();
         }
         if (e.getCategory() == TraceBackRepository.CATEGORY_CONFIGURATION_ERROR) {
-          confAnomaly++;
+          confAnomaly.incrementAndGet();
         }
       } finally {
-        total++;
+        total.incrementAndGet();
         JPA.clear();
       }
     }
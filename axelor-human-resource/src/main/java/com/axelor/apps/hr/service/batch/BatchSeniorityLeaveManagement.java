@@ -38,6 +38,7 @@ import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.apps.base.service.formula.FormulaEngineService;
 import com.axelor.apps.hr.db.Employee;
 import com.axelor.apps.hr.db.EmploymentContract;
 import com.axelor.apps.hr.db.HRConfig;
@@ -59,15 +60,12 @@ import com.axelor.inject.Beans;
 import com.axelor.utils.template.TemplateMaker;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
-import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 import org.apache.commons.collections.CollectionUtils;
-import org.codehaus.groovy.control.CompilerConfiguration;
-import org.codehaus.groovy.control.customizers.ImportCustomizer;
 
 public class BatchSeniorityLeaveManagement extends BatchStrategy {
 
@@ -82,18 +80,25 @@ public class BatchSeniorityLeaveManagement extends BatchStrategy {
   protected LeaveLineRepository leaveLineRepository;
   protected LeaveManagementRepository leaveManagementRepository;
   protected EmployeeService employeeService;
+  protected FormulaEngineService formulaEngineService;
+
+  // script variables replacing the variables configured in the HR configuration
+  protected static final String SENIORITY_VARIABLE = "_seniority";
+  protected static final String AGE_VARIABLE = "_age";
 
   @Inject
   public BatchSeniorityLeaveManagement(
       LeaveManagementService leaveManagementService,
       LeaveLineRepository leaveLineRepository,
       LeaveManagementRepository leaveManagementRepository,
-      EmployeeService employeeService) {
+      EmployeeService employeeService,
+      FormulaEngineService formulaEngineService) {
 
     super(leaveManagementService);
     this.leaveLineRepository = leaveLineRepository;
     this.leaveManagementRepository = leaveManagementRepository;
     this.employeeService = employeeService;
+    this.formulaEngineService = formulaEngineService;
   }
 
   @Override
@@ -254,7 +259,6 @@ public class BatchSeniorityLeaveManagement extends BatchStrategy {
   protected BigDecimal computeQuantity(
       Employee employee, BigDecimal quantity, Integer executiveStatusSelect)
       throws AxelorException {
-    String eval;
     for (LeaveManagementBatchRule rule :
         Beans.get(HRConfigRepository.class)
             .all()
@@ -263,28 +267,27 @@ public class BatchSeniorityLeaveManagement extends BatchStrategy {
             .getLeaveManagementBatchRuleList()) {
 
       if (rule.getExecutiveStatusSelect().equals(executiveStatusSelect)) {
-        maker.setContext(employee, "Employee");
         String formula = rule.getFormula();
-        formula =
-            formula.replace(
-                hrConfig.getSeniorityVariableName(),
-                String.valueOf(
-                    employeeService.getLengthOfService(
-                        employee, batch.getHrBatch().getReferentialDate())));
-        formula =
-            formula.replace(
-                hrConfig.getAgeVariableName(),
-                String.valueOf(
-                    employeeService.getAge(employee, batch.getHrBatch().getReferentialDate())));
-        maker.setTemplate(formula);
-        eval = maker.make();
-        CompilerConfiguration conf = new CompilerConfiguration();
-        ImportCustomizer customizer = new ImportCustomizer();
-        customizer.addStaticStars("java.lang.Math");
-        conf.addCompilationCustomizers(customizer);
-        Binding binding = new Binding();
-        GroovyShell shell = new GroovyShell(binding, conf);
-        if (shell.evaluate(eval).toString().equals("true")) {
+        formula = formula.replace(hrConfig.getSeniorityVariableName(), SENIORITY_VARIABLE);
+        formula = formula.replace(hrConfig.getAgeVariableName(), AGE_VARIABLE);
+        Map<String, Object> variables =
+            Map.of(
+                SENIORITY_VARIABLE,
+                employeeService.getLengthOfService(
+                    employee, batch.getHrBatch().getReferentialDate()),
+                AGE_VARIABLE,
+                employeeService.getAge(employee, batch.getHrBatch().getReferentialDate()));
+        Object result =
+            formulaEngineService.evaluateTemplate(
+                formula,
+                Map.of("Employee", employee),
+                variables,
+                template -> {
+                  maker.setContext(employee, "Employee");
+                  maker.setTemplate(template);
+                  return maker.make();
+                });
+        if (result.toString().equals("true")) {
           quantity = rule.getLeaveDayNumber();
           break;
         }
@@ -0,0 +1,326 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.hr.service.timesheet;
+
+import com.axelor.app.AppSettings;
+import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.event.Observes;
+import com.axelor.events.ShutdownEvent;
+import com.axelor.inject.Beans;
+import com.google.inject.Singleton;
+import com.google.inject.persist.UnitOfWork;
+import com.google.inject.servlet.RequestScoper;
+import com.google.inject.servlet.ServletScopes;
+import java.lang.invoke.MethodHandles;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.persistence.LockTimeoutException;
+import javax.persistence.PessimisticLockException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared executor updating projects after timesheet validations, see {@link
+ * TimesheetTimeComputationServiceImpl}.
+ *
+ * <p>The number of threads and the size of the queue are bounded by {@link #WORKER_COUNT_SETTING}
+ * and {@link #QUEUE_SIZE_SETTING}. When the queue is full, the submission waits for a free slot.
+ * An update submitted for a project which is already waiting in the queue is coalesced with it,
+ * so a project is updated once however many timesheets were validated in the meantime.
+ *
+ * <p>An update failing because the project is locked is put back at the end of the queue, up to
+ * {@link #MAX_ATTEMPT_COUNT} attempts, instead of holding one of the few threads while waiting.
+ *
+ * <p>When the application stops, the updates already queued are run for up to {@link
+ * #SHUTDOWN_TIMEOUT_SECONDS} seconds, and the updates submitted afterwards are dropped.
+ */
+@Singleton
+public class ProjectTimeSpentExecutor {
+
+  public static final String WORKER_COUNT_SETTING = "hr.timesheet.project-update.workers";
+  public static final String QUEUE_SIZE_SETTING = "hr.timesheet.project-update.queue-size";
+
+  protected static final int DEFAULT_WORKER_COUNT = 2;
+  protected static final int DEFAULT_QUEUE_SIZE = 1000;
+  protected static final int MAX_ATTEMPT_COUNT = 5;
+  protected static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+  private final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  protected final ThreadPoolExecutor executor;
+
+  /** Submission time in nanoseconds of the projects waiting in the queue. */
+  protected final Map<Long, Long> pendingProjectMap = new ConcurrentHashMap<>();
+
+  protected final LongAdder submittedCount = new LongAdder();
+  protected final LongAdder coalescedCount = new LongAdder();
+  protected final LongAdder retriedCount = new LongAdder();
+  protected final LongAdder completedCount = new LongAdder();
+  protected final LongAdder failedCount = new LongAdder();
+  protected final LongAdder totalWaitNanos = new LongAdder();
+  protected final LongAdder totalRunNanos = new LongAdder();
+  protected final AtomicLong maxWaitNanos = new AtomicLong();
+
+  public ProjectTimeSpentExecutor() {
+    AppSettings appSettings = AppSettings.get();
+    int workerCount = Math.max(1, appSettings.getInt(WORKER_COUNT_SETTING, DEFAULT_WORKER_COUNT));
+    int queueSize = Math.max(1, appSettings.getInt(QUEUE_SIZE_SETTING, DEFAULT_QUEUE_SIZE));
+
+    executor =
+        new ThreadPoolExecutor(
+            workerCount,
+            workerCount,
+            60L,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            newThreadFactory(),
+            this::waitForQueue);
+  }
+
+  protected void waitForQueue(Runnable runnable, ThreadPoolExecutor executor) {
+    Long projectId = ((ProjectUpdate) runnable).projectId;
+    if (executor.isShutdown()) {
+      pendingProjectMap.remove(projectId);
+      log.warn("Update of project {} was not submitted, the application is stopping", projectId);
+      return;
+    }
+    try {
+      executor.getQueue().put(runnable);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      pendingProjectMap.remove(projectId);
+      log.warn("Update of project {} was not submitted", projectId);
+    }
+  }
+
+  /** Stops accepting updates and waits for the queued ones to be run. */
+  public void onShutdown(@Observes ShutdownEvent event) {
+    executor.shutdown();
+    try {
+      if (executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        return;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    List<Runnable> pendingUpdateList = executor.shutdownNow();
+    log.warn(
+        "{} project updates were not run before shutdown: {}",
+        pendingUpdateList.size(),
+        pendingProjectMap.keySet());
+  }
+
+  protected ThreadFactory newThreadFactory() {
+    AtomicInteger threadCount = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, "project-update-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Submits the update of a project, unless an update of this project is already waiting.
+   *
+   * @param projectId the project to update
+   * @param update the update, run in its own unit of work
+   */
+  public void submit(Long projectId, Consumer<Long> update) {
+    submittedCount.increment();
+    if (pendingProjectMap.putIfAbsent(projectId, System.nanoTime()) != null) {
+      coalescedCount.increment();
+      return;
+    }
+    executor.execute(new ProjectUpdate(projectId, update, 1));
+  }
+
+  /**
+   * Puts back an update which could not lock its project, without waiting for a free slot since
+   * it is called from a thread of the executor.
+   */
+  protected boolean retry(Long projectId, Consumer<Long> update, int attempt) {
+    if (attempt >= MAX_ATTEMPT_COUNT || executor.isShutdown()) {
+      return false;
+    }
+    retriedCount.increment();
+    if (pendingProjectMap.putIfAbsent(projectId, System.nanoTime()) != null) {
+      // a new update of this project is already waiting
+      return true;
+    }
+    if (executor.getQueue().offer(new ProjectUpdate(projectId, update, attempt + 1))) {
+      return true;
+    }
+    pendingProjectMap.remove(projectId);
+    return false;
+  }
+
+  protected void run(Long projectId, Consumer<Long> update, int attempt) {
+    Long submitTime = pendingProjectMap.remove(projectId);
+    long startTime = System.nanoTime();
+    if (submitTime != null) {
+      long waitNanos = startTime - submitTime;
+      totalWaitNanos.add(waitNanos);
+      maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    RequestScoper scope = ServletScopes.scopeRequest(Collections.emptyMap());
+    try (RequestScoper.CloseableScope ignored = scope.open()) {
+      update.accept(projectId);
+      completedCount.increment();
+    } catch (PessimisticLockException | LockTimeoutException e) {
+      if (!retry(projectId, update, attempt)) {
+        failedCount.increment();
+        log.error("Update of project {} failed after {} attempts", projectId, attempt, e);
+        TraceBackService.trace(e);
+      }
+    } catch (Exception e) {
+      failedCount.increment();
+      log.error("Update of project {} failed", projectId, e);
+      TraceBackService.trace(e);
+    } finally {
+      totalRunNanos.add(System.nanoTime() - startTime);
+      Beans.get(UnitOfWork.class).end();
+    }
+  }
+
+  protected class ProjectUpdate implements Runnable {
+
+    protected final Long projectId;
+    protected final Consumer<Long> update;
+    protected final int attempt;
+
+    protected ProjectUpdate(Long projectId, Consumer<Long> update, int attempt) {
+      this.projectId = projectId;
+      this.update = update;
+      this.attempt = attempt;
+    }
+
+    @Override
+    public void run() {
+      ProjectTimeSpentExecutor.this.run(projectId, update, attempt);
+    }
+  }
+
+  public Stats getStats() {
+    return new Stats(this);
+  }
+
+  /** Snapshot of the state of the executor. */
+  public static class Stats {
+
+    private final int queueDepth;
+    private final int activeCount;
+    private final long submittedCount;
+    private final long coalescedCount;
+    private final long retriedCount;
+    private final long completedCount;
+    private final long failedCount;
+    private final long averageWaitMillis;
+    private final long maxWaitMillis;
+    private final long averageRunMillis;
+
+    protected Stats(ProjectTimeSpentExecutor executor) {
+      this.queueDepth = executor.executor.getQueue().size();
+      this.activeCount = executor.executor.getActiveCount();
+      this.submittedCount = executor.submittedCount.sum();
+      this.coalescedCount = executor.coalescedCount.sum();
+      this.retriedCount = executor.retriedCount.sum();
+      this.completedCount = executor.completedCount.sum();
+      this.failedCount = executor.failedCount.sum();
+      long runCount = Math.max(1, completedCount + failedCount);
+      this.averageWaitMillis =
+          TimeUnit.NANOSECONDS.toMillis(executor.totalWaitNanos.sum() / runCount);
+      this.maxWaitMillis = TimeUnit.NANOSECONDS.toMillis(executor.maxWaitNanos.get());
+      this.averageRunMillis =
+          TimeUnit.NANOSECONDS.toMillis(executor.totalRunNanos.sum() / runCount);
+    }
+
+    /** Number of project updates waiting for a thread. */
+    public int getQueueDepth() {
+      return queueDepth;
+    }
+
+    /** Number of project updates running. */
+    public int getActiveCount() {
+      return activeCount;
+    }
+
+    public long getSubmittedCount() {
+      return submittedCount;
+    }
+
+    /** Number of submitted updates merged with an update already waiting. */
+    public long getCoalescedCount() {
+      return coalescedCount;
+    }
+
+    /** Number of updates put back in the queue because their project was locked. */
+    public long getRetriedCount() {
+      return retriedCount;
+    }
+
+    public long getCompletedCount() {
+      return completedCount;
+    }
+
+    public long getFailedCount() {
+      return failedCount;
+    }
+
+    /** Average time between the submission of an update and its start. */
+    public long getAverageWaitMillis() {
+      return averageWaitMillis;
+    }
+
+    public long getMaxWaitMillis() {
+      return maxWaitMillis;
+    }
+
+    public long getAverageRunMillis() {
+      return averageRunMillis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "queue=%d, active=%d, submitted=%d, coalesced=%d, retried=%d, completed=%d, failed=%d,"
+              + " wait=%dms (max %dms), run=%dms",
+          queueDepth,
+          activeCount,
+          submittedCount,
+          coalescedCount,
+          retriedCount,
+          completedCount,
+          failedCount,
+          averageWaitMillis,
+          maxWaitMillis,
+          averageRunMillis);
+    }
+  }
+}
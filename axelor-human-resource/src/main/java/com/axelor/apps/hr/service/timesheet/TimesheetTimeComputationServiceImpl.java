@@ -18,6 +18,7 @@
  */
 package com.axelor.apps.hr.service.timesheet;
 
+import com.axelor.apps.base.utils.TransactionHelper;
 import com.axelor.apps.hr.db.Timesheet;
 import com.axelor.apps.hr.db.TimesheetLine;
 import com.axelor.apps.hr.db.repo.TimesheetLineRepository;
@@ -28,14 +29,11 @@ import com.axelor.db.JpaSupport;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import java.math.BigDecimal;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 import javax.persistence.EntityNotFoundException;
 import javax.persistence.LockModeType;
-import javax.persistence.PersistenceException;
 
 public class TimesheetTimeComputationServiceImpl extends JpaSupport
     implements TimesheetTimeComputationService {
@@ -43,18 +41,18 @@ public class TimesheetTimeComputationServiceImpl extends JpaSupport
   protected TimesheetLineService timesheetLineService;
   protected TimesheetLineRepository timesheetLineRepository;
   protected ProjectRepository projectRepo;
-  private static final int ENTITY_FIND_TIMEOUT = 10000;
-  private static final int ENTITY_FIND_INTERVAL = 50;
-  private ExecutorService executor = Executors.newCachedThreadPool();
+  protected ProjectTimeSpentExecutor projectTimeSpentExecutor;
 
   @Inject
   public TimesheetTimeComputationServiceImpl(
       TimesheetLineService timesheetLineService,
       TimesheetLineRepository timesheetLineRepository,
-      ProjectRepository projectRepo) {
+      ProjectRepository projectRepo,
+      ProjectTimeSpentExecutor projectTimeSpentExecutor) {
     this.timesheetLineService = timesheetLineService;
     this.timesheetLineRepository = timesheetLineRepository;
     this.projectRepo = projectRepo;
+    this.projectTimeSpentExecutor = projectTimeSpentExecutor;
   }
 
   @Override
@@ -66,40 +64,31 @@ public class TimesheetTimeComputationServiceImpl extends JpaSupport
       Map<Project, BigDecimal> projectTimeSpentMap =
           timesheetLineService.getProjectTimeSpentMap(timesheetLineList);
 
-      Iterator<Project> projectIterator = projectTimeSpentMap.keySet().iterator();
+      List<Long> projectIdList =
+          projectTimeSpentMap.keySet().stream().map(Project::getId).collect(Collectors.toList());
 
-      while (projectIterator.hasNext()) {
-        Project project = projectIterator.next();
-        getEntityManager().flush();
-        executor.submit(
-            () -> {
-              final Long startTime = System.currentTimeMillis();
-              boolean done = false;
-              PersistenceException persistenceException = null;
-
-              do {
-                try {
-                  inTransaction(
-                      () -> {
-                        final Project updateProject = findProject(project.getId());
-                        getEntityManager().lock(updateProject, LockModeType.PESSIMISTIC_WRITE);
+      // the projects are updated once the validation is committed, by the shared executor
+      TransactionHelper.afterCommit(
+          () ->
+              projectIdList.forEach(
+                  projectId -> projectTimeSpentExecutor.submit(projectId, this::updateProject)));
+    }
+  }
 
-                        projectRepo.save(updateProject);
-                      });
-                  done = true;
-                } catch (PersistenceException e) {
-                  persistenceException = e;
-                  sleep();
-                }
-              } while (!done && System.currentTimeMillis() - startTime < ENTITY_FIND_TIMEOUT);
+  /**
+   * Saves the given project under a lock. The update is not retried here: when the lock can not be
+   * acquired, {@link ProjectTimeSpentExecutor} puts it back in its queue.
+   *
+   * @param projectId
+   */
+  protected void updateProject(Long projectId) {
+    inTransaction(
+        () -> {
+          final Project updateProject = findProject(projectId);
+          getEntityManager().lock(updateProject, LockModeType.PESSIMISTIC_WRITE);
 
-              if (!done) {
-                throw persistenceException;
-              }
-              return true;
-            });
-      }
-    }
+          projectRepo.save(updateProject);
+        });
   }
 
   @Override
@@ -134,23 +123,11 @@ public class TimesheetTimeComputationServiceImpl extends JpaSupport
   }
 
   protected Project findProject(Long projectId) {
-    Project project;
-    final long startTime = System.currentTimeMillis();
-    while ((project = projectRepo.find(projectId)) == null
-        && System.currentTimeMillis() - startTime < ENTITY_FIND_TIMEOUT) {
-      sleep();
-    }
+    // the update is submitted once the validation is committed, so the project is visible
+    Project project = projectRepo.find(projectId);
     if (project == null) {
       throw new EntityNotFoundException(projectId.toString());
     }
     return project;
   }
-
-  protected void sleep() {
-    try {
-      Thread.sleep(ENTITY_FIND_INTERVAL);
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-    }
-  }
 }
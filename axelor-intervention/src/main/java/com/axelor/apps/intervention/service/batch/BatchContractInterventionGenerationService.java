@@ -23,6 +23,7 @@ import com.axelor.apps.base.db.repo.BatchRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.service.DurationService;
 import com.axelor.apps.base.service.administration.AbstractBatch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.contract.db.Contract;
 import com.axelor.apps.contract.db.repo.AbstractContractRepository;
@@ -34,15 +35,12 @@ import com.axelor.apps.intervention.db.repo.InterventionRepository;
 import com.axelor.apps.intervention.repo.EquipmentRepository;
 import com.axelor.apps.intervention.service.InterventionService;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 public class BatchContractInterventionGenerationService extends AbstractBatch {
 
@@ -51,8 +49,6 @@ public class BatchContractInterventionGenerationService extends AbstractBatch {
   private final InterventionService interventionService;
   private final EquipmentRepository equipmentRepository;
   private final DurationService durationService;
-  private final Set<Long> idsOk;
-  private final Set<Long> idsFail;
   private LocalDateTime endDateTime;
 
   @Inject
@@ -67,8 +63,6 @@ public class BatchContractInterventionGenerationService extends AbstractBatch {
     this.interventionService = interventionService;
     this.equipmentRepository = equipmentRepository;
     this.durationService = durationService;
-    this.idsOk = new HashSet<>();
-    this.idsFail = new HashSet<>();
   }
 
   @Override
@@ -82,48 +76,36 @@ public class BatchContractInterventionGenerationService extends AbstractBatch {
             .map(InterventionBatch::getNextVisitDelay)
             .orElse(12);
     endDateTime = LocalDateTime.now().plusMonths(nextVisitDelay);
-    idsOk.add(0L);
-    idsFail.add(0L);
+    String filter =
+        "self.statusSelect = :statusSelect "
+            + "AND self.activateRecurrencePlanning IS TRUE "
+            + "AND ((self.nextAnnualVisitDate IS NOT NULL AND self.nextAnnualVisitDate <= :endDateTime) OR (self.nextAnnualVisitDate IS NULL AND self.lastMaintenanceVisitDateDone IS NOT NULL))";
     long total =
         contractRepository
             .all()
-            .filter(
-                "self.statusSelect = :statusSelect "
-                    + "AND self.activateRecurrencePlanning IS TRUE "
-                    + "AND ((self.nextAnnualVisitDate IS NOT NULL AND self.nextAnnualVisitDate <= :endDateTime) OR (self.nextAnnualVisitDate IS NULL AND self.lastMaintenanceVisitDateDone IS NOT NULL))")
+            .filter(filter)
             .bind("endDateTime", endDateTime)
             .bind("statusSelect", AbstractContractRepository.ACTIVE_CONTRACT)
             .count();
     long processed = 0L;
-    Query<Contract> query =
-        contractRepository
-            .all()
-            .filter(
-                "self.statusSelect = :statusSelect "
-                    + "AND self.activateRecurrencePlanning IS TRUE "
-                    + "AND ((self.nextAnnualVisitDate IS NOT NULL AND self.nextAnnualVisitDate <= :endDateTime) OR (self.nextAnnualVisitDate IS NULL AND self.lastMaintenanceVisitDateDone IS NOT NULL))"
-                    + "AND self.id NOT IN (:idsOk) "
-                    + "AND self.id NOT IN (:idsFail)");
+    long generated = 0L;
+    ChunkedQuery<Contract> query =
+        chunkedQuery(Contract.class)
+            .filter(filter)
+            .bind("endDateTime", endDateTime)
+            .bind("statusSelect", AbstractContractRepository.ACTIVE_CONTRACT);
     List<Contract> contracts;
-    while (!(contracts =
-            query
-                .bind("endDateTime", endDateTime)
-                .bind("statusSelect", AbstractContractRepository.ACTIVE_CONTRACT)
-                .bind("idsOk", idsOk)
-                .bind("idsFail", idsFail)
-                .fetch(FETCH_LIMIT))
-        .isEmpty()) {
+    while (!(contracts = query.fetchNext()).isEmpty()) {
       for (Contract contract : contracts) {
         try {
           processContract(contract.getId());
-          idsOk.add(contract.getId());
+          generated++;
           incrementDone();
         } catch (Exception e) {
           TraceBackService.trace(
               new AxelorException(e, contract, TraceBackRepository.CATEGORY_INCONSISTENCY),
               null,
               batch.getId());
-          idsFail.add(contract.getId());
           incrementAnomaly();
         } finally {
           processed++;
@@ -132,7 +114,7 @@ public class BatchContractInterventionGenerationService extends AbstractBatch {
       JPA.clear();
       LOG.debug("Contract's interventions generation progress : {}%", processed * 100L / total);
     }
-    LOG.debug("Interventions generated for {} Contracts.", idsOk.size() - 1);
+    LOG.debug("Interventions generated for {} Contracts.", generated);
   }
 
   @Transactional(rollbackOn = Exception.class)
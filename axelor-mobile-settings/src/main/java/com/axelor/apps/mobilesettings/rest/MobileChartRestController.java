@@ -21,6 +21,7 @@ package com.axelor.apps.mobilesettings.rest;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.mobilesettings.db.MobileChart;
 import com.axelor.apps.mobilesettings.service.MobileChartResponseComputeService;
+import com.axelor.apps.mobilesettings.service.MobileChartResultCache;
 import com.axelor.inject.Beans;
 import com.axelor.utils.api.HttpExceptionHandler;
 import com.axelor.utils.api.ObjectFinder;
@@ -56,4 +57,19 @@ public class MobileChartRestController {
         "Response of the query of the chart",
         Beans.get(MobileChartResponseComputeService.class).computeMobileChartResponse(mobileChart));
   }
+
+  @Operation(
+      summary = "Get mobile chart cache statistics",
+      tags = {"Mobile Chart"})
+  @Path("/cache-stats")
+  @GET
+  @HttpExceptionHandler
+  public Response getCacheStats() {
+    new SecurityCheck().readAccess(MobileChart.class).check();
+
+    return ResponseConstructor.build(
+        Response.Status.OK,
+        "Statistics of the mobile chart cache",
+        Beans.get(MobileChartResultCache.class).getStats());
+  }
 }
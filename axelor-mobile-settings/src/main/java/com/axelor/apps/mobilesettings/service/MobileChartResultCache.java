@@ -0,0 +1,255 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.mobilesettings.service;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Company;
+import com.axelor.apps.mobilesettings.db.MobileChart;
+import com.axelor.apps.mobilesettings.rest.dto.MobileChartValueResponse;
+import com.axelor.auth.AuthUtils;
+import com.axelor.auth.db.Group;
+import com.axelor.auth.db.User;
+import com.google.inject.Singleton;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of the values of the custom mobile charts, see {@link MobileChartServiceImpl}.
+ *
+ * <p>Values are kept for {@link MobileChart#getCacheDuration()} seconds and are shared by the
+ * users having the same active company and group. The key contains the version of the chart, so a
+ * modified query is run again at once. When several users ask for the same values while they are
+ * computed, the query is run only once and every user waits for its result.
+ */
+@Singleton
+public class MobileChartResultCache {
+
+  protected final Map<Key, CachedValues> cacheMap = new ConcurrentHashMap<>();
+  protected final Map<Key, CompletableFuture<List<MobileChartValueResponse>>> loadingMap =
+      new ConcurrentHashMap<>();
+
+  protected final LongAdder hitCount = new LongAdder();
+  protected final LongAdder missCount = new LongAdder();
+  protected final LongAdder coalescedCount = new LongAdder();
+  protected final LongAdder failedCount = new LongAdder();
+  protected final LongAdder totalQueryNanos = new LongAdder();
+  protected final AtomicLong maxQueryNanos = new AtomicLong();
+
+  /**
+   * Returns the values of the chart for the current user, loading them when they are not cached or
+   * expired.
+   *
+   * @param mobileChart the chart
+   * @param loader the loader running the query of the chart
+   * @return the values of the chart
+   * @throws AxelorException if the query fails
+   */
+  public List<MobileChartValueResponse> get(MobileChart mobileChart, Loader loader)
+      throws AxelorException {
+    Key key = new Key(mobileChart, AuthUtils.getUser());
+    CachedValues cachedValues = cacheMap.get(key);
+    if (cachedValues != null && !cachedValues.isExpired()) {
+      hitCount.increment();
+      return cachedValues.valueList;
+    }
+
+    missCount.increment();
+    CompletableFuture<List<MobileChartValueResponse>> future = new CompletableFuture<>();
+    CompletableFuture<List<MobileChartValueResponse>> loading = loadingMap.putIfAbsent(key, future);
+    if (loading != null) {
+      coalescedCount.increment();
+      return waitFor(loading);
+    }
+
+    try {
+      List<MobileChartValueResponse> valueList = load(loader);
+      long duration = Optional.ofNullable(mobileChart.getCacheDuration()).orElse(0);
+      if (duration > 0) {
+        cacheMap.values().removeIf(CachedValues::isExpired);
+        cacheMap.put(key, new CachedValues(valueList, TimeUnit.SECONDS.toNanos(duration)));
+      }
+      future.complete(valueList);
+      return valueList;
+    } catch (AxelorException | RuntimeException e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      loadingMap.remove(key, future);
+    }
+  }
+
+  protected List<MobileChartValueResponse> load(Loader loader) throws AxelorException {
+    long startTime = System.nanoTime();
+    try {
+      return List.copyOf(loader.load());
+    } catch (AxelorException | RuntimeException e) {
+      failedCount.increment();
+      throw e;
+    } finally {
+      long queryNanos = System.nanoTime() - startTime;
+      totalQueryNanos.add(queryNanos);
+      maxQueryNanos.accumulateAndGet(queryNanos, Math::max);
+    }
+  }
+
+  protected List<MobileChartValueResponse> waitFor(
+      CompletableFuture<List<MobileChartValueResponse>> loading) throws AxelorException {
+    try {
+      return loading.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof AxelorException) {
+        throw (AxelorException) e.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /** Removes every cached value. */
+  public void invalidate() {
+    cacheMap.clear();
+  }
+
+  public Stats getStats() {
+    return new Stats(this);
+  }
+
+  @FunctionalInterface
+  public interface Loader {
+    List<MobileChartValueResponse> load() throws AxelorException;
+  }
+
+  protected static class Key {
+
+    protected final Long chartId;
+    protected final Integer chartVersion;
+    protected final Long companyId;
+    protected final Long groupId;
+
+    protected Key(MobileChart mobileChart, User user) {
+      this.chartId = mobileChart.getId();
+      this.chartVersion = mobileChart.getVersion();
+      Optional<User> optionalUser = Optional.ofNullable(user);
+      this.companyId = optionalUser.map(User::getActiveCompany).map(Company::getId).orElse(null);
+      this.groupId = optionalUser.map(User::getGroup).map(Group::getId).orElse(null);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return Objects.equals(chartId, other.chartId)
+          && Objects.equals(chartVersion, other.chartVersion)
+          && Objects.equals(companyId, other.companyId)
+          && Objects.equals(groupId, other.groupId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(chartId, chartVersion, companyId, groupId);
+    }
+  }
+
+  protected static class CachedValues {
+
+    protected final List<MobileChartValueResponse> valueList;
+    protected final long expirationTime;
+
+    protected CachedValues(List<MobileChartValueResponse> valueList, long durationNanos) {
+      this.valueList = valueList;
+      this.expirationTime = System.nanoTime() + durationNanos;
+    }
+
+    protected boolean isExpired() {
+      return System.nanoTime() - expirationTime >= 0;
+    }
+  }
+
+  /** Snapshot of the counters of the cache. */
+  public static class Stats {
+
+    private final int size;
+    private final long hitCount;
+    private final long missCount;
+    private final long coalescedCount;
+    private final long failedCount;
+    private final long averageQueryMillis;
+    private final long maxQueryMillis;
+
+    protected Stats(MobileChartResultCache cache) {
+      this.size = cache.cacheMap.size();
+      this.hitCount = cache.hitCount.sum();
+      this.missCount = cache.missCount.sum();
+      this.coalescedCount = cache.coalescedCount.sum();
+      this.failedCount = cache.failedCount.sum();
+      long queryCount = Math.max(1, missCount - coalescedCount);
+      this.averageQueryMillis =
+          TimeUnit.NANOSECONDS.toMillis(cache.totalQueryNanos.sum() / queryCount);
+      this.maxQueryMillis = TimeUnit.NANOSECONDS.toMillis(cache.maxQueryNanos.get());
+    }
+
+    /** Number of cached chart values, expired ones included. */
+    public int getSize() {
+      return size;
+    }
+
+    public long getHitCount() {
+      return hitCount;
+    }
+
+    public long getMissCount() {
+      return missCount;
+    }
+
+    /** Number of misses which waited for the query already run by another user. */
+    public long getCoalescedCount() {
+      return coalescedCount;
+    }
+
+    public long getFailedCount() {
+      return failedCount;
+    }
+
+    public long getAverageQueryMillis() {
+      return averageQueryMillis;
+    }
+
+    public long getMaxQueryMillis() {
+      return maxQueryMillis;
+    }
+  }
+}
@@ -24,25 +24,46 @@ import com.axelor.apps.mobilesettings.db.MobileChart;
 import com.axelor.apps.mobilesettings.rest.dto.MobileChartValueResponse;
 import com.axelor.db.JPA;
 import com.axelor.i18n.I18n;
+import com.google.inject.Inject;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.persistence.Query;
 import org.apache.commons.collections.CollectionUtils;
 
 public class MobileChartServiceImpl implements MobileChartService {
 
+  protected static final String QUERY_TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+  protected MobileChartResultCache mobileChartResultCache;
+
+  @Inject
+  public MobileChartServiceImpl(MobileChartResultCache mobileChartResultCache) {
+    this.mobileChartResultCache = mobileChartResultCache;
+  }
+
   @Override
   public List<MobileChartValueResponse> getValueList(MobileChart mobileChart)
       throws AxelorException {
+    if (mobileChart == null) {
+      return Collections.emptyList();
+    }
+
+    return mobileChartResultCache.get(mobileChart, () -> computeValueList(mobileChart));
+  }
+
+  protected List<MobileChartValueResponse> computeValueList(MobileChart mobileChart)
+      throws AxelorException {
 
     List<Object> resultList = runQuery(mobileChart);
     if (CollectionUtils.isEmpty(resultList)) {
       return Collections.emptyList();
     }
 
-    List<MobileChartValueResponse> mobileChartValueResponseList = new ArrayList<>();
+    List<MobileChartValueResponse> mobileChartValueResponseList =
+        new ArrayList<>(resultList.size());
     for (Object objectValues : resultList) {
 
       String label = getLabel(((Object[]) objectValues)[0]);
@@ -98,6 +119,14 @@ public class MobileChartServiceImpl implements MobileChartService {
 
     try {
       Query query = JPA.em().createQuery(mobileChart.getQuery());
+      Integer queryTimeout = mobileChart.getQueryTimeout();
+      if (queryTimeout != null && queryTimeout > 0) {
+        query.setHint(QUERY_TIMEOUT_HINT, TimeUnit.SECONDS.toMillis(queryTimeout));
+      }
+      Integer maxRowCount = mobileChart.getMaxRowCount();
+      if (maxRowCount != null && maxRowCount > 0) {
+        query.setMaxResults(maxRowCount);
+      }
       result = query.getResultList();
     } catch (Exception e) {
       throw new AxelorException(
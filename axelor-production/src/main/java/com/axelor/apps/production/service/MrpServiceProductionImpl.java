@@ -179,7 +179,7 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
   }
 
   protected void createManufOrderMrpLines() throws AxelorException {
-    this.createManufOrderMrpLines(this.productMap);
+    this.createManufOrderMrpLines(context.getProductMap());
   }
 
   // Manufacturing order AND manufacturing order need
@@ -187,7 +187,7 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
 
     MrpLineType manufOrderMrpLineType =
         mrpLineTypeService.getMrpLineType(
-            MrpLineTypeRepository.ELEMENT_MANUFACTURING_ORDER, mrp.getMrpTypeSelect());
+            MrpLineTypeRepository.ELEMENT_MANUFACTURING_ORDER, context.getMrpTypeSelect());
 
     if (manufOrderMrpLineType == null) {
       return;
@@ -195,7 +195,7 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
 
     MrpLineType manufOrderNeedMrpLineType =
         mrpLineTypeService.getMrpLineType(
-            MrpLineTypeRepository.ELEMENT_MANUFACTURING_ORDER_NEED, mrp.getMrpTypeSelect());
+            MrpLineTypeRepository.ELEMENT_MANUFACTURING_ORDER_NEED, context.getMrpTypeSelect());
 
     String statusSelect = manufOrderMrpLineType.getStatusSelect();
     List<Integer> statusList = StringHelper.getIntegerList(statusSelect);
@@ -212,19 +212,18 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
                     + "self.prodProcess.producedProductStockLocation in (?2)) "
                     + "AND self.statusSelect IN (?3)",
                 productMap.keySet(),
-                this.stockLocationList,
+                context.getStockLocationList(),
                 statusList)
             .fetch();
 
-    for (ManufOrder manufOrder : manufOrderList) {
-
-      this.createManufOrderMrpLines(
-          mrpRepository.find(mrp.getId()),
-          manufOrderRepository.find(manufOrder.getId()),
-          mrpLineTypeRepository.find(manufOrderMrpLineType.getId()),
-          mrpLineTypeRepository.find(manufOrderNeedMrpLineType.getId()));
-      JPA.clear();
-    }
+    this.processInChunks(
+        manufOrderList,
+        manufOrder ->
+            this.createManufOrderMrpLines(
+                mrpRepository.find(context.getMrpId()),
+                manufOrderRepository.find(manufOrder.getId()),
+                mrpLineTypeRepository.find(manufOrderMrpLineType.getId()),
+                mrpLineTypeRepository.find(manufOrderNeedMrpLineType.getId())));
   }
 
   @Transactional(rollbackOn = {Exception.class})
@@ -330,7 +329,7 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
           // BOM or
           // because the component of manuf order is not a component of the bill of materials, we
           // add it with the level of manuf order product + 1.
-          if (!this.productMap.containsKey(product.getId())) {
+          if (!context.getProductMap().containsKey(product.getId())) {
             this.assignProductAndLevel(product, manufOrder.getProduct());
             this.createAvailableStockMrpLine(
                 product, manufOrder.getProdProcess().getStockLocation());
@@ -392,16 +391,16 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
   }
 
   protected void createMPSLines() throws AxelorException {
-    this.createMPSLines(this.productMap);
+    this.createMPSLines(context.getProductMap());
   }
 
   protected void createMPSLines(Map<Long, Integer> productMap) throws AxelorException {
 
     MrpLineType mpsNeedMrpLineType =
         mrpLineTypeService.getMrpLineType(
-            MrpLineTypeRepository.ELEMENT_MASTER_PRODUCTION_SCHEDULING, mrp.getMrpTypeSelect());
+            MrpLineTypeRepository.ELEMENT_MASTER_PRODUCTION_SCHEDULING, context.getMrpTypeSelect());
 
-    if (mpsNeedMrpLineType == null || mrp.getMrpTypeSelect() != MrpRepository.MRP_TYPE_MRP) {
+    if (mpsNeedMrpLineType == null || context.getMrpTypeSelect() != MrpRepository.MRP_TYPE_MRP) {
       return;
     }
 
@@ -412,23 +411,22 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
                 "self.product.id in (?1) AND self.stockLocation in (?2) AND self.mrp.mrpTypeSelect = ?3 "
                     + "AND self.mrp.statusSelect = ?4 AND self.mrpLineType.elementSelect = ?5 AND self.maturityDate >= ?6 AND (?7 is true OR self.maturityDate <= ?8) AND self.mrp.validateScenario is true",
                 productMap.keySet(),
-                this.stockLocationList,
+                context.getStockLocationList(),
                 MrpRepository.MRP_TYPE_MPS,
                 MrpRepository.STATUS_CALCULATION_ENDED,
                 MrpLineTypeRepository.ELEMENT_MASTER_PRODUCTION_SCHEDULING,
-                today.atStartOfDay(),
-                mrp.getEndDate() == null,
-                mrp.getEndDate())
+                context.getToday().atStartOfDay(),
+                context.getEndDate() == null,
+                context.getEndDate())
             .fetch();
 
-    for (MrpLine mpsMrpLine : mpsMrpLineList) {
-
-      this.createMpsMrpLines(
-          mrpRepository.find(mrp.getId()),
-          mrpLineRepository.find(mpsMrpLine.getId()),
-          mrpLineTypeRepository.find(mpsNeedMrpLineType.getId()));
-      JPA.clear();
-    }
+    this.processInChunks(
+        mpsMrpLineList,
+        mpsMrpLine ->
+            this.createMpsMrpLines(
+                mrpRepository.find(context.getMrpId()),
+                mrpLineRepository.find(mpsMrpLine.getId()),
+                mrpLineTypeRepository.find(mpsNeedMrpLineType.getId())));
   }
 
   @Transactional(rollbackOn = {Exception.class})
@@ -550,7 +548,15 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
                     maturityDate,
                     mrpLineOriginList,
                     relatedToSelectName);
-            subProductMrpLine.setBillOfMaterial(billOfMaterialLine.getBillOfMaterial());
+            BillOfMaterial subBillOfMaterial = billOfMaterialLine.getBillOfMaterial();
+            subProductMrpLine.setBillOfMaterial(subBillOfMaterial);
+            context.onProposalSave(
+                subProductMrpLine,
+                savedMrpLine ->
+                    savedMrpLine.setBillOfMaterial(
+                        subBillOfMaterial != null
+                            ? JPA.find(BillOfMaterial.class, subBillOfMaterial.getId())
+                            : null));
           }
         }
       }
@@ -656,27 +662,28 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
       return super.getMrpLineTypeForProposal(stockRules, product, company);
     }
 
-    if (mrp.getMrpTypeSelect() == MrpRepository.MRP_TYPE_MPS) {
+    int mrpTypeSelect = context.getMrpTypeSelect();
+    if (mrpTypeSelect == MrpRepository.MRP_TYPE_MPS) {
       return mrpLineTypeService.getMrpLineType(
-          MrpLineTypeRepository.ELEMENT_MASTER_PRODUCTION_SCHEDULING, mrp.getMrpTypeSelect());
+          MrpLineTypeRepository.ELEMENT_MASTER_PRODUCTION_SCHEDULING, mrpTypeSelect);
     } else {
       if (stockRules != null) {
         if (stockRules.getOrderAlertSelect() == StockRulesRepository.ORDER_ALERT_PRODUCTION_ORDER) {
           return mrpLineTypeService.getMrpLineType(
-              MrpLineTypeRepository.ELEMENT_MANUFACTURING_PROPOSAL, mrp.getMrpTypeSelect());
+              MrpLineTypeRepository.ELEMENT_MANUFACTURING_PROPOSAL, mrpTypeSelect);
         } else {
           return mrpLineTypeService.getMrpLineType(
-              MrpLineTypeRepository.ELEMENT_PURCHASE_PROPOSAL, mrp.getMrpTypeSelect());
+              MrpLineTypeRepository.ELEMENT_PURCHASE_PROPOSAL, mrpTypeSelect);
         }
       }
 
       if (ProductRepository.PROCUREMENT_METHOD_BUY.equals(
           (productCompanyService.get(product, "procurementMethodSelect", company)))) {
         return mrpLineTypeService.getMrpLineType(
-            MrpLineTypeRepository.ELEMENT_PURCHASE_PROPOSAL, mrp.getMrpTypeSelect());
+            MrpLineTypeRepository.ELEMENT_PURCHASE_PROPOSAL, mrpTypeSelect);
       } else {
         return mrpLineTypeService.getMrpLineType(
-            MrpLineTypeRepository.ELEMENT_MANUFACTURING_PROPOSAL, mrp.getMrpTypeSelect());
+            MrpLineTypeRepository.ELEMENT_MANUFACTURING_PROPOSAL, mrpTypeSelect);
       }
     }
   }
@@ -694,7 +701,7 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
             == MrpLineTypeRepository.ELEMENT_MANUFACTURING_PROPOSAL_NEED
         || (mrpLineType.getElementSelect()
                 == MrpLineTypeRepository.ELEMENT_MASTER_PRODUCTION_SCHEDULING
-            && mrp.getMrpTypeSelect() == MrpRepository.MRP_TYPE_MPS)) {
+            && context.getMrpTypeSelect() == MrpRepository.MRP_TYPE_MPS)) {
 
       return true;
     }
@@ -709,21 +716,27 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
       super.assignProductAndLevel(product);
       return;
     }
-    Company company = mrp.getStockLocation().getCompany();
+    Company company = this.getCompany();
     BillOfMaterial billOfMaterial = billOfMaterialService.getDefaultBOM(product, company);
 
-    if (billOfMaterial != null && mrp.getMrpTypeSelect() == MrpRepository.MRP_TYPE_MRP) {
+    if (billOfMaterial != null && context.getMrpTypeSelect() == MrpRepository.MRP_TYPE_MRP) {
       this.assignProductLevel(billOfMaterial, 0);
     } else {
       log.debug("Add product: {}", product.getFullName());
-      this.productMap.put(product.getId(), this.getMaxLevel(product, 0));
+      context.getProductMap().put(product.getId(), this.getMaxLevel(product, 0));
     }
   }
 
+  /** Returns the company of the stock location of the MRP, from the session of this thread. */
+  protected Company getCompany() {
+    Long companyId = context.getCompanyId();
+    return companyId != null ? JPA.find(Company.class, companyId) : null;
+  }
+
   public int getMaxLevel(Product product, int level) {
 
-    if (this.productMap.containsKey(product.getId())) {
-      return Math.max(level, this.productMap.get(product.getId()));
+    if (context.getProductMap().containsKey(product.getId())) {
+      return Math.max(level, context.getProductMap().get(product.getId()));
     }
 
     return level;
@@ -755,7 +768,7 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
     Product product = billOfMaterial.getProduct();
 
     log.debug("Add product: {} for the level : {} ", product.getFullName(), level);
-    this.productMap.put(product.getId(), this.getMaxLevel(product, level));
+    context.getProductMap().put(product.getId(), this.getMaxLevel(product, level));
 
     level = level + 1;
     if (!CollectionUtils.isEmpty(billOfMaterial.getBillOfMaterialLineList())) {
@@ -767,7 +780,7 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
         if (this.isMrpProduct(subProduct)) {
           this.assignProductLevel(billOfMaterialLine, level);
 
-          Company company = mrp.getStockLocation().getCompany();
+          Company company = this.getCompany();
           BillOfMaterial defaultBOM = billOfMaterialService.getDefaultBOM(subProduct, company);
           if (defaultBOM != null) {
             this.assignProductLevel(defaultBOM, level);
@@ -801,7 +814,7 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
     Product product = billOfMaterialLine.getProduct();
 
     log.debug("Add product: {} for the level : {} ", product.getFullName(), level);
-    this.productMap.put(product.getId(), this.getMaxLevel(product, level));
+    context.getProductMap().put(product.getId(), this.getMaxLevel(product, level));
 
     // No bill of material = End product so no more level
     // Bom should be same level as bom line so no leveling also
@@ -821,7 +834,7 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
       Product manufOrderComponentProduct, Product manufOrderProducedProduct) {
 
     log.debug("Add of the product : {}", manufOrderComponentProduct.getFullName());
-    this.productMap.put(
+    context.getProductMap().put(
         manufOrderComponentProduct.getId(), this.getMaxLevel(manufOrderProducedProduct, 0) + 1);
   }
 
@@ -830,7 +843,7 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
 
     MrpLineType availableStockMrpLineType =
         mrpLineTypeService.getMrpLineType(
-            MrpLineTypeRepository.ELEMENT_AVAILABLE_STOCK, mrp.getMrpTypeSelect());
+            MrpLineTypeRepository.ELEMENT_AVAILABLE_STOCK, context.getMrpTypeSelect());
 
     if (availableStockMrpLineType == null) {
       return;
@@ -838,7 +851,7 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
 
     mrpLineRepository.save(
         this.createAvailableStockMrpLine(
-            mrpRepository.find(mrp.getId()),
+            mrpRepository.find(context.getMrpId()),
             productRepository.find(product.getId()),
             stockLocation,
             availableStockMrpLineType));
@@ -23,6 +23,7 @@ import com.axelor.apps.base.db.repo.BatchRepository;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.administration.AbstractBatch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.app.AppBaseService;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.production.db.ManufOrder;
@@ -33,7 +34,6 @@ import com.axelor.apps.production.exceptions.ProductionExceptionMessage;
 import com.axelor.apps.production.service.costsheet.CostSheetService;
 import com.axelor.apps.stock.db.StockLocation;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.google.inject.Inject;
@@ -88,14 +88,14 @@ public class BatchComputeWorkInProgressValuation extends AbstractBatch {
       bindValues.put("stockLocationId", workshopStockLocation.getId());
     }
 
-    Query<ManufOrder> manufOrderQuery = manufOrderRepository.all().filter(domain).bind(bindValues);
+    // the session is cleared after each manufacturing order, their cost sheets being heavy
+    ChunkedQuery<ManufOrder> manufOrderQuery =
+        chunkedQuery(ManufOrder.class).filter(domain).bind(bindValues).chunkSize(FETCH_LIMIT);
 
-    int offset = 0;
-
-    while (!(manufOrderList = manufOrderQuery.order("id").fetch(FETCH_LIMIT, offset)).isEmpty()) {
+    while (!(manufOrderList = manufOrderQuery.fetchNext()).isEmpty()) {
+      findBatch();
 
       for (ManufOrder manufOrder : manufOrderList) {
-        ++offset;
         try {
           costSheetService.computeCostPrice(
               manufOrder, CostSheetRepository.CALCULATION_WORK_IN_PROGRESS, valuationDate);
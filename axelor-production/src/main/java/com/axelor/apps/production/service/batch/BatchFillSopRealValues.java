@@ -25,6 +25,7 @@ import com.axelor.apps.base.db.repo.BatchRepository;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.administration.AbstractBatch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.production.db.ProductionBatch;
 import com.axelor.apps.production.db.SopLine;
@@ -34,7 +35,6 @@ import com.axelor.apps.production.exceptions.ProductionExceptionMessage;
 import com.axelor.apps.sale.db.repo.SaleOrderLineRepository;
 import com.axelor.apps.stock.db.repo.StockLocationLineHistoryRepository;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
 import com.axelor.utils.helpers.StringHelper;
 import com.google.inject.Inject;
@@ -67,24 +67,20 @@ public class BatchFillSopRealValues extends AbstractBatch {
   protected void process() {
     ProductionBatch productionBatch = batch.getProductionBatch();
 
-    int offset = 0;
-    Query<SopLine> query =
-        sopLineRepo
-            .all()
+    ChunkedQuery<SopLine> query =
+        chunkedQuery(SopLine.class)
             .filter(
                 String.format(
                     "self.sop.id IN (%s)",
-                    StringHelper.getIdListString(productionBatch.getSopSet())))
-            .order("id");
+                    StringHelper.getIdListString(productionBatch.getSopSet())));
 
     List<SopLine> sopLineList;
 
-    while (!(sopLineList = query.fetch(FETCH_LIMIT, offset)).isEmpty()) {
+    while (!(sopLineList = query.fetchNext()).isEmpty()) {
       findBatch();
       productionBatch = batch.getProductionBatch();
       Company company = productionBatch.getCompany();
       for (SopLine sopLine : sopLineList) {
-        ++offset;
         try {
           updateSopLine(company, sopLine.getSop().getProductCategory(), sopLine);
           incrementDone();
@@ -170,6 +166,11 @@ public class BatchFillSopRealValues extends AbstractBatch {
     sopLine.setSopSalesGap(sopSalesGap);
   }
 
+  @Override
+  protected boolean isProgressBuffered() {
+    return true;
+  }
+
   @Override
   protected void stop() {
     String comment =
@@ -20,6 +20,7 @@ package com.axelor.apps.quality.service;
 
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.apps.base.service.formula.FormulaEngineService;
 import com.axelor.apps.quality.db.ControlEntryPlanLine;
 import com.axelor.apps.quality.db.ControlType;
 import com.axelor.apps.quality.db.repo.ControlEntryPlanLineRepository;
@@ -28,8 +29,6 @@ import com.axelor.apps.quality.exception.QualityExceptionMessage;
 import com.axelor.db.mapper.Mapper;
 import com.axelor.i18n.I18n;
 import com.axelor.rpc.Context;
-import com.axelor.script.GroovyScriptHelper;
-import com.axelor.script.ScriptHelper;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import java.util.Objects;
@@ -40,15 +39,18 @@ public class ControlEntryPlanLineServiceImpl implements ControlEntryPlanLineServ
   protected ControlEntryPlanLineRepository controlEntryPlanLineRepository;
   protected ControlEntrySampleRepository controlEntrySampleRepository;
   protected ControlEntrySampleUpdateService controlEntrySampleUpdateService;
+  protected FormulaEngineService formulaEngineService;
 
   @Inject
   public ControlEntryPlanLineServiceImpl(
       ControlEntryPlanLineRepository controlEntryPlanLineRepository,
       ControlEntrySampleRepository controlEntrySampleRepository,
-      ControlEntrySampleUpdateService controlEntrySampleUpdateService) {
+      ControlEntrySampleUpdateService controlEntrySampleUpdateService,
+      FormulaEngineService formulaEngineService) {
     this.controlEntryPlanLineRepository = controlEntryPlanLineRepository;
     this.controlEntrySampleRepository = controlEntrySampleRepository;
     this.controlEntrySampleUpdateService = controlEntrySampleUpdateService;
+    this.formulaEngineService = formulaEngineService;
   }
 
   @Override
@@ -68,12 +70,11 @@ public class ControlEntryPlanLineServiceImpl implements ControlEntryPlanLineServ
 
     Context scriptContext =
         new Context(Mapper.toMap(controlEntryPlanLine), ControlEntryPlanLine.class);
-    ScriptHelper scriptHelper = new GroovyScriptHelper(scriptContext);
 
     Object result;
 
     try {
-      result = scriptHelper.eval(formula);
+      result = formulaEngineService.evaluate(formula, scriptContext);
     } catch (IllegalArgumentException e) {
       throw new AxelorException(
           TraceBackRepository.CATEGORY_INCONSISTENCY,
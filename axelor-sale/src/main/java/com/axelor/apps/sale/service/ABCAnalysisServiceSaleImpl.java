@@ -18,7 +18,6 @@
  */
 package com.axelor.apps.sale.service;
 
-import static com.axelor.apps.base.service.administration.AbstractBatch.FETCH_LIMIT;
 import static com.axelor.utils.helpers.date.LocalDateHelper.toDate;
 import static com.axelor.utils.helpers.date.LocalDateTimeHelper.toLocalDateT;
 
@@ -32,12 +31,12 @@ import com.axelor.apps.base.db.repo.ABCAnalysisRepository;
 import com.axelor.apps.base.db.repo.ProductRepository;
 import com.axelor.apps.base.service.ABCAnalysisServiceImpl;
 import com.axelor.apps.base.service.UnitConversionService;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.administration.SequenceService;
 import com.axelor.apps.sale.db.SaleOrderLine;
 import com.axelor.apps.sale.db.repo.SaleOrderLineRepository;
 import com.axelor.apps.sale.db.repo.SaleOrderRepository;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.google.inject.Inject;
 import java.math.BigDecimal;
 import java.util.List;
@@ -74,11 +73,9 @@ public class ABCAnalysisServiceSaleImpl extends ABCAnalysisServiceImpl {
     BigDecimal productQty = BigDecimal.ZERO;
     BigDecimal productWorth = BigDecimal.ZERO;
     List<SaleOrderLine> saleOrderLineList;
-    int offset = 0;
 
-    Query<SaleOrderLine> saleOrderLineQuery =
-        saleOrderLineRepository
-            .all()
+    ChunkedQuery<SaleOrderLine> saleOrderLineQuery =
+        ChunkedQuery.of(SaleOrderLine.class)
             .filter(
                 "(self.saleOrder.statusSelect = :statusConfirmed OR self.saleOrder.statusSelect = :statusCompleted) AND self.saleOrder.confirmationDateTime >= :startDate AND self.saleOrder.confirmationDateTime <= :endDate AND self.product.id = :productId")
             .bind("statusConfirmed", SaleOrderRepository.STATUS_ORDER_CONFIRMED)
@@ -90,11 +87,9 @@ public class ABCAnalysisServiceSaleImpl extends ABCAnalysisServiceImpl {
                     .withHour(23)
                     .withMinute(59)
                     .withSecond(59))
-            .bind("productId", product.getId())
-            .order("id");
+            .bind("productId", product.getId());
 
-    while (!(saleOrderLineList = saleOrderLineQuery.fetch(FETCH_LIMIT, offset)).isEmpty()) {
-      offset += saleOrderLineList.size();
+    while (!(saleOrderLineList = saleOrderLineQuery.fetchNext()).isEmpty()) {
       abcAnalysis = abcAnalysisRepository.find(abcAnalysis.getId());
 
       if (abcAnalysisLine == null) {
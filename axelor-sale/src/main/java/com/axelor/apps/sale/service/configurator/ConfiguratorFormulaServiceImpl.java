@@ -23,6 +23,7 @@ import static com.axelor.utils.MetaJsonFieldType.ONE_TO_MANY;
 
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.apps.base.service.formula.FormulaEngineService;
 import com.axelor.apps.sale.db.ConfiguratorCreator;
 import com.axelor.apps.sale.db.ConfiguratorFormula;
 import com.axelor.apps.sale.exception.SaleExceptionMessage;
@@ -31,7 +32,6 @@ import com.axelor.db.Model;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.axelor.meta.db.MetaJsonField;
-import com.axelor.script.GroovyScriptHelper;
 import com.axelor.script.ScriptBindings;
 import com.axelor.utils.helpers.MetaHelper;
 
@@ -42,7 +42,9 @@ public class ConfiguratorFormulaServiceImpl implements ConfiguratorFormulaServic
       throws AxelorException {
     ScriptBindings defaultValueBindings =
         Beans.get(ConfiguratorCreatorService.class).getTestingValues(creator);
-    Object result = new GroovyScriptHelper(defaultValueBindings).eval(formula.getFormula());
+    Object result =
+        Beans.get(FormulaEngineService.class)
+            .evaluate(formula.getFormula(), defaultValueBindings);
     String wantedTypeName;
     MetaJsonField metaJsonField = formula.getMetaJsonField();
     if (metaJsonField != null) {
@@ -62,12 +62,16 @@ import com.axelor.apps.stock.service.PartnerProductQualityRatingServiceImpl;
 import com.axelor.apps.stock.service.PartnerStockSettingsService;
 import com.axelor.apps.stock.service.PartnerStockSettingsServiceImpl;
 import com.axelor.apps.stock.service.ProductVariantServiceStockImpl;
+import com.axelor.apps.stock.service.StockAvailabilityService;
+import com.axelor.apps.stock.service.StockAvailabilityServiceImpl;
 import com.axelor.apps.stock.service.StockCorrectionService;
 import com.axelor.apps.stock.service.StockCorrectionServiceImpl;
 import com.axelor.apps.stock.service.StockHistoryService;
 import com.axelor.apps.stock.service.StockHistoryServiceImpl;
 import com.axelor.apps.stock.service.StockLocationLineHistoryService;
 import com.axelor.apps.stock.service.StockLocationLineHistoryServiceImpl;
+import com.axelor.apps.stock.service.StockLocationLineRecomputeService;
+import com.axelor.apps.stock.service.StockLocationLineRecomputeServiceImpl;
 import com.axelor.apps.stock.service.StockLocationLineService;
 import com.axelor.apps.stock.service.StockLocationLineServiceImpl;
 import com.axelor.apps.stock.service.StockLocationPrintService;
@@ -112,6 +116,8 @@ public class StockModule extends AxelorModule {
     bind(InventoryRepository.class).to(InventoryManagementRepository.class);
     bind(StockMoveRepository.class).to(StockMoveManagementRepository.class);
     bind(StockLocationLineService.class).to(StockLocationLineServiceImpl.class);
+    bind(StockLocationLineRecomputeService.class).to(StockLocationLineRecomputeServiceImpl.class);
+    bind(StockAvailabilityService.class).to(StockAvailabilityServiceImpl.class);
     bind(StockMoveLineService.class).to(StockMoveLineServiceImpl.class);
     bind(StockMoveService.class).to(StockMoveServiceImpl.class);
     bind(StockMoveUpdateService.class).to(StockMoveUpdateServiceImpl.class);
@@ -25,9 +25,16 @@ import com.axelor.apps.base.db.ProductVariant;
 import com.axelor.apps.base.db.ProductVariantAttr;
 import com.axelor.apps.base.db.ProductVariantValue;
 import com.axelor.apps.stock.db.StockLocation;
+import com.axelor.apps.stock.db.StockLocationLine;
+import com.axelor.apps.stock.rest.dto.StockAvailabilityLinePostRequest;
+import com.axelor.apps.stock.rest.dto.StockAvailabilityListResponse;
+import com.axelor.apps.stock.rest.dto.StockAvailabilityPostRequest;
+import com.axelor.apps.stock.rest.dto.StockAvailabilityResponse;
 import com.axelor.apps.stock.rest.dto.StockProductGetRequest;
 import com.axelor.apps.stock.rest.dto.StockProductPutRequest;
 import com.axelor.apps.stock.rest.dto.StockProductVariantResponse;
+import com.axelor.apps.stock.service.StockAvailabilityRequest;
+import com.axelor.apps.stock.service.StockAvailabilityService;
 import com.axelor.apps.stock.service.StockLocationService;
 import com.axelor.inject.Beans;
 import com.axelor.utils.api.HttpExceptionHandler;
@@ -37,7 +44,11 @@ import com.axelor.utils.api.RequestValidator;
 import com.axelor.utils.api.ResponseConstructor;
 import com.axelor.utils.api.SecurityCheck;
 import io.swagger.v3.oas.annotations.Operation;
+import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
@@ -133,4 +144,37 @@ public class StockProductRestController {
         new StockProductVariantResponse(
             product, Beans.get(StockProductRestService.class).fetchAttributes(product)));
   }
+
+  /**
+   * Fetch the available quantity of several products at once. Full path to request is
+   * /ws/aos/stock-product/fetch-availability
+   */
+  @Operation(
+      summary = "Fetch products availability",
+      tags = {"Stock product"})
+  @Path("/fetch-availability")
+  @POST
+  @HttpExceptionHandler
+  public Response fetchAvailability(StockAvailabilityPostRequest requestBody)
+      throws AxelorException {
+    RequestValidator.validateBody(requestBody);
+    new SecurityCheck()
+        .readAccess(Arrays.asList(Product.class, StockLocation.class, StockLocationLine.class))
+        .check();
+
+    List<StockAvailabilityRequest> requestList =
+        requestBody.getLineList().stream()
+            .map(StockAvailabilityLinePostRequest::toAvailabilityRequest)
+            .collect(Collectors.toList());
+    Map<StockAvailabilityRequest, BigDecimal> qtyMap =
+        Beans.get(StockAvailabilityService.class).getAvailableQty(requestList);
+
+    return ResponseConstructor.build(
+        Response.Status.OK,
+        "Request completed",
+        new StockAvailabilityListResponse(
+            requestList.stream()
+                .map(request -> new StockAvailabilityResponse(request, qtyMap.get(request)))
+                .collect(Collectors.toList())));
+  }
 }
@@ -0,0 +1,107 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.rest.dto;
+
+import com.axelor.apps.base.db.Product;
+import com.axelor.apps.base.db.Unit;
+import com.axelor.apps.stock.db.StockLocation;
+import com.axelor.apps.stock.db.TrackingNumber;
+import com.axelor.apps.stock.service.StockAvailabilityRequest;
+import com.axelor.utils.api.ObjectFinder;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class StockAvailabilityLinePostRequest {
+
+  @NotNull
+  @Min(0)
+  private Long productId;
+
+  @NotNull
+  @Min(0)
+  private Long stockLocationId;
+
+  @Min(0)
+  private Long trackingNumberId;
+
+  @Min(0)
+  private Long unitId;
+
+  public StockAvailabilityLinePostRequest() {}
+
+  public Long getProductId() {
+    return productId;
+  }
+
+  public void setProductId(Long productId) {
+    this.productId = productId;
+  }
+
+  public Long getStockLocationId() {
+    return stockLocationId;
+  }
+
+  public void setStockLocationId(Long stockLocationId) {
+    this.stockLocationId = stockLocationId;
+  }
+
+  public Long getTrackingNumberId() {
+    return trackingNumberId;
+  }
+
+  public void setTrackingNumberId(Long trackingNumberId) {
+    this.trackingNumberId = trackingNumberId;
+  }
+
+  public Long getUnitId() {
+    return unitId;
+  }
+
+  public void setUnitId(Long unitId) {
+    this.unitId = unitId;
+  }
+
+  // Transform id to object
+  public Product fetchProduct() {
+    return ObjectFinder.find(Product.class, productId, ObjectFinder.NO_VERSION);
+  }
+
+  public StockLocation fetchStockLocation() {
+    return ObjectFinder.find(StockLocation.class, stockLocationId, ObjectFinder.NO_VERSION);
+  }
+
+  public TrackingNumber fetchTrackingNumber() {
+    if (trackingNumberId != null) {
+      return ObjectFinder.find(TrackingNumber.class, trackingNumberId, ObjectFinder.NO_VERSION);
+    }
+    return null;
+  }
+
+  public Unit fetchUnit() {
+    if (unitId != null) {
+      return ObjectFinder.find(Unit.class, unitId, ObjectFinder.NO_VERSION);
+    }
+    return null;
+  }
+
+  public StockAvailabilityRequest toAvailabilityRequest() {
+    return new StockAvailabilityRequest(
+        fetchProduct(), fetchStockLocation(), fetchTrackingNumber(), fetchUnit());
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.rest.dto;
+
+import com.axelor.apps.stock.service.StockAvailabilityRequest;
+import java.math.BigDecimal;
+
+public class StockAvailabilityResponse {
+
+  private final Long productId;
+  private final Long stockLocationId;
+  private final Long trackingNumberId;
+  private final Long unitId;
+  private final BigDecimal availableQty;
+
+  public StockAvailabilityResponse(StockAvailabilityRequest request, BigDecimal availableQty) {
+    this.productId = request.getProduct().getId();
+    this.stockLocationId = request.getStockLocation().getId();
+    this.trackingNumberId =
+        request.getTrackingNumber() != null ? request.getTrackingNumber().getId() : null;
+    this.unitId = request.getUnit() != null ? request.getUnit().getId() : null;
+    this.availableQty = availableQty;
+  }
+
+  public Long getProductId() {
+    return productId;
+  }
+
+  public Long getStockLocationId() {
+    return stockLocationId;
+  }
+
+  public Long getTrackingNumberId() {
+    return trackingNumberId;
+  }
+
+  public Long getUnitId() {
+    return unitId;
+  }
+
+  public BigDecimal getAvailableQty() {
+    return availableQty;
+  }
+}
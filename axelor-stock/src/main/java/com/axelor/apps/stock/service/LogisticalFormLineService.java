@@ -53,10 +53,21 @@ public interface LogisticalFormLineService {
    * Evaluate volume.
    *
    * @param logisticalFormLine
-   * @param scriptHelper
    * @return
    * @throws LogisticalFormError
    */
+  BigDecimal evalVolume(LogisticalFormLine logisticalFormLine) throws LogisticalFormError;
+
+  /**
+   * Evaluate volume.
+   *
+   * @param logisticalFormLine
+   * @param scriptHelper not used anymore, the dimensions do not depend on any context
+   * @return
+   * @throws LogisticalFormError
+   * @deprecated use {@link #evalVolume(LogisticalFormLine)} instead
+   */
+  @Deprecated
   BigDecimal evalVolume(LogisticalFormLine logisticalFormLine, ScriptHelper scriptHelper)
       throws LogisticalFormError;
 
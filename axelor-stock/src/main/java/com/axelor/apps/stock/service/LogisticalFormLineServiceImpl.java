@@ -19,6 +19,7 @@
 package com.axelor.apps.stock.service;
 
 import com.axelor.apps.base.db.Partner;
+import com.axelor.apps.base.service.formula.FormulaEngineService;
 import com.axelor.apps.stock.db.LogisticalForm;
 import com.axelor.apps.stock.db.LogisticalFormLine;
 import com.axelor.apps.stock.db.StockMoveLine;
@@ -33,6 +34,7 @@ import com.google.common.base.Strings;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -106,8 +108,14 @@ public class LogisticalFormLineServiceImpl implements LogisticalFormLineService
   }
 
   @Override
+  @Deprecated
   public BigDecimal evalVolume(LogisticalFormLine logisticalFormLine, ScriptHelper scriptHelper)
       throws LogisticalFormError {
+    return evalVolume(logisticalFormLine);
+  }
+
+  @Override
+  public BigDecimal evalVolume(LogisticalFormLine logisticalFormLine) throws LogisticalFormError {
     validateDimensions(logisticalFormLine);
     String script = logisticalFormLine.getDimensions();
 
@@ -116,7 +124,9 @@ public class LogisticalFormLineServiceImpl implements LogisticalFormLineService
     }
 
     return (BigDecimal)
-        scriptHelper.eval(String.format("new BigDecimal(%s)", script.replaceAll("x", "*")));
+        Beans.get(FormulaEngineService.class)
+            .evaluate(
+                String.format("new BigDecimal(%s)", script.replaceAll("x", "*")), Map.of());
   }
 
   @Override
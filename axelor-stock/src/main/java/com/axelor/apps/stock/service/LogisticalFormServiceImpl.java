@@ -38,13 +38,9 @@ import com.axelor.apps.stock.exception.LogisticalFormWarning;
 import com.axelor.apps.stock.exception.StockExceptionMessage;
 import com.axelor.apps.stock.service.config.StockConfigService;
 import com.axelor.db.JPA;
-import com.axelor.db.mapper.Mapper;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
-import com.axelor.rpc.Context;
 import com.axelor.rpc.ContextEntity;
-import com.axelor.script.GroovyScriptHelper;
-import com.axelor.script.ScriptHelper;
 import com.axelor.utils.helpers.QueryBuilder;
 import com.axelor.utils.helpers.StringHelper;
 import com.google.common.base.Preconditions;
@@ -465,7 +461,6 @@ public class LogisticalFormServiceImpl implements LogisticalFormService {
     BigDecimal totalVolume = BigDecimal.ZERO;
 
     if (logisticalForm.getLogisticalFormLineList() != null) {
-      ScriptHelper scriptHelper = getScriptHelper(logisticalForm);
       LogisticalFormLineService logisticalFormLineService =
           Beans.get(LogisticalFormLineService.class);
 
@@ -477,7 +472,7 @@ public class LogisticalFormServiceImpl implements LogisticalFormService {
             totalGrossMass = totalGrossMass.add(logisticalFormLine.getGrossMass());
           }
 
-          BigDecimal toAdd = logisticalFormLineService.evalVolume(logisticalFormLine, scriptHelper);
+          BigDecimal toAdd = logisticalFormLineService.evalVolume(logisticalFormLine);
           if (toAdd == null) {
             throw new LogisticalFormError(
                 logisticalForm, I18n.get(StockExceptionMessage.LOGISTICAL_FORM_INVALID_DIMENSIONS));
@@ -497,11 +492,6 @@ public class LogisticalFormServiceImpl implements LogisticalFormService {
     }
   }
 
-  protected ScriptHelper getScriptHelper(LogisticalForm logisticalForm) {
-    Context scriptContext = new Context(Mapper.toMap(logisticalForm), logisticalForm.getClass());
-    return new GroovyScriptHelper(scriptContext);
-  }
-
   @Override
   public String getStockMoveDomain(LogisticalForm logisticalForm) throws AxelorException {
 
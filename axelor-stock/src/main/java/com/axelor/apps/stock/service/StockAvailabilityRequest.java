@@ -0,0 +1,95 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.service;
+
+import com.axelor.apps.base.db.Product;
+import com.axelor.apps.base.db.Unit;
+import com.axelor.apps.stock.db.StockLocation;
+import com.axelor.apps.stock.db.TrackingNumber;
+import com.axelor.db.Model;
+import java.util.Objects;
+
+/**
+ * Quantity of a product looked up in a stock location, see {@link StockAvailabilityService}. Two
+ * requests on the same records are equal.
+ */
+public class StockAvailabilityRequest {
+
+  protected final Product product;
+  protected final StockLocation stockLocation;
+  protected final TrackingNumber trackingNumber;
+  protected final Unit unit;
+
+  /**
+   * @param trackingNumber the tracking number whose quantity is looked up, or null for the quantity
+   *     of the product
+   * @param unit the unit of the returned quantity, or null for the unit of the stock location line
+   */
+  public StockAvailabilityRequest(
+      Product product, StockLocation stockLocation, TrackingNumber trackingNumber, Unit unit) {
+    this.product = product;
+    this.stockLocation = stockLocation;
+    this.trackingNumber = trackingNumber;
+    this.unit = unit;
+  }
+
+  public StockAvailabilityRequest(Product product, StockLocation stockLocation) {
+    this(product, stockLocation, null, null);
+  }
+
+  public Product getProduct() {
+    return product;
+  }
+
+  public StockLocation getStockLocation() {
+    return stockLocation;
+  }
+
+  public TrackingNumber getTrackingNumber() {
+    return trackingNumber;
+  }
+
+  public Unit getUnit() {
+    return unit;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof StockAvailabilityRequest)) {
+      return false;
+    }
+    StockAvailabilityRequest request = (StockAvailabilityRequest) o;
+    return Objects.equals(getId(product), getId(request.product))
+        && Objects.equals(getId(stockLocation), getId(request.stockLocation))
+        && Objects.equals(getId(trackingNumber), getId(request.trackingNumber))
+        && Objects.equals(getId(unit), getId(request.unit));
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getId(product), getId(stockLocation), getId(trackingNumber), getId(unit));
+  }
+
+  protected static Long getId(Model model) {
+    return model != null ? model.getId() : null;
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.service;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.stock.db.StockLocationLine;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Looks up the quantities of many products at once, e.g. for every line of an order, instead of
+ * querying the stock location line of each product.
+ */
+public interface StockAvailabilityService {
+
+  /**
+   * Fetches the stock location lines of the given requests, or their detail lines for requests with
+   * a tracking number, with at most one query for each kind of line.
+   *
+   * @return the line of each request, requests whose line does not exist being missing
+   */
+  Map<StockAvailabilityRequest, StockLocationLine> getStockLocationLines(
+      Collection<StockAvailabilityRequest> requests);
+
+  /**
+   * Returns the available quantity of each request, as {@link
+   * StockLocationLineService#getAvailableQty} and {@link
+   * StockLocationLineService#getTrackingNumberAvailableQty} do, converted in the unit of the
+   * request.
+   *
+   * @return the quantity of each request, zero when its line does not exist
+   */
+  Map<StockAvailabilityRequest, BigDecimal> getAvailableQty(
+      Collection<StockAvailabilityRequest> requests) throws AxelorException;
+}
@@ -0,0 +1,196 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.service;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Unit;
+import com.axelor.apps.base.service.UnitConversionService;
+import com.axelor.apps.stock.db.StockLocationLine;
+import com.axelor.apps.stock.db.repo.StockLocationLineRepository;
+import com.axelor.db.Query;
+import com.google.inject.Inject;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class StockAvailabilityServiceImpl implements StockAvailabilityService {
+
+  protected StockLocationLineRepository stockLocationLineRepo;
+  protected UnitConversionService unitConversionService;
+
+  @Inject
+  public StockAvailabilityServiceImpl(
+      StockLocationLineRepository stockLocationLineRepo,
+      UnitConversionService unitConversionService) {
+    this.stockLocationLineRepo = stockLocationLineRepo;
+    this.unitConversionService = unitConversionService;
+  }
+
+  @Override
+  public Map<StockAvailabilityRequest, StockLocationLine> getStockLocationLines(
+      Collection<StockAvailabilityRequest> requests) {
+    Map<StockAvailabilityRequest, StockLocationLine> lineMap = new HashMap<>();
+
+    List<StockAvailabilityRequest> productRequestList =
+        requests.stream()
+            .filter(
+                request ->
+                    request.getTrackingNumber() == null
+                        && request.getProduct() != null
+                        && request.getProduct().getStockManaged()
+                        && request.getStockLocation() != null)
+            .collect(Collectors.toList());
+    if (!productRequestList.isEmpty()) {
+      Map<List<Long>, StockLocationLine> keyMap = new HashMap<>();
+      for (StockLocationLine stockLocationLine :
+          this.fetchLines(
+              "self.stockLocation.id IN (:stockLocationIds) AND self.product.id IN (:productIds)",
+              productRequestList)) {
+        keyMap.putIfAbsent(
+            List.of(
+                stockLocationLine.getStockLocation().getId(),
+                stockLocationLine.getProduct().getId()),
+            stockLocationLine);
+      }
+      for (StockAvailabilityRequest request : productRequestList) {
+        StockLocationLine stockLocationLine =
+            keyMap.get(List.of(request.getStockLocation().getId(), request.getProduct().getId()));
+        if (stockLocationLine != null) {
+          lineMap.put(request, stockLocationLine);
+        }
+      }
+    }
+
+    List<StockAvailabilityRequest> trackingNumberRequestList =
+        requests.stream()
+            .filter(
+                request ->
+                    request.getTrackingNumber() != null
+                        && request.getProduct() != null
+                        && request.getStockLocation() != null)
+            .collect(Collectors.toList());
+    if (!trackingNumberRequestList.isEmpty()) {
+      Map<List<Long>, StockLocationLine> keyMap = new HashMap<>();
+      for (StockLocationLine stockLocationLine :
+          this.fetchLines(
+              "self.detailsStockLocation.id IN (:stockLocationIds)"
+                  + " AND self.product.id IN (:productIds)"
+                  + " AND self.trackingNumber.id IN (:trackingNumberIds)",
+              trackingNumberRequestList)) {
+        keyMap.putIfAbsent(
+            List.of(
+                stockLocationLine.getDetailsStockLocation().getId(),
+                stockLocationLine.getProduct().getId(),
+                stockLocationLine.getTrackingNumber().getId()),
+            stockLocationLine);
+      }
+      for (StockAvailabilityRequest request : trackingNumberRequestList) {
+        StockLocationLine stockLocationLine =
+            keyMap.get(
+                List.of(
+                    request.getStockLocation().getId(),
+                    request.getProduct().getId(),
+                    request.getTrackingNumber().getId()));
+        if (stockLocationLine != null) {
+          lineMap.put(request, stockLocationLine);
+        }
+      }
+    }
+
+    return lineMap;
+  }
+
+  /**
+   * Fetches the lines of every stock location and product of the requests. The lines of the pairs
+   * which were not requested are fetched too, and ignored by the caller.
+   */
+  protected List<StockLocationLine> fetchLines(
+      String filter, List<StockAvailabilityRequest> requestList) {
+    Set<Long> stockLocationIds =
+        requestList.stream()
+            .map(request -> request.getStockLocation().getId())
+            .collect(Collectors.toSet());
+    Set<Long> productIds =
+        requestList.stream()
+            .map(request -> request.getProduct().getId())
+            .collect(Collectors.toSet());
+    Set<Long> trackingNumberIds =
+        requestList.stream()
+            .filter(request -> request.getTrackingNumber() != null)
+            .map(request -> request.getTrackingNumber().getId())
+            .collect(Collectors.toSet());
+
+    Query<StockLocationLine> query =
+        stockLocationLineRepo
+            .all()
+            .filter(filter)
+            .bind("stockLocationIds", stockLocationIds)
+            .bind("productIds", productIds);
+    if (!trackingNumberIds.isEmpty()) {
+      query.bind("trackingNumberIds", trackingNumberIds);
+    }
+    return query.fetch();
+  }
+
+  @Override
+  public Map<StockAvailabilityRequest, BigDecimal> getAvailableQty(
+      Collection<StockAvailabilityRequest> requests) throws AxelorException {
+    Map<StockAvailabilityRequest, StockLocationLine> lineMap = this.getStockLocationLines(requests);
+    Map<StockAvailabilityRequest, BigDecimal> qtyMap = new HashMap<>();
+
+    for (StockAvailabilityRequest request : requests) {
+      StockLocationLine stockLocationLine = lineMap.get(request);
+      if (stockLocationLine == null) {
+        qtyMap.put(request, BigDecimal.ZERO);
+        continue;
+      }
+
+      BigDecimal qty =
+          request.getTrackingNumber() == null
+              ? this.getAvailableQty(stockLocationLine)
+              : this.getTrackingNumberAvailableQty(stockLocationLine);
+
+      Unit unit = request.getUnit();
+      if (unit != null
+          && stockLocationLine.getUnit() != null
+          && !unit.equals(stockLocationLine.getUnit())) {
+        qty =
+            unitConversionService.convert(
+                stockLocationLine.getUnit(), unit, qty, qty.scale(), request.getProduct());
+      }
+      qtyMap.put(request, qty);
+    }
+
+    return qtyMap;
+  }
+
+  /** Available quantity of a stock location line, see {@link StockLocationLineService}. */
+  protected BigDecimal getAvailableQty(StockLocationLine stockLocationLine) {
+    return stockLocationLine.getCurrentQty();
+  }
+
+  /** Available quantity of a detail stock location line, see {@link StockLocationLineService}. */
+  protected BigDecimal getTrackingNumberAvailableQty(StockLocationLine detailStockLocationLine) {
+    return detailStockLocationLine.getCurrentQty();
+  }
+}
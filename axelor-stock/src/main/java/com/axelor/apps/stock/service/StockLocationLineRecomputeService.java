@@ -0,0 +1,40 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.service;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.stock.db.StockLocation;
+import java.util.Set;
+
+public interface StockLocationLineRecomputeService {
+
+  /**
+   * Recomputes the current and future quantities and the weighted average prices of the lines and
+   * detail lines of the given stock location from its realized and planned stock move lines.
+   *
+   * <p>The quantities are aggregated by product, tracking number and unit, and the average prices
+   * are computed in a single pass over the realized stock move lines sorted by date. Stock rules
+   * are not checked and the history of the lines is not modified.
+   *
+   * @param stockLocation the stock location
+   * @return the ids of the products whose average price was recomputed
+   * @throws AxelorException if a unit conversion fails
+   */
+  Set<Long> recompute(StockLocation stockLocation) throws AxelorException;
+}
@@ -0,0 +1,370 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.service;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Product;
+import com.axelor.apps.base.db.Unit;
+import com.axelor.apps.base.db.repo.ProductRepository;
+import com.axelor.apps.base.service.UnitConversionService;
+import com.axelor.apps.base.service.app.AppBaseService;
+import com.axelor.apps.stock.db.StockLocation;
+import com.axelor.apps.stock.db.StockLocationLine;
+import com.axelor.apps.stock.db.TrackingNumber;
+import com.axelor.apps.stock.db.repo.StockLocationLineRepository;
+import com.axelor.apps.stock.db.repo.StockLocationRepository;
+import com.axelor.apps.stock.db.repo.StockMoveRepository;
+import com.axelor.db.JPA;
+import com.google.inject.Inject;
+import com.google.inject.persist.Transactional;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.tuple.Pair;
+import org.hibernate.jpa.QueryHints;
+
+public class StockLocationLineRecomputeServiceImpl implements StockLocationLineRecomputeService {
+
+  /** Number of stock move lines fetched at once while computing the average prices. */
+  protected static final int FETCH_SIZE = 1000;
+
+  protected static final String STORABLE_PRODUCT_FILTER =
+      " AND product.productTypeSelect = :storable AND product.stockManaged = TRUE";
+
+  protected static final String QUANTITY_QUERY =
+      "SELECT product.id, trackingNumber.id, unit.id, stockMove.statusSelect,"
+          + " SUM(self.qty), SUM(self.realQty), MAX(stockMove.estimatedDate)"
+          + " FROM StockMoveLine self"
+          + " JOIN self.stockMove stockMove"
+          + " JOIN self.product product"
+          + " LEFT JOIN self.trackingNumber trackingNumber"
+          + " LEFT JOIN self.unit unit"
+          + " WHERE self.%s.id = :stockLocationId"
+          + STORABLE_PRODUCT_FILTER
+          + " AND (stockMove.statusSelect = :realized"
+          + " OR (stockMove.statusSelect = :planned"
+          + " AND (stockMove.archived IS NULL OR stockMove.archived = FALSE)))"
+          + " GROUP BY product.id, trackingNumber.id, unit.id, stockMove.statusSelect";
+
+  protected static final String AVERAGE_PRICE_QUERY =
+      "SELECT product.id, unit.id, self.realQty, self.wapPrice, self.companyUnitPriceUntaxed,"
+          + " self.fromStockLocation.id, self.toStockLocation.id"
+          + " FROM StockMoveLine self"
+          + " JOIN self.stockMove stockMove"
+          + " JOIN self.product product"
+          + " LEFT JOIN self.unit unit"
+          + " WHERE (self.fromStockLocation.id = :stockLocationId"
+          + " OR self.toStockLocation.id = :stockLocationId)"
+          + STORABLE_PRODUCT_FILTER
+          + " AND stockMove.statusSelect = :realized"
+          + " ORDER BY stockMove.realDate, stockMove.id, self.id";
+
+  protected StockLocationLineRepository stockLocationLineRepo;
+  protected StockLocationLineService stockLocationLineService;
+  protected UnitConversionService unitConversionService;
+  protected AppBaseService appBaseService;
+
+  @Inject
+  public StockLocationLineRecomputeServiceImpl(
+      StockLocationLineRepository stockLocationLineRepo,
+      StockLocationLineService stockLocationLineService,
+      UnitConversionService unitConversionService,
+      AppBaseService appBaseService) {
+    this.stockLocationLineRepo = stockLocationLineRepo;
+    this.stockLocationLineService = stockLocationLineService;
+    this.unitConversionService = unitConversionService;
+    this.appBaseService = appBaseService;
+  }
+
+  @Override
+  @Transactional(rollbackOn = {Exception.class})
+  public Set<Long> recompute(StockLocation stockLocation) throws AxelorException {
+    List<StockLocationLine> stockLocationLineList =
+        stockLocationLineRepo
+            .all()
+            .filter(
+                "self.stockLocation = :stockLocation OR self.detailsStockLocation = :stockLocation")
+            .bind("stockLocation", stockLocation)
+            .fetch();
+
+    Map<Pair<Long, Long>, StockLocationLine> lineMap = new HashMap<>();
+    for (StockLocationLine stockLocationLine : stockLocationLineList) {
+      Pair<Long, Long> key = this.getKey(stockLocationLine);
+      if (key != null) {
+        lineMap.putIfAbsent(key, stockLocationLine);
+      }
+    }
+
+    Map<Pair<Long, Long>, LineValues> valuesMap = new HashMap<>();
+    this.aggregateQuantities(stockLocation, "toStockLocation", true, lineMap, valuesMap);
+    this.aggregateQuantities(stockLocation, "fromStockLocation", false, lineMap, valuesMap);
+
+    Set<Long> productIdSet = new HashSet<>();
+    if (stockLocation.getTypeSelect() != StockLocationRepository.TYPE_VIRTUAL) {
+      productIdSet = this.computeAveragePrices(stockLocation, valuesMap);
+    }
+
+    for (StockLocationLine stockLocationLine : stockLocationLineList) {
+      Pair<Long, Long> key = this.getKey(stockLocationLine);
+      LineValues values =
+          key != null && lineMap.get(key) == stockLocationLine ? valuesMap.remove(key) : null;
+      this.updateStockLocationLine(stockLocationLine, values);
+    }
+
+    // lines of the products which were never moved in this stock location before
+    for (Map.Entry<Pair<Long, Long>, LineValues> entry : valuesMap.entrySet()) {
+      Product product = JPA.find(Product.class, entry.getKey().getLeft());
+      Long trackingNumberId = entry.getKey().getRight();
+
+      StockLocationLine stockLocationLine =
+          trackingNumberId == null
+              ? stockLocationLineService.createLocationLine(stockLocation, product)
+              : stockLocationLineService.createDetailLocationLine(
+                  stockLocation, product, JPA.find(TrackingNumber.class, trackingNumberId));
+
+      this.updateStockLocationLine(stockLocationLine, entry.getValue());
+      stockLocationLineRepo.save(stockLocationLine);
+    }
+
+    return productIdSet;
+  }
+
+  /**
+   * Returns the key of the given line: the id of its product, and the id of its tracking number
+   * for a detail line.
+   */
+  protected Pair<Long, Long> getKey(StockLocationLine stockLocationLine) {
+    if (stockLocationLine.getProduct() == null) {
+      return null;
+    }
+
+    if (stockLocationLine.getDetailsStockLocation() == null) {
+      return Pair.of(stockLocationLine.getProduct().getId(), null);
+    }
+
+    TrackingNumber trackingNumber = stockLocationLine.getTrackingNumber();
+    return trackingNumber != null
+        ? Pair.of(stockLocationLine.getProduct().getId(), trackingNumber.getId())
+        : null;
+  }
+
+  protected void aggregateQuantities(
+      StockLocation stockLocation,
+      String stockLocationField,
+      boolean incoming,
+      Map<Pair<Long, Long>, StockLocationLine> lineMap,
+      Map<Pair<Long, Long>, LineValues> valuesMap)
+      throws AxelorException {
+    List<Object[]> resultList =
+        JPA.em()
+            .createQuery(String.format(QUANTITY_QUERY, stockLocationField), Object[].class)
+            .setParameter("stockLocationId", stockLocation.getId())
+            .setParameter("storable", ProductRepository.PRODUCT_TYPE_STORABLE)
+            .setParameter("realized", StockMoveRepository.STATUS_REALIZED)
+            .setParameter("planned", StockMoveRepository.STATUS_PLANNED)
+            .getResultList();
+
+    for (Object[] result : resultList) {
+      Product product = JPA.find(Product.class, (Long) result[0]);
+      Long trackingNumberId = (Long) result[1];
+      Unit unit = result[2] != null ? JPA.find(Unit.class, (Long) result[2]) : null;
+      boolean realized = (Integer) result[3] == StockMoveRepository.STATUS_REALIZED;
+      BigDecimal qty = this.getMovedQty(realized, (BigDecimal) result[4], (BigDecimal) result[5]);
+      LocalDate estimatedDate = (LocalDate) result[6];
+
+      if (!incoming) {
+        qty = qty.negate();
+      }
+
+      this.addQty(
+          this.getLineValues(Pair.of(product.getId(), null), product, lineMap, valuesMap),
+          product,
+          unit,
+          qty,
+          realized,
+          estimatedDate);
+
+      if (trackingNumberId != null) {
+        this.addQty(
+            this.getLineValues(
+                Pair.of(product.getId(), trackingNumberId), product, lineMap, valuesMap),
+            product,
+            unit,
+            qty,
+            realized,
+            estimatedDate);
+      }
+    }
+  }
+
+  /**
+   * Returns the quantity moved by stock move lines, as {@link
+   * StockMoveLineService#updateLocations(int, int, List, LocalDate, boolean, boolean)} does: the
+   * real quantity once realized, the expected quantity while planned.
+   */
+  protected BigDecimal getMovedQty(boolean realized, BigDecimal qty, BigDecimal realQty) {
+    return Optional.ofNullable(realized ? realQty : qty).orElse(BigDecimal.ZERO);
+  }
+
+  protected LineValues getLineValues(
+      Pair<Long, Long> key,
+      Product product,
+      Map<Pair<Long, Long>, StockLocationLine> lineMap,
+      Map<Pair<Long, Long>, LineValues> valuesMap) {
+    return valuesMap.computeIfAbsent(
+        key,
+        k ->
+            new LineValues(
+                Optional.ofNullable(lineMap.get(k))
+                    .map(StockLocationLine::getUnit)
+                    .orElse(product.getUnit())));
+  }
+
+  protected void addQty(
+      LineValues values,
+      Product product,
+      Unit unit,
+      BigDecimal qty,
+      boolean realized,
+      LocalDate estimatedDate)
+      throws AxelorException {
+    qty = this.convert(unit, values.unit, qty, product);
+
+    values.futureQty = values.futureQty.add(qty);
+
+    if (realized) {
+      values.currentQty = values.currentQty.add(qty);
+    } else if (estimatedDate != null
+        && (values.lastFutureStockMoveDate == null
+            || estimatedDate.isAfter(values.lastFutureStockMoveDate))) {
+      values.lastFutureStockMoveDate = estimatedDate;
+    }
+  }
+
+  /**
+   * Computes the weighted average prices of the lines of the given stock location, replaying its
+   * realized stock move lines in a single pass sorted by date.
+   *
+   * @return the ids of the products whose average price was computed
+   */
+  protected Set<Long> computeAveragePrices(
+      StockLocation stockLocation, Map<Pair<Long, Long>, LineValues> valuesMap)
+      throws AxelorException {
+    Set<Long> productIdSet = new HashSet<>();
+    int scale = appBaseService.getNbDecimalDigitForUnitPrice();
+
+    try (Stream<Object[]> rowStream =
+        JPA.em()
+            .createQuery(AVERAGE_PRICE_QUERY, Object[].class)
+            .setParameter("stockLocationId", stockLocation.getId())
+            .setParameter("storable", ProductRepository.PRODUCT_TYPE_STORABLE)
+            .setParameter("realized", StockMoveRepository.STATUS_REALIZED)
+            .setHint(QueryHints.HINT_FETCH_SIZE, FETCH_SIZE)
+            .setHint(QueryHints.HINT_READONLY, true)
+            .getResultStream()) {
+
+      for (Iterator<Object[]> iterator = rowStream.iterator(); iterator.hasNext(); ) {
+        Object[] row = iterator.next();
+        LineValues values = valuesMap.get(Pair.of((Long) row[0], null));
+        if (values == null || row[2] == null) {
+          continue;
+        }
+
+        Product product = JPA.find(Product.class, (Long) row[0]);
+        Unit unit = row[1] != null ? JPA.find(Unit.class, (Long) row[1]) : null;
+        BigDecimal qty = this.convert(unit, values.unit, (BigDecimal) row[2], product);
+
+        if (stockLocation.getId().equals(row[5])) {
+          values.wapQty = values.wapQty.subtract(qty);
+        }
+
+        if (stockLocation.getId().equals(row[6])) {
+          BigDecimal price =
+              Optional.ofNullable((BigDecimal) (row[3] != null ? row[3] : row[4]))
+                  .orElse(BigDecimal.ZERO);
+          // same conversion as StockMoveLineService.computeNewAveragePriceLocationLine
+          price = this.convert(values.unit, unit, price, product);
+
+          BigDecimal oldQty = values.wapQty;
+          values.wapQty = values.wapQty.add(qty);
+
+          if (values.wapQty.signum() != 0) {
+            values.avgPrice =
+                values
+                    .avgPrice
+                    .multiply(oldQty)
+                    .add(price.multiply(qty))
+                    .divide(values.wapQty, scale, RoundingMode.HALF_UP);
+          }
+
+          productIdSet.add(product.getId());
+        }
+      }
+    }
+
+    return productIdSet;
+  }
+
+  protected BigDecimal convert(Unit startUnit, Unit endUnit, BigDecimal value, Product product)
+      throws AxelorException {
+    if (startUnit == null || endUnit == null || startUnit.equals(endUnit)) {
+      return value;
+    }
+
+    return unitConversionService.convert(startUnit, endUnit, value, value.scale(), product);
+  }
+
+  protected void updateStockLocationLine(StockLocationLine stockLocationLine, LineValues values) {
+    if (values == null) {
+      stockLocationLine.setCurrentQty(BigDecimal.ZERO);
+      stockLocationLine.setFutureQty(BigDecimal.ZERO);
+      stockLocationLine.setAvgPrice(BigDecimal.ZERO);
+      return;
+    }
+
+    stockLocationLine.setCurrentQty(values.currentQty);
+    stockLocationLine.setFutureQty(values.futureQty);
+    stockLocationLine.setAvgPrice(values.avgPrice);
+    stockLocationLine.setLastFutureStockMoveDate(values.lastFutureStockMoveDate);
+  }
+
+  /** Values computed for a line, in the unit of the line. */
+  protected static class LineValues {
+    protected final Unit unit;
+    protected BigDecimal currentQty = BigDecimal.ZERO;
+    protected BigDecimal futureQty = BigDecimal.ZERO;
+    protected LocalDate lastFutureStockMoveDate;
+    protected BigDecimal avgPrice = BigDecimal.ZERO;
+
+    /** Quantity in stock while replaying the realized stock move lines. */
+    protected BigDecimal wapQty = BigDecimal.ZERO;
+
+    protected LineValues(Unit unit) {
+      this.unit = unit;
+    }
+  }
+}
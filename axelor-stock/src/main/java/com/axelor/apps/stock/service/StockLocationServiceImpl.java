@@ -46,13 +46,16 @@ import com.google.inject.servlet.RequestScoped;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.persistence.Query;
 import javax.persistence.Tuple;
@@ -74,8 +77,7 @@ public class StockLocationServiceImpl implements StockLocationService {
 
   protected final StockRulesRepository stockRulesRepository;
   protected final StockLocationLineRepository stockLocationLineRepository;
-
-  protected Set<Long> locationIdSet = new HashSet<>();
+  protected final StockLocationTreeIndex stockLocationTreeIndex;
 
   @Inject
   public StockLocationServiceImpl(
@@ -87,7 +89,8 @@ public class StockLocationServiceImpl implements StockLocationService {
       UnitRepository unitRepository,
       UnitConversionService unitConversionService,
       StockRulesRepository stockRulesRepository,
-      StockLocationLineRepository stockLocationLineRepository) {
+      StockLocationLineRepository stockLocationLineRepository,
+      StockLocationTreeIndex stockLocationTreeIndex) {
     this.stockLocationRepo = stockLocationRepo;
     this.stockLocationLineService = stockLocationLineService;
     this.productRepo = productRepo;
@@ -97,6 +100,7 @@ public class StockLocationServiceImpl implements StockLocationService {
     this.unitConversionService = unitConversionService;
     this.stockRulesRepository = stockRulesRepository;
     this.stockLocationLineRepository = stockLocationLineRepository;
+    this.stockLocationTreeIndex = stockLocationTreeIndex;
   }
 
   protected List<StockLocation> getNonVirtualStockLocations(Long companyId) {
@@ -234,12 +238,9 @@ public class StockLocationServiceImpl implements StockLocationService {
 
   @Override
   public Set<Long> getContentStockLocationIds(StockLocation stockLocation) {
-    locationIdSet = new HashSet<>();
+    Set<Long> locationIdSet = new HashSet<>();
     if (stockLocation != null) {
-      List<StockLocation> stockLocations = getAllLocationAndSubLocation(stockLocation, false);
-      for (StockLocation item : stockLocations) {
-        locationIdSet.add(item.getId());
-      }
+      locationIdSet.addAll(getAllLocationAndSubLocationId(stockLocation, false));
     } else {
       locationIdSet.add(0L);
     }
@@ -252,19 +253,13 @@ public class StockLocationServiceImpl implements StockLocationService {
       StockLocation stockLocation) {
     Set<StockLocation> allStockLocations = new HashSet<>();
     allStockLocations.add(stockLocation);
-    if (stockLocation == null) {
-      return allStockLocations;
-    }
-    StockLocation parentStockLocation = stockLocation.getParentStockLocation();
-    if (parentStockLocation == null) {
+    if (stockLocation == null || stockLocation.getParentStockLocation() == null) {
       return allStockLocations;
     }
-    while (allStockLocations.add(parentStockLocation)) {
-      parentStockLocation = parentStockLocation.getParentStockLocation();
-      if (parentStockLocation == null) {
-        break;
-      }
-    }
+    allStockLocations.addAll(
+        this.findStockLocations(
+            stockLocationTreeIndex.getParentLocationIds(
+                stockLocation.getParentStockLocation().getId())));
     return allStockLocations;
   }
 
@@ -275,28 +270,11 @@ public class StockLocationServiceImpl implements StockLocationService {
     if (stockLocation == null) {
       return resultList;
     }
-    if (isVirtualInclude) {
-      for (StockLocation subLocation :
-          stockLocationRepo
-              .all()
-              .filter("self.parentStockLocation.id = :stockLocationId")
-              .bind("stockLocationId", stockLocation.getId())
-              .fetch()) {
-
-        resultList.addAll(this.getAllLocationAndSubLocation(subLocation, isVirtualInclude));
-      }
-    } else {
-      for (StockLocation subLocation :
-          stockLocationRepo
-              .all()
-              .filter(
-                  "self.parentStockLocation.id = :stockLocationId AND self.typeSelect != :virtual")
-              .bind("stockLocationId", stockLocation.getId())
-              .bind("virtual", StockLocationRepository.TYPE_VIRTUAL)
-              .fetch()) {
-
-        resultList.addAll(this.getAllLocationAndSubLocation(subLocation, isVirtualInclude));
-      }
+    if (stockLocation.getId() != null) {
+      List<Long> subLocationIdList =
+          stockLocationTreeIndex.getSubLocationIds(stockLocation.getId(), isVirtualInclude);
+      resultList.addAll(
+          this.findStockLocations(subLocationIdList.subList(0, subLocationIdList.size() - 1)));
     }
     resultList.add(stockLocation);
 
@@ -304,24 +282,28 @@ public class StockLocationServiceImpl implements StockLocationService {
   }
 
   public List<Long> getAllLocationAndSubLocation(Long stockLocationId, boolean isVirtualInclude) {
+    return stockLocationTreeIndex.getSubLocationIds(stockLocationId, isVirtualInclude);
+  }
 
-    List<Long> resultList = new ArrayList<>();
-    if (stockLocationId == null) {
-      return resultList;
+  /** Fetches the given stock locations with a single query, keeping the order of the ids. */
+  protected List<StockLocation> findStockLocations(Collection<Long> stockLocationIds) {
+    if (stockLocationIds.isEmpty()) {
+      return new ArrayList<>();
     }
-    for (Long subLocationId :
-        JPA.em()
-            .createQuery(
-                "SELECT sl.id FROM StockLocation sl WHERE sl.parentStockLocation.id = :stockLocationId AND (:isVirtual is true OR sl.typeSelect != :isVirtual)",
-                Long.class)
-            .setParameter("stockLocationId", stockLocationId)
-            .setParameter("isVirtual", isVirtualInclude)
-            .getResultList()) {
-      resultList.addAll(this.getAllLocationAndSubLocation(subLocationId, isVirtualInclude));
-    }
-    resultList.add(stockLocationId);
 
-    return resultList;
+    Map<Long, StockLocation> stockLocationMap =
+        stockLocationRepo
+            .all()
+            .filter("self.id IN (:ids)")
+            .bind("ids", stockLocationIds)
+            .fetch()
+            .stream()
+            .collect(Collectors.toMap(StockLocation::getId, Function.identity()));
+
+    return stockLocationIds.stream()
+        .map(stockLocationMap::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
   }
 
   @Override
@@ -353,6 +335,9 @@ public class StockLocationServiceImpl implements StockLocationService {
   @Override
   public List<Long> getAllLocationAndSubLocationId(
       StockLocation stockLocation, boolean isVirtualInclude) {
+    if (stockLocation != null && stockLocation.getId() != null) {
+      return stockLocationTreeIndex.getSubLocationIds(stockLocation.getId(), isVirtualInclude);
+    }
     List<StockLocation> stockLocationList =
         getAllLocationAndSubLocation(stockLocation, isVirtualInclude);
     List<Long> stockLocationListId = null;
@@ -394,8 +379,8 @@ public class StockLocationServiceImpl implements StockLocationService {
     }
     return String.format(
         "self.id in (%s)",
-        getAllLocationAndSubLocation(stockLocation, false).stream()
-            .map(location -> location.getId().toString())
+        getAllLocationAndSubLocationId(stockLocation, false).stream()
+            .map(String::valueOf)
             .collect(Collectors.joining(",")));
   }
 
@@ -408,10 +393,8 @@ public class StockLocationServiceImpl implements StockLocationService {
     }
     resultSet.add(stockLocation.getId());
     StockLocation parentStockLocation = stockLocation.getParentStockLocation();
-    /* Adding to the set returns false if the value already exists, in our case this could be a good
-    way to prevent an infinite loop */
-    while (parentStockLocation != null && resultSet.add(parentStockLocation.getId())) {
-      parentStockLocation = parentStockLocation.getParentStockLocation();
+    if (parentStockLocation != null) {
+      resultSet.addAll(stockLocationTreeIndex.getParentLocationIds(parentStockLocation.getId()));
     }
     return resultSet;
   }
@@ -0,0 +1,169 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.service;
+
+import com.axelor.apps.stock.db.StockLocation;
+import com.axelor.apps.stock.db.repo.StockLocationRepository;
+import com.axelor.db.JPA;
+import com.google.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory copy of the stock location tree, so that the sub locations and the parent locations of
+ * a stock location are found without querying each level of the tree.
+ *
+ * <p>The tree is loaded with a single query on first use and invalidated whenever a {@link
+ * StockLocation} is created, updated or removed, see {@link
+ * com.axelor.apps.stock.db.repo.StockLocationListener}.
+ */
+@Singleton
+public class StockLocationTreeIndex {
+
+  protected static final String TREE_QUERY =
+      "SELECT self.id, parent.id, self.typeSelect FROM StockLocation self"
+          + " LEFT JOIN self.parentStockLocation parent"
+          + " ORDER BY self.id";
+
+  private volatile Map<Long, Node> index;
+  private long generation;
+
+  /**
+   * Returns the ids of the given stock location and of all its sub locations, each location being
+   * after its sub locations.
+   *
+   * @param isVirtualInclude whether virtual sub locations, and their own sub locations, are
+   *     returned
+   */
+  public List<Long> getSubLocationIds(Long stockLocationId, boolean isVirtualInclude) {
+    List<Long> idList = new ArrayList<>();
+    if (stockLocationId == null) {
+      return idList;
+    }
+
+    Map<Long, Node> currentIndex = getIndex();
+    Set<Long> visitedIdSet = new HashSet<>();
+    Deque<Long> stack = new ArrayDeque<>();
+    stack.push(stockLocationId);
+
+    // reversed post-order: each location is added before its sub locations
+    while (!stack.isEmpty()) {
+      Long id = stack.pop();
+      if (!visitedIdSet.add(id)) {
+        continue;
+      }
+      idList.add(id);
+
+      Node node = currentIndex.get(id);
+      if (node == null) {
+        continue;
+      }
+      for (Long childId : node.childIdList) {
+        if (isVirtualInclude
+            || currentIndex.get(childId).typeSelect != StockLocationRepository.TYPE_VIRTUAL) {
+          stack.push(childId);
+        }
+      }
+    }
+
+    Collections.reverse(idList);
+    return idList;
+  }
+
+  /**
+   * Returns the ids of the given stock location and of its parent locations, ordered from the
+   * closest to the furthest.
+   */
+  public Set<Long> getParentLocationIds(Long stockLocationId) {
+    Set<Long> idSet = new LinkedHashSet<>();
+    Map<Long, Node> currentIndex = getIndex();
+
+    // adding an id already in the set stops the loop if the tree contains a cycle
+    for (Long id = stockLocationId; id != null && idSet.add(id); ) {
+      Node node = currentIndex.get(id);
+      id = node != null ? node.parentId : null;
+    }
+    return idSet;
+  }
+
+  public synchronized void invalidate() {
+    generation++;
+    index = null;
+  }
+
+  protected Map<Long, Node> getIndex() {
+    Map<Long, Node> currentIndex = index;
+    if (currentIndex != null) {
+      return currentIndex;
+    }
+
+    long buildGeneration;
+    synchronized (this) {
+      buildGeneration = generation;
+    }
+
+    currentIndex = buildIndex();
+
+    synchronized (this) {
+      if (buildGeneration == generation) {
+        index = currentIndex;
+      }
+    }
+    return currentIndex;
+  }
+
+  protected Map<Long, Node> buildIndex() {
+    Map<Long, Node> newIndex = new HashMap<>();
+
+    List<Object[]> rowList = JPA.em().createQuery(TREE_QUERY, Object[].class).getResultList();
+    for (Object[] row : rowList) {
+      Long id = (Long) row[0];
+      newIndex.put(id, new Node((Long) row[1], row[2] != null ? (Integer) row[2] : 0));
+    }
+
+    // rows are sorted by id, so are the children of each node
+    for (Object[] row : rowList) {
+      Node parentNode = row[1] != null ? newIndex.get((Long) row[1]) : null;
+      if (parentNode != null) {
+        parentNode.childIdList.add((Long) row[0]);
+      }
+    }
+
+    return newIndex;
+  }
+
+  protected static class Node {
+    protected final Long parentId;
+    protected final int typeSelect;
+    protected final List<Long> childIdList = new ArrayList<>();
+
+    protected Node(Long parentId, int typeSelect) {
+      this.parentId = parentId;
+      this.typeSelect = typeSelect;
+    }
+  }
+}
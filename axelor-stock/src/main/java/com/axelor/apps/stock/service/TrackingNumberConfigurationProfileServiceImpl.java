@@ -20,6 +20,7 @@ package com.axelor.apps.stock.service;
 
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.apps.base.service.formula.FormulaEngineService;
 import com.axelor.apps.stock.db.TrackingNumber;
 import com.axelor.apps.stock.db.TrackingNumberConfigurationProfile;
 import com.axelor.apps.stock.db.TrackingNumberConfigurationProfileFieldFormula;
@@ -30,8 +31,6 @@ import com.axelor.i18n.I18n;
 import com.axelor.meta.db.repo.MetaFieldRepository;
 import com.axelor.meta.db.repo.MetaModelRepository;
 import com.axelor.rpc.Context;
-import com.axelor.script.GroovyScriptHelper;
-import com.axelor.script.ScriptHelper;
 import java.lang.invoke.MethodHandles;
 import java.math.BigDecimal;
 import java.util.Comparator;
@@ -47,13 +46,17 @@ public class TrackingNumberConfigurationProfileServiceImpl
 
   protected final MetaFieldRepository metaFieldRepository;
   protected final MetaModelRepository metaModelRepository;
+  protected final FormulaEngineService formulaEngineService;
   protected final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   @Inject
   public TrackingNumberConfigurationProfileServiceImpl(
-      MetaFieldRepository metaFieldRepository, MetaModelRepository metaModelRepository) {
+      MetaFieldRepository metaFieldRepository,
+      MetaModelRepository metaModelRepository,
+      FormulaEngineService formulaEngineService) {
     this.metaFieldRepository = metaFieldRepository;
     this.metaModelRepository = metaModelRepository;
+    this.formulaEngineService = formulaEngineService;
   }
 
   @Override
@@ -104,11 +107,10 @@ public class TrackingNumberConfigurationProfileServiceImpl
       throws AxelorException {
     String formula = fieldFormula.getFormula();
     Context scriptContext = new Context(Mapper.toMap(trackingNumber), TrackingNumber.class);
-    ScriptHelper scriptHelper = new GroovyScriptHelper(scriptContext);
 
     Object result;
 
-    result = scriptHelper.eval(formula);
+    result = formulaEngineService.evaluate(formula, scriptContext);
 
     if (result == null) {
       return Optional.empty();
@@ -19,22 +19,27 @@
 package com.axelor.apps.stock.service.batch;
 
 import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Product;
 import com.axelor.apps.base.db.repo.BatchRepository;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
 import com.axelor.apps.base.service.administration.AbstractBatch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.apps.stock.db.StockBatch;
+import com.axelor.apps.stock.db.StockLocation;
 import com.axelor.apps.stock.db.StockMove;
 import com.axelor.apps.stock.db.StockMoveLine;
 import com.axelor.apps.stock.db.repo.StockLocationRepository;
 import com.axelor.apps.stock.db.repo.StockMoveLineRepository;
 import com.axelor.apps.stock.db.repo.StockMoveRepository;
+import com.axelor.apps.stock.service.StockLocationLineRecomputeService;
 import com.axelor.apps.stock.service.StockMoveLineService;
 import com.axelor.apps.stock.service.StockMoveService;
+import com.axelor.apps.stock.service.WeightedAveragePriceService;
 import com.axelor.apps.stock.service.batch.model.StockMoveGroup;
 import com.axelor.apps.stock.service.batch.model.StockMoveLineOrigin;
 import com.axelor.apps.stock.service.batch.model.TrackProduct;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.google.inject.Inject;
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -43,6 +48,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BatchRecomputeStockLocationLines extends AbstractBatch {
 
@@ -51,6 +58,8 @@ public class BatchRecomputeStockLocationLines extends AbstractBatch {
   protected StockMoveLineService stockMoveLineService;
   protected StockMoveLineRepository stockMoveLineRepository;
   protected StockLocationRepository stockLocationRepository;
+  protected StockLocationLineRecomputeService stockLocationLineRecomputeService;
+  protected WeightedAveragePriceService weightedAveragePriceService;
 
   @Inject
   public BatchRecomputeStockLocationLines(
@@ -58,17 +67,27 @@ public class BatchRecomputeStockLocationLines extends AbstractBatch {
       StockMoveService stockMoveService,
       StockMoveLineService stockMoveLineService,
       StockMoveLineRepository stockMoveLineRepository,
-      StockLocationRepository stockLocationRepository) {
+      StockLocationRepository stockLocationRepository,
+      StockLocationLineRecomputeService stockLocationLineRecomputeService,
+      WeightedAveragePriceService weightedAveragePriceService) {
 
     this.stockMoveLineRepository = stockMoveLineRepository;
     this.stockMoveRepository = stockMoveRepository;
     this.stockMoveService = stockMoveService;
     this.stockMoveLineService = stockMoveLineService;
     this.stockLocationRepository = stockLocationRepository;
+    this.stockLocationLineRecomputeService = stockLocationLineRecomputeService;
+    this.weightedAveragePriceService = weightedAveragePriceService;
   }
 
   @Override
   protected void process() {
+    StockBatch stockBatch = batch.getStockBatch();
+    if (stockBatch != null && stockBatch.getAggregateRecomputeOk()) {
+      recomputeAggregated();
+      return;
+    }
+
     clearWapHistoryLines();
     resetStockLocations();
     List<StockMoveGroup> groups = fetchStockMoveGroup();
@@ -110,6 +129,50 @@ public class BatchRecomputeStockLocationLines extends AbstractBatch {
             });
   }
 
+  /**
+   * Recomputes the lines of every stock location from the aggregated quantities of its stock move
+   * lines, stock locations being processed in parallel when several workers are configured. The
+   * average prices of the products are then computed from the recomputed lines.
+   */
+  protected void recomputeAggregated() {
+    Set<Long> productIdSet = ConcurrentHashMap.newKeySet();
+
+    processPartitioned(
+        chunkedQuery(StockLocation.class),
+        null,
+        partition ->
+            partition.forEach(
+                stockLocation -> {
+                  try {
+                    productIdSet.addAll(
+                        stockLocationLineRecomputeService.recompute(stockLocation));
+                    incrementDone();
+                  } catch (Exception e) {
+                    incrementAnomaly();
+                    TraceBackService.trace(
+                        e, ExceptionOriginRepository.RECOMPUTE_STOCK_MOVE_LINES, batch.getId());
+                  }
+                }));
+
+    if (productIdSet.isEmpty()) {
+      return;
+    }
+
+    chunkedQuery(Product.class)
+        .filter("self.id IN :productIds")
+        .bind("productIds", productIdSet)
+        .forEach(
+            product -> {
+              try {
+                weightedAveragePriceService.computeAvgPriceForProduct(product);
+              } catch (Exception e) {
+                incrementAnomaly();
+                TraceBackService.trace(
+                    e, ExceptionOriginRepository.RECOMPUTE_STOCK_MOVE_LINES, batch.getId());
+              }
+            });
+  }
+
   protected void resetStockLocations() {
 
     javax.persistence.Query clearWapHistoryLinesQuery =
@@ -125,24 +188,16 @@ public class BatchRecomputeStockLocationLines extends AbstractBatch {
 
   protected void updatePlannedQty(StockMoveGroup stockMoveGroup) throws AxelorException {
 
-    List<StockMoveLine> stockMoveLineList;
-    Query<StockMoveLine> query = buildQueryFetchStockMoveLineFromGroup(stockMoveGroup).order("id");
-    int offSet = 0;
-    while (!(stockMoveLineList = query.fetch(FETCH_LIMIT, offSet)).isEmpty()) {
-
-      for (StockMoveLine stockMoveLine : stockMoveLineList) {
-        stockMoveLineService.updateLocations(
-            StockMoveRepository.STATUS_DRAFT,
-            StockMoveRepository.STATUS_PLANNED,
-            stockMoveLine.getStockMove().getPlannedStockMoveLineList(),
-            stockMoveLine.getStockMove().getEstimatedDate(),
-            false,
-            true);
-      }
-
-      offSet += FETCH_LIMIT;
-      JPA.clear();
-    }
+    buildQueryFetchStockMoveLineFromGroup(stockMoveGroup)
+        .forEach(
+            stockMoveLine ->
+                stockMoveLineService.updateLocations(
+                    StockMoveRepository.STATUS_DRAFT,
+                    StockMoveRepository.STATUS_PLANNED,
+                    stockMoveLine.getStockMove().getPlannedStockMoveLineList(),
+                    stockMoveLine.getStockMove().getEstimatedDate(),
+                    false,
+                    true));
   }
 
   protected String getOrigin(StockMove stockMove) {
@@ -150,16 +205,13 @@ public class BatchRecomputeStockLocationLines extends AbstractBatch {
   }
 
   protected void recomputeStockMoves(StockMoveGroup group) throws AxelorException {
-    List<StockMove> stockMoves;
-    Query<StockMove> query = buildQueryFetchStockMoveFromGroup(group).order("id");
     HashMap<TrackProduct, StockMoveLineOrigin> stockMoveLinesMap = new HashMap<>();
-    int offSet = 0;
 
-    while (!(stockMoves = query.fetch(FETCH_LIMIT, offSet)).isEmpty()) {
-
-      stockMoves.stream()
-          .forEach(
-              stockMove -> {
+    // the merged lines are kept in memory until every stock move of the group is read
+    buildQueryFetchStockMoveFromGroup(group)
+        .clearSession(false)
+        .forEach(
+            stockMove ->
                 stockMove.getStockMoveLineList().stream()
                     .forEach(
                         stockMoveLine -> {
@@ -178,11 +230,7 @@ public class BatchRecomputeStockLocationLines extends AbstractBatch {
                                 new StockMoveLineOrigin(stockMoveLine, getOrigin(stockMove)),
                                 this::merge);
                           }
-                        });
-              });
-
-      offSet += FETCH_LIMIT;
-    }
+                        }));
 
     for (Entry<TrackProduct, StockMoveLineOrigin> entry : stockMoveLinesMap.entrySet()) {
       stockMoveLineService.updateLocations(
@@ -210,7 +258,8 @@ public class BatchRecomputeStockLocationLines extends AbstractBatch {
     JPA.runInTransaction(clearStockLocationsHistoryLinesQuery::executeUpdate);
   }
 
-  protected Query<StockMove> buildQueryFetchStockMoveFromGroup(StockMoveGroup stockMoveGroup) {
+  protected ChunkedQuery<StockMove> buildQueryFetchStockMoveFromGroup(
+      StockMoveGroup stockMoveGroup) {
 
     StringBuilder query =
         new StringBuilder(
@@ -224,8 +273,7 @@ public class BatchRecomputeStockLocationLines extends AbstractBatch {
       query.append(" AND self.realDate = :realDate");
     }
 
-    return stockMoveRepository
-        .all()
+    return chunkedQuery(StockMove.class)
         .filter(query.toString())
         .bind("realDate", stockMoveGroup.getRealDate())
         .bind("fromStockLocation", stockMoveGroup.getFromStockLocation())
@@ -233,7 +281,7 @@ public class BatchRecomputeStockLocationLines extends AbstractBatch {
         .bind("status", stockMoveGroup.getStatusSelect());
   }
 
-  protected Query<StockMoveLine> buildQueryFetchStockMoveLineFromGroup(
+  protected ChunkedQuery<StockMoveLine> buildQueryFetchStockMoveLineFromGroup(
       StockMoveGroup stockMoveGroup) {
 
     StringBuilder query =
@@ -248,8 +296,7 @@ public class BatchRecomputeStockLocationLines extends AbstractBatch {
       query.append(" AND self.stockMove.realDate = :realDate");
     }
 
-    return stockMoveLineRepository
-        .all()
+    return chunkedQuery(StockMoveLine.class)
         .filter(query.toString())
         .bind("realDate", stockMoveGroup.getRealDate())
         .bind("fromStockLocation", stockMoveGroup.getFromStockLocation())
@@ -0,0 +1,262 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Product;
+import com.axelor.apps.base.db.Unit;
+import com.axelor.apps.base.service.UnitConversionService;
+import com.axelor.apps.stock.db.StockLocation;
+import com.axelor.apps.stock.db.StockLocationLine;
+import com.axelor.apps.stock.db.TrackingNumber;
+import com.axelor.apps.stock.db.repo.StockLocationLineRepository;
+import com.axelor.db.Query;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestStockAvailabilityService {
+
+  private List<StockLocationLine> stockLocationLineList;
+  private int queryCount;
+
+  private Unit unit;
+  private StockLocation warehouse;
+  private StockLocation otherWarehouse;
+
+  private StockLocationLineService stockLocationLineService;
+  private StockAvailabilityService stockAvailabilityService;
+
+  @BeforeEach
+  void prepare() throws AxelorException {
+    stockLocationLineList = new ArrayList<>();
+    queryCount = 0;
+
+    unit = createUnit(1L);
+    warehouse = createStockLocation(1L);
+    otherWarehouse = createStockLocation(2L);
+
+    StockLocationLineRepository stockLocationLineRepo =
+        mock(
+            StockLocationLineRepository.class,
+            invocation -> "all".equals(invocation.getMethod().getName()) ? createQuery() : null);
+
+    UnitConversionService unitConversionService = mock(UnitConversionService.class);
+    when(unitConversionService.convert(
+            any(Unit.class), any(Unit.class), any(BigDecimal.class), anyInt(), any(Product.class)))
+        .thenAnswer(
+            invocation ->
+                invocation.<BigDecimal>getArgument(2).multiply(BigDecimal.valueOf(1000)));
+
+    stockLocationLineService =
+        new StockLocationLineServiceImpl(stockLocationLineRepo, null, null, null, null, null);
+    stockAvailabilityService =
+        new StockAvailabilityServiceImpl(stockLocationLineRepo, unitConversionService);
+  }
+
+  @Test
+  void getAvailableQty_matchesSingleLineLookup() throws AxelorException {
+    Product managedProduct = createProduct(1L, true);
+    Product productWithoutLine = createProduct(2L, true);
+    Product notManagedProduct = createProduct(3L, false);
+    Product productInOtherWarehouse = createProduct(4L, true);
+    TrackingNumber trackingNumber = createTrackingNumber(1L, managedProduct);
+
+    createStockLocationLine(warehouse, null, managedProduct, null, "12");
+    createStockLocationLine(otherWarehouse, null, managedProduct, null, "40");
+    createStockLocationLine(warehouse, null, notManagedProduct, null, "7");
+    createStockLocationLine(otherWarehouse, null, productInOtherWarehouse, null, "3");
+    createStockLocationLine(null, warehouse, managedProduct, trackingNumber, "5");
+
+    List<StockAvailabilityRequest> requestList =
+        List.of(
+            new StockAvailabilityRequest(managedProduct, warehouse),
+            new StockAvailabilityRequest(productWithoutLine, warehouse),
+            new StockAvailabilityRequest(notManagedProduct, warehouse),
+            new StockAvailabilityRequest(productInOtherWarehouse, warehouse),
+            new StockAvailabilityRequest(managedProduct, otherWarehouse));
+    StockAvailabilityRequest trackingNumberRequest =
+        new StockAvailabilityRequest(managedProduct, warehouse, trackingNumber, null);
+
+    List<StockAvailabilityRequest> allRequestList = new ArrayList<>(requestList);
+    allRequestList.add(trackingNumberRequest);
+    Map<StockAvailabilityRequest, BigDecimal> qtyMap =
+        stockAvailabilityService.getAvailableQty(allRequestList);
+
+    Assertions.assertEquals(2, queryCount);
+    for (StockAvailabilityRequest request : requestList) {
+      assertQtyEquals(
+          stockLocationLineService.getAvailableQty(
+              request.getStockLocation(), request.getProduct()),
+          qtyMap.get(request));
+    }
+    assertQtyEquals(
+        stockLocationLineService.getTrackingNumberAvailableQty(warehouse, trackingNumber),
+        qtyMap.get(trackingNumberRequest));
+
+    assertQtyEquals(new BigDecimal("12"), qtyMap.get(requestList.get(0)));
+    assertQtyEquals(BigDecimal.ZERO, qtyMap.get(requestList.get(2)));
+    assertQtyEquals(new BigDecimal("5"), qtyMap.get(trackingNumberRequest));
+  }
+
+  @Test
+  void getAvailableQty_convertsInRequestUnit() throws AxelorException {
+    Product product = createProduct(1L, true);
+    createStockLocationLine(warehouse, null, product, null, "2");
+
+    StockAvailabilityRequest sameUnitRequest =
+        new StockAvailabilityRequest(product, warehouse, null, unit);
+    StockAvailabilityRequest otherUnitRequest =
+        new StockAvailabilityRequest(product, warehouse, null, createUnit(2L));
+    Map<StockAvailabilityRequest, BigDecimal> qtyMap =
+        stockAvailabilityService.getAvailableQty(List.of(sameUnitRequest, otherUnitRequest));
+
+    Assertions.assertEquals(1, queryCount);
+    assertQtyEquals(new BigDecimal("2"), qtyMap.get(sameUnitRequest));
+    assertQtyEquals(new BigDecimal("2000"), qtyMap.get(otherUnitRequest));
+  }
+
+  @Test
+  void getStockLocationLines_omitsMissingLines() {
+    Product product = createProduct(1L, true);
+    StockLocationLine stockLocationLine =
+        createStockLocationLine(warehouse, null, product, null, "2");
+
+    StockAvailabilityRequest request = new StockAvailabilityRequest(product, warehouse);
+    StockAvailabilityRequest missingRequest = new StockAvailabilityRequest(product, otherWarehouse);
+    Map<StockAvailabilityRequest, StockLocationLine> lineMap =
+        stockAvailabilityService.getStockLocationLines(List.of(request, missingRequest));
+
+    Assertions.assertSame(stockLocationLine, lineMap.get(request));
+    Assertions.assertFalse(lineMap.containsKey(missingRequest));
+  }
+
+  protected void assertQtyEquals(BigDecimal expected, BigDecimal actual) {
+    Assertions.assertEquals(0, expected.compareTo(actual), expected + " != " + actual);
+  }
+
+  /** Query on the stock location lines of the test, understanding the filters of the services. */
+  @SuppressWarnings("unchecked")
+  protected Query<StockLocationLine> createQuery() {
+    queryCount++;
+    List<String> filterList = new ArrayList<>();
+    Map<String, Object> bindings = new HashMap<>();
+
+    return mock(
+        Query.class,
+        invocation -> {
+          switch (invocation.getMethod().getName()) {
+            case "filter":
+              filterList.add(invocation.getArgument(0));
+              return invocation.getMock();
+            case "bind":
+              bindings.put(invocation.getArgument(0), invocation.getArgument(1));
+              return invocation.getMock();
+            case "fetch":
+              return this.findLines(filterList.get(0), bindings);
+            case "fetchOne":
+              return this.findLines(filterList.get(0), bindings).stream().findFirst().orElse(null);
+            default:
+              return null;
+          }
+        });
+  }
+
+  protected List<StockLocationLine> findLines(String filter, Map<String, Object> bindings) {
+    boolean detail = filter.contains("detailsStockLocation");
+    return stockLocationLineList.stream()
+        .filter(
+            line -> {
+              StockLocation stockLocation =
+                  detail ? line.getDetailsStockLocation() : line.getStockLocation();
+              return stockLocation != null
+                  && this.isBound(bindings, "stockLocationId", stockLocation.getId())
+                  && this.isBound(bindings, "productId", line.getProduct().getId())
+                  && (!detail
+                      || this.isBound(
+                          bindings, "trackingNumberId", line.getTrackingNumber().getId()));
+            })
+        .collect(Collectors.toList());
+  }
+
+  protected boolean isBound(Map<String, Object> bindings, String name, Long id) {
+    Object value = bindings.get("_" + name);
+    if (value != null) {
+      return value.equals(id);
+    }
+    value = bindings.get(name + "s");
+    return value instanceof Collection && ((Collection<?>) value).contains(id);
+  }
+
+  protected StockLocationLine createStockLocationLine(
+      StockLocation stockLocation,
+      StockLocation detailsStockLocation,
+      Product product,
+      TrackingNumber trackingNumber,
+      String currentQty) {
+    StockLocationLine stockLocationLine = new StockLocationLine();
+    stockLocationLine.setStockLocation(stockLocation);
+    stockLocationLine.setDetailsStockLocation(detailsStockLocation);
+    stockLocationLine.setProduct(product);
+    stockLocationLine.setTrackingNumber(trackingNumber);
+    stockLocationLine.setUnit(unit);
+    stockLocationLine.setCurrentQty(new BigDecimal(currentQty));
+    stockLocationLineList.add(stockLocationLine);
+    return stockLocationLine;
+  }
+
+  protected Product createProduct(Long id, boolean stockManaged) {
+    Product product = new Product();
+    product.setId(id);
+    product.setStockManaged(stockManaged);
+    product.setUnit(unit);
+    return product;
+  }
+
+  protected TrackingNumber createTrackingNumber(Long id, Product product) {
+    TrackingNumber trackingNumber = new TrackingNumber();
+    trackingNumber.setId(id);
+    trackingNumber.setProduct(product);
+    return trackingNumber;
+  }
+
+  protected StockLocation createStockLocation(Long id) {
+    StockLocation stockLocation = new StockLocation();
+    stockLocation.setId(id);
+    return stockLocation;
+  }
+
+  protected Unit createUnit(Long id) {
+    Unit newUnit = new Unit();
+    newUnit.setId(id);
+    return newUnit;
+  }
+}
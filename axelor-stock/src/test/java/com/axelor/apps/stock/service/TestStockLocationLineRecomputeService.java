@@ -0,0 +1,232 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Product;
+import com.axelor.apps.base.db.Unit;
+import com.axelor.apps.base.db.repo.ProductRepository;
+import com.axelor.apps.stock.db.StockLocation;
+import com.axelor.apps.stock.db.StockMove;
+import com.axelor.apps.stock.db.StockMoveLine;
+import com.axelor.apps.stock.db.repo.StockLocationRepository;
+import com.axelor.apps.stock.db.repo.StockMoveRepository;
+import com.axelor.apps.stock.service.StockLocationLineRecomputeServiceImpl.LineValues;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestStockLocationLineRecomputeService {
+
+  private Product product;
+  private Unit unit;
+  private StockLocation supplierLocation;
+  private StockLocation warehouse;
+  private StockLocation customerLocation;
+  private List<StockMoveLine> stockMoveLineList;
+
+  private StockMoveLineService stockMoveLineService;
+  private StockLocationLineRecomputeServiceImpl stockLocationLineRecomputeService;
+
+  private BigDecimal currentQty;
+  private BigDecimal futureQty;
+
+  @BeforeEach
+  void prepare() throws AxelorException {
+    product = new Product();
+    product.setId(1L);
+    product.setProductTypeSelect(ProductRepository.PRODUCT_TYPE_STORABLE);
+    unit = new Unit();
+    supplierLocation = createStockLocation(1L, StockLocationRepository.TYPE_VIRTUAL);
+    warehouse = createStockLocation(2L, StockLocationRepository.TYPE_INTERNAL);
+    customerLocation = createStockLocation(3L, StockLocationRepository.TYPE_VIRTUAL);
+    stockMoveLineList = new ArrayList<>();
+
+    currentQty = BigDecimal.ZERO;
+    futureQty = BigDecimal.ZERO;
+
+    StockLocationLineService stockLocationLineService = mock(StockLocationLineService.class);
+    doAnswer(
+            invocation -> {
+              if (invocation.getArgument(0) == warehouse) {
+                BigDecimal qty = invocation.getArgument(3);
+                if (!(boolean) invocation.getArgument(6)) {
+                  qty = qty.negate();
+                }
+                if ((boolean) invocation.getArgument(4)) {
+                  currentQty = currentQty.add(qty);
+                }
+                if ((boolean) invocation.getArgument(5)) {
+                  futureQty = futureQty.add(qty);
+                }
+              }
+              return null;
+            })
+        .when(stockLocationLineService)
+        .updateLocation(
+            any(StockLocation.class),
+            any(Product.class),
+            any(Unit.class),
+            any(BigDecimal.class),
+            anyBoolean(),
+            anyBoolean(),
+            anyBoolean(),
+            any(),
+            any(),
+            anyBoolean());
+
+    stockMoveLineService =
+        new StockMoveLineServiceImpl(
+            null,
+            null,
+            null,
+            null,
+            null,
+            stockLocationLineService,
+            null,
+            mock(WeightedAveragePriceService.class),
+            null,
+            null,
+            null,
+            null);
+    stockLocationLineRecomputeService =
+        new StockLocationLineRecomputeServiceImpl(null, null, null, null);
+  }
+
+  @Test
+  void recompute_matchesIncrementalUpdates() throws AxelorException {
+    plan(createStockMoveLine(supplierLocation, warehouse, "10", "7", LocalDate.of(2024, 3, 10)));
+    realize(createStockMoveLine(supplierLocation, warehouse, "5", "4", LocalDate.of(2024, 3, 1)));
+    plan(createStockMoveLine(warehouse, customerLocation, "3", "2", LocalDate.of(2024, 3, 20)));
+    realize(createStockMoveLine(warehouse, customerLocation, "2", "1", LocalDate.of(2024, 3, 5)));
+
+    LineValues values = recompute(warehouse);
+
+    Assertions.assertEquals(0, new BigDecimal("3").compareTo(currentQty));
+    Assertions.assertEquals(0, new BigDecimal("10").compareTo(futureQty));
+    Assertions.assertEquals(0, currentQty.compareTo(values.currentQty));
+    Assertions.assertEquals(0, futureQty.compareTo(values.futureQty));
+    Assertions.assertEquals(LocalDate.of(2024, 3, 20), values.lastFutureStockMoveDate);
+  }
+
+  @Test
+  void getMovedQty_usesExpectedQtyWhilePlanned() {
+    BigDecimal qty = new BigDecimal("10");
+    BigDecimal realQty = new BigDecimal("7");
+
+    Assertions.assertEquals(
+        qty, stockLocationLineRecomputeService.getMovedQty(false, qty, realQty));
+    Assertions.assertEquals(
+        realQty, stockLocationLineRecomputeService.getMovedQty(true, qty, realQty));
+    Assertions.assertEquals(
+        BigDecimal.ZERO, stockLocationLineRecomputeService.getMovedQty(false, null, realQty));
+  }
+
+  /** Replays the lines in the same way as the aggregated quantity query of the recompute. */
+  protected LineValues recompute(StockLocation stockLocation) throws AxelorException {
+    LineValues values = new LineValues(unit);
+    for (StockMoveLine stockMoveLine : stockMoveLineList) {
+      StockMove stockMove = stockMoveLine.getStockMove();
+      boolean realized = stockMove.getStatusSelect() == StockMoveRepository.STATUS_REALIZED;
+      BigDecimal qty =
+          stockLocationLineRecomputeService.getMovedQty(
+              realized, stockMoveLine.getQty(), stockMoveLine.getRealQty());
+      if (stockMoveLine.getFromStockLocation() == stockLocation) {
+        qty = qty.negate();
+      }
+      stockLocationLineRecomputeService.addQty(
+          values, product, unit, qty, realized, stockMove.getEstimatedDate());
+    }
+    return values;
+  }
+
+  /** Same stock location updates as StockMoveService.plan. */
+  protected void plan(StockMoveLine stockMoveLine) throws AxelorException {
+    StockMove stockMove = stockMoveLine.getStockMove();
+    stockMove.setStatusSelect(StockMoveRepository.STATUS_PLANNED);
+    stockMoveLineService.updateLocations(
+        StockMoveRepository.STATUS_DRAFT,
+        StockMoveRepository.STATUS_PLANNED,
+        Collections.singletonList(stockMoveLine),
+        stockMove.getEstimatedDate(),
+        false,
+        true);
+  }
+
+  /** Same stock location updates as StockMoveService.plan followed by StockMoveService.realize. */
+  protected void realize(StockMoveLine stockMoveLine) throws AxelorException {
+    plan(stockMoveLine);
+
+    StockMove stockMove = stockMoveLine.getStockMove();
+    stockMove.setStatusSelect(StockMoveRepository.STATUS_REALIZED);
+    stockMoveLineService.updateLocations(
+        StockMoveRepository.STATUS_PLANNED,
+        StockMoveRepository.STATUS_CANCELED,
+        Collections.singletonList(stockMoveLine),
+        stockMove.getEstimatedDate(),
+        false,
+        false);
+    stockMoveLineService.updateLocations(
+        StockMoveRepository.STATUS_DRAFT,
+        StockMoveRepository.STATUS_REALIZED,
+        Collections.singletonList(stockMoveLine),
+        stockMove.getEstimatedDate(),
+        true,
+        true);
+  }
+
+  protected StockMoveLine createStockMoveLine(
+      StockLocation fromStockLocation,
+      StockLocation toStockLocation,
+      String qty,
+      String realQty,
+      LocalDate estimatedDate) {
+    StockMove stockMove = new StockMove();
+    stockMove.setStatusSelect(StockMoveRepository.STATUS_DRAFT);
+    stockMove.setEstimatedDate(estimatedDate);
+
+    StockMoveLine stockMoveLine = new StockMoveLine();
+    stockMoveLine.setStockMove(stockMove);
+    stockMoveLine.setProduct(product);
+    stockMoveLine.setUnit(unit);
+    stockMoveLine.setFromStockLocation(fromStockLocation);
+    stockMoveLine.setToStockLocation(toStockLocation);
+    stockMoveLine.setQty(new BigDecimal(qty));
+    stockMoveLine.setRealQty(new BigDecimal(realQty));
+    stockMoveLineList.add(stockMoveLine);
+    return stockMoveLine;
+  }
+
+  protected StockLocation createStockLocation(Long id, int typeSelect) {
+    StockLocation stockLocation = new StockLocation();
+    stockLocation.setId(id);
+    stockLocation.setTypeSelect(typeSelect);
+    return stockLocation;
+  }
+}
@@ -18,20 +18,31 @@
  */
 package com.axelor.apps.supplychain.db.repo;
 
+import com.axelor.apps.base.db.Product;
 import com.axelor.apps.base.db.repo.ProductRepository;
 import com.axelor.apps.sale.db.SaleOrder;
 import com.axelor.apps.sale.db.SaleOrderLine;
 import com.axelor.apps.sale.db.repo.SaleOrderLineRepository;
 import com.axelor.apps.sale.db.repo.SaleOrderLineSaleRepository;
 import com.axelor.apps.sale.db.repo.SaleOrderRepository;
-import com.axelor.apps.supplychain.service.SaleOrderLineServiceSupplyChainImpl;
+import com.axelor.apps.supplychain.service.SaleOrderLineServiceSupplyChain;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.tuple.Pair;
 
 public class SaleOrderLineSupplychainRepository extends SaleOrderLineSaleRepository {
 
+  /** Key of the stock of the sale orders kept in the context while populating their lines. */
+  protected static final String STOCK_MAP_CONTEXT_KEY = "_saleOrderLineStockMap";
+
   @Override
   public Map<String, Object> populate(Map<String, Object> json, Map<String, Object> context) {
     Long saleOrderLineId = (Long) json.get("id");
@@ -43,14 +54,9 @@ public class SaleOrderLineSupplychainRepository extends SaleOrderLineSaleReposit
       return super.populate(json, context);
     }
 
-    BigDecimal availableStock =
-        Beans.get(SaleOrderLineServiceSupplyChainImpl.class)
-            .getAvailableStock(saleOrder, saleOrderLine);
-    BigDecimal allocatedStock =
-        Beans.get(SaleOrderLineServiceSupplyChainImpl.class)
-            .getAllocatedStock(saleOrder, saleOrderLine);
+    Pair<BigDecimal, BigDecimal> stock = this.getAvailableAndAllocatedStock(saleOrderLine, context);
 
-    BigDecimal availableQty = availableStock.add(allocatedStock);
+    BigDecimal availableQty = stock.getLeft().add(stock.getRight());
     BigDecimal realQty = saleOrderLine.getQty();
 
     if (availableQty.compareTo(realQty) >= 0) {
@@ -67,6 +73,52 @@ public class SaleOrderLineSupplychainRepository extends SaleOrderLineSaleReposit
     return super.populate(json, context);
   }
 
+  /**
+   * Returns the available and allocated stock of the product of the line. The stock of the
+   * products of every line of the sale order is looked up at once and kept in the context, so that
+   * the lines of a sale order listed in the same request do not look up their stock one by one.
+   */
+  @SuppressWarnings("unchecked")
+  protected Pair<BigDecimal, BigDecimal> getAvailableAndAllocatedStock(
+      SaleOrderLine saleOrderLine, Map<String, Object> context) {
+    SaleOrder saleOrder = saleOrderLine.getSaleOrder();
+    Product product = saleOrderLine.getProduct();
+    if (product == null) {
+      return Pair.of(BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    Map<Long, Map<Long, Pair<BigDecimal, BigDecimal>>> saleOrderStockMap =
+        context != null
+            ? (Map<Long, Map<Long, Pair<BigDecimal, BigDecimal>>>)
+                context.computeIfAbsent(STOCK_MAP_CONTEXT_KEY, key -> new HashMap<>())
+            : new HashMap<>();
+
+    Map<Long, Pair<BigDecimal, BigDecimal>> stockMap =
+        saleOrderStockMap.computeIfAbsent(
+            saleOrder.getId(),
+            saleOrderId ->
+                Beans.get(SaleOrderLineServiceSupplyChain.class)
+                    .getAvailableAndAllocatedStock(
+                        saleOrder,
+                        Optional.ofNullable(saleOrder.getSaleOrderLineList())
+                            .orElse(Collections.emptyList())
+                            .stream()
+                            .filter(line -> !this.availabilityIsNotManaged(line, saleOrder))
+                            .map(SaleOrderLine::getProduct)
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toList())));
+
+    Pair<BigDecimal, BigDecimal> stock = stockMap.get(product.getId());
+    if (stock == null) {
+      stock =
+          Beans.get(SaleOrderLineServiceSupplyChain.class)
+              .getAvailableAndAllocatedStock(saleOrder, List.of(product))
+              .get(product.getId());
+      stockMap.put(product.getId(), stock);
+    }
+    return stock;
+  }
+
   protected boolean availabilityIsNotManaged(SaleOrderLine saleOrderLine, SaleOrder saleOrder) {
     return saleOrder == null
         || saleOrderLine.getTypeSelect() != SaleOrderLineRepository.TYPE_NORMAL
@@ -25,9 +25,9 @@ import com.axelor.apps.account.service.AccountingCutOffService;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Batch;
 import com.axelor.apps.base.db.Company;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.stock.db.StockMove;
 import com.axelor.apps.stock.db.StockMoveLine;
-import com.axelor.db.Query;
 import com.axelor.meta.CallMethod;
 import com.google.inject.persist.Transactional;
 import java.time.LocalDate;
@@ -35,7 +35,7 @@ import java.util.List;
 
 public interface AccountingCutOffSupplyChainService extends AccountingCutOffService {
 
-  public Query<StockMove> getStockMoves(
+  public ChunkedQuery<StockMove> getStockMoves(
       Company company, int accountingCutOffTypeSelect, LocalDate moveDate);
 
   @Transactional(rollbackOn = {Exception.class})
@@ -60,6 +60,7 @@ import com.axelor.apps.base.service.BankDetailsService;
 import com.axelor.apps.base.service.CurrencyScaleService;
 import com.axelor.apps.base.service.CurrencyService;
 import com.axelor.apps.base.service.UnitConversionService;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.tax.TaxService;
 import com.axelor.apps.purchase.db.PurchaseOrder;
 import com.axelor.apps.purchase.db.PurchaseOrderLine;
@@ -163,7 +164,7 @@ public class AccountingCutOffSupplyChainServiceImpl extends AccountingCutOffServ
   }
 
   @Override
-  public Query<StockMove> getStockMoves(
+  public ChunkedQuery<StockMove> getStockMoves(
       Company company, int accountingCutOffTypeSelect, LocalDate moveDate) {
 
     int stockMoveTypeSelect = 0;
@@ -185,9 +186,8 @@ public class AccountingCutOffSupplyChainServiceImpl extends AccountingCutOffServ
       queryStr += "AND self.company.id = :companyId";
     }
 
-    Query<StockMove> stockMoveQuery =
-        stockMoverepository
-            .all()
+    ChunkedQuery<StockMove> stockMoveQuery =
+        ChunkedQuery.of(StockMove.class)
             .filter(queryStr)
             .bind("stockMoveInvoiced", StockMoveRepository.STATUS_INVOICED)
             .bind("stockMoveStatusRealized", StockMoveRepository.STATUS_REALIZED)
@@ -198,7 +198,7 @@ public class AccountingCutOffSupplyChainServiceImpl extends AccountingCutOffServ
       stockMoveQuery.bind("companyId", company.getId());
     }
 
-    return stockMoveQuery.order("id");
+    return stockMoveQuery;
   }
 
   @Override
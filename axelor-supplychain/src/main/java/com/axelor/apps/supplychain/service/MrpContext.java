@@ -0,0 +1,210 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.supplychain.service;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Product;
+import com.axelor.apps.stock.db.StockLocation;
+import com.axelor.apps.supplychain.db.Mrp;
+import com.axelor.apps.supplychain.db.MrpLine;
+import com.axelor.utils.ThrowConsumer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * State of a MRP run: the stock locations and the products taken into account, with their low
+ * level code, and the level being computed.
+ *
+ * <p>A new context is created for each run, so that nothing is kept from a previous run and the
+ * service holds no other state than the context of the run it computes.
+ *
+ * <p>The products of a level may be netted by several threads, see {@link MrpLevelNetting}: the
+ * maps of products can be updated concurrently, and the product being netted and the proposals it
+ * defers are kept by thread. The MRP entity belongs to the session of the thread running the MRP,
+ * so netting only reads the snapshot of its fields kept by the context ({@link #getMrpId()}, {@link
+ * #getMrpTypeSelect()}, ...).
+ */
+public class MrpContext {
+
+  protected Mrp mrp;
+  protected Long mrpId;
+  protected int mrpTypeSelect;
+  protected LocalDate endDate;
+  protected Long companyId;
+  protected LocalDate today;
+  protected List<StockLocation> stockLocationList = new ArrayList<>();
+
+  /** Level of each product of the run, by product id. */
+  protected final Map<Long, Integer> productMap = new ConcurrentHashMap<>();
+
+  /** Products added while computing the current level, whose lines still have to be created. */
+  protected Map<Long, Integer> productMapToBeAssigned = new ConcurrentHashMap<>();
+
+  protected volatile int currentLevel;
+
+  protected final ThreadLocal<Long> nettedProductId = new ThreadLocal<>();
+  protected final ThreadLocal<List<MrpDeferredProposal>> deferredProposalList =
+      new ThreadLocal<>();
+
+  public MrpContext(Mrp mrp) {
+    this.setMrp(mrp);
+  }
+
+  /**
+   * Returns the MRP entity, managed by the session of the thread running the MRP. It must not be
+   * used while netting the products of a level, which may run in other threads.
+   */
+  public Mrp getMrp() {
+    return mrp;
+  }
+
+  public void setMrp(Mrp mrp) {
+    this.mrp = mrp;
+    this.mrpId = mrp.getId();
+    this.mrpTypeSelect = mrp.getMrpTypeSelect();
+    this.endDate = mrp.getEndDate();
+    this.companyId =
+        mrp.getStockLocation() != null && mrp.getStockLocation().getCompany() != null
+            ? mrp.getStockLocation().getCompany().getId()
+            : null;
+  }
+
+  public Long getMrpId() {
+    return mrpId;
+  }
+
+  public int getMrpTypeSelect() {
+    return mrpTypeSelect;
+  }
+
+  public LocalDate getEndDate() {
+    return endDate;
+  }
+
+  /** Returns the id of the company of the stock location of the MRP. */
+  public Long getCompanyId() {
+    return companyId;
+  }
+
+  public LocalDate getToday() {
+    return today;
+  }
+
+  public void setToday(LocalDate today) {
+    this.today = today;
+  }
+
+  public List<StockLocation> getStockLocationList() {
+    return stockLocationList;
+  }
+
+  public void setStockLocationList(List<StockLocation> stockLocationList) {
+    this.stockLocationList = stockLocationList;
+  }
+
+  public Map<Long, Integer> getProductMap() {
+    return productMap;
+  }
+
+  public Map<Long, Integer> getProductMapToBeAssigned() {
+    return productMapToBeAssigned;
+  }
+
+  public int getCurrentLevel() {
+    return currentLevel;
+  }
+
+  /** Starts the computation of the given level. */
+  public void startLevel(int level) {
+    this.currentLevel = level;
+    this.productMapToBeAssigned = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Adds a product found while computing the current level (e.g. a component of a proposal) at the
+   * next level, unless it is already part of the run.
+   */
+  public void addProductToBeAssigned(Long productId) {
+    int nextLevel = currentLevel + 1;
+    if (productMap.putIfAbsent(productId, nextLevel) == null) {
+      productMapToBeAssigned.put(productId, nextLevel);
+    }
+  }
+
+  /** Returns the products of the given level, sorted by id so that every run nets them alike. */
+  public List<Long> getProductIdList(int level) {
+    return productMap.entrySet().stream()
+        .filter(entry -> entry.getValue() == level)
+        .map(Map.Entry::getKey)
+        .sorted()
+        .collect(Collectors.toList());
+  }
+
+  public int getMaxLevel() {
+    return productMap.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+  }
+
+  /** Starts netting the given product in the current thread. */
+  public void startNetting(Long productId) {
+    nettedProductId.set(productId);
+    deferredProposalList.set(new ArrayList<>());
+  }
+
+  public void endNetting() {
+    nettedProductId.remove();
+    deferredProposalList.remove();
+  }
+
+  /**
+   * Whether a proposal for the given product has to be deferred, being created while netting
+   * another product in the current thread.
+   */
+  public boolean isDeferred(Product product) {
+    Long productId = nettedProductId.get();
+    return productId != null && !productId.equals(product.getId());
+  }
+
+  public void addDeferredProposal(MrpDeferredProposal deferredProposal) {
+    deferredProposalList.get().add(deferredProposal);
+  }
+
+  /** Returns the proposals deferred while netting the product of the current thread. */
+  public List<MrpDeferredProposal> getDeferredProposalList() {
+    return Optional.ofNullable(deferredProposalList.get()).orElse(Collections.emptyList());
+  }
+
+  /**
+   * Runs the given action on the proposal once saved, if the given line is a deferred proposal.
+   * Otherwise the line is already the saved proposal and nothing is done.
+   */
+  public void onProposalSave(MrpLine mrpLine, ThrowConsumer<MrpLine, AxelorException> action) {
+    for (MrpDeferredProposal deferredProposal : this.getDeferredProposalList()) {
+      if (deferredProposal.getMrpLine() == mrpLine) {
+        deferredProposal.onSave(action);
+        return;
+      }
+    }
+  }
+}
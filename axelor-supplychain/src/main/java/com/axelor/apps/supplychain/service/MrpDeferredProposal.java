@@ -0,0 +1,111 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.supplychain.service;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.supplychain.db.MrpLine;
+import com.axelor.apps.supplychain.db.MrpLineOrigin;
+import com.axelor.utils.ThrowConsumer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Proposal created for another product while netting a product of a MRP level, saved once every
+ * product of the level is netted. See {@link MrpLevelNetting}.
+ *
+ * <p>The entities are referenced by id, as the proposal may be saved by another thread than the one
+ * which created it. The origins are only read to be copied on the saved proposal.
+ */
+public class MrpDeferredProposal {
+
+  protected final Long productId;
+  protected final Long mrpLineTypeId;
+  protected final BigDecimal reorderQty;
+  protected final Long stockLocationId;
+  protected final LocalDate maturityDate;
+  protected final List<MrpLineOrigin> mrpLineOriginList;
+  protected final String relatedToSelectName;
+
+  /** Unsaved line returned to the caller instead of the proposal. */
+  protected final MrpLine mrpLine;
+
+  protected final List<ThrowConsumer<MrpLine, AxelorException>> onSaveList = new ArrayList<>();
+
+  public MrpDeferredProposal(
+      Long productId,
+      Long mrpLineTypeId,
+      BigDecimal reorderQty,
+      Long stockLocationId,
+      LocalDate maturityDate,
+      List<MrpLineOrigin> mrpLineOriginList,
+      String relatedToSelectName,
+      MrpLine mrpLine) {
+    this.productId = productId;
+    this.mrpLineTypeId = mrpLineTypeId;
+    this.reorderQty = reorderQty;
+    this.stockLocationId = stockLocationId;
+    this.maturityDate = maturityDate;
+    this.mrpLineOriginList = mrpLineOriginList;
+    this.relatedToSelectName = relatedToSelectName;
+    this.mrpLine = mrpLine;
+  }
+
+  public Long getProductId() {
+    return productId;
+  }
+
+  public Long getMrpLineTypeId() {
+    return mrpLineTypeId;
+  }
+
+  public BigDecimal getReorderQty() {
+    return reorderQty;
+  }
+
+  public Long getStockLocationId() {
+    return stockLocationId;
+  }
+
+  public LocalDate getMaturityDate() {
+    return maturityDate;
+  }
+
+  public List<MrpLineOrigin> getMrpLineOriginList() {
+    return mrpLineOriginList;
+  }
+
+  public String getRelatedToSelectName() {
+    return relatedToSelectName;
+  }
+
+  public MrpLine getMrpLine() {
+    return mrpLine;
+  }
+
+  /** Adds an action to run on the proposal once saved, e.g. to set a field on it. */
+  public void onSave(ThrowConsumer<MrpLine, AxelorException> action) {
+    onSaveList.add(action);
+  }
+
+  public List<ThrowConsumer<MrpLine, AxelorException>> getOnSaveList() {
+    return onSaveList;
+  }
+}
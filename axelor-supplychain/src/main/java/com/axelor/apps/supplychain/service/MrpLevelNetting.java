@@ -0,0 +1,126 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.supplychain.service;
+
+import com.axelor.apps.base.AxelorException;
+import com.google.common.base.Throwables;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Nets the products of a MRP level, in parallel when several workers are used.
+ *
+ * <p>Products of the same level do not depend on each other: netting a product only reads its own
+ * MRP lines. The proposals it creates for products of the next levels (e.g. the components of a
+ * manufacturing proposal) are returned instead of being saved, and are applied once every product
+ * of the level is netted, in the order of the products and then in the order they were created.
+ * This is the order of a sequential run, so the result does not depend on the number of workers.
+ *
+ * @param <P> the type of the deferred proposals
+ */
+public class MrpLevelNetting<P> {
+
+  protected final int workerCount;
+  protected final ProductNetting<P> productNetting;
+  protected final ProposalApplier<P> proposalApplier;
+
+  public MrpLevelNetting(
+      int workerCount, ProductNetting<P> productNetting, ProposalApplier<P> proposalApplier) {
+    this.workerCount = workerCount;
+    this.productNetting = productNetting;
+    this.proposalApplier = proposalApplier;
+  }
+
+  /**
+   * Nets the given products then applies their deferred proposals.
+   *
+   * @param productIdList the products of the level, in the order of a sequential run
+   */
+  public void netLevel(List<Long> productIdList) throws AxelorException {
+    Map<Long, List<P>> proposalMap =
+        Math.min(workerCount, productIdList.size()) <= 1
+            ? this.netSequentially(productIdList)
+            : this.netInParallel(productIdList);
+
+    for (Map.Entry<Long, List<P>> entry : proposalMap.entrySet()) {
+      if (!entry.getValue().isEmpty()) {
+        proposalApplier.apply(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  protected Map<Long, List<P>> netSequentially(List<Long> productIdList) throws AxelorException {
+    Map<Long, List<P>> proposalMap = new LinkedHashMap<>();
+    for (Long productId : productIdList) {
+      proposalMap.put(productId, productNetting.net(productId));
+    }
+    return proposalMap;
+  }
+
+  protected Map<Long, List<P>> netInParallel(List<Long> productIdList) throws AxelorException {
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.min(workerCount, productIdList.size()));
+
+    try {
+      List<Future<List<P>>> futureList = new ArrayList<>();
+      for (Long productId : productIdList) {
+        futureList.add(executor.submit(() -> productNetting.net(productId)));
+      }
+
+      Map<Long, List<P>> proposalMap = new LinkedHashMap<>();
+      for (int i = 0; i < productIdList.size(); i++) {
+        proposalMap.put(productIdList.get(i), futureList.get(i).get());
+      }
+      return proposalMap;
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), AxelorException.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @FunctionalInterface
+  public interface ProductNetting<P> {
+
+    /**
+     * Nets the given product.
+     *
+     * @return the proposals created for other products, in the order they were created
+     */
+    List<P> net(Long productId) throws AxelorException;
+  }
+
+  @FunctionalInterface
+  public interface ProposalApplier<P> {
+
+    /** Applies the proposals deferred while netting the given product. */
+    void apply(Long productId, List<P> proposalList) throws AxelorException;
+  }
+}
@@ -20,6 +20,7 @@ package com.axelor.apps.supplychain.service;
 
 import static java.time.temporal.ChronoUnit.DAYS;
 
+import com.axelor.app.AppSettings;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Company;
 import com.axelor.apps.base.db.Partner;
@@ -70,13 +71,16 @@ import com.axelor.db.Model;
 import com.axelor.db.Query;
 import com.axelor.db.mapper.Mapper;
 import com.axelor.i18n.I18n;
+import com.axelor.inject.Beans;
 import com.axelor.message.service.MailMessageService;
+import com.axelor.utils.ThrowConsumer;
 import com.axelor.utils.helpers.StringHelper;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
+import com.google.inject.persist.UnitOfWork;
 import com.google.inject.servlet.RequestScoper;
 import com.google.inject.servlet.ServletScopes;
 import java.lang.invoke.MethodHandles;
@@ -127,12 +131,18 @@ public class MrpServiceImpl implements MrpService {
   protected AppSaleService appSaleService;
   protected AppPurchaseService appPurchaseService;
 
-  protected List<StockLocation> stockLocationList;
-  protected Map<Long, Integer> productMap;
-  protected Map<Long, Integer> productMapToBeAssigned;
-  protected Integer currentLevel;
-  protected Mrp mrp;
-  protected LocalDate today;
+  /** Application setting giving the number of records whose MRP lines are saved together. */
+  public static final String CHUNK_SIZE_SETTING = "mrp.chunk-size";
+
+  protected static final int DEFAULT_CHUNK_SIZE = 100;
+
+  /**
+   * Application setting giving the number of threads netting the products of a level. The products
+   * are netted one after the other by default.
+   */
+  public static final String WORKER_COUNT_SETTING = "mrp.workers";
+
+  protected MrpContext context;
 
   @Inject
   public MrpServiceImpl(
@@ -183,12 +193,13 @@ public class MrpServiceImpl implements MrpService {
 
   @Override
   public void setMrp(Mrp mrp) {
-    this.mrp = mrp;
+    this.context = new MrpContext(mrp);
   }
 
   @Override
   public void runCalculation(Mrp mrp) throws AxelorException {
 
+    this.context = this.createContext(mrp);
     this.reset(mrpRepository.find(mrp.getId()));
 
     this.startMrp(mrpRepository.find(mrp.getId()));
@@ -197,6 +208,40 @@ public class MrpServiceImpl implements MrpService {
     this.finish(mrpRepository.find(mrp.getId()));
   }
 
+  protected MrpContext createContext(Mrp mrp) {
+    MrpContext context = new MrpContext(mrp);
+    context.setToday(appBaseService.getTodayDate(mrp.getStockLocation().getCompany()));
+    return context;
+  }
+
+  /**
+   * Returns the number of records whose MRP lines are created in the same transaction, see {@link
+   * #CHUNK_SIZE_SETTING}.
+   */
+  protected int getChunkSize() {
+    return Math.max(1, AppSettings.get().getInt(CHUNK_SIZE_SETTING, DEFAULT_CHUNK_SIZE));
+  }
+
+  /**
+   * Processes the given elements in chunks, each chunk being processed in its own transaction
+   * before the session is cleared.
+   */
+  protected <T> void processInChunks(List<T> list, ThrowConsumer<T, AxelorException> processor)
+      throws AxelorException {
+    for (List<T> chunk : Lists.partition(list, this.getChunkSize())) {
+      this.processChunk(chunk, processor);
+      JPA.clear();
+    }
+  }
+
+  @Transactional(rollbackOn = {Exception.class})
+  protected <T> void processChunk(List<T> chunk, ThrowConsumer<T, AxelorException> processor)
+      throws AxelorException {
+    for (T element : chunk) {
+      processor.accept(element);
+    }
+  }
+
   @Override
   public boolean isOnGoing(Mrp mrp) {
 
@@ -220,7 +265,7 @@ public class MrpServiceImpl implements MrpService {
   @Override
   @Transactional
   public void reset(Mrp mrp) {
-    today = appBaseService.getTodayDate(mrp.getStockLocation().getCompany());
+    LocalDate today = appBaseService.getTodayDate(mrp.getStockLocation().getCompany());
 
     mrpLineRepository
         .all()
@@ -245,15 +290,15 @@ public class MrpServiceImpl implements MrpService {
     log.debug("Complete MRP");
 
     // Initialize
-    this.mrp = mrp;
+    context.setMrp(mrp);
     List<StockLocation> slList =
         stockLocationService.getAllLocationAndSubLocation(mrp.getStockLocation(), false).stream()
             .filter(x -> !x.getIsNotInMrp())
             .collect(Collectors.toList());
-    this.stockLocationList = slList;
+    context.setStockLocationList(slList);
 
     this.assignProductAndLevel(this.getProductList());
-    if (stockLocationList.isEmpty()) {
+    if (slList.isEmpty()) {
       throw new AxelorException(
           Mrp.class,
           TraceBackRepository.CATEGORY_NO_VALUE,
@@ -284,7 +329,7 @@ public class MrpServiceImpl implements MrpService {
 
     log.debug("Do calculation");
 
-    this.mrp = mrp;
+    context.setMrp(mrp);
 
     this.checkInsufficientCumulativeQty();
 
@@ -304,117 +349,192 @@ public class MrpServiceImpl implements MrpService {
 
   protected void checkInsufficientCumulativeQty() throws AxelorException {
 
+    int workerCount = this.getWorkerCount();
+    MrpLevelNetting<MrpDeferredProposal> levelNetting =
+        new MrpLevelNetting<>(
+            workerCount,
+            workerCount > 1 ? this::netProductInWorker : this::netProduct,
+            (productId, deferredProposalList) -> {
+              this.saveDeferredProposals(deferredProposalList);
+              this.clear();
+            });
+
     for (int level = 0; level <= this.getMaxLevel(); level++) {
-      this.currentLevel = level;
-      this.productMapToBeAssigned = new HashMap<>();
-      for (Product product : this.getProductList(level)) {
-        this.checkInsufficientCumulativeQty(product);
-      }
-      if (productMapToBeAssigned != null && !this.productMapToBeAssigned.isEmpty()) {
-        this.fillMrpLinesForProductMap(productMapToBeAssigned);
+      context.startLevel(level);
+      levelNetting.netLevel(context.getProductIdList(level));
+      if (!context.getProductMapToBeAssigned().isEmpty()) {
+        this.fillMrpLinesForProductMap(context.getProductMapToBeAssigned());
       }
     }
   }
 
+  protected int getMaxLevel() {
+    return context.getMaxLevel();
+  }
+
   /**
-   * Get the list of product for a level
-   *
-   * @param level
-   * @return
+   * Returns the number of threads netting the products of a level, see {@link
+   * #WORKER_COUNT_SETTING}.
    */
-  protected List<Product> getProductList(int level) {
-
-    List<Product> productList = Lists.newArrayList();
-
-    for (Long productId : this.productMap.keySet()) {
+  protected int getWorkerCount() {
+    return Math.max(1, AppSettings.get().getInt(WORKER_COUNT_SETTING, 1));
+  }
 
-      if (this.productMap.get(productId) == level) {
-        productList.add(productRepository.find(productId));
-      }
+  /**
+   * Nets the given product. The proposals created for other products are not saved but returned,
+   * to be saved once every product of the level is netted.
+   */
+  protected List<MrpDeferredProposal> netProduct(Long productId) throws AxelorException {
+    context.startNetting(productId);
+    try {
+      this.checkInsufficientCumulativeQty(productRepository.find(productId));
+      return context.getDeferredProposalList();
+    } finally {
+      context.endNetting();
+      this.clear();
     }
-
-    return productList;
   }
 
-  protected int getMaxLevel() {
+  protected List<MrpDeferredProposal> netProductInWorker(Long productId) throws AxelorException {
+    RequestScoper scope = ServletScopes.scopeRequest(Collections.emptyMap());
+    try (RequestScoper.CloseableScope ignored = scope.open()) {
+      return this.netProduct(productId);
+    } finally {
+      Beans.get(UnitOfWork.class).end();
+    }
+  }
 
-    int maxLevel = 0;
+  protected void clear() {
+    JPA.clear();
+  }
 
-    for (int level : this.productMap.values()) {
+  @Transactional(rollbackOn = {Exception.class})
+  protected void saveDeferredProposals(List<MrpDeferredProposal> deferredProposalList)
+      throws AxelorException {
+    Mrp mrp = mrpRepository.find(context.getMrpId());
 
-      if (level > maxLevel) {
-        maxLevel = level;
+    for (MrpDeferredProposal deferredProposal : deferredProposalList) {
+      MrpLine mrpLine =
+          this.saveProposalMrpLine(
+              mrp,
+              productRepository.find(deferredProposal.getProductId()),
+              mrpLineTypeRepository.find(deferredProposal.getMrpLineTypeId()),
+              deferredProposal.getReorderQty(),
+              Optional.ofNullable(deferredProposal.getStockLocationId())
+                  .map(stockLocationRepository::find)
+                  .orElse(null),
+              deferredProposal.getMaturityDate(),
+              deferredProposal.getMrpLineOriginList(),
+              deferredProposal.getRelatedToSelectName());
+
+      for (ThrowConsumer<MrpLine, AxelorException> action : deferredProposal.getOnSaveList()) {
+        action.accept(mrpLine);
       }
     }
-
-    return maxLevel;
   }
 
+  /**
+   * Creates the proposals needed so that the cumulative quantity of the product never falls below
+   * the minimum quantity.
+   *
+   * <p>The MRP lines of the product are loaded once and the netting is done in memory: each time a
+   * proposal is created, it is added to the lines and the cumulative quantities are computed again
+   * from the first line, without reloading them. Every change is saved at the end, in a single
+   * transaction.
+   */
+  @Transactional(rollbackOn = {Exception.class})
   protected void checkInsufficientCumulativeQty(Product product) throws AxelorException {
-    checkInsufficientCumulativeQty(product, 0);
-  }
-
-  protected void checkInsufficientCumulativeQty(Product product, int counter)
-      throws AxelorException {
 
     final int MAX_ITERATION = 1000;
 
-    if (counter > MAX_ITERATION) {
-      throw new AxelorException(
-          TraceBackRepository.CATEGORY_INCONSISTENCY,
-          I18n.get(SupplychainExceptionMessage.MRP_TOO_MANY_ITERATIONS));
-    }
+    product = productRepository.find(product.getId());
+    List<MrpLine> mrpLineList = this.getMrpLineList(product);
 
-    boolean doASecondPass = false;
+    for (int counter = 0; ; counter++) {
 
-    this.computeCumulativeQty(productRepository.find(product.getId()));
+      if (counter > MAX_ITERATION) {
+        throw new AxelorException(
+            TraceBackRepository.CATEGORY_INCONSISTENCY,
+            I18n.get(SupplychainExceptionMessage.MRP_TOO_MANY_ITERATIONS));
+      }
 
-    JPA.clear();
+      this.computeCumulativeQty(mrpLineList);
 
-    List<MrpLine> mrpLineList =
-        mrpLineRepository
-            .all()
-            .filter("self.mrp.id = ?1 AND self.product.id = ?2", mrp.getId(), product.getId())
-            .order("maturityDate")
-            .order("mrpLineType.typeSelect")
-            .order("mrpLineType.sequence")
-            .order("id")
-            .fetch();
-    for (MrpLine mrpLine : mrpLineList) {
+      MrpLine proposalMrpLine = null;
+      for (MrpLine mrpLine : mrpLineList) {
+        proposalMrpLine =
+            this.checkInsufficientCumulativeQty(mrpLine, product, counter == 0, mrpLineList);
+        if (proposalMrpLine != null) {
+          break;
+        }
+      }
 
-      doASecondPass =
-          this.checkInsufficientCumulativeQty(
-              mrpLineRepository.find(mrpLine.getId()),
-              productRepository.find(product.getId()),
-              counter == 0);
-      JPA.clear();
-      if (doASecondPass) {
-        break;
+      if (proposalMrpLine == null) {
+        return;
       }
+
+      this.addMrpLine(mrpLineList, proposalMrpLine, product);
+      this.addMrpLine(mrpLineList, proposalMrpLine.getEstimatedDeliveryMrpLine(), product);
+      mrpLineList.sort(this.getMrpLineComparator());
     }
+  }
+
+  /** Returns the MRP lines of the product, sorted as the cumulative quantity is computed. */
+  protected List<MrpLine> getMrpLineList(Product product) {
+    return mrpLineRepository
+        .all()
+        .filter(
+            "self.mrp.id = ?1 AND self.product.id = ?2", context.getMrpId(), product.getId())
+        .order("maturityDate")
+        .order("mrpLineType.typeSelect")
+        .order("mrpLineType.sequence")
+        .order("id")
+        .fetch();
+  }
 
-    if (doASecondPass) {
+  protected Comparator<MrpLine> getMrpLineComparator() {
+    return Comparator.comparing(
+            MrpLine::getMaturityDate, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(mrpLine -> mrpLine.getMrpLineType().getTypeSelect())
+        .thenComparing(mrpLine -> mrpLine.getMrpLineType().getSequence())
+        .thenComparing(MrpLine::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+  }
 
-      this.checkInsufficientCumulativeQty(product, counter + 1);
+  protected void addMrpLine(List<MrpLine> mrpLineList, MrpLine mrpLine, Product product) {
+    if (mrpLine == null || !product.equals(mrpLine.getProduct())) {
+      return;
     }
+    for (MrpLine existingMrpLine : mrpLineList) {
+      if (existingMrpLine == mrpLine) {
+        return;
+      }
+    }
+    mrpLineList.add(mrpLine);
   }
 
+  /**
+   * Creates a proposal if the cumulative quantity of the given line is below its minimum quantity.
+   *
+   * @param mrpLineList the MRP lines of the product, in which user edited lines are looked up
+   * @return the created or updated proposal, or null if no proposal was needed
+   */
   @Transactional(rollbackOn = {Exception.class})
-  protected boolean checkInsufficientCumulativeQty(
-      MrpLine mrpLine, Product product, boolean firstPass) throws AxelorException {
+  protected MrpLine checkInsufficientCumulativeQty(
+      MrpLine mrpLine, Product product, boolean firstPass, List<MrpLine> mrpLineList)
+      throws AxelorException {
 
     BigDecimal cumulativeQty = mrpLine.getCumulativeQty();
 
     MrpLineType mrpLineType = mrpLine.getMrpLineType();
     if (mrpLineType.getElementSelect() == MrpLineTypeRepository.ELEMENT_PURCHASE_PROPOSAL
         && mrpLine.getEstimatedDeliveryMrpLine() != null) {
-      return false;
+      return null;
     }
 
     if ((mrpLineType.getElementSelect() == MrpLineTypeRepository.ELEMENT_PURCHASE_ORDER
             || mrpLineType.getElementSelect() == MrpLineTypeRepository.ELEMENT_MANUFACTURING_ORDER)
         && !firstPass) {
-      return false;
+      return null;
     }
 
     boolean isProposalElement = this.isProposalElement(mrpLineType);
@@ -461,25 +581,23 @@ public class MrpServiceImpl implements MrpService {
           this.getMrpLineTypeForProposal(stockRules, product, company);
 
       if (mrpLineTypeProposal == null) {
-        return false;
+        return null;
       }
 
-      long duplicateCount =
-          mrpLineRepository
-              .all()
-              .filter(
-                  "self.mrp.id = ?1  AND self.isEditedByUser = ?2 AND self.product = ?3 AND self.relatedToSelectName = ?4",
-                  mrp.getId(),
-                  true,
-                  product,
-                  mrpLine.getRelatedToSelectName())
-              .count();
+      String relatedToSelectName = mrpLine.getRelatedToSelectName();
+      boolean duplicate =
+          relatedToSelectName != null
+              && mrpLineList.stream()
+                  .anyMatch(
+                      line ->
+                          line.getIsEditedByUser()
+                              && relatedToSelectName.equals(line.getRelatedToSelectName()));
 
-      if (duplicateCount != 0) {
-        return false;
+      if (duplicate) {
+        return null;
       }
 
-      this.createProposalMrpLine(
+      return this.createProposalMrpLine(
           mrpLine.getMrp(),
           product,
           mrpLineTypeProposal,
@@ -488,11 +606,9 @@ public class MrpServiceImpl implements MrpService {
           mrpLine.getMaturityDate(),
           mrpLine.getMrpLineOriginList(),
           mrpLine.getRelatedToSelectName());
-
-      return true;
     }
 
-    return false;
+    return null;
   }
 
   public MrpLine getPreviousProposalMrpLine(
@@ -518,7 +634,7 @@ public class MrpServiceImpl implements MrpService {
         .all()
         .filter(
             "self.mrp.id = ?1 AND self.product = ?2 AND self.mrpLineType = ?3 AND self.stockLocation = ?4 AND self.maturityDate > ?5 AND self.maturityDate <= ?6",
-            mrp.getId(),
+            context.getMrpId(),
             product,
             mrpLineType,
             stockLocation,
@@ -527,6 +643,11 @@ public class MrpServiceImpl implements MrpService {
         .fetchOne();
   }
 
+  /**
+   * Creates a proposal, or adds its quantity to a previous proposal of the same period. A proposal
+   * for another product than the one being netted (e.g. a component) is deferred, see {@link
+   * #netProduct(Long)}.
+   */
   @Transactional(rollbackOn = {Exception.class})
   protected MrpLine createProposalMrpLine(
       Mrp mrp,
@@ -539,6 +660,79 @@ public class MrpServiceImpl implements MrpService {
       String relatedToSelectName)
       throws AxelorException {
 
+    if (context.isDeferred(product)) {
+      return this.deferProposalMrpLine(
+          mrp,
+          product,
+          mrpLineType,
+          reorderQty,
+          stockLocation,
+          maturityDate,
+          mrpLineOriginList,
+          relatedToSelectName);
+    }
+
+    return this.saveProposalMrpLine(
+        mrp,
+        product,
+        mrpLineType,
+        reorderQty,
+        stockLocation,
+        maturityDate,
+        mrpLineOriginList,
+        relatedToSelectName);
+  }
+
+  /**
+   * Records a proposal to save once every product of the level is netted.
+   *
+   * @return an unsaved line holding the proposal. The fields the caller sets on it have to be set
+   *     on the saved proposal with {@link MrpContext#onProposalSave}.
+   */
+  protected MrpLine deferProposalMrpLine(
+      Mrp mrp,
+      Product product,
+      MrpLineType mrpLineType,
+      BigDecimal reorderQty,
+      StockLocation stockLocation,
+      LocalDate maturityDate,
+      List<MrpLineOrigin> mrpLineOriginList,
+      String relatedToSelectName) {
+
+    MrpLine mrpLine = new MrpLine();
+    mrpLine.setMrp(mrp);
+    mrpLine.setProduct(product);
+    mrpLine.setMrpLineType(mrpLineType);
+    mrpLine.setQty(reorderQty);
+    mrpLine.setStockLocation(stockLocation);
+    mrpLine.setMaturityDate(maturityDate);
+    mrpLine.setRelatedToSelectName(relatedToSelectName);
+
+    context.addDeferredProposal(
+        new MrpDeferredProposal(
+            product.getId(),
+            mrpLineType.getId(),
+            reorderQty,
+            stockLocation != null ? stockLocation.getId() : null,
+            maturityDate,
+            mrpLineOriginList != null ? new ArrayList<>(mrpLineOriginList) : null,
+            relatedToSelectName,
+            mrpLine));
+
+    return mrpLine;
+  }
+
+  protected MrpLine saveProposalMrpLine(
+      Mrp mrp,
+      Product product,
+      MrpLineType mrpLineType,
+      BigDecimal reorderQty,
+      StockLocation stockLocation,
+      LocalDate maturityDate,
+      List<MrpLineOrigin> mrpLineOriginList,
+      String relatedToSelectName)
+      throws AxelorException {
+
     LocalDate initialMaturityDate = maturityDate;
 
     if (mrpLineType.getElementSelect() == MrpLineTypeRepository.ELEMENT_PURCHASE_PROPOSAL) {
@@ -554,8 +748,8 @@ public class MrpServiceImpl implements MrpService {
       }
     }
 
-    if (maturityDate.isBefore(today)) {
-      maturityDate = today;
+    if (maturityDate.isBefore(context.getToday())) {
+      maturityDate = context.getToday();
     }
 
     MrpLine mrpLine =
@@ -674,7 +868,7 @@ public class MrpServiceImpl implements MrpService {
       StockRules stockRules, Product product, Company company) throws AxelorException {
 
     return mrpLineTypeService.getMrpLineType(
-        MrpLineTypeRepository.ELEMENT_PURCHASE_PROPOSAL, mrp.getMrpTypeSelect());
+        MrpLineTypeRepository.ELEMENT_PURCHASE_PROPOSAL, context.getMrpTypeSelect());
   }
 
   protected void consolidateMrp() {
@@ -682,7 +876,7 @@ public class MrpServiceImpl implements MrpService {
     List<MrpLine> mrpLineList =
         mrpLineRepository
             .all()
-            .filter("self.mrp.id = ?1", mrp.getId())
+            .filter("self.mrp.id = ?1", context.getMrpId())
             .order("product.code")
             .order("maturityDate")
             .order("mrpLineType.typeSelect")
@@ -724,7 +918,7 @@ public class MrpServiceImpl implements MrpService {
 
   protected void computeCumulativeQty() {
 
-    for (Long productId : this.productMap.keySet()) {
+    for (Long productId : context.getProductMap().keySet()) {
 
       this.computeCumulativeQty(productRepository.find(productId));
     }
@@ -732,16 +926,11 @@ public class MrpServiceImpl implements MrpService {
 
   @Transactional
   protected void computeCumulativeQty(Product product) {
+    this.computeCumulativeQty(this.getMrpLineList(product));
+  }
 
-    List<MrpLine> mrpLineList =
-        mrpLineRepository
-            .all()
-            .filter("self.mrp.id = ?1 AND self.product.id = ?2", mrp.getId(), product.getId())
-            .order("maturityDate")
-            .order("mrpLineType.typeSelect")
-            .order("mrpLineType.sequence")
-            .order("id")
-            .fetch();
+  /** Computes the cumulative quantities of the given MRP lines of a product, in their order. */
+  protected void computeCumulativeQty(List<MrpLine> mrpLineList) {
 
     BigDecimal previousCumulativeQty = BigDecimal.ZERO;
     for (MrpLine mrpLine : mrpLineList) {
@@ -766,13 +955,13 @@ public class MrpServiceImpl implements MrpService {
   }
 
   protected void createPurchaseMrpLines() throws AxelorException {
-    this.createPurchaseMrpLines(this.productMap);
+    this.createPurchaseMrpLines(context.getProductMap());
   }
 
   protected void createPurchaseMrpLines(Map<Long, Integer> productMap) throws AxelorException {
     MrpLineType purchaseOrderMrpLineType =
         mrpLineTypeService.getMrpLineType(
-            MrpLineTypeRepository.ELEMENT_PURCHASE_ORDER, mrp.getMrpTypeSelect());
+            MrpLineTypeRepository.ELEMENT_PURCHASE_ORDER, context.getMrpTypeSelect());
 
     if (purchaseOrderMrpLineType == null) {
       return;
@@ -793,19 +982,18 @@ public class MrpServiceImpl implements MrpService {
                 "self.product.id in (?1) AND self.purchaseOrder.stockLocation in (?2) AND self.receiptState != ?3 "
                     + "AND self.purchaseOrder.statusSelect IN (?4)",
                 productMap.keySet(),
-                this.stockLocationList,
+                context.getStockLocationList(),
                 PurchaseOrderRepository.STATE_RECEIVED,
                 statusList)
             .fetch();
 
-    for (PurchaseOrderLine purchaseOrderLine : purchaseOrderLineList) {
-
-      this.createPurchaseMrpLines(
-          mrpRepository.find(mrp.getId()),
-          purchaseOrderLineRepository.find(purchaseOrderLine.getId()),
-          mrpLineTypeRepository.find(purchaseOrderMrpLineType.getId()));
-      JPA.clear();
-    }
+    this.processInChunks(
+        purchaseOrderLineList,
+        purchaseOrderLine ->
+            this.createPurchaseMrpLines(
+                mrpRepository.find(context.getMrpId()),
+                purchaseOrderLineRepository.find(purchaseOrderLine.getId()),
+                mrpLineTypeRepository.find(purchaseOrderMrpLineType.getId())));
   }
 
   @Transactional(rollbackOn = {Exception.class})
@@ -856,18 +1044,19 @@ public class MrpServiceImpl implements MrpService {
   }
 
   protected void createSaleOrderMrpLines() throws AxelorException {
-    this.createSaleOrderMrpLines(this.productMap);
+    this.createSaleOrderMrpLines(context.getProductMap());
   }
 
   protected void createSaleOrderMrpLines(Map<Long, Integer> productMap) throws AxelorException {
     List<MrpLineType> saleOrderMrpLineTypeList =
         mrpLineTypeService.getMrpLineTypeList(
-            MrpLineTypeRepository.ELEMENT_SALE_ORDER, mrp.getMrpTypeSelect());
+            MrpLineTypeRepository.ELEMENT_SALE_ORDER, context.getMrpTypeSelect());
     if (saleOrderMrpLineTypeList == null || saleOrderMrpLineTypeList.isEmpty()) {
       return;
     }
 
-    mrp = mrpRepository.find(mrp.getId());
+    Mrp mrp = mrpRepository.find(context.getMrpId());
+    context.setMrp(mrp);
 
     List<SaleOrderLine> saleOrderLineList = new ArrayList<>();
 
@@ -900,24 +1089,28 @@ public class MrpServiceImpl implements MrpService {
                 .filter(
                     filter,
                     productMap.keySet(),
-                    this.stockLocationList,
+                    context.getStockLocationList(),
                     SaleOrderLineRepository.DELIVERY_STATE_DELIVERED,
                     statusList)
                 .fetch());
 
+        List<SaleOrderLine> filteredSaleOrderLineList = new ArrayList<>();
         for (SaleOrderLine saleOrderLine : saleOrderLineList) {
-
           if (saleOrderLine.getSaleOrder() != null
               && mrpSaleOrderCheckLateSaleService.checkLateSalesParameter(
                   saleOrderLine, saleOrderMrpLineType)) {
-            this.createSaleOrderMrpLines(
-                mrpRepository.find(mrp.getId()),
-                saleOrderLineRepository.find(saleOrderLine.getId()),
-                mrpLineTypeRepository.find(saleOrderMrpLineType.getId()),
-                statusList);
-            JPA.clear();
+            filteredSaleOrderLineList.add(saleOrderLine);
           }
         }
+
+        this.processInChunks(
+            filteredSaleOrderLineList,
+            saleOrderLine ->
+                this.createSaleOrderMrpLines(
+                    mrpRepository.find(context.getMrpId()),
+                    saleOrderLineRepository.find(saleOrderLine.getId()),
+                    mrpLineTypeRepository.find(saleOrderMrpLineType.getId()),
+                    statusList));
       }
       // If the MRP's list of saleOrderLines is not empty, treat all the selected lines instead
     } else {
@@ -927,39 +1120,44 @@ public class MrpServiceImpl implements MrpService {
         List<Integer> statusList =
             StringHelper.getIntegerList(saleOrderMrpLineType.getStatusSelect());
 
-        for (SaleOrderLine saleOrderLine : saleOrderLineList) {
-          if (saleOrderLine.getSaleOrder() != null) {
-            saleOrderLine = saleOrderLineRepository.find(saleOrderLine.getId());
-            if (this.productMap.keySet().contains(saleOrderLine.getProduct().getId())
-                && this.stockLocationList.contains(saleOrderLine.getSaleOrder().getStockLocation())
-                && saleOrderLine.getDeliveryState()
-                    != SaleOrderLineRepository.DELIVERY_STATE_DELIVERED
-                && statusList.contains(saleOrderLine.getSaleOrder().getStatusSelect())) {
-
-              // Checking the one off sales parameter
-              if (saleOrderMrpLineType.getIncludeOneOffSalesSelect()
-                      == MrpLineTypeRepository.ONE_OFF_SALES_INCLUDED
-                  || (saleOrderMrpLineType.getIncludeOneOffSalesSelect()
-                          == MrpLineTypeRepository.ONE_OFF_SALES_EXCLUDED
-                      && (!Boolean.TRUE.equals(saleOrderLine.getSaleOrder().getOneoffSale())))
-                  || (saleOrderMrpLineType.getIncludeOneOffSalesSelect()
-                          == MrpLineTypeRepository.ONE_OFF_SALES_ONLY
-                      && Boolean.TRUE.equals(saleOrderLine.getSaleOrder().getOneoffSale()))) {
-
-                // Checking the late sales parameter
-                if (mrpSaleOrderCheckLateSaleService.checkLateSalesParameter(
-                    saleOrderLine, saleOrderMrpLineType)) {
-                  this.createSaleOrderMrpLines(
-                      mrpRepository.find(mrp.getId()),
-                      saleOrderLine,
-                      mrpLineTypeRepository.find(saleOrderMrpLineType.getId()),
-                      statusList);
-                  JPA.clear();
+        this.processInChunks(
+            saleOrderLineList,
+            selectedSaleOrderLine -> {
+              if (selectedSaleOrderLine.getSaleOrder() == null) {
+                return;
+              }
+              SaleOrderLine saleOrderLine =
+                  saleOrderLineRepository.find(selectedSaleOrderLine.getId());
+              if (context.getProductMap().containsKey(saleOrderLine.getProduct().getId())
+                  && context
+                      .getStockLocationList()
+                      .contains(saleOrderLine.getSaleOrder().getStockLocation())
+                  && saleOrderLine.getDeliveryState()
+                      != SaleOrderLineRepository.DELIVERY_STATE_DELIVERED
+                  && statusList.contains(saleOrderLine.getSaleOrder().getStatusSelect())) {
+
+                // Checking the one off sales parameter
+                if (saleOrderMrpLineType.getIncludeOneOffSalesSelect()
+                        == MrpLineTypeRepository.ONE_OFF_SALES_INCLUDED
+                    || (saleOrderMrpLineType.getIncludeOneOffSalesSelect()
+                            == MrpLineTypeRepository.ONE_OFF_SALES_EXCLUDED
+                        && (!Boolean.TRUE.equals(saleOrderLine.getSaleOrder().getOneoffSale())))
+                    || (saleOrderMrpLineType.getIncludeOneOffSalesSelect()
+                            == MrpLineTypeRepository.ONE_OFF_SALES_ONLY
+                        && Boolean.TRUE.equals(saleOrderLine.getSaleOrder().getOneoffSale()))) {
+
+                  // Checking the late sales parameter
+                  if (mrpSaleOrderCheckLateSaleService.checkLateSalesParameter(
+                      saleOrderLine, saleOrderMrpLineType)) {
+                    this.createSaleOrderMrpLines(
+                        mrpRepository.find(context.getMrpId()),
+                        saleOrderLine,
+                        mrpLineTypeRepository.find(saleOrderMrpLineType.getId()),
+                        statusList);
+                  }
                 }
               }
-            }
-          }
-        }
+            });
       }
     }
   }
@@ -973,7 +1171,7 @@ public class MrpServiceImpl implements MrpService {
       throws AxelorException {
 
     SaleOrder saleOrder = saleOrderLine.getSaleOrder();
-    if (!this.stockLocationList.contains(saleOrder.getStockLocation())) {
+    if (!context.getStockLocationList().contains(saleOrder.getStockLocation())) {
       return;
     }
     if (!statusList.contains(saleOrder.getStatusSelect())) {
@@ -1023,14 +1221,14 @@ public class MrpServiceImpl implements MrpService {
   }
 
   protected void createSaleForecastMrpLines() throws AxelorException {
-    this.createSaleForecastMrpLines(this.productMap);
+    this.createSaleForecastMrpLines(context.getProductMap());
   }
 
   protected void createSaleForecastMrpLines(Map<Long, Integer> productMap) throws AxelorException {
 
     MrpLineType saleForecastMrpLineType =
         mrpLineTypeService.getMrpLineType(
-            MrpLineTypeRepository.ELEMENT_SALE_FORECAST, mrp.getMrpTypeSelect());
+            MrpLineTypeRepository.ELEMENT_SALE_FORECAST, context.getMrpTypeSelect());
 
     if (saleForecastMrpLineType == null) {
       return;
@@ -1038,7 +1236,8 @@ public class MrpServiceImpl implements MrpService {
 
     List<MrpForecast> mrpForecastList = new ArrayList<>();
 
-    mrp = mrpRepository.find(mrp.getId());
+    Mrp mrp = mrpRepository.find(context.getMrpId());
+    context.setMrp(mrp);
 
     if (mrp.getMrpForecastSet().isEmpty()) {
 
@@ -1048,8 +1247,8 @@ public class MrpServiceImpl implements MrpService {
               .filter(
                   "self.product.id in (?1) AND self.stockLocation in (?2) AND self.forecastDate >= ?3 AND self.statusSelect = ?4",
                   productMap.keySet(),
-                  this.stockLocationList,
-                  today,
+                  context.getStockLocationList(),
+                  context.getToday(),
                   MrpForecastRepository.STATUS_CONFIRMED)
               .fetch());
 
@@ -1057,41 +1256,41 @@ public class MrpServiceImpl implements MrpService {
       mrpForecastList.addAll(mrp.getMrpForecastSet());
     }
 
-    for (MrpForecast mrpForecast : mrpForecastList) {
-
-      this.createSaleForecastMrpLines(
-          mrpRepository.find(mrp.getId()),
-          mrpForecastRepository.find(mrpForecast.getId()),
-          mrpLineTypeRepository.find(saleForecastMrpLineType.getId()));
-      JPA.clear();
-    }
+    this.processInChunks(
+        mrpForecastList,
+        mrpForecast ->
+            this.createSaleForecastMrpLines(
+                mrpRepository.find(context.getMrpId()),
+                mrpForecastRepository.find(mrpForecast.getId()),
+                mrpLineTypeRepository.find(saleForecastMrpLineType.getId())));
   }
 
   protected void createStockHistoryMrpLines() throws AxelorException {
-    this.createStockHistoryMrpLines(this.productMap);
+    this.createStockHistoryMrpLines(context.getProductMap());
   }
 
   protected void createStockHistoryMrpLines(Map<Long, Integer> productMap) throws AxelorException {
     MrpLineType stockHistoryMrpLineType =
         mrpLineTypeService.getMrpLineType(
-            MrpLineTypeRepository.ELEMENT_STOCK_HISTORY, mrp.getMrpTypeSelect());
+            MrpLineTypeRepository.ELEMENT_STOCK_HISTORY, context.getMrpTypeSelect());
 
     if (stockHistoryMrpLineType == null) {
       return;
     }
 
-    this.mrp = mrpRepository.find(mrp.getId());
+    context.setMrp(mrpRepository.find(context.getMrpId()));
 
-    for (Long productId : productMap.keySet()) {
-      Product product = productRepository.find(productId);
-      Mrp mrp = mrpRepository.find(this.mrp.getId());
-      this.createStockHistoryWeigthedLine(
-          product,
-          mrp,
-          mrpLineTypeRepository.find(stockHistoryMrpLineType.getId()),
-          stockLocationRepository.find(mrp.getStockLocation().getId()));
-      JPA.clear();
-    }
+    this.processInChunks(
+        new ArrayList<>(productMap.keySet()),
+        productId -> {
+          Product product = productRepository.find(productId);
+          Mrp mrp = mrpRepository.find(context.getMrpId());
+          this.createStockHistoryWeigthedLine(
+              product,
+              mrp,
+              mrpLineTypeRepository.find(stockHistoryMrpLineType.getId()),
+              stockLocationRepository.find(mrp.getStockLocation().getId()));
+        });
   }
 
   @Transactional(rollbackOn = {Exception.class})
@@ -1179,6 +1378,7 @@ public class MrpServiceImpl implements MrpService {
   }
 
   protected LocalDate computeStockHistoryMrpLineDate(LocalDate date) {
+    LocalDate today = context.getToday();
     if (!date.isBefore(today)) {
       date = date.withDayOfMonth(1);
     } else {
@@ -1196,6 +1396,7 @@ public class MrpServiceImpl implements MrpService {
     Mapper mapper = Mapper.of(StockHistoryLine.class);
     Method getter = mapper.getGetter(mrpLineType.getMetaField().getName());
     BigDecimal fieldValue = (BigDecimal) getter.invoke(stockHistoryLine);
+    LocalDate today = context.getToday();
     if (date.isBefore(today)) {
       fieldValue = computeProrata(fieldValue, today);
     }
@@ -1232,7 +1433,9 @@ public class MrpServiceImpl implements MrpService {
     StringBuilder querySb =
         new StringBuilder("self.product.id = :productId AND DATE(self.label) >= :startDate ");
     bindings.put("productId", product.getId());
-    bindings.put("startDate", today.minusMonths(mrpLineType.getOffsetInMonths()).withDayOfMonth(1));
+    bindings.put(
+        "startDate",
+        context.getToday().minusMonths(mrpLineType.getOffsetInMonths()).withDayOfMonth(1));
     String fieldName = mrpLineType.getMetaField().getName();
 
     // Field name can not be null
@@ -1265,7 +1468,7 @@ public class MrpServiceImpl implements MrpService {
     LocalDate maturityDate = mrpForecast.getForecastDate();
 
     if (maturityDate != null
-        && !maturityDate.isBefore(today)
+        && !maturityDate.isBefore(context.getToday())
         && this.isBeforeEndDate(maturityDate)) {
       Unit unit = mrpForecast.getProduct().getUnit();
       BigDecimal qty = mrpForecast.getQty();
@@ -1291,6 +1494,7 @@ public class MrpServiceImpl implements MrpService {
   }
 
   protected LocalDate computeMaturityDate(LocalDate maturityDate, MrpLineType mrpLineType) {
+    LocalDate today = context.getToday();
     if ((maturityDate != null && maturityDate.isBefore(today))
         || (maturityDate == null && mrpLineType.getIncludeElementWithoutDate())) {
       maturityDate = today;
@@ -1299,12 +1503,12 @@ public class MrpServiceImpl implements MrpService {
   }
 
   public boolean isBeforeEndDate(LocalDate maturityDate) {
-    return maturityDate != null
-        && (mrp.getEndDate() == null || !maturityDate.isAfter(mrp.getEndDate()));
+    LocalDate endDate = context.getEndDate();
+    return maturityDate != null && (endDate == null || !maturityDate.isAfter(endDate));
   }
 
   protected void createAvailableStockMrpLines() throws AxelorException {
-    this.createAvailableStockMrpLines(this.productMap);
+    this.createAvailableStockMrpLines(context.getProductMap());
   }
 
   protected void createAvailableStockMrpLines(Map<Long, Integer> productMap)
@@ -1312,35 +1516,36 @@ public class MrpServiceImpl implements MrpService {
 
     MrpLineType availableStockMrpLineType =
         mrpLineTypeService.getMrpLineType(
-            MrpLineTypeRepository.ELEMENT_AVAILABLE_STOCK, mrp.getMrpTypeSelect());
+            MrpLineTypeRepository.ELEMENT_AVAILABLE_STOCK, context.getMrpTypeSelect());
 
     if (availableStockMrpLineType == null) {
       return;
     }
 
-    for (Long productId : productMap.keySet()) {
-      Mrp mrp = mrpRepository.find(this.mrp.getId());
-      if (mrp.getComputeWithSubStockLocation()) {
-        for (StockLocation stockLocation : this.stockLocationList) {
-          this.createAvailableStockMrpLine(
-              mrp,
-              productRepository.find(productId),
-              stockLocationRepository.find(stockLocation.getId()),
-              mrpLineTypeRepository.find(availableStockMrpLineType.getId()));
-        }
-      } else {
-        Product product = productRepository.find(productId);
-        StockLocation stockLocation = mrp.getStockLocation();
-        BigDecimal qty = computeTotalQuantityFromSubStockLocations(product);
-        this.createAvailableStockMrpLine(
-            mrp,
-            product,
-            qty,
-            stockLocationRepository.find(stockLocation.getId()),
-            mrpLineTypeRepository.find(availableStockMrpLineType.getId()));
-      }
-      JPA.clear();
-    }
+    this.processInChunks(
+        new ArrayList<>(productMap.keySet()),
+        productId -> {
+          Mrp mrp = mrpRepository.find(context.getMrpId());
+          if (mrp.getComputeWithSubStockLocation()) {
+            for (StockLocation stockLocation : context.getStockLocationList()) {
+              this.createAvailableStockMrpLine(
+                  mrp,
+                  productRepository.find(productId),
+                  stockLocationRepository.find(stockLocation.getId()),
+                  mrpLineTypeRepository.find(availableStockMrpLineType.getId()));
+            }
+          } else {
+            Product product = productRepository.find(productId);
+            StockLocation stockLocation = mrp.getStockLocation();
+            BigDecimal qty = computeTotalQuantityFromSubStockLocations(product);
+            this.createAvailableStockMrpLine(
+                mrp,
+                product,
+                qty,
+                stockLocationRepository.find(stockLocation.getId()),
+                mrpLineTypeRepository.find(availableStockMrpLineType.getId()));
+          }
+        });
   }
 
   protected BigDecimal computeTotalQuantityFromSubStockLocations(Product product) {
@@ -1351,7 +1556,7 @@ public class MrpServiceImpl implements MrpService {
                         + "FROM StockLocationLine self "
                         + "WHERE self.stockLocation in (:stockLocationLineList) AND self.product = :product",
                     BigDecimal.class)
-                .setParameter("stockLocationLineList", this.stockLocationList)
+                .setParameter("stockLocationLineList", context.getStockLocationList())
                 .setParameter("product", product)
                 .getSingleResult())
         .orElse(BigDecimal.ZERO);
@@ -1385,7 +1590,14 @@ public class MrpServiceImpl implements MrpService {
 
     return mrpLineRepository.save(
         this.createMrpLine(
-            mrp, product, availableStockMrpLineType, qty, today, qty, stockLocation, null));
+            mrp,
+            product,
+            availableStockMrpLineType,
+            qty,
+            context.getToday(),
+            qty,
+            stockLocation,
+            null));
   }
 
   protected StockLocationLine getStockLocationLine(Product product, StockLocation stockLocation) {
@@ -1401,6 +1613,7 @@ public class MrpServiceImpl implements MrpService {
 
   protected Set<Product> getProductList() throws AxelorException {
 
+    Mrp mrp = context.getMrp();
     Set<Product> productSet = Sets.newHashSet();
 
     if (mrp.getProductSet() != null && !mrp.getProductSet().isEmpty()) {
@@ -1484,7 +1697,7 @@ public class MrpServiceImpl implements MrpService {
 
   protected void assignProductAndLevel(Set<Product> productList) throws AxelorException {
 
-    productMap = Maps.newHashMap();
+    context.getProductMap().clear();
 
     for (Product product : productList) {
 
@@ -1495,7 +1708,7 @@ public class MrpServiceImpl implements MrpService {
   protected void assignProductAndLevel(Product product) throws AxelorException {
 
     log.debug("Add of the product : {}", product.getFullName());
-    this.productMap.put(product.getId(), 0);
+    context.getProductMap().put(product.getId(), 0);
   }
 
   protected MrpLine createMrpLine(
@@ -1509,22 +1722,18 @@ public class MrpServiceImpl implements MrpService {
       Model model)
       throws AxelorException {
 
-    if (productMap != null && product != null) {
+    if (context != null && product != null) {
       if (product.getUnit() == null) {
         throw new AxelorException(
             TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
             I18n.get(SupplychainExceptionMessage.MRP_NO_PRODUCT_UNIT),
             product.getFullName());
       }
-      if (!this.productMap.containsKey(product.getId())) {
-        int nextLevel = currentLevel + 1;
-        this.productMap.put(product.getId(), nextLevel);
-        this.productMapToBeAssigned.put(product.getId(), nextLevel);
-      }
+      context.addProductToBeAssigned(product.getId());
       return mrpLineService.createMrpLine(
           mrp,
           product,
-          this.productMap.get(product.getId()),
+          context.getProductMap().get(product.getId()),
           mrpLineType,
           qty,
           maturityDate,
@@ -1563,7 +1772,7 @@ public class MrpServiceImpl implements MrpService {
       return mrpLine.getMaturityDate();
     }
 
-    return today;
+    return appBaseService.getTodayDate(mrp.getStockLocation().getCompany());
   }
 
   @Override
@@ -1578,26 +1787,26 @@ public class MrpServiceImpl implements MrpService {
   protected Mrp completeProjectedStock(
       Mrp mrp, Product product, Company company, StockLocation stockLocation)
       throws AxelorException {
-    this.mrp = mrp;
+    this.context = this.createContext(mrp);
     mrp.addProductSetItem(product);
     if (stockLocation != null) {
-      this.stockLocationList =
-          stockLocationService.getAllLocationAndSubLocation(mrp.getStockLocation(), false);
+      context.setStockLocationList(
+          stockLocationService.getAllLocationAndSubLocation(mrp.getStockLocation(), false));
     } else if (company != null) {
-      this.stockLocationList =
+      context.setStockLocationList(
           stockLocationRepository
               .all()
               .filter(
                   "self.company.id = ?1 AND self.typeSelect != ?2",
                   company.getId(),
                   StockLocationRepository.TYPE_VIRTUAL)
-              .fetch();
+              .fetch());
     } else {
-      this.stockLocationList =
+      context.setStockLocationList(
           stockLocationRepository
               .all()
               .filter("self.typeSelect != ?1", StockLocationRepository.TYPE_VIRTUAL)
-              .fetch();
+              .fetch());
     }
     reset(mrpRepository.find(mrp.getId()));
     this.startMrp(mrpRepository.find(mrp.getId()));
@@ -1621,6 +1830,7 @@ public class MrpServiceImpl implements MrpService {
 
   @Override
   public Mrp call() throws AxelorException {
+    Mrp mrp = context.getMrp();
     final RequestScoper scope = ServletScopes.scopeRequest(Collections.emptyMap());
     try (RequestScoper.CloseableScope ignored = scope.open()) {
       this.runCalculation(mrp);
@@ -1641,6 +1851,7 @@ public class MrpServiceImpl implements MrpService {
 
   @Transactional
   protected void onRunnerException(Exception e) {
+    Mrp mrp = context.getMrp();
     TraceBackService.trace(e);
     mailMessageService.sendNotification(
         AuthUtils.getUser(),
@@ -27,6 +27,8 @@ import com.axelor.apps.stock.db.StockLocationLine;
 import com.axelor.apps.stock.db.StockMove;
 import com.axelor.apps.stock.db.StockMoveLine;
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A service which contains all methods managing the reservation feature. The purpose of this
@@ -296,10 +298,26 @@ public interface ReservedQtyService {
    */
   void allocateAll(SaleOrderLine saleOrderLine) throws AxelorException;
 
+  /**
+   * Create a reservation and allocate as much quantity as we can for every line, fetching the stock
+   * of their products at once.
+   *
+   * @param saleOrderLineList
+   */
+  void allocateAll(List<SaleOrderLine> saleOrderLineList) throws AxelorException;
+
   /**
    * Create a reservation and allocate as much quantity as we can.
    *
    * @param stockMoveLine
    */
   void allocateAll(StockMoveLine stockMoveLine) throws AxelorException;
+
+  /**
+   * Fetch the planned stock move line of each of the given sale order lines in one query.
+   *
+   * @param saleOrderLineList
+   * @return the planned stock move lines by sale order line id
+   */
+  Map<Long, StockMoveLine> getPlannedStockMoveLineMap(List<SaleOrderLine> saleOrderLineList);
 }
@@ -34,6 +34,8 @@ import com.axelor.apps.stock.db.StockMoveLine;
 import com.axelor.apps.stock.db.repo.StockLocationRepository;
 import com.axelor.apps.stock.db.repo.StockMoveLineRepository;
 import com.axelor.apps.stock.db.repo.StockMoveRepository;
+import com.axelor.apps.stock.service.StockAvailabilityRequest;
+import com.axelor.apps.stock.service.StockAvailabilityService;
 import com.axelor.apps.stock.service.StockLocationLineService;
 import com.axelor.apps.supplychain.db.SupplyChainConfig;
 import com.axelor.apps.supplychain.exception.SupplychainExceptionMessage;
@@ -45,7 +47,9 @@ import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import java.math.BigDecimal;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -58,6 +62,7 @@ public class ReservedQtyServiceImpl implements ReservedQtyService {
   protected UnitConversionService unitConversionService;
   protected SupplyChainConfigService supplychainConfigService;
   protected AppBaseService appBaseService;
+  protected StockAvailabilityService stockAvailabilityService;
 
   @Inject
   public ReservedQtyServiceImpl(
@@ -65,12 +70,14 @@ public class ReservedQtyServiceImpl implements ReservedQtyService {
       StockMoveLineRepository stockMoveLineRepository,
       UnitConversionService unitConversionService,
       SupplyChainConfigService supplyChainConfigService,
-      AppBaseService appBaseService) {
+      AppBaseService appBaseService,
+      StockAvailabilityService stockAvailabilityService) {
     this.stockLocationLineService = stockLocationLineService;
     this.stockMoveLineRepository = stockMoveLineRepository;
     this.unitConversionService = unitConversionService;
     this.supplychainConfigService = supplyChainConfigService;
     this.appBaseService = appBaseService;
+    this.stockAvailabilityService = stockAvailabilityService;
   }
 
   @Override
@@ -870,6 +877,37 @@ public class ReservedQtyServiceImpl implements ReservedQtyService {
         .fetchOne();
   }
 
+  /**
+   * Fetches the planned stock move line of each sale order line, as {@link
+   * #getPlannedStockMoveLine(SaleOrderLine)} does, in one query.
+   *
+   * @return the stock move lines by sale order line id
+   */
+  @Override
+  public Map<Long, StockMoveLine> getPlannedStockMoveLineMap(
+      List<SaleOrderLine> saleOrderLineList) {
+    Map<Long, StockMoveLine> stockMoveLineMap = new HashMap<>();
+    if (saleOrderLineList.isEmpty()) {
+      return stockMoveLineMap;
+    }
+    List<StockMoveLine> stockMoveLineList =
+        stockMoveLineRepository
+            .all()
+            .filter(
+                "self.saleOrderLine.id IN (:saleOrderLineIds) "
+                    + "AND self.stockMove.statusSelect = :planned")
+            .bind(
+                "saleOrderLineIds",
+                saleOrderLineList.stream().map(SaleOrderLine::getId).collect(Collectors.toList()))
+            .bind("planned", StockMoveRepository.STATUS_PLANNED)
+            .order("id")
+            .fetch();
+    for (StockMoveLine stockMoveLine : stockMoveLineList) {
+      stockMoveLineMap.putIfAbsent(stockMoveLine.getSaleOrderLine().getId(), stockMoveLine);
+    }
+    return stockMoveLineMap;
+  }
+
   /** Convert but with null check. Return start value if one unit is null. */
   protected BigDecimal convertUnitWithProduct(
       Unit startUnit, Unit endUnit, BigDecimal qtyToConvert, Product product)
@@ -975,16 +1013,71 @@ public class ReservedQtyServiceImpl implements ReservedQtyService {
     // request the maximum quantity
     requestQty(saleOrderLine);
     StockMoveLine stockMoveLine = getPlannedStockMoveLine(saleOrderLine);
+    allocateAll(saleOrderLine, stockMoveLine, null);
+  }
 
+  @Override
+  public void allocateAll(List<SaleOrderLine> saleOrderLineList) throws AxelorException {
+    saleOrderLineList =
+        saleOrderLineList.stream()
+            .filter(
+                saleOrderLine ->
+                    saleOrderLine.getProduct() != null
+                        && saleOrderLine.getProduct().getStockManaged())
+            .collect(Collectors.toList());
+    if (saleOrderLineList.isEmpty()) {
+      return;
+    }
+
+    Map<Long, StockMoveLine> stockMoveLineMap = getPlannedStockMoveLineMap(saleOrderLineList);
+    Map<StockAvailabilityRequest, StockLocationLine> stockLocationLineMap =
+        stockAvailabilityService.getStockLocationLines(
+            stockMoveLineMap.values().stream()
+                .map(
+                    stockMoveLine ->
+                        new StockAvailabilityRequest(
+                            stockMoveLine.getProduct(), stockMoveLine.getFromStockLocation()))
+                .collect(Collectors.toSet()));
+
+    for (SaleOrderLine saleOrderLine : saleOrderLineList) {
+      // request the maximum quantity
+      requestQty(saleOrderLine);
+      StockMoveLine stockMoveLine = stockMoveLineMap.get(saleOrderLine.getId());
+      StockLocationLine stockLocationLine =
+          stockMoveLine != null
+              ? stockLocationLineMap.get(
+                  new StockAvailabilityRequest(
+                      stockMoveLine.getProduct(), stockMoveLine.getFromStockLocation()))
+              : null;
+      allocateAll(saleOrderLine, stockMoveLine, stockLocationLine);
+    }
+  }
+
+  /**
+   * Allocate as much quantity as we can on the sale order line, once its quantity is requested.
+   *
+   * @param saleOrderLine
+   * @param stockMoveLine the planned stock move line of the sale order line
+   * @param stockLocationLine the stock location line of the product in the location of the stock
+   *     move line, fetched or created if null
+   * @throws AxelorException
+   */
+  protected void allocateAll(
+      SaleOrderLine saleOrderLine,
+      StockMoveLine stockMoveLine,
+      StockLocationLine stockLocationLine)
+      throws AxelorException {
     if (stockMoveLine == null) {
       throw new AxelorException(
           TraceBackRepository.CATEGORY_INCONSISTENCY,
           I18n.get(SupplychainExceptionMessage.SALE_ORDER_LINE_NO_STOCK_MOVE));
     }
     // search for the maximum quantity that can be allocated.
-    StockLocationLine stockLocationLine =
-        stockLocationLineService.getOrCreateStockLocationLine(
-            stockMoveLine.getFromStockLocation(), stockMoveLine.getProduct());
+    if (stockLocationLine == null) {
+      stockLocationLine =
+          stockLocationLineService.getOrCreateStockLocationLine(
+              stockMoveLine.getFromStockLocation(), stockMoveLine.getProduct());
+    }
     BigDecimal availableQtyToBeReserved =
         stockLocationLine.getCurrentQty().subtract(stockLocationLine.getReservedQty());
     Product product = stockMoveLine.getProduct();
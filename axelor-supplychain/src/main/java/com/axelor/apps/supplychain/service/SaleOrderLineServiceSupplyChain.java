@@ -19,10 +19,15 @@
 package com.axelor.apps.supplychain.service;
 
 import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Product;
+import com.axelor.apps.sale.db.SaleOrder;
 import com.axelor.apps.sale.db.SaleOrderLine;
 import com.axelor.apps.sale.service.saleorder.SaleOrderLineService;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.tuple.Pair;
 
 public interface SaleOrderLineServiceSupplyChain extends SaleOrderLineService {
 
@@ -86,4 +91,16 @@ public interface SaleOrderLineServiceSupplyChain extends SaleOrderLineService {
    * @param saleOrderLine a sale order line managed by hibernate
    */
   void updateStockMoveReservationDateTime(SaleOrderLine saleOrderLine) throws AxelorException;
+
+  /**
+   * Returns the available and allocated stock of the given products in the stock location of the
+   * sale order, as {@link #getAvailableStock} and {@link #getAllocatedStock} do for a single line,
+   * with one query for all the products.
+   *
+   * @param saleOrder
+   * @param products
+   * @return the available and allocated stock of each product id
+   */
+  Map<Long, Pair<BigDecimal, BigDecimal>> getAvailableAndAllocatedStock(
+      SaleOrder saleOrder, Collection<Product> products);
 }
@@ -49,6 +49,8 @@ import com.axelor.apps.stock.db.StockLocationLine;
 import com.axelor.apps.stock.db.repo.StockLocationRepository;
 import com.axelor.apps.stock.db.repo.StockMoveLineRepository;
 import com.axelor.apps.stock.db.repo.StockMoveRepository;
+import com.axelor.apps.stock.service.StockAvailabilityRequest;
+import com.axelor.apps.stock.service.StockAvailabilityService;
 import com.axelor.apps.stock.service.StockLocationLineService;
 import com.axelor.apps.stock.service.StockLocationService;
 import com.axelor.apps.supplychain.db.repo.SupplyChainConfigRepository;
@@ -66,10 +68,14 @@ import com.google.inject.persist.Transactional;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 import javax.persistence.TypedQuery;
+import org.apache.commons.lang3.tuple.Pair;
 
 public class SaleOrderLineServiceSupplyChainImpl extends SaleOrderLineServiceImpl
     implements SaleOrderLineServiceSupplyChain {
@@ -173,6 +179,45 @@ public class SaleOrderLineServiceSupplyChainImpl extends SaleOrderLineServiceImp
     return stockLocationLine.getReservedQty();
   }
 
+  @Override
+  public Map<Long, Pair<BigDecimal, BigDecimal>> getAvailableAndAllocatedStock(
+      SaleOrder saleOrder, Collection<Product> products) {
+    Map<Long, Pair<BigDecimal, BigDecimal>> stockMap = new HashMap<>();
+
+    if (!appAccountService.isApp("supplychain")) {
+      for (Product product : products) {
+        SaleOrderLine saleOrderLine = new SaleOrderLine();
+        saleOrderLine.setProduct(product);
+        stockMap.put(
+            product.getId(),
+            Pair.of(
+                super.getAvailableStock(saleOrder, saleOrderLine),
+                super.getAllocatedStock(saleOrder, saleOrderLine)));
+      }
+      return stockMap;
+    }
+
+    Map<Long, StockAvailabilityRequest> requestMap = new HashMap<>();
+    for (Product product : products) {
+      requestMap.putIfAbsent(
+          product.getId(), new StockAvailabilityRequest(product, saleOrder.getStockLocation()));
+    }
+    Map<StockAvailabilityRequest, StockLocationLine> lineMap =
+        Beans.get(StockAvailabilityService.class).getStockLocationLines(requestMap.values());
+
+    for (Map.Entry<Long, StockAvailabilityRequest> entry : requestMap.entrySet()) {
+      StockLocationLine stockLocationLine = lineMap.get(entry.getValue());
+      stockMap.put(
+          entry.getKey(),
+          stockLocationLine == null
+              ? Pair.of(BigDecimal.ZERO, BigDecimal.ZERO)
+              : Pair.of(
+                  stockLocationLine.getCurrentQty().subtract(stockLocationLine.getReservedQty()),
+                  stockLocationLine.getReservedQty()));
+    }
+    return stockMap;
+  }
+
   @Override
   public BigDecimal computeUndeliveredQty(SaleOrderLine saleOrderLine) {
     Preconditions.checkNotNull(saleOrderLine);
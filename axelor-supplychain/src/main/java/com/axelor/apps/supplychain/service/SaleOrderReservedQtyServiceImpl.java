@@ -23,12 +23,12 @@ import com.axelor.apps.sale.db.SaleOrder;
 import com.axelor.apps.sale.db.SaleOrderLine;
 import com.axelor.apps.stock.db.StockMoveLine;
 import com.axelor.apps.stock.db.repo.StockMoveLineRepository;
-import com.axelor.apps.stock.db.repo.StockMoveRepository;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class SaleOrderReservedQtyServiceImpl implements SaleOrderReservedQtyService {
@@ -46,9 +46,7 @@ public class SaleOrderReservedQtyServiceImpl implements SaleOrderReservedQtyServ
   @Override
   @Transactional(rollbackOn = {Exception.class})
   public void allocateAll(SaleOrder saleOrder) throws AxelorException {
-    for (SaleOrderLine saleOrderLine : getNonDeliveredLines(saleOrder)) {
-      reservedQtyService.allocateAll(saleOrderLine);
-    }
+    reservedQtyService.allocateAll(getNonDeliveredLines(saleOrder));
   }
 
   @Override
@@ -75,23 +73,16 @@ public class SaleOrderReservedQtyServiceImpl implements SaleOrderReservedQtyServ
     }
   }
 
+  /** Returns the lines of the sale order having a planned stock move line, fetched at once. */
   protected List<SaleOrderLine> getNonDeliveredLines(SaleOrder saleOrder) {
     List<SaleOrderLine> saleOrderLineList =
         saleOrder.getSaleOrderLineList() == null
             ? new ArrayList<>()
             : saleOrder.getSaleOrderLineList();
+    Map<Long, StockMoveLine> stockMoveLineMap =
+        reservedQtyService.getPlannedStockMoveLineMap(saleOrderLineList);
     return saleOrderLineList.stream()
-        .filter(saleOrderLine -> getPlannedStockMoveLine(saleOrderLine) != null)
+        .filter(saleOrderLine -> stockMoveLineMap.containsKey(saleOrderLine.getId()))
         .collect(Collectors.toList());
   }
-
-  protected StockMoveLine getPlannedStockMoveLine(SaleOrderLine saleOrderLine) {
-    return stockMoveLineRepository
-        .all()
-        .filter(
-            "self.saleOrderLine = :saleOrderLine " + "AND self.stockMove.statusSelect = :planned")
-        .bind("saleOrderLine", saleOrderLine)
-        .bind("planned", StockMoveRepository.STATUS_PLANNED)
-        .fetchOne();
-  }
 }
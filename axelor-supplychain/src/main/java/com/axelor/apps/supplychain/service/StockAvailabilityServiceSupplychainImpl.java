@@ -0,0 +1,60 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.supplychain.service;
+
+import com.axelor.apps.base.service.UnitConversionService;
+import com.axelor.apps.stock.db.StockLocationLine;
+import com.axelor.apps.stock.db.repo.StockLocationLineRepository;
+import com.axelor.apps.stock.service.StockAvailabilityServiceImpl;
+import com.axelor.apps.supplychain.service.app.AppSupplychainService;
+import com.google.inject.Inject;
+import java.math.BigDecimal;
+
+public class StockAvailabilityServiceSupplychainImpl extends StockAvailabilityServiceImpl {
+
+  protected AppSupplychainService appSupplychainService;
+
+  @Inject
+  public StockAvailabilityServiceSupplychainImpl(
+      StockLocationLineRepository stockLocationLineRepo,
+      UnitConversionService unitConversionService,
+      AppSupplychainService appSupplychainService) {
+    super(stockLocationLineRepo, unitConversionService);
+    this.appSupplychainService = appSupplychainService;
+  }
+
+  @Override
+  protected BigDecimal getAvailableQty(StockLocationLine stockLocationLine) {
+    if (!appSupplychainService.isApp("supplychain")) {
+      return super.getAvailableQty(stockLocationLine);
+    }
+    return stockLocationLine.getCurrentQty().subtract(stockLocationLine.getReservedQty());
+  }
+
+  @Override
+  protected BigDecimal getTrackingNumberAvailableQty(StockLocationLine detailStockLocationLine) {
+    if (!appSupplychainService.isApp("supplychain")
+        || !appSupplychainService.getAppSupplychain().getManageStockReservation()) {
+      return super.getTrackingNumberAvailableQty(detailStockLocationLine);
+    }
+    return detailStockLocationLine
+        .getCurrentQty()
+        .subtract(detailStockLocationLine.getReservedQty());
+  }
+}
@@ -28,6 +28,7 @@ import com.axelor.apps.stock.db.repo.StockLocationRepository;
 import com.axelor.apps.stock.db.repo.StockRulesRepository;
 import com.axelor.apps.stock.service.StockLocationLineService;
 import com.axelor.apps.stock.service.StockLocationServiceImpl;
+import com.axelor.apps.stock.service.StockLocationTreeIndex;
 import com.axelor.apps.stock.service.config.StockConfigService;
 import com.google.inject.Inject;
 import java.math.BigDecimal;
@@ -46,7 +47,8 @@ public class StockLocationServiceSupplychainImpl extends StockLocationServiceImp
       UnitRepository unitRepository,
       UnitConversionService unitConversionService,
       StockRulesRepository stockRulesRepository,
-      StockLocationLineRepository stockLocationLineRepository) {
+      StockLocationLineRepository stockLocationLineRepository,
+      StockLocationTreeIndex stockLocationTreeIndex) {
     super(
         stockLocationRepo,
         stockLocationLineService,
@@ -56,7 +58,8 @@ public class StockLocationServiceSupplychainImpl extends StockLocationServiceImp
         unitRepository,
         unitConversionService,
         stockRulesRepository,
-        stockLocationLineRepository);
+        stockLocationLineRepository,
+        stockLocationTreeIndex);
   }
 
   @Override
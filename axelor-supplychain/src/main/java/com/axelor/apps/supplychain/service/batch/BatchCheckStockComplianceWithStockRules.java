@@ -22,6 +22,7 @@ import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Product;
 import com.axelor.apps.base.db.repo.BatchRepository;
 import com.axelor.apps.base.service.administration.AbstractBatch;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.stock.db.StockLocation;
 import com.axelor.apps.stock.db.StockLocationLine;
@@ -42,7 +43,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
-import javax.persistence.TypedQuery;
 
 public class BatchCheckStockComplianceWithStockRules extends AbstractBatch {
 
@@ -69,16 +69,12 @@ public class BatchCheckStockComplianceWithStockRules extends AbstractBatch {
   @Override
   protected void process() {
 
-    int offset = 0;
-    Map<StockRules, List<StockLocationLine>> stockLocationLinesByStockRules;
-    while ((stockLocationLinesByStockRules =
-            getNonCompliantStockLocationLinesByStockRules(AbstractBatch.FETCH_LIMIT, offset))
-        != null) {
-      if (ObjectUtils.isEmpty(stockLocationLinesByStockRules)) {
-        offset += AbstractBatch.FETCH_LIMIT;
-        JPA.clear();
-        continue;
-      }
+    ChunkedQuery<StockLocationLine> query = getStockLocationLinesToCheck();
+    List<StockLocationLine> stockLocationLineList;
+    while (!(stockLocationLineList = query.fetchNext()).isEmpty()) {
+      findBatch();
+      Map<StockRules, List<StockLocationLine>> stockLocationLinesByStockRules =
+          getNonCompliantStockLocationLinesByStockRules(stockLocationLineList);
       for (Map.Entry<StockRules, List<StockLocationLine>> stockLocationsByStockRule :
           stockLocationLinesByStockRules.entrySet()) {
         StockRules stockRule = stockLocationsByStockRule.getKey();
@@ -92,9 +88,8 @@ public class BatchCheckStockComplianceWithStockRules extends AbstractBatch {
             TraceBackService.trace(e, null, batch.getId());
           }
         }
-        offset += AbstractBatch.FETCH_LIMIT;
-        JPA.clear();
       }
+      JPA.clear();
     }
   }
 
@@ -106,17 +101,14 @@ public class BatchCheckStockComplianceWithStockRules extends AbstractBatch {
   }
 
   public Map<StockRules, List<StockLocationLine>> getNonCompliantStockLocationLinesByStockRules(
-      int fetchLimit, int offset) {
+      List<StockLocationLine> stockLocationLineList) {
 
     Map<StockRules, List<StockLocationLine>> stockLocationLineByStockRules = new HashMap<>();
 
+    /* Don't change the groupingBy lambda expression to a method reference, it will throw a ClassNotFoundException */
     Map<StockLocation, List<StockLocationLine>> stockLocationLinesByStockLocation =
-        getStockLocationLinesByStockLocationsToCheck(fetchLimit, offset);
-
-    if (ObjectUtils.isEmpty(stockLocationLinesByStockLocation)) {
-      /* This null serves as an escape for the calling while loop, since this method can return an empty list for a call and a list with elements for the next call, this null serves an indicator that all the subsequent calls will have no elements */
-      return null;
-    }
+        stockLocationLineList.stream()
+            .collect(Collectors.groupingBy(sll -> sll.getStockLocation()));
 
     for (Map.Entry<StockLocation, List<StockLocationLine>> mapEntry :
         stockLocationLinesByStockLocation.entrySet()) {
@@ -171,37 +163,25 @@ public class BatchCheckStockComplianceWithStockRules extends AbstractBatch {
         .fetch();
   }
 
-  public Map<StockLocation, List<StockLocationLine>> getStockLocationLinesByStockLocationsToCheck(
-      int fetchLimit, int offset) {
+  public ChunkedQuery<StockLocationLine> getStockLocationLinesToCheck() {
     SupplychainBatch supplychainBatch = batch.getSupplychainBatch();
     Set<StockRules> usedStockRules = supplychainBatch.getUsedStockRulesSet();
 
-    StringBuilder query = new StringBuilder();
-    Map<String, Object> parameterMap = new HashMap<>();
-    query.append("SELECT sll FROM StockLocationLine sll WHERE sll.stockLocation is not null");
-
-    if (!ObjectUtils.isEmpty(usedStockRules)) {
-      query.append(" AND sll.product.id IN :productIds");
-      parameterMap.put(
-          "productIds",
-          usedStockRules.stream()
-              .map(StockRules::getProduct)
-              .map(Product::getId)
-              .distinct()
-              .collect(Collectors.toList()));
-    }
-    query.append(" ORDER BY sll.stockLocation.id,sll.id desc");
+    ChunkedQuery<StockLocationLine> query = chunkedQuery(StockLocationLine.class);
 
-    TypedQuery<StockLocationLine> typedQuery =
-        JPA.em()
-            .createQuery(query.toString(), StockLocationLine.class)
-            .setMaxResults(fetchLimit)
-            .setFirstResult(offset);
-    parameterMap.forEach(typedQuery::setParameter);
+    if (ObjectUtils.isEmpty(usedStockRules)) {
+      return query.filter("self.stockLocation IS NOT NULL");
+    }
 
-    /* Don't change the groupingBy lambda expression to a method reference, it will throw a ClassNotFoundException */
-    return typedQuery.getResultList().stream()
-        .collect(Collectors.groupingBy(sll -> sll.getStockLocation()));
+    return query
+        .filter("self.stockLocation IS NOT NULL AND self.product.id IN :productIds")
+        .bind(
+            "productIds",
+            usedStockRules.stream()
+                .map(StockRules::getProduct)
+                .map(Product::getId)
+                .distinct()
+                .collect(Collectors.toList()));
   }
 
   @Override
@@ -24,14 +24,20 @@ import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.sale.db.SaleOrder;
+import com.axelor.apps.sale.db.repo.SaleOrderRepository;
 import com.axelor.apps.supplychain.exception.SupplychainExceptionMessage;
 import com.axelor.apps.supplychain.service.SaleOrderInvoiceService;
 import com.axelor.apps.supplychain.service.invoice.SubscriptionInvoiceService;
 import com.axelor.db.JPA;
+import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import java.lang.invoke.MethodHandles;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +47,8 @@ public class BatchInvoicing extends BatchStrategy {
 
   @Inject private SubscriptionInvoiceService subscriptionInvoiceService;
 
+  @Inject private SaleOrderRepository saleOrderRepo;
+
   @Inject
   public BatchInvoicing(SaleOrderInvoiceService saleOrderInvoiceService) {
 
@@ -50,14 +58,39 @@ public class BatchInvoicing extends BatchStrategy {
   @Override
   protected void process() {
 
-    List<SaleOrder> saleOrders = subscriptionInvoiceService.getSubscriptionOrders(FETCH_LIMIT);
+    Set<Long> anomalyIdSet = ConcurrentHashMap.newKeySet();
+    List<Long> saleOrderIdList;
+
+    // orders late by several periods are selected again until they are up to date
+    while (!(saleOrderIdList = fetchSaleOrderIds(anomalyIdSet)).isEmpty()) {
+      int partitionSize =
+          Math.max(
+              getChunkSize(),
+              saleOrderIdList.size() / (getWorkerCount() * PARTITIONS_PER_WORKER) + 1);
+
+      processPartitions(
+          Lists.partition(saleOrderIdList, partitionSize),
+          saleOrderIds -> invoiceSaleOrders(saleOrderIds, anomalyIdSet));
+    }
+  }
+
+  protected List<Long> fetchSaleOrderIds(Set<Long> anomalyIdSet) {
+    Query<SaleOrder> query = subscriptionInvoiceService.getSubscriptionOrderQuery().order("id");
+    return query.select("id").fetch(0, 0).stream()
+        .map(map -> (Long) map.get("id"))
+        .filter(id -> !anomalyIdSet.contains(id))
+        .collect(Collectors.toList());
+  }
 
-    while (!saleOrders.isEmpty()) {
-      for (SaleOrder saleOrder : saleOrders) {
+  protected void invoiceSaleOrders(List<Long> saleOrderIds, Set<Long> anomalyIdSet) {
+    for (List<Long> chunk : Lists.partition(saleOrderIds, getChunkSize())) {
+      for (Long saleOrderId : chunk) {
+        SaleOrder saleOrder = saleOrderRepo.find(saleOrderId);
         try {
           subscriptionInvoiceService.generateSubscriptionInvoice(saleOrder);
           updateSaleOrder(saleOrder);
         } catch (AxelorException e) {
+          anomalyIdSet.add(saleOrderId);
           TraceBackService.trace(
               new AxelorException(
                   e, e.getCategory(), I18n.get("Order %s"), saleOrder.getSaleOrderSeq()),
@@ -65,6 +98,7 @@ public class BatchInvoicing extends BatchStrategy {
               batch.getId());
           incrementAnomaly();
         } catch (Exception e) {
+          anomalyIdSet.add(saleOrderId);
           TraceBackService.trace(
               new Exception(String.format(I18n.get("Order %s"), saleOrder.getSaleOrderSeq()), e),
               ExceptionOriginRepository.INVOICE_ORIGIN,
@@ -75,7 +109,6 @@ public class BatchInvoicing extends BatchStrategy {
         }
       }
       JPA.clear();
-      saleOrders = subscriptionInvoiceService.getSubscriptionOrders(FETCH_LIMIT);
     }
   }
 
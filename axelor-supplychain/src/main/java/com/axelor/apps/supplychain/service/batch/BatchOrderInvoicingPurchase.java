@@ -22,17 +22,15 @@ import com.axelor.apps.account.db.repo.InvoiceRepository;
 import com.axelor.apps.base.db.repo.BlockingRepository;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
 import com.axelor.apps.base.service.BlockingService;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.purchase.db.PurchaseOrder;
-import com.axelor.apps.purchase.db.repo.PurchaseOrderRepository;
 import com.axelor.apps.supplychain.db.SupplychainBatch;
 import com.axelor.apps.supplychain.service.PurchaseOrderInvoiceService;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.inject.Beans;
 import com.axelor.utils.helpers.StringHelper;
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -45,7 +43,7 @@ public class BatchOrderInvoicingPurchase extends BatchOrderInvoicing {
   protected void process() {
     SupplychainBatch supplychainBatch = batch.getSupplychainBatch();
     List<String> filterList = new ArrayList<>();
-    Query<PurchaseOrder> query = Beans.get(PurchaseOrderRepository.class).all();
+    ChunkedQuery<PurchaseOrder> query = chunkedQuery(PurchaseOrder.class);
 
     if (supplychainBatch.getCompany() != null) {
       filterList.add("self.company = :company");
@@ -99,10 +97,6 @@ public class BatchOrderInvoicingPurchase extends BatchOrderInvoicing {
 
     query.bind("invoiceStatusSelect", InvoiceRepository.STATUS_CANCELED);
 
-    List<Long> anomalyList = Lists.newArrayList(0L);
-    filterList.add("self.id NOT IN (:anomalyList)");
-    query.bind("anomalyList", anomalyList);
-
     String filter =
         filterList.stream()
             .map(item -> String.format("(%s)", item))
@@ -114,7 +108,7 @@ public class BatchOrderInvoicingPurchase extends BatchOrderInvoicing {
     Set<Long> treatedSet = new HashSet<>();
 
     for (List<PurchaseOrder> purchaseOrderList;
-        !(purchaseOrderList = query.fetch(FETCH_LIMIT)).isEmpty();
+        !(purchaseOrderList = query.fetchNext()).isEmpty();
         JPA.clear()) {
       for (PurchaseOrder purchaseOrder : purchaseOrderList) {
         if (treatedSet.contains(purchaseOrder.getId())) {
@@ -128,8 +122,8 @@ public class BatchOrderInvoicingPurchase extends BatchOrderInvoicing {
           incrementDone();
         } catch (Exception e) {
           incrementAnomaly();
-          anomalyList.add(purchaseOrder.getId());
-          query.bind("anomalyList", anomalyList);
+          // the rest of the chunk is fetched again once the session is cleared
+          query.startAfter(purchaseOrder.getId());
           TraceBackService.trace(e, ExceptionOriginRepository.INVOICE_ORIGIN, batch.getId());
           e.printStackTrace();
           break;
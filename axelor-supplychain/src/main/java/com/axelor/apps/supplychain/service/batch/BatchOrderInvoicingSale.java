@@ -22,17 +22,15 @@ import com.axelor.apps.account.db.repo.InvoiceRepository;
 import com.axelor.apps.base.db.repo.BlockingRepository;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
 import com.axelor.apps.base.service.BlockingService;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.sale.db.SaleOrder;
-import com.axelor.apps.sale.db.repo.SaleOrderRepository;
 import com.axelor.apps.supplychain.db.SupplychainBatch;
 import com.axelor.apps.supplychain.service.SaleOrderInvoiceService;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.inject.Beans;
 import com.axelor.utils.helpers.StringHelper;
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -45,7 +43,7 @@ public class BatchOrderInvoicingSale extends BatchOrderInvoicing {
   protected void process() {
     SupplychainBatch supplychainBatch = batch.getSupplychainBatch();
     List<String> filterList = new ArrayList<>();
-    Query<SaleOrder> query = Beans.get(SaleOrderRepository.class).all();
+    ChunkedQuery<SaleOrder> query = chunkedQuery(SaleOrder.class);
 
     if (supplychainBatch.getCompany() != null) {
       filterList.add("self.company = :company");
@@ -101,10 +99,6 @@ public class BatchOrderInvoicingSale extends BatchOrderInvoicing {
 
     query.bind("invoiceStatusSelect", InvoiceRepository.STATUS_CANCELED);
 
-    List<Long> anomalyList = Lists.newArrayList(0L);
-    filterList.add("self.id NOT IN (:anomalyList)");
-    query.bind("anomalyList", anomalyList);
-
     String filter =
         filterList.stream()
             .map(item -> String.format("(%s)", item))
@@ -115,7 +109,7 @@ public class BatchOrderInvoicingSale extends BatchOrderInvoicing {
     Set<Long> treatedSet = new HashSet<>();
 
     for (List<SaleOrder> saleOrderList;
-        !(saleOrderList = query.fetch(FETCH_LIMIT)).isEmpty();
+        !(saleOrderList = query.fetchNext()).isEmpty();
         JPA.clear()) {
       for (SaleOrder saleOrder : saleOrderList) {
         if (treatedSet.contains(saleOrder.getId())) {
@@ -129,8 +123,8 @@ public class BatchOrderInvoicingSale extends BatchOrderInvoicing {
           incrementDone();
         } catch (Exception e) {
           incrementAnomaly();
-          anomalyList.add(saleOrder.getId());
-          query.bind("anomalyList", anomalyList);
+          // the rest of the chunk is fetched again once the session is cleared
+          query.startAfter(saleOrder.getId());
           TraceBackService.trace(e, ExceptionOriginRepository.INVOICE_ORIGIN, batch.getId());
           e.printStackTrace();
           break;
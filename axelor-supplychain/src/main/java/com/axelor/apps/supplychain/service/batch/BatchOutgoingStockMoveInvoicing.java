@@ -23,6 +23,7 @@ import com.axelor.apps.base.db.repo.BlockingRepository;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.BlockingService;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.stock.db.StockMove;
 import com.axelor.apps.stock.db.repo.StockMoveRepository;
@@ -32,10 +33,8 @@ import com.axelor.apps.supplychain.service.StockMoveInvoiceService;
 import com.axelor.db.JPA;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
-import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import java.util.List;
-import javax.persistence.TypedQuery;
 
 public class BatchOutgoingStockMoveInvoicing extends BatchStrategy {
 
@@ -49,43 +48,36 @@ public class BatchOutgoingStockMoveInvoicing extends BatchStrategy {
   @Override
   protected void process() {
     SupplychainBatch supplychainBatch = batch.getSupplychainBatch();
-    List<Long> anomalyList = Lists.newArrayList(0L);
 
-    TypedQuery<StockMove> query =
-        JPA.em()
-            .createQuery(
-                "SELECT self FROM StockMove self "
-                    + "WHERE self.statusSelect = :statusSelect "
+    ChunkedQuery<StockMove> query =
+        chunkedQuery(StockMove.class)
+            .filter(
+                "self.statusSelect = :statusSelect "
                     + "AND self.typeSelect = :typeSelect "
                     + "AND self.invoicingStatusSelect !=  :invoicingStatusSelect "
-                    + "AND (SELECT count(invoice.id) FROM Invoice invoice WHERE invoice.statusSelect != :invoiceStatusCanceled AND invoice MEMBER OF self.invoiceSet) = 0"
-                    + "AND self.id NOT IN (:anomalyList) "
+                    + "AND (SELECT count(invoice.id) FROM Invoice invoice WHERE invoice.statusSelect != :invoiceStatusCanceled AND invoice MEMBER OF self.invoiceSet) = 0 "
                     + "AND self.partner.id NOT IN ("
                     + Beans.get(BlockingService.class)
                         .listOfBlockedPartner(
                             supplychainBatch.getCompany(), BlockingRepository.INVOICING_BLOCKING)
                     + ") "
-                    + "AND :batch NOT MEMBER OF self.batchSet "
-                    + "ORDER BY self.id",
-                StockMove.class)
-            .setParameter("statusSelect", StockMoveRepository.STATUS_REALIZED)
-            .setParameter("typeSelect", StockMoveRepository.TYPE_OUTGOING)
-            .setParameter("invoiceStatusCanceled", InvoiceRepository.STATUS_CANCELED)
-            .setParameter("invoicingStatusSelect", StockMoveRepository.STATUS_DELAYED_INVOICE)
-            .setParameter("anomalyList", anomalyList)
-            .setParameter("batch", batch)
-            .setMaxResults(FETCH_LIMIT);
+                    + "AND :batch NOT MEMBER OF self.batchSet")
+            .bind("statusSelect", StockMoveRepository.STATUS_REALIZED)
+            .bind("typeSelect", StockMoveRepository.TYPE_OUTGOING)
+            .bind("invoiceStatusCanceled", InvoiceRepository.STATUS_CANCELED)
+            .bind("invoicingStatusSelect", StockMoveRepository.STATUS_DELAYED_INVOICE)
+            .bind("batch", batch);
 
     List<StockMove> stockMoveList;
-    while (!(stockMoveList = query.getResultList()).isEmpty()) {
+    while (!(stockMoveList = query.fetchNext()).isEmpty()) {
       for (StockMove stockMove : stockMoveList) {
         try {
           stockMoveInvoiceService.createInvoiceFromStockMove(stockMove, null);
           updateStockMove(stockMove);
         } catch (Exception e) {
           incrementAnomaly();
-          anomalyList.add(stockMove.getId());
-          query.setParameter("anomalyList", anomalyList);
+          // the rest of the chunk is fetched again once the session is cleared
+          query.startAfter(stockMove.getId());
           TraceBackService.trace(e, ExceptionOriginRepository.INVOICE_ORIGIN, batch.getId());
           break;
         }
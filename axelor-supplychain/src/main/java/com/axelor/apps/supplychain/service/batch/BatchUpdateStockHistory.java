@@ -26,13 +26,13 @@ import com.axelor.apps.base.db.repo.ProductCategoryRepository;
 import com.axelor.apps.base.db.repo.ProductRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.ProductCategoryService;
+import com.axelor.apps.base.service.administration.ChunkedQuery;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.stock.db.StockHistoryLine;
 import com.axelor.apps.stock.service.StockHistoryService;
 import com.axelor.apps.supplychain.db.SupplychainBatch;
 import com.axelor.apps.supplychain.exception.SupplychainExceptionMessage;
 import com.axelor.db.JPA;
-import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.google.inject.Inject;
@@ -62,30 +62,23 @@ public class BatchUpdateStockHistory extends BatchStrategy {
       List<Product> productList;
       List<ProductCategory> productCategoryList = getProductCategoryList(supplychainBatch);
       List<StockHistoryLine> stockHistoryLineList = new ArrayList<>();
-      Query<Product> productQuery;
+      ChunkedQuery<Product> productQuery =
+          chunkedQuery(Product.class)
+              .bind("productTypeSelect", ProductRepository.PRODUCT_TYPE_STORABLE);
 
       if (supplychainBatch.getProductCategorySet() != null
           && !supplychainBatch.getProductCategorySet().isEmpty()) {
-        productQuery =
-            Beans.get(ProductRepository.class)
-                .all()
-                .filter(
-                    "self.productCategory in (?1) AND self.productTypeSelect = ?2",
-                    productCategoryList,
-                    ProductRepository.PRODUCT_TYPE_STORABLE);
+        productQuery
+            .filter(
+                "self.productCategory in (:productCategoryList) AND self.productTypeSelect = :productTypeSelect")
+            .bind("productCategoryList", productCategoryList);
       } else {
-        productQuery =
-            Beans.get(ProductRepository.class)
-                .all()
-                .filter("self.productTypeSelect = ?1", ProductRepository.PRODUCT_TYPE_STORABLE);
+        productQuery.filter("self.productTypeSelect = :productTypeSelect");
       }
 
-      int offset = 0;
-
-      while (!(productList = productQuery.order("id").fetch(FETCH_LIMIT, offset)).isEmpty()) {
+      while (!(productList = productQuery.fetchNext()).isEmpty()) {
 
         for (Product product : productList) {
-          ++offset;
           try {
             stockHistoryLineList.addAll(
                 stockHistoryService.computeAndSaveStockHistoryLineList(
@@ -117,6 +110,11 @@ public class BatchUpdateStockHistory extends BatchStrategy {
     }
   }
 
+  @Override
+  protected boolean isProgressBuffered() {
+    return true;
+  }
+
   @Override
   protected void stop() {
     String comment = I18n.get(SupplychainExceptionMessage.BATCH_UPDATE_STOCK_HISTORY_1) + " ";
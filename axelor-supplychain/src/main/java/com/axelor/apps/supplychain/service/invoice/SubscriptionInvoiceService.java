@@ -21,6 +21,7 @@ package com.axelor.apps.supplychain.service.invoice;
 import com.axelor.apps.account.db.Invoice;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.sale.db.SaleOrder;
+import com.axelor.db.Query;
 import java.util.List;
 
 public interface SubscriptionInvoiceService {
@@ -29,5 +30,7 @@ public interface SubscriptionInvoiceService {
 
   public List<SaleOrder> getSubscriptionOrders(Integer limit);
 
+  public Query<SaleOrder> getSubscriptionOrderQuery();
+
   public Invoice generateSubscriptionInvoice(SaleOrder saleOrder) throws AxelorException;
 }
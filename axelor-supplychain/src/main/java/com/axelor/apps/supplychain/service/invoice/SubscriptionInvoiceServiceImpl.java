@@ -61,22 +61,7 @@ public class SubscriptionInvoiceServiceImpl implements SubscriptionInvoiceServic
   @Override
   public List<SaleOrder> getSubscriptionOrders(Integer limit) {
 
-    Query<SaleOrder> query =
-        saleOrderRepo
-            .all()
-            .filter(
-                "self.saleOrderTypeSelect = :saleOrderType "
-                    + "AND self.statusSelect = :saleOrderStatus "
-                    + "AND :subScriptionDate >= self.nextInvoicingDate "
-                    + "AND (self.contractEndDate IS NULL OR self.contractEndDate >= :subScriptionDate)")
-            .bind("saleOrderType", SaleOrderRepository.SALE_ORDER_TYPE_SUBSCRIPTION)
-            .bind("saleOrderStatus", SaleOrderRepository.STATUS_ORDER_CONFIRMED)
-            .bind(
-                "subScriptionDate",
-                appBaseService.getTodayDate(
-                    Optional.ofNullable(AuthUtils.getUser())
-                        .map(User::getActiveCompany)
-                        .orElse(null)));
+    Query<SaleOrder> query = getSubscriptionOrderQuery();
 
     if (limit != null) {
       return query.fetch(limit);
@@ -85,6 +70,23 @@ public class SubscriptionInvoiceServiceImpl implements SubscriptionInvoiceServic
     return query.fetch();
   }
 
+  @Override
+  public Query<SaleOrder> getSubscriptionOrderQuery() {
+    return saleOrderRepo
+        .all()
+        .filter(
+            "self.saleOrderTypeSelect = :saleOrderType "
+                + "AND self.statusSelect = :saleOrderStatus "
+                + "AND :subScriptionDate >= self.nextInvoicingDate "
+                + "AND (self.contractEndDate IS NULL OR self.contractEndDate >= :subScriptionDate)")
+        .bind("saleOrderType", SaleOrderRepository.SALE_ORDER_TYPE_SUBSCRIPTION)
+        .bind("saleOrderStatus", SaleOrderRepository.STATUS_ORDER_CONFIRMED)
+        .bind(
+            "subScriptionDate",
+            appBaseService.getTodayDate(
+                Optional.ofNullable(AuthUtils.getUser()).map(User::getActiveCompany).orElse(null)));
+  }
+
   @Override
   @Transactional(rollbackOn = {Exception.class})
   public Invoice generateSubscriptionInvoice(SaleOrder saleOrder) throws AxelorException {
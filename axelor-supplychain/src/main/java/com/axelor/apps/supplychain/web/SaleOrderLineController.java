@@ -58,6 +58,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import org.apache.commons.lang3.tuple.Pair;
 
 @Singleton
 public class SaleOrderLineController {
@@ -132,10 +133,12 @@ public class SaleOrderLineController {
 
     if (saleOrder != null) {
       if (saleOrderLine.getProduct() != null && saleOrder.getStockLocation() != null) {
-        BigDecimal availableStock =
-            saleOrderLineServiceSupplyChainImpl.getAvailableStock(saleOrder, saleOrderLine);
-        BigDecimal allocatedStock =
-            saleOrderLineServiceSupplyChainImpl.getAllocatedStock(saleOrder, saleOrderLine);
+        Pair<BigDecimal, BigDecimal> stock =
+            saleOrderLineServiceSupplyChainImpl
+                .getAvailableAndAllocatedStock(saleOrder, List.of(saleOrderLine.getProduct()))
+                .get(saleOrderLine.getProduct().getId());
+        BigDecimal availableStock = stock.getLeft();
+        BigDecimal allocatedStock = stock.getRight();
 
         response.setValue("$availableStock", availableStock);
         response.setValue("$allocatedStock", allocatedStock);
@@ -0,0 +1,276 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.supplychain.service;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.repo.TraceBackRepository;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Nets a generated multi-level bill of materials the way the MRP does, and checks that netting the
+ * products of each level in parallel gives the same result as netting them one after the other and
+ * creating the proposals of the components immediately.
+ */
+class TestMrpLevelNetting {
+
+  protected static final int LEVEL_COUNT = 5;
+  protected static final int PRODUCT_COUNT_BY_LEVEL = 40;
+
+  @Test
+  void testParallelNettingIsIdenticalToSequentialRun() throws AxelorException {
+    String expected = new Simulation(42, false).run(1);
+
+    Assertions.assertEquals(expected, new Simulation(42, true).run(1));
+    Assertions.assertEquals(expected, new Simulation(42, true).run(2));
+    Assertions.assertEquals(expected, new Simulation(42, true).run(8));
+  }
+
+  @Test
+  void testParallelNettingIsRepeatable() throws AxelorException {
+    for (long seed = 1; seed <= 10; seed++) {
+      Assertions.assertEquals(
+          new Simulation(seed, false).run(1), new Simulation(seed, true).run(6));
+    }
+  }
+
+  @Test
+  void testWorkerExceptionIsRethrown() {
+    MrpLevelNetting<Long> levelNetting =
+        new MrpLevelNetting<>(
+            4,
+            productId -> {
+              if (productId == 3L) {
+                throw new AxelorException(TraceBackRepository.CATEGORY_INCONSISTENCY, "Product 3");
+              }
+              return List.of(productId);
+            },
+            (productId, proposalList) -> Assertions.fail("No proposal should be applied"));
+
+    AxelorException exception =
+        Assertions.assertThrows(
+            AxelorException.class, () -> levelNetting.netLevel(List.of(1L, 2L, 3L, 4L, 5L)));
+    Assertions.assertEquals("Product 3", exception.getMessage());
+  }
+
+  /** Generated products, with their bill of materials, stock and requirements. */
+  protected static class Simulation {
+
+    protected final boolean deferred;
+    protected final Map<Long, ProductState> productMap = new TreeMap<>();
+
+    protected Simulation(long seed, boolean deferred) {
+      this.deferred = deferred;
+
+      Random random = new Random(seed);
+      for (int level = 0; level < LEVEL_COUNT; level++) {
+        for (int i = 0; i < PRODUCT_COUNT_BY_LEVEL; i++) {
+          ProductState product = new ProductState(level * 1000L + i, level);
+          product.onHandQty = random.nextInt(50);
+          product.minQty = random.nextInt(10);
+          product.familyDayNb = random.nextInt(4);
+          product.leadTime = random.nextInt(6);
+          productMap.put(product.id, product);
+        }
+      }
+
+      for (ProductState product : productMap.values()) {
+        if (product.level < LEVEL_COUNT - 1) {
+          for (int i = random.nextInt(4) + 1; i > 0; i--) {
+            int componentLevel =
+                product.level + 1 + random.nextInt(LEVEL_COUNT - product.level - 1);
+            long componentId = componentLevel * 1000L + random.nextInt(PRODUCT_COUNT_BY_LEVEL);
+            product.componentList.add(new long[] {componentId, random.nextInt(3) + 1});
+          }
+        }
+        if (product.level == 0 || random.nextInt(4) == 0) {
+          for (int i = random.nextInt(5) + 1; i > 0; i--) {
+            product.requirementList.add(
+                new Requirement(random.nextInt(30), random.nextInt(40) + 1, "SO" + product.id));
+          }
+        }
+      }
+    }
+
+    protected String run(int workerCount) throws AxelorException {
+      MrpLevelNetting<Proposal> levelNetting =
+          new MrpLevelNetting<>(
+              workerCount,
+              this::net,
+              (productId, proposalList) -> {
+                for (Proposal proposal : proposalList) {
+                  this.addNeed(proposal);
+                }
+              });
+
+      for (int level = 0; level < LEVEL_COUNT; level++) {
+        final int currentLevel = level;
+        levelNetting.netLevel(
+            productMap.values().stream()
+                .filter(product -> product.level == currentLevel)
+                .map(product -> product.id)
+                .collect(Collectors.toList()));
+      }
+
+      return productMap.values().stream()
+          .map(ProductState::toString)
+          .collect(Collectors.joining("\n"));
+    }
+
+    /** Nets the given product, only reading and updating its own requirements and proposals. */
+    protected List<Proposal> net(Long productId) {
+      ProductState product = productMap.get(productId);
+      List<Proposal> deferredProposalList = new ArrayList<>();
+
+      product.requirementList.sort(Comparator.comparingInt(requirement -> requirement.day));
+
+      long cumulativeQty = product.onHandQty;
+      for (Requirement requirement : product.requirementList) {
+        cumulativeQty -= requirement.qty;
+        if (cumulativeQty >= product.minQty) {
+          continue;
+        }
+
+        long reorderQty = product.minQty - cumulativeQty;
+        cumulativeQty += reorderQty;
+        String origin = product.id + "@" + requirement.day;
+        Requirement proposal = product.findProposal(requirement.day);
+        if (proposal != null) {
+          proposal.qty += reorderQty;
+          proposal.originList.add(origin);
+        } else {
+          product.proposalList.add(new Requirement(requirement.day, reorderQty, origin));
+        }
+
+        for (long[] component : product.componentList) {
+          Proposal componentProposal =
+              new Proposal(
+                  component[0],
+                  Math.max(0, requirement.day - product.leadTime),
+                  reorderQty * component[1],
+                  origin);
+          if (deferred) {
+            deferredProposalList.add(componentProposal);
+          } else {
+            this.addNeed(componentProposal);
+          }
+        }
+      }
+
+      return deferredProposalList;
+    }
+
+    /** Adds the need of a component, merged with a need of the same period as the MRP does. */
+    protected void addNeed(Proposal proposal) {
+      ProductState product = productMap.get(proposal.productId);
+      Requirement need = product.findNeed(proposal.day);
+      if (need != null) {
+        need.qty += proposal.qty;
+        need.originList.add(proposal.origin);
+      } else {
+        Requirement requirement = new Requirement(proposal.day, proposal.qty, proposal.origin);
+        requirement.need = true;
+        product.requirementList.add(requirement);
+      }
+    }
+  }
+
+  protected static class ProductState {
+    protected final long id;
+    protected final int level;
+    protected long onHandQty;
+    protected long minQty;
+    protected int familyDayNb;
+    protected int leadTime;
+
+    /** Components with their quantity. */
+    protected final List<long[]> componentList = new ArrayList<>();
+
+    protected final List<Requirement> requirementList = new ArrayList<>();
+    protected final List<Requirement> proposalList = new ArrayList<>();
+
+    protected ProductState(long id, int level) {
+      this.id = id;
+      this.level = level;
+    }
+
+    protected Requirement findProposal(int day) {
+      return find(proposalList, day);
+    }
+
+    protected Requirement findNeed(int day) {
+      return find(
+          requirementList.stream()
+              .filter(requirement -> requirement.need)
+              .collect(Collectors.toList()),
+          day);
+    }
+
+    protected Requirement find(List<Requirement> list, int day) {
+      return list.stream()
+          .filter(requirement -> requirement.day > day - familyDayNb && requirement.day <= day)
+          .findFirst()
+          .orElse(null);
+    }
+
+    @Override
+    public String toString() {
+      return id + " " + requirementList + " " + proposalList;
+    }
+  }
+
+  protected static class Requirement {
+    protected final int day;
+    protected long qty;
+    protected boolean need;
+    protected final List<String> originList = new ArrayList<>();
+
+    protected Requirement(int day, long qty, String origin) {
+      this.day = day;
+      this.qty = qty;
+      this.originList.add(origin);
+    }
+
+    @Override
+    public String toString() {
+      return day + ":" + qty + originList;
+    }
+  }
+
+  protected static class Proposal {
+    protected final long productId;
+    protected final int day;
+    protected final long qty;
+    protected final String origin;
+
+    protected Proposal(long productId, int day, long qty, String origin) {
+      this.productId = productId;
+      this.day = day;
+      this.qty = qty;
+      this.origin = origin;
+    }
+  }
+}
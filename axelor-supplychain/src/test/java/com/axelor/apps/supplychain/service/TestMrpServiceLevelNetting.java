@@ -0,0 +1,403 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.supplychain.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Product;
+import com.axelor.apps.base.db.Unit;
+import com.axelor.apps.base.db.repo.ProductRepository;
+import com.axelor.apps.base.service.ProductCategoryService;
+import com.axelor.apps.base.service.UnitConversionService;
+import com.axelor.apps.base.service.app.AppBaseService;
+import com.axelor.apps.purchase.db.repo.PurchaseOrderLineRepository;
+import com.axelor.apps.purchase.service.app.AppPurchaseService;
+import com.axelor.apps.sale.db.repo.SaleOrderLineRepository;
+import com.axelor.apps.sale.service.app.AppSaleService;
+import com.axelor.apps.stock.db.StockLocation;
+import com.axelor.apps.stock.db.repo.StockHistoryLineRepository;
+import com.axelor.apps.stock.db.repo.StockLocationLineRepository;
+import com.axelor.apps.stock.db.repo.StockLocationRepository;
+import com.axelor.apps.stock.service.StockLocationService;
+import com.axelor.apps.stock.service.StockRulesService;
+import com.axelor.apps.supplychain.db.Mrp;
+import com.axelor.apps.supplychain.db.MrpFamily;
+import com.axelor.apps.supplychain.db.MrpLine;
+import com.axelor.apps.supplychain.db.MrpLineOrigin;
+import com.axelor.apps.supplychain.db.MrpLineType;
+import com.axelor.apps.supplychain.db.repo.MrpForecastRepository;
+import com.axelor.apps.supplychain.db.repo.MrpLineRepository;
+import com.axelor.apps.supplychain.db.repo.MrpLineTypeRepository;
+import com.axelor.apps.supplychain.db.repo.MrpRepository;
+import com.axelor.message.service.MailMessageService;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the netting of {@link MrpServiceImpl} on in-memory MRP lines, the finished products creating
+ * the needs of their components as manufacturing proposals do, and checks that netting the
+ * products of a level in parallel saves the same proposals as netting them one after the other.
+ */
+class TestMrpServiceLevelNetting {
+
+  protected static final LocalDate TODAY = LocalDate.of(2024, 3, 1);
+
+  @Test
+  void checkInsufficientCumulativeQty_parallelNettingIsIdenticalToSequentialRun()
+      throws AxelorException {
+    String expected = new Simulation().run(1);
+
+    Assertions.assertEquals(expected, new Simulation().run(2));
+    Assertions.assertEquals(expected, new Simulation().run(4));
+  }
+
+  @Test
+  void checkInsufficientCumulativeQty_savesAndNetsDeferredNeeds() throws AxelorException {
+    Simulation simulation = new Simulation();
+    simulation.run(4);
+
+    // the needs of the components, deferred while netting the finished products
+    Assertions.assertEquals(
+        List.of("-12", "-6", "-7", "-4"), simulation.getQtyList(10L, Simulation.NEED_TYPE_ID));
+    // component 10 has no stock, its proposals cover each of its needs
+    Assertions.assertEquals(
+        List.of("12", "6", "7", "4"), simulation.getQtyList(10L, Simulation.PROPOSAL_TYPE_ID));
+    Assertions.assertEquals(
+        List.of("-18", "-2"), simulation.getQtyList(11L, Simulation.NEED_TYPE_ID));
+    Assertions.assertEquals(
+        List.of("13", "2"), simulation.getQtyList(11L, Simulation.PROPOSAL_TYPE_ID));
+  }
+
+  /** Products of two levels with their MRP lines, kept in memory instead of the database. */
+  protected static class Simulation {
+
+    protected static final long SALE_ORDER_TYPE_ID = 1L;
+    protected static final long AVAILABLE_STOCK_TYPE_ID = 2L;
+    protected static final long PROPOSAL_TYPE_ID = 3L;
+    protected static final long NEED_TYPE_ID = 4L;
+
+    protected final Mrp mrp = new Mrp();
+    protected final StockLocation stockLocation = new StockLocation();
+    protected final Map<Long, Product> productMap = new TreeMap<>();
+    protected final Map<Long, MrpLineType> mrpLineTypeMap = new TreeMap<>();
+
+    /** Components of the finished products, with their quantity. */
+    protected final Map<Long, Map<Long, Integer>> componentMap = new TreeMap<>();
+
+    protected final Map<Long, List<MrpLine>> mrpLineMap = new ConcurrentHashMap<>();
+    protected final AtomicLong mrpLineId = new AtomicLong(1000);
+
+    protected Simulation() {
+      stockLocation.setId(1L);
+      mrp.setId(1L);
+      mrp.setMrpTypeSelect(MrpRepository.MRP_TYPE_MRP);
+      mrp.setStockLocation(stockLocation);
+
+      addMrpLineType(
+          SALE_ORDER_TYPE_ID,
+          MrpLineTypeRepository.ELEMENT_SALE_ORDER,
+          MrpLineTypeRepository.TYPE_OUT);
+      addMrpLineType(
+          AVAILABLE_STOCK_TYPE_ID,
+          MrpLineTypeRepository.ELEMENT_AVAILABLE_STOCK,
+          MrpLineTypeRepository.TYPE_IN);
+      addMrpLineType(
+          PROPOSAL_TYPE_ID,
+          MrpLineTypeRepository.ELEMENT_PURCHASE_PROPOSAL,
+          MrpLineTypeRepository.TYPE_IN);
+      addMrpLineType(
+          NEED_TYPE_ID,
+          MrpLineTypeRepository.ELEMENT_MANUFACTURING_PROPOSAL_NEED,
+          MrpLineTypeRepository.TYPE_OUT);
+
+      for (long productId : new long[] {1L, 2L, 3L, 4L, 10L, 11L}) {
+        addProduct(productId);
+      }
+      componentMap.put(1L, Map.of(10L, 2));
+      componentMap.put(2L, Map.of(10L, 1, 11L, 3));
+      componentMap.put(3L, Map.of(11L, 1));
+      componentMap.put(4L, Map.of(10L, 1));
+
+      addMrpLine(1L, AVAILABLE_STOCK_TYPE_ID, 0, "3");
+      addMrpLine(1L, SALE_ORDER_TYPE_ID, 2, "-5");
+      addMrpLine(1L, SALE_ORDER_TYPE_ID, 3, "-4");
+      addMrpLine(1L, SALE_ORDER_TYPE_ID, 9, "-2");
+      addMrpLine(2L, SALE_ORDER_TYPE_ID, 4, "-6");
+      addMrpLine(3L, AVAILABLE_STOCK_TYPE_ID, 0, "10");
+      addMrpLine(3L, SALE_ORDER_TYPE_ID, 1, "-4");
+      addMrpLine(3L, SALE_ORDER_TYPE_ID, 6, "-8");
+      addMrpLine(4L, SALE_ORDER_TYPE_ID, 7, "-7");
+      addMrpLine(11L, AVAILABLE_STOCK_TYPE_ID, 0, "5");
+    }
+
+    /** Nets both levels with the given number of workers and returns the resulting MRP lines. */
+    protected String run(int workerCount) throws AxelorException {
+      MrpServiceImpl mrpService = this.createMrpService(workerCount);
+      mrpService.setMrp(mrp);
+      mrpService.context.setToday(TODAY);
+      for (Long productId : productMap.keySet()) {
+        mrpService.context.getProductMap().put(productId, productId < 10L ? 0 : 1);
+      }
+
+      mrpService.checkInsufficientCumulativeQty();
+
+      return productMap.keySet().stream()
+          .map(
+              productId ->
+                  productId
+                      + " "
+                      + this.getSortedLineList(productId).stream()
+                          .map(
+                              mrpLine ->
+                                  mrpLine.getMrpLineType().getCode()
+                                      + "@"
+                                      + mrpLine.getMaturityDate()
+                                      + "="
+                                      + mrpLine.getQty().stripTrailingZeros().toPlainString())
+                          .collect(Collectors.joining(", ")))
+          .collect(Collectors.joining("\n"));
+    }
+
+    protected List<String> getQtyList(Long productId, Long mrpLineTypeId) {
+      return this.getSortedLineList(productId).stream()
+          .filter(mrpLine -> mrpLine.getMrpLineType().getId().equals(mrpLineTypeId))
+          .map(mrpLine -> mrpLine.getQty().stripTrailingZeros().toPlainString())
+          .collect(Collectors.toList());
+    }
+
+    protected List<MrpLine> getSortedLineList(Long productId) {
+      List<MrpLine> mrpLineList =
+          new ArrayList<>(mrpLineMap.getOrDefault(productId, Collections.emptyList()));
+      mrpLineList.sort(
+          (mrpLine1, mrpLine2) -> {
+            int result = mrpLine1.getMaturityDate().compareTo(mrpLine2.getMaturityDate());
+            return result != 0
+                ? result
+                : mrpLine1.getMrpLineType().getId().compareTo(mrpLine2.getMrpLineType().getId());
+          });
+      return mrpLineList;
+    }
+
+    protected MrpServiceImpl createMrpService(int workerCount) {
+      MrpRepository mrpRepository = mock(MrpRepository.class);
+      when(mrpRepository.find(1L)).thenReturn(mrp);
+      StockLocationRepository stockLocationRepository = mock(StockLocationRepository.class);
+      when(stockLocationRepository.find(1L)).thenReturn(stockLocation);
+      ProductRepository productRepository = mock(ProductRepository.class);
+      when(productRepository.find(anyLong()))
+          .thenAnswer(invocation -> productMap.get(invocation.<Long>getArgument(0)));
+      MrpLineTypeRepository mrpLineTypeRepository = mock(MrpLineTypeRepository.class);
+      when(mrpLineTypeRepository.find(anyLong()))
+          .thenAnswer(invocation -> mrpLineTypeMap.get(invocation.<Long>getArgument(0)));
+
+      MrpLineRepository mrpLineRepository = mock(MrpLineRepository.class);
+      when(mrpLineRepository.save(any()))
+          .thenAnswer(invocation -> this.saveMrpLine(invocation.getArgument(0)));
+
+      MrpLineService mrpLineService = mock(MrpLineService.class);
+      when(mrpLineService.createMrpLine(
+              any(), any(), anyInt(), any(), any(), any(), any(), any(), any()))
+          .thenAnswer(
+              invocation -> {
+                MrpLineType mrpLineType = invocation.getArgument(3);
+                BigDecimal qty = invocation.getArgument(4);
+                MrpLine mrpLine = new MrpLine();
+                mrpLine.setMrp(invocation.getArgument(0));
+                mrpLine.setProduct(invocation.getArgument(1));
+                mrpLine.setMrpLineType(mrpLineType);
+                mrpLine.setQty(
+                    mrpLineType.getTypeSelect() == MrpLineTypeRepository.TYPE_OUT
+                        ? qty.negate()
+                        : qty);
+                mrpLine.setMaturityDate(invocation.getArgument(5));
+                mrpLine.setCumulativeQty(invocation.getArgument(6));
+                mrpLine.setStockLocation(invocation.getArgument(7));
+                return mrpLine;
+              });
+
+      MrpLineTypeService mrpLineTypeService = mock(MrpLineTypeService.class);
+      when(mrpLineTypeService.getMrpLineType(
+              MrpLineTypeRepository.ELEMENT_PURCHASE_PROPOSAL, MrpRepository.MRP_TYPE_MRP))
+          .thenReturn(mrpLineTypeMap.get(PROPOSAL_TYPE_ID));
+
+      return new MrpServiceImpl(
+          mrpRepository,
+          stockLocationRepository,
+          productRepository,
+          mock(StockLocationLineRepository.class),
+          mrpLineTypeRepository,
+          mock(PurchaseOrderLineRepository.class),
+          mock(SaleOrderLineRepository.class),
+          mrpLineRepository,
+          mock(StockRulesService.class),
+          mrpLineService,
+          mock(MrpForecastRepository.class),
+          mock(ProductCategoryService.class),
+          mock(StockLocationService.class),
+          mock(MailMessageService.class),
+          mock(UnitConversionService.class),
+          mock(AppBaseService.class),
+          mock(AppSaleService.class),
+          mock(AppPurchaseService.class),
+          mock(StockHistoryLineRepository.class),
+          mock(MrpSaleOrderCheckLateSaleService.class),
+          mrpLineTypeService) {
+
+        @Override
+        protected int getWorkerCount() {
+          return workerCount;
+        }
+
+        // the workers net the products without request scope nor session
+        @Override
+        protected List<MrpDeferredProposal> netProductInWorker(Long productId)
+            throws AxelorException {
+          return this.netProduct(productId);
+        }
+
+        @Override
+        protected void clear() {}
+
+        @Override
+        protected List<MrpLine> getMrpLineList(Product product) {
+          List<MrpLine> mrpLineList =
+              new ArrayList<>(mrpLineMap.getOrDefault(product.getId(), Collections.emptyList()));
+          mrpLineList.sort(this.getMrpLineComparator());
+          return mrpLineList;
+        }
+
+        @Override
+        public MrpLine getPreviousProposalMrpLine(
+            Product product,
+            MrpLineType mrpLineType,
+            StockLocation stockLocation,
+            LocalDate maturityDate) {
+          LocalDate startPeriodDate = maturityDate.minusDays(product.getMrpFamily().getDayNb());
+          return mrpLineMap.getOrDefault(product.getId(), Collections.emptyList()).stream()
+              .filter(
+                  mrpLine ->
+                      mrpLine.getMrpLineType() == mrpLineType
+                          && mrpLine.getStockLocation() == stockLocation
+                          && mrpLine.getMaturityDate().isAfter(startPeriodDate)
+                          && !mrpLine.getMaturityDate().isAfter(maturityDate))
+              .findFirst()
+              .orElse(null);
+        }
+
+        // the proposals of a finished product create the needs of its components
+        @Override
+        protected MrpLine createProposalMrpLine(
+            Mrp mrp,
+            Product product,
+            MrpLineType mrpLineType,
+            BigDecimal reorderQty,
+            StockLocation stockLocation,
+            LocalDate maturityDate,
+            List<MrpLineOrigin> mrpLineOriginList,
+            String relatedToSelectName)
+            throws AxelorException {
+          MrpLine mrpLine =
+              super.createProposalMrpLine(
+                  mrp,
+                  product,
+                  mrpLineType,
+                  reorderQty,
+                  stockLocation,
+                  maturityDate,
+                  mrpLineOriginList,
+                  relatedToSelectName);
+
+          for (Map.Entry<Long, Integer> component :
+              componentMap.getOrDefault(product.getId(), Map.of()).entrySet()) {
+            super.createProposalMrpLine(
+                mrp,
+                productMap.get(component.getKey()),
+                mrpLineTypeMap.get(NEED_TYPE_ID),
+                reorderQty.multiply(BigDecimal.valueOf(component.getValue())),
+                stockLocation,
+                maturityDate,
+                mrpLineOriginList,
+                relatedToSelectName);
+          }
+          return mrpLine;
+        }
+      };
+    }
+
+    protected MrpLine saveMrpLine(MrpLine mrpLine) {
+      if (mrpLine.getId() == null) {
+        mrpLine.setId(mrpLineId.incrementAndGet());
+        mrpLineMap
+            .computeIfAbsent(
+                mrpLine.getProduct().getId(),
+                productId -> Collections.synchronizedList(new ArrayList<>()))
+            .add(mrpLine);
+      }
+      return mrpLine;
+    }
+
+    protected void addMrpLineType(Long id, int elementSelect, int typeSelect) {
+      MrpLineType mrpLineType = new MrpLineType();
+      mrpLineType.setId(id);
+      mrpLineType.setCode("T" + id);
+      mrpLineType.setElementSelect(elementSelect);
+      mrpLineType.setTypeSelect(typeSelect);
+      mrpLineType.setSequence(id.intValue());
+      mrpLineTypeMap.put(id, mrpLineType);
+    }
+
+    protected void addProduct(Long id) {
+      MrpFamily mrpFamily = new MrpFamily();
+      mrpFamily.setDayNb(2);
+
+      Product product = new Product();
+      product.setId(id);
+      product.setCode("P" + id);
+      product.setUnit(new Unit());
+      product.setMrpFamily(mrpFamily);
+      productMap.put(id, product);
+    }
+
+    protected void addMrpLine(Long productId, Long mrpLineTypeId, int day, String qty) {
+      MrpLine mrpLine = new MrpLine();
+      mrpLine.setMrp(mrp);
+      mrpLine.setProduct(productMap.get(productId));
+      mrpLine.setMrpLineType(mrpLineTypeMap.get(mrpLineTypeId));
+      mrpLine.setQty(new BigDecimal(qty));
+      mrpLine.setMaturityDate(TODAY.plusDays(day));
+      mrpLine.setStockLocation(stockLocation);
+      this.saveMrpLine(mrpLine);
+    }
+  }
+}
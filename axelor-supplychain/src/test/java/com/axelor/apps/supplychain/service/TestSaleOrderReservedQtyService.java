@@ -0,0 +1,87 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.supplychain.service;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.sale.db.SaleOrder;
+import com.axelor.apps.sale.db.SaleOrderLine;
+import com.axelor.apps.stock.db.StockMoveLine;
+import com.axelor.apps.stock.db.repo.StockMoveLineRepository;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestSaleOrderReservedQtyService {
+
+  private ReservedQtyService reservedQtyService;
+  private SaleOrderReservedQtyService saleOrderReservedQtyService;
+
+  @BeforeEach
+  void prepare() {
+    reservedQtyService = mock(ReservedQtyService.class);
+    saleOrderReservedQtyService =
+        new SaleOrderReservedQtyServiceImpl(
+            reservedQtyService, mock(StockMoveLineRepository.class));
+  }
+
+  @Test
+  void allocateAll_allocatesLinesHavingPlannedStockMoveLineInOneQuery() throws AxelorException {
+    SaleOrderLine deliveredLine = createSaleOrderLine(1L);
+    SaleOrderLine plannedLine1 = createSaleOrderLine(2L);
+    SaleOrderLine plannedLine2 = createSaleOrderLine(3L);
+    SaleOrder saleOrder = new SaleOrder();
+    saleOrder.setSaleOrderLineList(List.of(deliveredLine, plannedLine1, plannedLine2));
+    when(reservedQtyService.getPlannedStockMoveLineMap(anyList()))
+        .thenReturn(Map.of(2L, new StockMoveLine(), 3L, new StockMoveLine()));
+
+    saleOrderReservedQtyService.allocateAll(saleOrder);
+
+    verify(reservedQtyService, times(1)).getPlannedStockMoveLineMap(anyList());
+    verify(reservedQtyService).allocateAll(List.of(plannedLine1, plannedLine2));
+  }
+
+  @Test
+  void cancelReservation_onlyCancelsLinesHavingPlannedStockMoveLine() throws AxelorException {
+    SaleOrderLine deliveredLine = createSaleOrderLine(1L);
+    SaleOrderLine plannedLine = createSaleOrderLine(2L);
+    SaleOrder saleOrder = new SaleOrder();
+    saleOrder.setSaleOrderLineList(List.of(deliveredLine, plannedLine));
+    when(reservedQtyService.getPlannedStockMoveLineMap(anyList()))
+        .thenReturn(Map.of(2L, new StockMoveLine()));
+
+    saleOrderReservedQtyService.cancelReservation(saleOrder);
+
+    verify(reservedQtyService, times(1)).cancelReservation(plannedLine);
+    verify(reservedQtyService, never()).cancelReservation(deliveredLine);
+  }
+
+  protected SaleOrderLine createSaleOrderLine(Long id) {
+    SaleOrderLine saleOrderLine = new SaleOrderLine();
+    saleOrderLine.setId(id);
+    return saleOrderLine;
+  }
+}